@@ -0,0 +1,57 @@
+package com.lofo.serenia.mapper;
+
+import com.lofo.serenia.persistence.entity.conversation.ChatMessage;
+import com.lofo.serenia.persistence.entity.conversation.MessageRole;
+import com.lofo.serenia.service.chat.BenchmarkTexts;
+import com.openai.models.chat.completions.ChatCompletionMessageParam;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping of a full history window (16 messages) to OpenAI request params.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatMessageMapperBenchmark {
+
+    private static final int HISTORY_SIZE = 16;
+
+    private final ChatMessageMapper mapper = new ChatMessageMapperImpl();
+    private List<ChatMessage> history;
+
+    @Setup
+    public void setUp() {
+        history = new ArrayList<>(HISTORY_SIZE);
+        Instant start = Instant.parse("2026-01-01T10:00:00Z");
+        for (int i = 0; i < HISTORY_SIZE; i++) {
+            MessageRole role = i % 2 == 0 ? MessageRole.USER : MessageRole.ASSISTANT;
+            history.add(new ChatMessage(role, BenchmarkTexts.text(400), start.plusSeconds(i * 30L)));
+        }
+    }
+
+    @Benchmark
+    public List<ChatCompletionMessageParam> mapHistory() {
+        List<ChatCompletionMessageParam> params = new ArrayList<>(HISTORY_SIZE);
+        for (ChatMessage message : history) {
+            params.add(mapper.toChatCompletionMessageParam(message));
+        }
+        return params;
+    }
+}
@@ -0,0 +1,147 @@
+package com.lofo.serenia.persistence.entity.conversation;
+
+import org.hibernate.id.uuid.UuidVersion7Strategy;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Primary-key index cost of random (v4) versus time-ordered (v7) {@link Message} ids.
+ *
+ * <p>Each invocation inserts {@code rows} ids, in generation order, into a model of a B-tree leaf level that
+ * splits full pages the way PostgreSQL does: in the middle, except for an insert at the right edge, which
+ * leaves the old page 90% full. A leaf holds about 290 uuid keys in an 8 kB page. {@link #insertAll()}
+ * compares insert cost; {@link #modelledIndexSize(IndexSize)} reports the resulting leaf page count and fill
+ * factor as the {@code modelledLeafPages} and {@code modelledFillPercent} counters of the result file.</p>
+ *
+ * <p>The sizes are modelled estimates, not measurements of a PostgreSQL index. The model orders keys with
+ * {@link UUID#compareTo}, which compares signed 64-bit halves, whereas PostgreSQL compares uuid bytes unsigned.
+ * Both orders agree on v7 ids while the timestamp's top bit is clear; v4 ids land in a different but equally
+ * random order. Internal pages, tuple headers and vacuum are not modelled.</p>
+ *
+ * <p>For the modelled 10M-row comparison: {@code -Djmh.args="-p rows=10000000 -jvmArgsAppend -Xmx6g"}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageIdIndexBenchmark {
+
+    static final int LEAF_CAPACITY = 290;
+    static final int RIGHT_EDGE_SPLIT_FILL = LEAF_CAPACITY * 9 / 10;
+
+    @Param({"1000000"})
+    int rows;
+
+    @Param({"v4", "v7"})
+    String version;
+
+    private List<UUID> ids;
+
+    @Setup
+    public void generateIds() {
+        UuidVersion7Strategy v7 = new UuidVersion7Strategy();
+        ids = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            ids.add("v7".equals(version) ? v7.generateUuid(null) : UUID.randomUUID());
+        }
+    }
+
+    /**
+     * Modelled index size, reported next to the timing of {@link #modelledIndexSize(IndexSize)}.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class IndexSize {
+        public long modelledLeafPages;
+        public double modelledFillPercent;
+    }
+
+    @Benchmark
+    public int insertAll() {
+        return load().pages();
+    }
+
+    /**
+     * Runs the load once so that the counters describe a single index rather than a sum over iterations.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    public int modelledIndexSize(IndexSize size) {
+        int pages = load().pages();
+        size.modelledLeafPages = pages;
+        size.modelledFillPercent = 100.0 * rows / ((long) pages * LEAF_CAPACITY);
+        return pages;
+    }
+
+    private LeafLevel load() {
+        LeafLevel index = new LeafLevel();
+        for (UUID id : ids) {
+            index.insert(id);
+        }
+        return index;
+    }
+
+    /**
+     * Leaf pages keyed by their lowest key when created; keys below the first one go to the first page.
+     */
+    static final class LeafLevel {
+
+        private final TreeMap<UUID, List<UUID>> leaves = new TreeMap<>();
+
+        void insert(UUID key) {
+            Map.Entry<UUID, List<UUID>> entry = leaves.floorEntry(key);
+            if (entry == null) {
+                entry = leaves.firstEntry();
+            }
+            if (entry == null) {
+                List<UUID> leaf = new ArrayList<>(LEAF_CAPACITY + 1);
+                leaf.add(key);
+                leaves.put(key, leaf);
+                return;
+            }
+
+            List<UUID> leaf = entry.getValue();
+            int position = Collections.binarySearch(leaf, key);
+            int insertAt = position < 0 ? -position - 1 : position;
+            leaf.add(insertAt, key);
+            if (leaf.size() > LEAF_CAPACITY) {
+                boolean rightEdge = insertAt == leaf.size() - 1 && entry.getKey().equals(leaves.lastKey());
+                split(leaf, rightEdge ? RIGHT_EDGE_SPLIT_FILL : leaf.size() / 2);
+            }
+        }
+
+        int pages() {
+            return leaves.size();
+        }
+
+        private void split(List<UUID> leaf, int keep) {
+            List<UUID> tail = leaf.subList(keep, leaf.size());
+            List<UUID> right = new ArrayList<>(LEAF_CAPACITY + 1);
+            right.addAll(tail);
+            tail.clear();
+            leaves.put(right.getFirst(), right);
+        }
+    }
+}
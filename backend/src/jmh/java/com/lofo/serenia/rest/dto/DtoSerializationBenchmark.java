@@ -0,0 +1,72 @@
+package com.lofo.serenia.rest.dto;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.lofo.serenia.persistence.entity.conversation.ChatMessage;
+import com.lofo.serenia.persistence.entity.conversation.MessageRole;
+import com.lofo.serenia.rest.dto.out.ConversationMessagesResponseDTO;
+import com.lofo.serenia.rest.dto.out.MessageResponseDTO;
+import com.lofo.serenia.service.chat.BenchmarkTexts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialisation of the response DTOs returned by the conversation endpoints.
+ * The mapper mirrors the Quarkus defaults (ISO dates, lenient on unknown properties).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DtoSerializationBenchmark {
+
+    private static final UUID CONVERSATION_ID = UUID.fromString("00000000-0000-0000-0000-000000000002");
+
+    private ObjectMapper objectMapper;
+    private MessageResponseDTO messageResponse;
+    private ConversationMessagesResponseDTO conversationResponse;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper()
+                .findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+        Instant start = Instant.parse("2026-01-01T10:00:00Z");
+        List<ChatMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            MessageRole role = i % 2 == 0 ? MessageRole.USER : MessageRole.ASSISTANT;
+            messages.add(new ChatMessage(role, BenchmarkTexts.text(400), start.plusSeconds(i * 30L)));
+        }
+        messageResponse = MessageResponseDTO.from(CONVERSATION_ID, messages.get(1));
+        conversationResponse = new ConversationMessagesResponseDTO(CONVERSATION_ID, messages, null);
+    }
+
+    @Benchmark
+    public byte[] serializeMessageResponse() throws Exception {
+        return objectMapper.writeValueAsBytes(messageResponse);
+    }
+
+    @Benchmark
+    public byte[] serializeConversationMessages() throws Exception {
+        return objectMapper.writeValueAsBytes(conversationResponse);
+    }
+}
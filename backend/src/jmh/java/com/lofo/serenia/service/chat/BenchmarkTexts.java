@@ -0,0 +1,20 @@
+package com.lofo.serenia.service.chat;
+
+/**
+ * Deterministic, mostly-ASCII message bodies with a few multi-byte characters, like real conversations.
+ */
+public final class BenchmarkTexts {
+
+    private static final String SAMPLE = "Aujourd'hui je me sens un peu dépassé·e, mais ça va mieux qu'hier. ";
+
+    private BenchmarkTexts() {
+    }
+
+    public static String text(int length) {
+        StringBuilder builder = new StringBuilder(length + SAMPLE.length());
+        while (builder.length() < length) {
+            builder.append(SAMPLE);
+        }
+        return builder.substring(0, length);
+    }
+}
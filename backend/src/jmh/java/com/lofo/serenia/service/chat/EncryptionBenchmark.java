@@ -0,0 +1,62 @@
+package com.lofo.serenia.service.chat;
+
+import com.lofo.serenia.config.SereniaConfig;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encrypt/decrypt throughput of {@link EncryptionService} for typical chat message sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncryptionBenchmark {
+
+    private static final String SECURITY_KEY = "qNJYJqH7CdLF0X3R5wZ+bVmK9pL2mN3oQ4rS6tU7vW8=";
+    private static final UUID USER_ID = UUID.fromString("00000000-0000-0000-0000-000000000001");
+
+    @Param({"100", "1024", "8192"})
+    private int messageSize;
+
+    private EncryptionService encryptionService;
+    private String plaintext;
+    private byte[] ciphertext;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SereniaConfig sereniaConfig = Mockito.mock(SereniaConfig.class);
+        Mockito.when(sereniaConfig.securityKey()).thenReturn(SECURITY_KEY);
+        encryptionService = new EncryptionService(sereniaConfig, new UserKeyCache(1_000, Duration.ofMinutes(30)));
+
+        plaintext = BenchmarkTexts.text(messageSize);
+        ciphertext = encryptionService.encryptForUser(USER_ID, plaintext);
+    }
+
+    @Benchmark
+    public byte[] encrypt() {
+        return encryptionService.encryptForUser(USER_ID, plaintext);
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return encryptionService.decryptForUser(USER_ID, ciphertext);
+    }
+}
@@ -0,0 +1,34 @@
+package com.lofo.serenia.service.subscription;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token normalisation performed for every recorded completion.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuotaNormalizationBenchmark {
+
+    private int promptTokens = 1_850;
+    private int cachedTokens = 1_024;
+    private int completionTokens = 320;
+
+    @Benchmark
+    public int normalizeTokens() {
+        return QuotaService.normalizeTokens(promptTokens, cachedTokens, completionTokens);
+    }
+}
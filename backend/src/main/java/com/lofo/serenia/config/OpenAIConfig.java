@@ -19,4 +19,12 @@ public interface OpenAIConfig {
     @WithName("model")
     @WithDefault("gpt-4o-mini")
     String model();
+
+    /**
+     * Upper bound on the tokens generated for a chat reply, also used as the completion allowance
+     * reserved against the user's quota before each call.
+     */
+    @WithName("max-completion-tokens")
+    @WithDefault("512")
+    int maxCompletionTokens();
 }
\ No newline at end of file
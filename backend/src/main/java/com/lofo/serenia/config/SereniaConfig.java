@@ -1,9 +1,12 @@
 package com.lofo.serenia.config;
 
+import com.lofo.serenia.service.chat.MessageRetentionPolicy;
 import io.smallrye.config.ConfigMapping;
 import io.smallrye.config.WithDefault;
 import io.smallrye.config.WithName;
 
+import java.time.Duration;
+
 /**
  * Strongly typed mapping for the "serenia" configuration namespace.
  */
@@ -16,6 +19,20 @@ public interface SereniaConfig {
     @WithName("security.key")
     String securityKey();
 
+    /**
+     * Maximum number of derived per-user encryption keys kept in memory.
+     */
+    @WithName("encryption.key-cache.max-size")
+    @WithDefault("10000")
+    long encryptionKeyCacheMaxSize();
+
+    /**
+     * Idle time after which a cached per-user encryption key is evicted and wiped.
+     */
+    @WithName("encryption.key-cache.expire-after-access")
+    @WithDefault("PT30M")
+    Duration encryptionKeyCacheExpireAfterAccess();
+
     /**
      * Default maximum number of input tokens granted to each user.
      */
@@ -77,4 +94,118 @@ public interface SereniaConfig {
     @WithDefault("3600")
     Long tokenExpirationTime();
 
+    /**
+     * Lifetime of a quota reservation. Reservations left behind by a crashed call are released by the purge job once this delay has passed.
+     */
+    @WithName("quota.reservation-ttl")
+    @WithDefault("PT5M")
+    Duration quotaReservationTtl();
+
+    /**
+     * Keeps quota counters in memory and writes them behind to the database instead of updating the row on every call.
+     * Only suitable when each user is served by a single instance.
+     */
+    @WithName("quota.in-memory.enabled")
+    @WithDefault("false")
+    boolean quotaInMemoryEnabled();
+
+    /**
+     * Normalized tokens a user may accumulate in memory before being flushed right away.
+     * Bounds how far over quota a crash can let that user go.
+     */
+    @WithName("quota.in-memory.max-unflushed-tokens")
+    @WithDefault("20000")
+    int quotaInMemoryMaxUnflushedTokens();
+
+    /**
+     * Messages a user may accumulate in memory before being flushed right away.
+     */
+    @WithName("quota.in-memory.max-unflushed-messages")
+    @WithDefault("5")
+    int quotaInMemoryMaxUnflushedMessages();
+
+    /**
+     * How long in-memory counters keep using a cached plan before reloading its limits.
+     */
+    @WithName("quota.in-memory.plan-refresh")
+    @WithDefault("PT1M")
+    Duration quotaInMemoryPlanRefresh();
+
+    /**
+     * Number of messages not yet covered by the rolling summary above which older turns are folded into it.
+     */
+    @WithName("summary.trigger-messages")
+    @WithDefault("40")
+    int summaryTriggerMessages();
+
+    /**
+     * Number of most recent messages always left out of the rolling summary and sent verbatim.
+     */
+    @WithName("summary.keep-recent-messages")
+    @WithDefault("20")
+    int summaryKeepRecentMessages();
+
+    /**
+     * Number of monthly {@code messages} partitions kept created ahead of the current month (PostgreSQL only).
+     */
+    @WithName("messages.partitions-ahead")
+    @WithDefault("3")
+    int messagesPartitionsAhead();
+
+    /**
+     * What happens to monthly {@code messages} partitions once they fall out of the retention period.
+     */
+    @WithName("messages.retention.policy")
+    @WithDefault("KEEP")
+    MessageRetentionPolicy messagesRetentionPolicy();
+
+    /**
+     * Number of full months of messages kept before the current one when a retention policy applies.
+     */
+    @WithName("messages.retention.months")
+    @WithDefault("24")
+    int messagesRetentionMonths();
+
+    /**
+     * Maximum number of messages deleted per transaction by the purge worker.
+     */
+    @WithName("purge.batch-size")
+    @WithDefault("1000")
+    int purgeBatchSize();
+
+    /**
+     * Pause between two batches of the purge worker, to leave room for regular traffic.
+     */
+    @WithName("purge.batch-pause")
+    @WithDefault("PT0.05S")
+    Duration purgeBatchPause();
+
+    /**
+     * How long a purge job stays with the instance working on it without progress, and how long a failed job waits before being retried.
+     */
+    @WithName("purge.lease")
+    @WithDefault("PT1M")
+    Duration purgeLease();
+
+    /**
+     * Failed runs after which a purge job is parked and no longer retried; the wait between retries doubles from {@code purge.lease}.
+     */
+    @WithName("purge.max-attempts")
+    @WithDefault("10")
+    int purgeMaxAttempts();
+
+    /**
+     * Age after which a cached admin dashboard or timeline response is recomputed in the background on its next request.
+     */
+    @WithName("admin.stats-cache.ttl")
+    @WithDefault("PT30S")
+    Duration adminStatsCacheTtl();
+
+    /**
+     * How long past its TTL a cached admin response may still be served while it is recomputed.
+     */
+    @WithName("admin.stats-cache.max-stale")
+    @WithDefault("PT5M")
+    Duration adminStatsCacheMaxStale();
+
 }
@@ -4,6 +4,9 @@ import io.smallrye.config.ConfigMapping;
 import io.smallrye.config.WithDefault;
 import io.smallrye.config.WithName;
 
+import java.time.Duration;
+import java.util.Optional;
+
 /**
  * Stripe integration configuration.
  * Values are read from application.properties or environment variables.
@@ -17,6 +20,13 @@ public interface StripeConfig {
     @WithName("api.key")
     String apiKey();
 
+    /**
+     * Base URL of the Stripe API, to point the SDK at a local stand-in such as stripe-mock.
+     * The live API is used when unset.
+     */
+    @WithName("api.base")
+    Optional<String> apiBase();
+
     /**
      * Secret for Stripe webhook signature validation.
      */
@@ -37,5 +47,53 @@ public interface StripeConfig {
     @WithName("cancel.url")
     @WithDefault("http://localhost:4200/profile?payment=cancel")
     String cancelUrl();
-}
 
+    /**
+     * Number of webhook events processed in parallel, each for a different customer.
+     */
+    @WithName("webhook.inbox.workers")
+    @WithDefault("4")
+    int webhookInboxWorkers();
+
+    /**
+     * Attempts after which a failing webhook event is dead-lettered.
+     */
+    @WithName("webhook.inbox.max-attempts")
+    @WithDefault("8")
+    int webhookInboxMaxAttempts();
+
+    /**
+     * Delay before the first retry of a failed webhook event; doubles with each further attempt.
+     */
+    @WithName("webhook.inbox.retry-backoff")
+    @WithDefault("PT10S")
+    Duration webhookInboxRetryBackoff();
+
+    /**
+     * How long an instance keeps a webhook event to itself while processing it.
+     */
+    @WithName("webhook.inbox.lease")
+    @WithDefault("PT2M")
+    Duration webhookInboxLease();
+
+    /**
+     * How long processed webhook events are kept to recognize redeliveries from Stripe.
+     */
+    @WithName("webhook.inbox.retention")
+    @WithDefault("P7D")
+    Duration webhookInboxRetention();
+
+    /**
+     * Subscriptions requested per page when listing them from Stripe (at most 100).
+     */
+    @WithName("reconciliation.page-size")
+    @WithDefault("100")
+    int reconciliationPageSize();
+
+    /**
+     * Stripe subscriptions compared and fixed per database transaction by the reconciliation job.
+     */
+    @WithName("reconciliation.batch-size")
+    @WithDefault("500")
+    int reconciliationBatchSize();
+}
@@ -0,0 +1,20 @@
+package com.lofo.serenia.config;
+
+import com.stripe.Stripe;
+import jakarta.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Configures the Stripe SDK, whose API key and base URL are global, from {@link StripeConfig}.
+ * Every bean calling the SDK injects it, so that the SDK is configured before that bean is created.
+ */
+@Slf4j
+@Singleton
+public class StripeSdk {
+
+    public StripeSdk(StripeConfig stripeConfig) {
+        Stripe.apiKey = stripeConfig.apiKey();
+        stripeConfig.apiBase().ifPresent(Stripe::overrideApiBase);
+        log.info("Stripe SDK initialized");
+    }
+}
@@ -5,6 +5,8 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.SQLRestriction;
+import org.hibernate.annotations.UuidGenerator;
 
 import java.time.Instant;
 import java.util.UUID;
@@ -15,13 +17,15 @@ import java.util.UUID;
 @Getter
 @Entity
 @Table(name = "conversations")
+@SQLRestriction("purge_requested_at IS NULL")
 public class Conversation {
 
     /**
      * Logical chat session owned by a single user; timestamps mark display ordering and retention policies.
+     * Ids are time-ordered (UUIDv7), like those of {@link Message}.
      */
     @Id
-    @GeneratedValue
+    @UuidGenerator(style = UuidGenerator.Style.VERSION_7)
     private UUID id;
 
     @Column(name = "user_id", nullable = false)
@@ -36,6 +40,12 @@ public class Conversation {
     @Column(name = "last_activity_at", nullable = false)
     private Instant lastActivityAt;
 
+    /**
+     * Set when the user deletes the conversation; it is invisible from then on and removed by the purge worker.
+     */
+    @Column(name = "purge_requested_at")
+    private Instant purgeRequestedAt;
+
     @PrePersist
     void onCreate() {
         Instant now = Instant.now();
@@ -0,0 +1,10 @@
+package com.lofo.serenia.persistence.entity.conversation;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Columns of a conversation shown in the sidebar, selected without hydrating the entity.
+ */
+public record ConversationListItem(UUID id, String name, Instant lastActivityAt) {
+}
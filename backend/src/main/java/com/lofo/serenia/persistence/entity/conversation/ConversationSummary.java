@@ -0,0 +1,49 @@
+package com.lofo.serenia.persistence.entity.conversation;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@AllArgsConstructor
+@Setter
+@Getter
+@Entity
+@Table(name = "conversation_summaries")
+@NoArgsConstructor
+public class ConversationSummary {
+
+    /**
+     * Encrypted running summary of every message of the conversation up to {@code summarizedUntil}.
+     * Only ever extended with newer messages, never rebuilt from the full history.
+     */
+    @Id
+    @Column(name = "conversation_id", nullable = false, updatable = false)
+    private UUID conversationId;
+
+    @Column(name = "user_id", nullable = false, updatable = false)
+    private UUID userId;
+
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(name = "encrypted_summary", nullable = false)
+    private byte[] encryptedSummary;
+
+    @Column(name = "summarized_until", nullable = false)
+    private Instant summarizedUntil;
+
+    @Column(name = "summarized_message_count", nullable = false)
+    private int summarizedMessageCount;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
@@ -6,6 +6,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.annotations.UuidGenerator;
 import org.hibernate.type.SqlTypes;
 
 import java.time.Instant;
@@ -21,9 +22,10 @@ public class Message {
 
     /**
      * Persisted chat turn stored encrypted for privacy-compliant replay and audit operations.
+     * Ids are time-ordered (UUIDv7), so new rows land on the right edge of the primary-key index.
      */
     @Id
-    @GeneratedValue
+    @UuidGenerator(style = UuidGenerator.Style.VERSION_7)
     private UUID id;
 
     @Column(name = "conversation_id", nullable = false)
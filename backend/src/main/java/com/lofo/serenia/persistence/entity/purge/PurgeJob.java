@@ -0,0 +1,63 @@
+package com.lofo.serenia.persistence.entity.purge;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Suppression demandée par un utilisateur et exécutée en arrière-plan par lots bornés.
+ * Le job est pris sous bail ({@code lockedUntil}) ; si l'instance qui le traite s'arrête,
+ * il est repris à l'expiration du bail. Il est supprimé une fois la purge terminée.
+ * Après {@code serenia.purge.max-attempts} échecs, il est mis de côté ({@code parkedAt}) et n'est plus repris.
+ */
+@Entity
+@Table(name = "purge_jobs")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(of = "id")
+@ToString
+public class PurgeJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(name = "id", nullable = false, updatable = false)
+    private UUID id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "scope", nullable = false, updatable = false, length = 32)
+    private PurgeScope scope;
+
+    @Column(name = "user_id", nullable = false, updatable = false)
+    private UUID userId;
+
+    @Column(name = "conversation_id", updatable = false)
+    private UUID conversationId;
+
+    @Builder.Default
+    @Column(name = "messages_deleted", nullable = false)
+    private long messagesDeleted = 0;
+
+    @Builder.Default
+    @Column(name = "attempts", nullable = false)
+    private int attempts = 0;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "locked_until")
+    private Instant lockedUntil;
+
+    @Column(name = "parked_at")
+    private Instant parkedAt;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
@@ -0,0 +1,11 @@
+package com.lofo.serenia.persistence.entity.purge;
+
+/**
+ * What a {@link PurgeJob} deletes.
+ */
+public enum PurgeScope {
+    /** Every message and conversation of the user, then the user row itself. */
+    ACCOUNT,
+    /** The messages of one conversation, then the conversation row. */
+    CONVERSATION
+}
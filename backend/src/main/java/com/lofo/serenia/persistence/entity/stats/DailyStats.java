@@ -0,0 +1,53 @@
+package com.lofo.serenia.persistence.entity.stats;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Compteurs d'activité d'une journée UTC, lus par le tableau de bord d'administration à la place des tables sources.
+ * Les compteurs sont recalculés par le job de consolidation une fois la journée close ({@code rolledUpAt} renseigné) ;
+ * les jetons sont cumulés au fil de l'eau, y compris pour la journée en cours.
+ */
+@Entity
+@Table(name = "daily_stats")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(of = "statDate")
+@ToString
+public class DailyStats {
+
+    @Id
+    @Column(name = "stat_date", nullable = false, updatable = false)
+    private LocalDate statDate;
+
+    @Builder.Default
+    @Column(name = "new_users", nullable = false)
+    private long newUsers = 0;
+
+    @Builder.Default
+    @Column(name = "user_messages", nullable = false)
+    private long userMessages = 0;
+
+    /** Distinct users who sent at least one message that day. */
+    @Builder.Default
+    @Column(name = "active_users", nullable = false)
+    private long activeUsers = 0;
+
+    /** Users whose first message ever was sent that day; summed over any range, gives the distinct active users. */
+    @Builder.Default
+    @Column(name = "new_active_users", nullable = false)
+    private long newActiveUsers = 0;
+
+    @Builder.Default
+    @Column(name = "tokens_used", nullable = false)
+    private long tokensUsed = 0;
+
+    @Column(name = "rolled_up_at")
+    private Instant rolledUpAt;
+}
@@ -0,0 +1,21 @@
+package com.lofo.serenia.persistence.entity.stats;
+
+/**
+ * Daily counters summed over a range of days. Distinct active users are not part of it, since they do not add up
+ * across days; {@code newActiveUsers} does.
+ */
+public record DailyStatsTotals(long newUsers, long userMessages, long newActiveUsers) {
+
+    public static final DailyStatsTotals ZERO = new DailyStatsTotals(0, 0, 0);
+
+    public DailyStatsTotals plus(DailyStatsTotals other) {
+        return new DailyStatsTotals(
+                newUsers + other.newUsers,
+                userMessages + other.userMessages,
+                newActiveUsers + other.newActiveUsers);
+    }
+
+    public static DailyStatsTotals of(DailyStats stats) {
+        return new DailyStatsTotals(stats.getNewUsers(), stats.getUserMessages(), stats.getNewActiveUsers());
+    }
+}
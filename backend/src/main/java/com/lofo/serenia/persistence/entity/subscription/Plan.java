@@ -38,6 +38,12 @@ public class Plan {
     @Column(name = "daily_message_limit", nullable = false)
     private Integer dailyMessageLimit;
 
+    /**
+     * Nombre maximal de tokens d'historique de conversation envoyés à chaque appel OpenAI.
+     */
+    @Column(name = "context_token_budget", nullable = false)
+    private Integer contextTokenBudget;
+
     @Column(name = "price_cents", nullable = false)
     private Integer priceCents;
 
@@ -0,0 +1,41 @@
+package com.lofo.serenia.persistence.entity.subscription;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Jetons réservés sur le quota mensuel d'un utilisateur pendant un appel OpenAI.
+ * Le total des réservations en cours est tenu dans {@link Subscription#getTokensReserved()} ;
+ * une réservation expirée jamais soldée est libérée par la purge planifiée.
+ */
+@Entity
+@Table(name = "quota_reservations")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(of = "id")
+@ToString
+public class QuotaReservation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(name = "id", nullable = false, updatable = false)
+    private UUID id;
+
+    @Column(name = "user_id", nullable = false, updatable = false)
+    private UUID userId;
+
+    @Column(name = "reserved_tokens", nullable = false)
+    private Integer reservedTokens;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+}
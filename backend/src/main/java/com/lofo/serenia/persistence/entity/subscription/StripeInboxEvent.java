@@ -0,0 +1,62 @@
+package com.lofo.serenia.persistence.entity.subscription;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Événement Stripe vérifié, enregistré à la réception puis traité en arrière-plan.
+ * L'identifiant de l'événement Stripe sert de clé, ce qui dédoublonne les renvois.
+ * Les événements d'un même client sont traités un par un, dans l'ordre de leur création chez Stripe.
+ */
+@Entity
+@Table(name = "stripe_event_inbox")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(of = "id")
+@ToString(exclude = "payload")
+public class StripeInboxEvent {
+
+    @Id
+    @Column(name = "id", nullable = false, updatable = false)
+    private String id;
+
+    @Column(name = "type", nullable = false, updatable = false, length = 100)
+    private String type;
+
+    @Column(name = "customer_id", updatable = false)
+    private String customerId;
+
+    @Column(name = "payload", nullable = false, updatable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16)
+    private StripeInboxStatus status;
+
+    @Builder.Default
+    @Column(name = "attempts", nullable = false)
+    private int attempts = 0;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "event_created_at", nullable = false, updatable = false)
+    private Instant eventCreatedAt;
+
+    @Column(name = "received_at", nullable = false, updatable = false)
+    private Instant receivedAt;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(name = "locked_until")
+    private Instant lockedUntil;
+
+    @Column(name = "processed_at")
+    private Instant processedAt;
+}
@@ -0,0 +1,13 @@
+package com.lofo.serenia.persistence.entity.subscription;
+
+/**
+ * État d'un événement Stripe reçu dans la boîte de réception.
+ */
+public enum StripeInboxStatus {
+    /** Reçu, en attente de traitement ou de nouvel essai. */
+    PENDING,
+    /** Traité, ou ignoré pour une erreur métier ; conservé pour dédoublonner les renvois de Stripe. */
+    DONE,
+    /** Abandonné après le nombre maximal d'essais ; à examiner à la main. */
+    DEAD
+}
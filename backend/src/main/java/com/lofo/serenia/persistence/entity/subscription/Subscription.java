@@ -42,6 +42,13 @@ public class Subscription {
     @Column(name = "tokens_used_this_month", nullable = false)
     private Integer tokensUsedThisMonth = 0;
 
+    /**
+     * Jetons réservés par les appels OpenAI en cours, pas encore soldés.
+     */
+    @Builder.Default
+    @Column(name = "tokens_reserved", nullable = false)
+    private Integer tokensReserved = 0;
+
     @Builder.Default
     @Column(name = "messages_sent_today", nullable = false)
     private Integer messagesSentToday = 0;
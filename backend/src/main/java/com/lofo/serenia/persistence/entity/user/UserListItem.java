@@ -0,0 +1,24 @@
+package com.lofo.serenia.persistence.entity.user;
+
+import com.lofo.serenia.persistence.entity.subscription.PlanType;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One row of the admin user list: the user joined with its subscription and its message count, selected in a
+ * single query. Subscription columns are null for a user without subscription.
+ */
+public record UserListItem(
+        UUID id,
+        String email,
+        String firstName,
+        String lastName,
+        Role role,
+        PlanType planType,
+        boolean activated,
+        Instant createdAt,
+        long messageCount,
+        Integer tokensUsedThisMonth,
+        Integer messagesSentToday
+) {}
@@ -0,0 +1,91 @@
+package com.lofo.serenia.persistence.repository;
+
+import com.lofo.serenia.persistence.entity.conversation.MessageRole;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Serialized per-day sketches of active user ids in {@code active_user_sketches}, one row per day and node that
+ * recorded activity. A node only ever writes its own rows, so nodes never overwrite each other's sketches.
+ */
+@ApplicationScoped
+@RequiredArgsConstructor
+public class ActiveUserSketchRepository {
+
+    private final EntityManager entityManager;
+
+    public record StoredSketch(LocalDate day, byte[] sketch) {
+    }
+
+    @Transactional
+    public void save(LocalDate day, UUID nodeId, byte[] sketch, Instant now) {
+        entityManager
+                .createNativeQuery("MERGE INTO active_user_sketches t "
+                        + "USING (VALUES (CAST(?1 AS DATE), CAST(?2 AS UUID))) AS s (stat_date, node_id) "
+                        + "ON t.stat_date = s.stat_date AND t.node_id = s.node_id "
+                        + "WHEN MATCHED THEN UPDATE SET sketch = ?3, updated_at = ?4 "
+                        + "WHEN NOT MATCHED THEN INSERT (stat_date, node_id, sketch, updated_at) "
+                        + "VALUES (s.stat_date, s.node_id, ?3, ?4)")
+                .setParameter(1, day)
+                .setParameter(2, nodeId)
+                .setParameter(3, sketch)
+                .setParameter(4, now)
+                .executeUpdate();
+    }
+
+    /**
+     * Replaces every node's sketch of the day with a single one.
+     */
+    @Transactional
+    public void replaceDay(LocalDate day, UUID nodeId, byte[] sketch, Instant now) {
+        entityManager.createNativeQuery("DELETE FROM active_user_sketches WHERE stat_date = ?1")
+                .setParameter(1, day)
+                .executeUpdate();
+        save(day, nodeId, sketch, now);
+    }
+
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public List<StoredSketch> findBetween(LocalDate from, LocalDate to) {
+        List<Object[]> rows = entityManager
+                .createNativeQuery("SELECT stat_date, sketch FROM active_user_sketches "
+                        + "WHERE stat_date >= ?1 AND stat_date <= ?2")
+                .setParameter(1, from)
+                .setParameter(2, to)
+                .getResultList();
+        return rows.stream()
+                .map(row -> new StoredSketch(toLocalDate(row[0]), (byte[]) row[1]))
+                .toList();
+    }
+
+    /**
+     * @return the users who sent at least one message in {@code [start, end)}
+     */
+    @Transactional
+    public List<UUID> findActiveUserIds(Instant start, Instant end) {
+        return entityManager
+                .createQuery("SELECT DISTINCT m.userId FROM Message m "
+                        + "WHERE m.role = :role AND m.timestamp >= :start AND m.timestamp < :end", UUID.class)
+                .setParameter("role", MessageRole.USER)
+                .setParameter("start", start)
+                .setParameter("end", end)
+                .getResultList();
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof LocalDate localDate) {
+            return localDate;
+        }
+        if (value instanceof java.sql.Date sqlDate) {
+            return sqlDate.toLocalDate();
+        }
+        throw new IllegalArgumentException("Cannot convert to LocalDate: " + value.getClass());
+    }
+}
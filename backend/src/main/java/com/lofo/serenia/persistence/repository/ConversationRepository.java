@@ -1,9 +1,12 @@
 package com.lofo.serenia.persistence.repository;
 
 import com.lofo.serenia.persistence.entity.conversation.Conversation;
+import com.lofo.serenia.persistence.entity.conversation.ConversationListItem;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.TypedQuery;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -11,23 +14,95 @@ import java.util.UUID;
 @ApplicationScoped
 public class ConversationRepository implements PanacheRepository<Conversation> {
 
+    private static final String LIST_ITEM_SELECT = "SELECT new com.lofo.serenia.persistence.entity.conversation."
+            + "ConversationListItem(c.id, c.name, c.lastActivityAt) FROM Conversation c ";
+    private static final String LIST_ITEM_ORDER = "ORDER BY c.lastActivityAt DESC, c.id ASC";
+
     public Optional<Conversation> findActiveByUser(UUID userId) {
         return find("userId = ?1 ORDER BY lastActivityAt DESC", userId).firstResultOptional();
     }
 
-    public List<Conversation> findAllByUserOrderedByLastActivity(UUID userId) {
-        return find("userId = ?1 ORDER BY lastActivityAt DESC", userId).list();
+    public List<ConversationListItem> findAllByUserOrderedByLastActivity(UUID userId) {
+        return getEntityManager()
+                .createQuery(LIST_ITEM_SELECT + "WHERE c.userId = :userId " + LIST_ITEM_ORDER, ConversationListItem.class)
+                .setParameter("userId", userId)
+                .getResultList();
+    }
+
+    /**
+     * Returns up to {@code limit} conversations strictly after the given position (from the most recent when null).
+     * The order matches {@code idx_conversations_user_activity}, so each page is one index range scan; the redundant
+     * {@code lastActivityAt <= :afterActivity} lets the scan seek to the cursor instead of filtering from the top.
+     */
+    public List<ConversationListItem> findPageByUserAfter(UUID userId, Instant afterActivity, UUID afterId, int limit) {
+        String where = afterActivity == null
+                ? "WHERE c.userId = :userId "
+                : "WHERE c.userId = :userId AND c.lastActivityAt <= :afterActivity "
+                        + "AND (c.lastActivityAt < :afterActivity "
+                        + "OR (c.lastActivityAt = :afterActivity AND c.id > :afterId)) ";
+        TypedQuery<ConversationListItem> query = getEntityManager()
+                .createQuery(LIST_ITEM_SELECT + where + LIST_ITEM_ORDER, ConversationListItem.class)
+                .setParameter("userId", userId)
+                .setMaxResults(limit);
+        if (afterActivity != null) {
+            query.setParameter("afterActivity", afterActivity).setParameter("afterId", afterId);
+        }
+        return query.getResultList();
     }
 
     public Optional<Conversation> findByConversationId(UUID conversationId) {
         return find("id = ?1", conversationId).firstResultOptional();
     }
 
+    /**
+     * Moves the conversation's last activity forward in one statement, without loading the entity.
+     */
+    public int touchLastActivity(UUID conversationId, Instant now) {
+        return update("lastActivityAt = ?1 where id = ?2", now, conversationId);
+    }
+
     public Optional<Conversation> findByIdAndUser(UUID conversationId, UUID userId) {
         return find("id = ?1 and userId = ?2", conversationId, userId).firstResultOptional();
     }
 
-    public void deleteByUserId(UUID userId) {
-        delete("userId", userId);
+    /**
+     * Hides the conversation from every query until {@link #deletePurged} removes it.
+     */
+    public int markPurgeRequested(UUID conversationId, Instant now) {
+        return update("purgeRequestedAt = ?1 where id = ?2", now, conversationId);
+    }
+
+    /**
+     * Hides every conversation of the user in a single statement.
+     */
+    public int markPurgeRequestedByUser(UUID userId, Instant now) {
+        return update("purgeRequestedAt = ?1 where userId = ?2", now, userId);
+    }
+
+    public List<UUID> findIdsByUser(UUID userId) {
+        return getEntityManager()
+                .createQuery("SELECT c.id FROM Conversation c WHERE c.userId = :userId", UUID.class)
+                .setParameter("userId", userId)
+                .getResultList();
+    }
+
+    /**
+     * Deletes a conversation awaiting purge. Native, because the entity restriction hides such conversations from HQL.
+     */
+    public int deletePurged(UUID conversationId) {
+        return getEntityManager()
+                .createNativeQuery("DELETE FROM conversations WHERE id = ?1 AND purge_requested_at IS NOT NULL")
+                .setParameter(1, conversationId)
+                .executeUpdate();
+    }
+
+    /**
+     * Deletes every conversation of the user, including those awaiting purge.
+     */
+    public int deleteAllByUser(UUID userId) {
+        return getEntityManager()
+                .createNativeQuery("DELETE FROM conversations WHERE user_id = ?1")
+                .setParameter(1, userId)
+                .executeUpdate();
     }
 }
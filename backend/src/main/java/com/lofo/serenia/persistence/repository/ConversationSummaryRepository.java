@@ -0,0 +1,16 @@
+package com.lofo.serenia.persistence.repository;
+
+import com.lofo.serenia.persistence.entity.conversation.ConversationSummary;
+import io.quarkus.hibernate.orm.panache.PanacheRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@ApplicationScoped
+public class ConversationSummaryRepository implements PanacheRepository<ConversationSummary> {
+
+    public Optional<ConversationSummary> findByConversationId(UUID conversationId) {
+        return find("conversationId", conversationId).firstResultOptional();
+    }
+}
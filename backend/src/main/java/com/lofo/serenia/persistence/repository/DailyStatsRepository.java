@@ -0,0 +1,118 @@
+package com.lofo.serenia.persistence.repository;
+
+import com.lofo.serenia.persistence.entity.conversation.MessageRole;
+import com.lofo.serenia.persistence.entity.stats.DailyStats;
+import com.lofo.serenia.persistence.entity.stats.DailyStatsTotals;
+import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.TypedQuery;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@ApplicationScoped
+public class DailyStatsRepository implements PanacheRepositoryBase<DailyStats, LocalDate> {
+
+    public Optional<DailyStats> findLastRolledUp() {
+        return find("rolledUpAt is not null order by statDate desc").firstResultOptional();
+    }
+
+    public List<DailyStats> findBetween(LocalDate from, LocalDate to) {
+        return list("statDate >= ?1 and statDate <= ?2 order by statDate", from, to);
+    }
+
+    public DailyStatsTotals sumRolledUp() {
+        return getEntityManager()
+                .createQuery("SELECT new com.lofo.serenia.persistence.entity.stats.DailyStatsTotals("
+                        + "COALESCE(SUM(d.newUsers), 0L), COALESCE(SUM(d.userMessages), 0L), "
+                        + "COALESCE(SUM(d.newActiveUsers), 0L)) FROM DailyStats d WHERE d.rolledUpAt IS NOT NULL",
+                        DailyStatsTotals.class)
+                .getSingleResult();
+    }
+
+    /**
+     * @return the creation time of the oldest account, before which there can be no activity
+     */
+    public Optional<Instant> findFirstActivity() {
+        return Optional.ofNullable(getEntityManager()
+                .createQuery("SELECT MIN(u.createdAt) FROM User u", Instant.class)
+                .getSingleResult());
+    }
+
+    /**
+     * Counts the activity in {@code [start, end)} from the source tables, {@code start} being open when null.
+     * The result is not persisted and has no date.
+     */
+    public DailyStats aggregate(Instant start, Instant end) {
+        TypedQuery<Long> newUsers = getEntityManager().createQuery(
+                "SELECT COUNT(u) FROM User u WHERE " + range("u.createdAt", start), Long.class);
+        TypedQuery<Object[]> messages = getEntityManager().createQuery(
+                "SELECT COUNT(m), COUNT(DISTINCT m.userId) FROM Message m "
+                        + "WHERE m.role = :role AND " + range("m.timestamp", start), Object[].class);
+        TypedQuery<Long> newActiveUsers = getEntityManager().createQuery(
+                "SELECT COUNT(DISTINCT m.userId) FROM Message m WHERE m.role = :role AND " + range("m.timestamp", start)
+                        + (start == null ? "" : " AND NOT EXISTS (SELECT 1 FROM Message p "
+                                + "WHERE p.userId = m.userId AND p.role = :role AND p.timestamp < :start)"),
+                Long.class);
+
+        for (TypedQuery<?> query : List.of(newUsers, messages, newActiveUsers)) {
+            query.setParameter("end", end);
+            if (start != null) {
+                query.setParameter("start", start);
+            }
+        }
+        messages.setParameter("role", MessageRole.USER);
+        newActiveUsers.setParameter("role", MessageRole.USER);
+
+        Object[] messageCounts = messages.getSingleResult();
+        return DailyStats.builder()
+                .newUsers(newUsers.getSingleResult())
+                .userMessages(((Number) messageCounts[0]).longValue())
+                .activeUsers(((Number) messageCounts[1]).longValue())
+                .newActiveUsers(newActiveUsers.getSingleResult())
+                .build();
+    }
+
+    /**
+     * Stores the recomputed counters of a day, leaving its token total untouched.
+     */
+    public int saveRollup(LocalDate day, DailyStats counts, Instant rolledUpAt) {
+        return getEntityManager()
+                .createNativeQuery("MERGE INTO daily_stats d USING (VALUES (CAST(?1 AS DATE))) AS s (stat_date) "
+                        + "ON d.stat_date = s.stat_date "
+                        + "WHEN MATCHED THEN UPDATE SET new_users = ?2, user_messages = ?3, active_users = ?4, "
+                        + "new_active_users = ?5, rolled_up_at = ?6 "
+                        + "WHEN NOT MATCHED THEN INSERT (stat_date, new_users, user_messages, active_users, "
+                        + "new_active_users, tokens_used, rolled_up_at) VALUES (s.stat_date, ?2, ?3, ?4, ?5, 0, ?6)")
+                .setParameter(1, day)
+                .setParameter(2, counts.getNewUsers())
+                .setParameter(3, counts.getUserMessages())
+                .setParameter(4, counts.getActiveUsers())
+                .setParameter(5, counts.getNewActiveUsers())
+                .setParameter(6, rolledUpAt)
+                .executeUpdate();
+    }
+
+    /**
+     * Adds tokens to a day in one statement, creating its row if needed.
+     */
+    public int addTokens(LocalDate day, long tokens) {
+        return getEntityManager()
+                .createNativeQuery("MERGE INTO daily_stats d USING (VALUES (CAST(?1 AS DATE))) AS s (stat_date) "
+                        + "ON d.stat_date = s.stat_date "
+                        + "WHEN MATCHED THEN UPDATE SET tokens_used = d.tokens_used + ?2 "
+                        + "WHEN NOT MATCHED THEN INSERT (stat_date, new_users, user_messages, active_users, "
+                        + "new_active_users, tokens_used) VALUES (s.stat_date, 0, 0, 0, 0, ?2)")
+                .setParameter(1, day)
+                .setParameter(2, tokens)
+                .executeUpdate();
+    }
+
+    private static String range(String column, Instant start) {
+        return start == null
+                ? column + " < :end"
+                : column + " >= :start AND " + column + " < :end";
+    }
+}
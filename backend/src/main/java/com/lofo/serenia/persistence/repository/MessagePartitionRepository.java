@@ -0,0 +1,86 @@
+package com.lofo.serenia.persistence.repository;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * DDL on the monthly range partitions of {@code messages}, named {@code messages_pYYYYMM} and covering one UTC month.
+ * Each change runs and commits on its own, so that one failing partition does not hold back the others.
+ */
+@ApplicationScoped
+@RequiredArgsConstructor
+public class MessagePartitionRepository {
+
+    static final String PARTITION_PREFIX = "messages_p";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final EntityManager entityManager;
+
+    /**
+     * @return true if {@code messages} is a partitioned table, which is only ever the case on PostgreSQL
+     */
+    @Transactional
+    public boolean isPartitioned() {
+        if (!(entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof PostgreSQLDialect)) {
+            return false;
+        }
+        Number count = (Number) entityManager
+                .createNativeQuery("SELECT count(*) FROM pg_partitioned_table WHERE partrelid = to_regclass('messages')")
+                .getSingleResult();
+        return count.intValue() > 0;
+    }
+
+    /**
+     * @return the months that currently have a partition attached to {@code messages}, excluding the default one
+     */
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public List<YearMonth> findPartitionMonths() {
+        List<String> names = entityManager.createNativeQuery(
+                        "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                                + "WHERE i.inhparent = to_regclass('messages') AND c.relname LIKE 'messages\\_p%'")
+                .getResultList();
+        return names.stream()
+                .map(name -> YearMonth.parse(name.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX))
+                .sorted()
+                .toList();
+    }
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void createPartition(YearMonth month) {
+        execute("CREATE TABLE IF NOT EXISTS " + partitionName(month) + " PARTITION OF messages FOR VALUES FROM ('"
+                + month.atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC) + "') TO ('"
+                + month.plusMonths(1).atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC) + "')");
+    }
+
+    /**
+     * Detaches the partition; it stays in the database as a standalone table.
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void detachPartition(YearMonth month) {
+        execute("ALTER TABLE messages DETACH PARTITION " + partitionName(month));
+    }
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void dropPartition(YearMonth month) {
+        execute("DROP TABLE " + partitionName(month));
+    }
+
+    static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+    }
+
+    private void execute(String ddl) {
+        entityManager.createNativeQuery(ddl).executeUpdate();
+    }
+}
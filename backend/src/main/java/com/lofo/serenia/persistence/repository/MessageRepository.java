@@ -1,23 +1,109 @@
 package com.lofo.serenia.persistence.repository;
 
 import com.lofo.serenia.persistence.entity.conversation.Message;
+import io.quarkus.hibernate.orm.panache.PanacheQuery;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
+import io.quarkus.panache.common.Parameters;
 import jakarta.enterprise.context.ApplicationScoped;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 
 @ApplicationScoped
 public class MessageRepository implements PanacheRepository<Message> {
 
-    public List<Message> findLatestInChronologicalOrder(UUID conversationId) {
-        return find("conversationId = ?1 ORDER BY timestamp DESC", conversationId)
-                .page(0, 16)
-                .list()
-                .reversed();
+    /**
+     * Returns up to {@code limit} messages strictly older than the given position (the latest ones when null),
+     * newest first. The order matches {@code idx_messages_conversation_timestamp}, so each page is one index range scan.
+     * The cursor timestamp bounds the scan from above, the redundant {@code timestamp <= ?3} keeping that bound
+     * sargable next to the tie-break on id. A message is never older than its conversation, so
+     * {@code conversationStart} bounds the scan from below and lets PostgreSQL skip the monthly partitions before it.
+     */
+    public List<Message> findPageBefore(UUID conversationId, Instant conversationStart,
+                                        Instant beforeTimestamp, UUID beforeId, int limit) {
+        PanacheQuery<Message> query = beforeTimestamp == null
+                ? find("conversationId = ?1 AND timestamp >= ?2 ORDER BY timestamp DESC, id ASC",
+                        conversationId, conversationStart)
+                : find("conversationId = ?1 AND timestamp >= ?2 AND timestamp <= ?3 "
+                        + "AND (timestamp < ?3 OR (timestamp = ?3 AND id > ?4)) "
+                        + "ORDER BY timestamp DESC, id ASC", conversationId, conversationStart, beforeTimestamp, beforeId);
+        return query.page(0, limit).list();
     }
 
-    public void deleteByUserId(UUID userId) {
-        delete("userId", userId);
+    /**
+     * Returns up to {@code limit} of a conversation's messages newer than {@code after} (all messages when null) and
+     * strictly older than the given position (the latest ones when null), newest first. Pages are keyed on
+     * (timestamp, id) in the order of {@link #findPageBefore}, so messages sharing a timestamp are neither repeated
+     * nor skipped and each page starts where the previous one ended. Like there, {@code conversationStart} bounds
+     * the scan from below so that the monthly partitions before the conversation are skipped.
+     */
+    public List<Message> findLatestPage(UUID conversationId, Instant conversationStart, Instant after,
+                                        Instant beforeTimestamp, UUID beforeId, int limit) {
+        String query = "conversationId = :conversationId AND timestamp >= :conversationStart"
+                + (after == null ? "" : " AND timestamp > :after")
+                + (beforeTimestamp == null ? "" : " AND timestamp <= :beforeTimestamp "
+                        + "AND (timestamp < :beforeTimestamp OR (timestamp = :beforeTimestamp AND id > :beforeId))")
+                + " ORDER BY timestamp DESC, id ASC";
+        Parameters parameters = Parameters.with("conversationId", conversationId)
+                .and("conversationStart", conversationStart);
+        if (after != null) {
+            parameters.and("after", after);
+        }
+        if (beforeTimestamp != null) {
+            parameters.and("beforeTimestamp", beforeTimestamp).and("beforeId", beforeId);
+        }
+        return find(query, parameters).page(0, limit).list();
+    }
+
+    /**
+     * Returns the oldest messages newer than {@code after} (from the start when null), oldest first.
+     * {@code conversationStart} bounds the scan from below, as in {@link #findPageBefore}.
+     */
+    public List<Message> findOldestAfter(UUID conversationId, Instant conversationStart, Instant after, int limit) {
+        PanacheQuery<Message> query = after == null
+                ? find("conversationId = ?1 AND timestamp >= ?2 ORDER BY timestamp ASC", conversationId, conversationStart)
+                : find("conversationId = ?1 AND timestamp >= ?2 AND timestamp > ?3 ORDER BY timestamp ASC",
+                        conversationId, conversationStart, after);
+        return query.page(0, limit).list();
+    }
+
+    /**
+     * Counts the messages newer than {@code after} (all messages when null), bounded below by
+     * {@code conversationStart} as in {@link #findPageBefore}.
+     */
+    public long countAfter(UUID conversationId, Instant conversationStart, Instant after) {
+        return after == null
+                ? count("conversationId = ?1 AND timestamp >= ?2", conversationId, conversationStart)
+                : count("conversationId = ?1 AND timestamp >= ?2 AND timestamp > ?3",
+                        conversationId, conversationStart, after);
+    }
+
+    /**
+     * Deletes at most {@code limit} messages of the conversation. Rows are targeted by primary key, so that on
+     * PostgreSQL each delete hits one monthly partition.
+     *
+     * @return the number of messages deleted, 0 once the conversation has none left
+     */
+    public int deleteBatchByConversation(UUID conversationId, int limit) {
+        return deleteBatch("conversation_id", conversationId, limit);
+    }
+
+    /**
+     * Deletes at most {@code limit} messages of the user, across all their conversations.
+     *
+     * @return the number of messages deleted, 0 once the user has none left
+     */
+    public int deleteBatchByUser(UUID userId, int limit) {
+        return deleteBatch("user_id", userId, limit);
+    }
+
+    private int deleteBatch(String ownerColumn, UUID ownerId, int limit) {
+        return getEntityManager()
+                .createNativeQuery("DELETE FROM messages WHERE (id, timestamp) IN "
+                        + "(SELECT id, timestamp FROM messages WHERE " + ownerColumn + " = ?1 LIMIT ?2)")
+                .setParameter(1, ownerId)
+                .setParameter(2, limit)
+                .executeUpdate();
     }
 }
@@ -0,0 +1,59 @@
+package com.lofo.serenia.persistence.repository;
+
+import com.lofo.serenia.persistence.entity.purge.PurgeJob;
+import io.quarkus.hibernate.orm.panache.PanacheRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@ApplicationScoped
+public class PurgeJobRepository implements PanacheRepository<PurgeJob> {
+
+    /**
+     * Returns up to {@code limit} jobs that are not parked and whose lease is free or expired, oldest first.
+     */
+    public List<PurgeJob> findClaimable(Instant now, int limit) {
+        return find("parkedAt is null and (lockedUntil is null or lockedUntil < ?1) order by createdAt", now)
+                .page(0, limit).list();
+    }
+
+    /**
+     * Takes the lease on a job in one conditional statement, so that only one instance works on it at a time.
+     *
+     * @return true if the lease was taken
+     */
+    public boolean claim(UUID jobId, Instant now, Instant leaseUntil) {
+        return update("lockedUntil = ?1, updatedAt = ?2 where id = ?3 and parkedAt is null "
+                + "and (lockedUntil is null or lockedUntil < ?2)", leaseUntil, now, jobId) == 1;
+    }
+
+    /**
+     * Adds a deleted batch to the job's progress and extends its lease.
+     */
+    public int recordProgress(UUID jobId, int deleted, Instant now, Instant leaseUntil) {
+        return update("messagesDeleted = messagesDeleted + ?1, lockedUntil = ?2, updatedAt = ?3 where id = ?4",
+                (long) deleted, leaseUntil, now, jobId);
+    }
+
+    /**
+     * Records a failed run; the job is retried once {@code retryAt} has passed.
+     */
+    public int recordFailure(UUID jobId, String error, Instant now, Instant retryAt) {
+        return update("attempts = attempts + 1, lastError = ?1, lockedUntil = ?2, updatedAt = ?3 where id = ?4",
+                error, retryAt, now, jobId);
+    }
+
+    /**
+     * Records the last failed run of a job and parks it; it is no longer claimed until {@code parkedAt} is cleared.
+     */
+    public int park(UUID jobId, String error, Instant now) {
+        return update("attempts = attempts + 1, lastError = ?1, lockedUntil = null, parkedAt = ?2, updatedAt = ?2 "
+                + "where id = ?3", error, now, jobId);
+    }
+
+    public long deleteById(UUID jobId) {
+        return delete("id", jobId);
+    }
+}
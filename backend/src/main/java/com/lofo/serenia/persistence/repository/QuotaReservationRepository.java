@@ -0,0 +1,34 @@
+package com.lofo.serenia.persistence.repository;
+
+import com.lofo.serenia.persistence.entity.subscription.QuotaReservation;
+import io.quarkus.hibernate.orm.panache.PanacheRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@ApplicationScoped
+public class QuotaReservationRepository implements PanacheRepository<QuotaReservation> {
+
+    /**
+     * Deletes a reservation and returns it only if this call is the one that deleted it,
+     * so that its tokens are given back exactly once even when settle, release and purge race.
+     */
+    public Optional<QuotaReservation> claim(UUID reservationId) {
+        Optional<QuotaReservation> reservation = find("id", reservationId).firstResultOptional();
+        if (reservation.isEmpty() || deleteById(reservationId) == 0) {
+            return Optional.empty();
+        }
+        return reservation;
+    }
+
+    public List<QuotaReservation> findExpired(Instant now, int limit) {
+        return find("expiresAt <= ?1", now).page(0, limit).list();
+    }
+
+    public long deleteById(UUID reservationId) {
+        return delete("id", reservationId);
+    }
+}
@@ -0,0 +1,88 @@
+package com.lofo.serenia.persistence.repository;
+
+import com.lofo.serenia.persistence.entity.subscription.StripeInboxEvent;
+import com.lofo.serenia.persistence.entity.subscription.StripeInboxStatus;
+import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.time.Instant;
+import java.util.List;
+
+@ApplicationScoped
+public class StripeInboxEventRepository implements PanacheRepositoryBase<StripeInboxEvent, String> {
+
+    /**
+     * Stores a received event in one statement, unless an event with the same id is already there.
+     *
+     * @return true if the event was new
+     */
+    public boolean insertIfAbsent(String id, String type, String customerId, String payload,
+                                  Instant eventCreatedAt, Instant now) {
+        return getEntityManager()
+                .createNativeQuery("MERGE INTO stripe_event_inbox t "
+                        + "USING (VALUES (CAST(?1 AS VARCHAR(255)))) AS s (id) ON t.id = s.id "
+                        + "WHEN NOT MATCHED THEN INSERT "
+                        + "(id, type, customer_id, payload, status, attempts, event_created_at, received_at, next_attempt_at) "
+                        + "VALUES (s.id, ?2, CAST(?3 AS VARCHAR(255)), ?4, ?5, 0, ?6, ?7, ?7)")
+                .setParameter(1, id)
+                .setParameter(2, type)
+                .setParameter(3, customerId)
+                .setParameter(4, payload)
+                .setParameter(5, StripeInboxStatus.PENDING.name())
+                .setParameter(6, eventCreatedAt)
+                .setParameter(7, now)
+                .executeUpdate() == 1;
+    }
+
+    /**
+     * Returns up to {@code limit} events due for processing and free of any lease, each the oldest pending event
+     * of its customer, so that a customer's events are never processed out of order nor two at a time.
+     */
+    public List<StripeInboxEvent> findClaimable(Instant now, int limit) {
+        return getEntityManager()
+                .createQuery("SELECT e FROM StripeInboxEvent e "
+                        + "WHERE e.status = :pending AND e.nextAttemptAt <= :now "
+                        + "AND (e.lockedUntil IS NULL OR e.lockedUntil < :now) "
+                        + "AND NOT EXISTS (SELECT p.id FROM StripeInboxEvent p "
+                        + "WHERE p.customerId = e.customerId AND p.status = :pending "
+                        + "AND (p.eventCreatedAt < e.eventCreatedAt "
+                        + "OR (p.eventCreatedAt = e.eventCreatedAt AND p.receivedAt < e.receivedAt) "
+                        + "OR (p.eventCreatedAt = e.eventCreatedAt AND p.receivedAt = e.receivedAt AND p.id < e.id))) "
+                        + "ORDER BY e.eventCreatedAt, e.receivedAt, e.id", StripeInboxEvent.class)
+                .setParameter("pending", StripeInboxStatus.PENDING)
+                .setParameter("now", now)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Takes the lease on an event in one conditional statement, so that only one instance processes it.
+     *
+     * @return true if the lease was taken
+     */
+    public boolean claim(String id, Instant now, Instant leaseUntil) {
+        return update("lockedUntil = ?1 where id = ?2 and status = ?3 and (lockedUntil is null or lockedUntil < ?4)",
+                leaseUntil, id, StripeInboxStatus.PENDING, now) == 1;
+    }
+
+    /**
+     * Marks an event as processed; {@code note} records why it was skipped, if it was.
+     */
+    public int markDone(String id, String note, Instant now) {
+        return update("status = ?1, lastError = ?2, processedAt = ?3, lockedUntil = null where id = ?4",
+                StripeInboxStatus.DONE, note, now, id);
+    }
+
+    /**
+     * Records a failed attempt; the event is retried at {@code nextAttemptAt} unless {@code status} is DEAD.
+     */
+    public int recordFailure(String id, String error, StripeInboxStatus status, Instant nextAttemptAt) {
+        return update("attempts = attempts + 1, lastError = ?1, status = ?2, nextAttemptAt = ?3, lockedUntil = null "
+                        + "where id = ?4",
+                error, status, nextAttemptAt, id);
+    }
+
+    public long deleteProcessedBefore(Instant cutoff) {
+        return delete("status = ?1 and processedAt < ?2", StripeInboxStatus.DONE, cutoff);
+    }
+}
@@ -3,28 +3,210 @@ package com.lofo.serenia.persistence.repository;
 import com.lofo.serenia.persistence.entity.subscription.Subscription;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
-import jakarta.persistence.LockModeType;
-import jakarta.transaction.Transactional;
+import org.hibernate.Session;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 /**
  * Repository for user subscription access.
+ *
+ * <p>Quota counters are only ever changed through the single-statement updates below: each one checks
+ * the plan limits, folds in the daily/monthly period resets and applies the increment atomically, so
+ * concurrent senders never need a row lock held across a read-modify-write. They return the number of
+ * updated rows; zero means the condition did not hold (or the user has no subscription).</p>
  */
 @ApplicationScoped
 public class SubscriptionRepository implements PanacheRepository<Subscription> {
 
+    private static final String DAILY_EXPIRED = "s.dailyPeriodStart < :dayCutoff";
+    private static final String MONTHLY_EXPIRED = "s.monthlyPeriodStart < :monthCutoff";
+    private static final String PLAN_MONTHLY_LIMIT =
+            "(SELECT p.monthlyTokenLimit FROM Plan p WHERE p.id = s.plan.id)";
+    private static final String PLAN_DAILY_LIMIT =
+            "(SELECT p.dailyMessageLimit FROM Plan p WHERE p.id = s.plan.id)";
+
+    /**
+     * A multiplier of 0 replaces the counter (the period was reset in memory), 1 adds to it.
+     */
+    private static final String APPLY_COUNTER_DELTA_SQL = "UPDATE subscriptions SET "
+            + "tokens_used_this_month = tokens_used_this_month * ? + ?, "
+            + "monthly_period_start = COALESCE(?, monthly_period_start), "
+            + "messages_sent_today = messages_sent_today * ? + ?, "
+            + "daily_period_start = COALESCE(?, daily_period_start), "
+            + "updated_at = ? "
+            + "WHERE user_id = ?";
+
+    /**
+     * Counter changes accumulated in memory for one user since the last flush.
+     * When a period was reset, the counter is overwritten and its new start stored; otherwise the change is added.
+     */
+    public record CounterDelta(UUID userId,
+                               int tokens, boolean monthlyReset, Instant monthlyPeriodStart,
+                               int messages, boolean dailyReset, Instant dailyPeriodStart) {
+    }
+
     public Optional<Subscription> findByUserId(UUID userId) {
         return find("user.id", userId).firstResultOptional();
     }
 
-    public Optional<Subscription> findByUserIdForUpdate(UUID userId) {
-        return find("user.id", userId)
-                .withLock(LockModeType.PESSIMISTIC_WRITE)
-                .firstResultOptional();
+    /**
+     * Reads the plan id from the subscription row only, without joining {@code plans}.
+     */
+    public Optional<UUID> findPlanIdByUserId(UUID userId) {
+        return getEntityManager()
+                .createQuery("SELECT s.plan.id FROM Subscription s WHERE s.user.id = :userId", UUID.class)
+                .setParameter("userId", userId)
+                .getResultStream()
+                .findFirst();
+    }
+
+    /**
+     * Served by the unique index on {@code stripe_customer_id} (changeset 19).
+     */
+    public Optional<Subscription> findByStripeCustomerId(String stripeCustomerId) {
+        return find("stripeCustomerId", stripeCustomerId).firstResultOptional();
+    }
+
+    /**
+     * Loads the subscriptions of many Stripe customers in one query, through the same unique index.
+     */
+    public List<Subscription> findByStripeCustomerIds(Collection<String> stripeCustomerIds) {
+        if (stripeCustomerIds.isEmpty()) {
+            return List.of();
+        }
+        return list("stripeCustomerId in ?1", stripeCustomerIds);
     }
 
     public boolean existsByUserId(UUID userId) {
         return count("user.id", userId) > 0;
     }
+
+    /**
+     * Resets expired periods and counts one message, provided that neither the daily message limit
+     * nor the monthly token limit is reached once the resets are applied.
+     */
+    public int admitMessage(UUID userId, Instant now) {
+        return getEntityManager()
+                .createQuery("UPDATE Subscription s SET "
+                        + "s.messagesSentToday = CASE WHEN " + DAILY_EXPIRED + " THEN 1 ELSE s.messagesSentToday + 1 END, "
+                        + "s.dailyPeriodStart = CASE WHEN " + DAILY_EXPIRED + " THEN :now ELSE s.dailyPeriodStart END, "
+                        + "s.tokensUsedThisMonth = CASE WHEN " + MONTHLY_EXPIRED + " THEN 0 ELSE s.tokensUsedThisMonth END, "
+                        + "s.monthlyPeriodStart = CASE WHEN " + MONTHLY_EXPIRED + " THEN :now ELSE s.monthlyPeriodStart END, "
+                        + "s.updatedAt = :now "
+                        + "WHERE s.user.id = :userId "
+                        + "AND (" + DAILY_EXPIRED + " OR s.messagesSentToday < " + PLAN_DAILY_LIMIT + ") "
+                        + "AND (" + MONTHLY_EXPIRED + " OR s.tokensUsedThisMonth < " + PLAN_MONTHLY_LIMIT + ")")
+                .setParameter("userId", userId)
+                .setParameter("now", now)
+                .setParameter("dayCutoff", dailyCutoff(now))
+                .setParameter("monthCutoff", monthlyCutoff(now))
+                .executeUpdate();
+    }
+
+    /**
+     * Adds {@code tokens} to the reserved counter if used plus reserved tokens stay within the monthly limit.
+     */
+    public int reserveTokens(UUID userId, int tokens, Instant now) {
+        return getEntityManager()
+                .createQuery("UPDATE Subscription s SET "
+                        + "s.tokensReserved = s.tokensReserved + :tokens, s.updatedAt = :now "
+                        + "WHERE s.user.id = :userId "
+                        + "AND s.tokensUsedThisMonth + s.tokensReserved + :tokens <= " + PLAN_MONTHLY_LIMIT)
+                .setParameter("userId", userId)
+                .setParameter("tokens", tokens)
+                .setParameter("now", now)
+                .executeUpdate();
+    }
+
+    /**
+     * Adds actual usage to the monthly counter and gives back {@code releasedTokens} from the reserved
+     * counter, never going below zero.
+     */
+    public int applyUsage(UUID userId, int usedTokens, int releasedTokens, Instant now) {
+        return getEntityManager()
+                .createQuery("UPDATE Subscription s SET "
+                        + "s.tokensUsedThisMonth = s.tokensUsedThisMonth + :used, "
+                        + "s.tokensReserved = CASE WHEN s.tokensReserved > :released "
+                        + "THEN s.tokensReserved - :released ELSE 0 END, "
+                        + "s.updatedAt = :now "
+                        + "WHERE s.user.id = :userId")
+                .setParameter("userId", userId)
+                .setParameter("used", usedTokens)
+                .setParameter("released", releasedTokens)
+                .setParameter("now", now)
+                .executeUpdate();
+    }
+
+    /**
+     * Undoes an admitted turn that failed: gives back its reserved tokens and the message counted at admission.
+     * The message is only given back while the daily period it was counted in is still running.
+     */
+    public int refundTurn(UUID userId, int releasedTokens, Instant admittedAt, Instant now) {
+        return getEntityManager()
+                .createQuery("UPDATE Subscription s SET "
+                        + "s.tokensReserved = CASE WHEN s.tokensReserved > :released "
+                        + "THEN s.tokensReserved - :released ELSE 0 END, "
+                        + "s.messagesSentToday = CASE WHEN s.messagesSentToday > 0 AND s.dailyPeriodStart <= :admittedAt "
+                        + "THEN s.messagesSentToday - 1 ELSE s.messagesSentToday END, "
+                        + "s.updatedAt = :now "
+                        + "WHERE s.user.id = :userId")
+                .setParameter("userId", userId)
+                .setParameter("released", releasedTokens)
+                .setParameter("admittedAt", admittedAt)
+                .setParameter("now", now)
+                .executeUpdate();
+    }
+
+    /**
+     * Writes a batch of in-memory counter changes in one JDBC round trip.
+     */
+    public void applyCounterDeltas(List<CounterDelta> deltas, Instant now) {
+        getEntityManager().unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(APPLY_COUNTER_DELTA_SQL)) {
+                OffsetDateTime updatedAt = OffsetDateTime.ofInstant(now, ZoneOffset.UTC);
+                for (CounterDelta delta : deltas) {
+                    statement.setInt(1, delta.monthlyReset() ? 0 : 1);
+                    statement.setInt(2, delta.tokens());
+                    setPeriodStart(statement, 3, delta.monthlyReset() ? delta.monthlyPeriodStart() : null);
+                    statement.setInt(4, delta.dailyReset() ? 0 : 1);
+                    statement.setInt(5, delta.messages());
+                    setPeriodStart(statement, 6, delta.dailyReset() ? delta.dailyPeriodStart() : null);
+                    statement.setObject(7, updatedAt);
+                    statement.setObject(8, delta.userId());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+
+    private static void setPeriodStart(PreparedStatement statement, int index, Instant start) throws SQLException {
+        if (start == null) {
+            statement.setNull(index, Types.TIMESTAMP_WITH_TIMEZONE);
+        } else {
+            statement.setObject(index, OffsetDateTime.ofInstant(start, ZoneOffset.UTC));
+        }
+    }
+
+    /**
+     * Same boundaries as {@link Subscription#isDailyPeriodExpired()}: a period is expired one day after its start.
+     */
+    static Instant dailyCutoff(Instant now) {
+        return now.atZone(ZoneOffset.UTC).minusDays(1).toInstant();
+    }
+
+    /**
+     * Same boundaries as {@link Subscription#isMonthlyPeriodExpired()}, computed in UTC for variable-length months.
+     */
+    static Instant monthlyCutoff(Instant now) {
+        return now.atZone(ZoneOffset.UTC).minusMonths(1).toInstant();
+    }
 }
@@ -1,15 +1,89 @@
 package com.lofo.serenia.persistence.repository;
 
+import com.lofo.serenia.persistence.entity.conversation.MessageRole;
+import com.lofo.serenia.persistence.entity.subscription.PlanType;
 import com.lofo.serenia.persistence.entity.user.User;
+import com.lofo.serenia.persistence.entity.user.UserListItem;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.TypedQuery;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @ApplicationScoped
 public class UserRepository implements PanacheRepository<User> {
 
+    // The message count is one range of idx_messages_user_role per listed user: its cost grows with their message
+    // count, but it is answered from the index without reading the message rows.
+    private static final String LIST_ITEM_SELECT = "SELECT new com.lofo.serenia.persistence.entity.user.UserListItem("
+            + "u.id, u.email, u.firstName, u.lastName, u.role, p.name, u.accountActivated, u.createdAt, "
+            + "(SELECT COUNT(m) FROM Message m WHERE m.userId = u.id AND m.role = :messageRole), "
+            + "s.tokensUsedThisMonth, s.messagesSentToday) "
+            + "FROM User u LEFT JOIN Subscription s ON s.user = u LEFT JOIN s.plan p ";
+    private static final String LIST_ITEM_ORDER = "ORDER BY u.createdAt DESC, u.id ASC";
+
     public long deleteById(UUID userId) {
         return delete("id", userId);
     }
+
+    /**
+     * Returns one offset page of the user list, newest accounts first.
+     */
+    public List<UserListItem> findListItems(int page, int size) {
+        return getEntityManager()
+                .createQuery(LIST_ITEM_SELECT + LIST_ITEM_ORDER, UserListItem.class)
+                .setParameter("messageRole", MessageRole.USER)
+                .setFirstResult(page * size)
+                .setMaxResults(size)
+                .getResultList();
+    }
+
+    /**
+     * Returns up to {@code limit} users strictly after the given position (from the newest when null), keeping
+     * only those matching the filters that are not null. The order matches {@code idx_users_created_at_id}, and the
+     * redundant {@code u.createdAt <= :afterCreatedAt} lets the scan seek to the cursor.
+     */
+    public List<UserListItem> findListItemsAfter(PlanType planType, Boolean activated,
+                                                 Instant afterCreatedAt, UUID afterId, int limit) {
+        List<String> conditions = new ArrayList<>();
+        if (planType != null) {
+            conditions.add("p.name = :planType");
+        }
+        if (activated != null) {
+            conditions.add("u.accountActivated = :activated");
+        }
+        if (afterCreatedAt != null) {
+            conditions.add("u.createdAt <= :afterCreatedAt");
+            conditions.add("(u.createdAt < :afterCreatedAt OR (u.createdAt = :afterCreatedAt AND u.id > :afterId))");
+        }
+        String where = conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions) + " ";
+
+        TypedQuery<UserListItem> query = getEntityManager()
+                .createQuery(LIST_ITEM_SELECT + where + LIST_ITEM_ORDER, UserListItem.class)
+                .setParameter("messageRole", MessageRole.USER)
+                .setMaxResults(limit);
+        if (planType != null) {
+            query.setParameter("planType", planType);
+        }
+        if (activated != null) {
+            query.setParameter("activated", activated);
+        }
+        if (afterCreatedAt != null) {
+            query.setParameter("afterCreatedAt", afterCreatedAt).setParameter("afterId", afterId);
+        }
+        return query.getResultList();
+    }
+
+    public Optional<UserListItem> findListItemByEmail(String email) {
+        return getEntityManager()
+                .createQuery(LIST_ITEM_SELECT + "WHERE u.email = :email", UserListItem.class)
+                .setParameter("messageRole", MessageRole.USER)
+                .setParameter("email", email)
+                .getResultStream()
+                .findFirst();
+    }
 }
@@ -7,7 +7,8 @@ import java.util.UUID;
 
 public record ConversationMessagesResponseDTO(
         UUID conversationId,
-        List<ChatMessage> messages
+        List<ChatMessage> messages,
+        String nextCursor
 ) {
 }
 
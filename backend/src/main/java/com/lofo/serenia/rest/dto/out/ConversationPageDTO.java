@@ -0,0 +1,8 @@
+package com.lofo.serenia.rest.dto.out;
+
+import java.util.List;
+
+public record ConversationPageDTO(
+    List<ConversationSummaryDTO> conversations,
+    String nextCursor
+) {}
@@ -0,0 +1,27 @@
+package com.lofo.serenia.rest.dto.out;
+
+import com.lofo.serenia.persistence.entity.conversation.MessageRole;
+import com.lofo.serenia.service.chat.ChatStreamEvent;
+
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Server-Sent Event payload for streamed assistant replies.
+ * "delta" events carry a content fragment, the closing "completed" event carries the full reply.
+ */
+public record MessageStreamEventDTO(
+        String type,
+        UUID conversationId,
+        MessageRole role,
+        String content
+) {
+    public static MessageStreamEventDTO from(ChatStreamEvent event) {
+        return new MessageStreamEventDTO(
+                event.type().name().toLowerCase(Locale.ROOT),
+                event.conversationId(),
+                event.message().role(),
+                event.message().content()
+        );
+    }
+}
@@ -3,6 +3,9 @@ package com.lofo.serenia.rest.dto.out.admin;
 public record EngagementStatsDTO(
         long activeUsers,
         double activationRate,
-        double avgMessagesPerUser
+        double avgMessagesPerUser,
+        long dailyActiveUsers,
+        long weeklyActiveUsers,
+        long monthlyActiveUsers,
+        double monthlyEngagementRate
 ) {}
-
@@ -0,0 +1,8 @@
+package com.lofo.serenia.rest.dto.out.admin;
+
+import java.util.List;
+
+public record UserPageDTO(
+        List<UserDetailDTO> users,
+        String nextCursor
+) {}
@@ -4,7 +4,10 @@ import com.lofo.serenia.rest.dto.out.admin.DashboardDTO;
 import com.lofo.serenia.rest.dto.out.admin.TimelineDTO;
 import com.lofo.serenia.rest.dto.out.admin.UserDetailDTO;
 import com.lofo.serenia.rest.dto.out.admin.UserListDTO;
+import com.lofo.serenia.rest.dto.out.admin.UserPageDTO;
+import com.lofo.serenia.service.admin.AdminStatsCache;
 import com.lofo.serenia.service.admin.AdminStatsService;
+import com.lofo.serenia.service.subscription.PlanCatalog;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
@@ -17,15 +20,20 @@ import jakarta.ws.rs.core.Response;
 public class AdminResource {
 
     private final AdminStatsService adminStatsService;
+    private final AdminStatsCache adminStatsCache;
+    private final PlanCatalog planCatalog;
 
-    public AdminResource(AdminStatsService adminStatsService) {
+    public AdminResource(AdminStatsService adminStatsService, AdminStatsCache adminStatsCache,
+                         PlanCatalog planCatalog) {
         this.adminStatsService = adminStatsService;
+        this.adminStatsCache = adminStatsCache;
+        this.planCatalog = planCatalog;
     }
 
     @GET
     @Path("/dashboard")
     public Response getDashboard() {
-        DashboardDTO dashboard = adminStatsService.getDashboard();
+        DashboardDTO dashboard = adminStatsCache.getDashboard();
         return Response.ok(dashboard).build();
     }
 
@@ -38,7 +46,7 @@ public class AdminResource {
         if (days != 7 && days != 30) {
             days = 7;
         }
-        TimelineDTO timeline = adminStatsService.getTimeline(metric, days);
+        TimelineDTO timeline = adminStatsCache.getTimeline(metric, days);
         return Response.ok(timeline).build();
     }
 
@@ -52,6 +60,18 @@ public class AdminResource {
         return Response.ok(users).build();
     }
 
+    @GET
+    @Path("/users/page")
+    public Response getUsersPage(
+            @QueryParam("after") String after,
+            @QueryParam("limit") Integer limit,
+            @QueryParam("plan") String plan,
+            @QueryParam("activated") Boolean activated
+    ) {
+        UserPageDTO users = adminStatsService.getUserPage(after, limit, plan, activated);
+        return Response.ok(users).build();
+    }
+
     @GET
     @Path("/users/{email}")
     public Response getUserByEmail(@PathParam("email") String email) {
@@ -61,5 +81,16 @@ public class AdminResource {
         }
         return Response.ok(user).build();
     }
+
+    /**
+     * Reloads the plan catalog of the instance serving this request only; the others pick the change up at their
+     * next {@code serenia.plans.refresh-interval}.
+     */
+    @POST
+    @Path("/plans/reload")
+    public Response reloadPlans() {
+        planCatalog.reload();
+        return Response.noContent().build();
+    }
 }
 
@@ -1,19 +1,23 @@
 package com.lofo.serenia.rest.resource;
 
-import com.lofo.serenia.persistence.entity.conversation.ChatMessage;
 import com.lofo.serenia.persistence.entity.conversation.Conversation;
 import com.lofo.serenia.rest.dto.in.CreateConversationRequestDTO;
 import com.lofo.serenia.rest.dto.in.MessageRequestDTO;
 import com.lofo.serenia.rest.dto.in.RenameConversationRequestDTO;
 import com.lofo.serenia.rest.dto.out.ConversationMessagesResponseDTO;
+import com.lofo.serenia.rest.dto.out.ConversationPageDTO;
 import com.lofo.serenia.rest.dto.out.ConversationSummaryDTO;
 import com.lofo.serenia.rest.dto.out.MessageResponseDTO;
+import com.lofo.serenia.rest.dto.out.MessageStreamEventDTO;
 import com.lofo.serenia.rest.util.AuthUtils;
 import com.lofo.serenia.service.chat.ChatOrchestrator;
 import com.lofo.serenia.service.chat.ConversationService;
+import com.lofo.serenia.service.chat.MessagePage;
 import com.lofo.serenia.service.chat.ProcessedMessageResult;
 import io.quarkus.security.Authenticated;
 import io.quarkus.security.identity.SecurityIdentity;
+import io.smallrye.common.annotation.Blocking;
+import io.smallrye.mutiny.Multi;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
@@ -25,6 +29,7 @@ import org.eclipse.microprofile.openapi.annotations.media.Schema;
 import org.eclipse.microprofile.openapi.annotations.parameters.RequestBody;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.jboss.resteasy.reactive.RestStreamElementType;
 
 import java.util.List;
 import java.util.UUID;
@@ -52,6 +57,19 @@ public class ConversationResource {
         return Response.ok(conversations).build();
     }
 
+    @GET
+    @Path("/page")
+    @Operation(summary = "List user conversations page by page",
+        description = "Returns one page of conversations, most recently active first. Pass the returned nextCursor "
+            + "as 'after' to load the next page; nextCursor is null on the last page.")
+    @APIResponse(responseCode = "200", description = "Page of conversations returned",
+        content = @Content(schema = @Schema(implementation = ConversationPageDTO.class)))
+    @APIResponse(responseCode = "400", description = "Invalid cursor or limit")
+    public Response listConversationsPage(@QueryParam("after") String after, @QueryParam("limit") Integer limit) {
+        UUID userId = getAuthenticatedUserId();
+        return Response.ok(conversationService.listUserConversationsPage(userId, after, limit)).build();
+    }
+
     @POST
     @Operation(summary = "Create a new conversation")
     @RequestBody(content = @Content(schema = @Schema(implementation = CreateConversationRequestDTO.class)))
@@ -97,14 +115,19 @@ public class ConversationResource {
 
     @GET
     @Path("/{id}/messages")
-    @Operation(summary = "Get messages for a specific conversation")
+    @Operation(summary = "Get messages for a specific conversation",
+        description = "Returns one page of messages, oldest first. Pass the returned nextCursor as 'before' "
+            + "to load the previous page; nextCursor is null once the first message is reached.")
     @APIResponse(responseCode = "200", description = "Messages returned",
         content = @Content(schema = @Schema(implementation = ConversationMessagesResponseDTO.class)))
+    @APIResponse(responseCode = "400", description = "Invalid cursor or limit")
     @APIResponse(responseCode = "404", description = "Conversation not found")
-    public Response getConversationMessages(@PathParam("id") UUID id) {
+    public Response getConversationMessages(@PathParam("id") UUID id,
+                                            @QueryParam("before") String before,
+                                            @QueryParam("limit") Integer limit) {
         UUID userId = getAuthenticatedUserId();
-        List<ChatMessage> messages = conversationService.getConversationMessages(id, userId);
-        ConversationMessagesResponseDTO response = new ConversationMessagesResponseDTO(id, messages);
+        MessagePage page = conversationService.getConversationMessages(id, userId, before, limit);
+        ConversationMessagesResponseDTO response = new ConversationMessagesResponseDTO(id, page.messages(), page.nextCursor());
         return Response.ok(response).build();
     }
 
@@ -129,6 +152,29 @@ public class ConversationResource {
         return Response.ok(response).build();
     }
 
+    @POST
+    @Path("/add-message/stream")
+    @Blocking
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Send a user message and stream the reply",
+        description = "Appends a user message to a conversation and streams the assistant reply as Server-Sent Events: "
+            + "one 'delta' event per token chunk, then a single 'completed' event with the full reply.")
+    @RequestBody(content = @Content(schema = @Schema(implementation = MessageRequestDTO.class)))
+    @APIResponse(responseCode = "200", description = "Assistant reply streamed",
+        content = @Content(mediaType = MediaType.SERVER_SENT_EVENTS,
+            schema = @Schema(implementation = MessageStreamEventDTO.class)))
+    @APIResponse(responseCode = "400", description = "Missing or blank content")
+    public Multi<MessageStreamEventDTO> streamMessage(MessageRequestDTO request) {
+        UUID userId = getAuthenticatedUserId();
+        if (request == null || request.content() == null || request.content().isBlank()) {
+            throw new BadRequestException("content must be provided");
+        }
+
+        return chatOrchestrator.streamUserMessage(userId, request.content(), request.conversationId())
+            .map(MessageStreamEventDTO::from);
+    }
+
     @GET
     @Path("/my-messages")
     @Operation(summary = "Get current user messages",
@@ -143,8 +189,9 @@ public class ConversationResource {
             return Response.noContent().build();
         }
 
-        List<ChatMessage> messages = conversationService.getConversationMessages(conversation.getId(), userId);
-        ConversationMessagesResponseDTO response = new ConversationMessagesResponseDTO(conversation.getId(), messages);
+        MessagePage page = conversationService.getConversationMessages(conversation.getId(), userId, null, null);
+        ConversationMessagesResponseDTO response = new ConversationMessagesResponseDTO(
+            conversation.getId(), page.messages(), page.nextCursor());
         return Response.ok(response).build();
     }
 
@@ -1,8 +1,8 @@
 package com.lofo.serenia.rest.resource;
 
 import com.lofo.serenia.config.StripeConfig;
-import com.lofo.serenia.exception.exceptions.WebhookProcessingException;
-import com.lofo.serenia.service.subscription.webhook.StripeWebhookService;
+import com.lofo.serenia.service.subscription.StripeEventType;
+import com.lofo.serenia.service.subscription.webhook.StripeEventInbox;
 import com.stripe.exception.SignatureVerificationException;
 import com.stripe.model.Event;
 import com.stripe.net.Webhook;
@@ -20,6 +20,8 @@ import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 /**
  * REST resource for receiving Stripe webhooks.
  * This endpoint must be publicly accessible as Stripe calls it directly.
+ * Verified events are stored in the {@link StripeEventInbox} and acknowledged right away; they are processed
+ * in the background.
  */
 @Slf4j
 @Path("/stripe")
@@ -34,13 +36,13 @@ public class StripeWebhookResource {
             "Invalid signature";
     private static final String JSON_RECEIVED_TRUE =
             "{\"received\": true}";
-    private static final String JSON_RECEIVED_SKIPPED =
-            "{\"received\": true, \"skipped\": \"%s\"}";
+    private static final String JSON_RECEIVED_DUPLICATE =
+            "{\"received\": true, \"duplicate\": true}";
     private static final String JSON_ERROR =
             "{\"error\": \"%s\"}";
 
     private final StripeConfig stripeConfig;
-    private final StripeWebhookService webhookService;
+    private final StripeEventInbox stripeEventInbox;
 
     @POST
     @Path("/webhook")
@@ -52,7 +54,7 @@ public class StripeWebhookResource {
     )
     @APIResponse(
             responseCode = "200",
-            description = "Webhook processed successfully",
+            description = "Webhook received",
             content = @Content(mediaType = MediaType.APPLICATION_JSON)
     )
     @APIResponse(
@@ -62,7 +64,7 @@ public class StripeWebhookResource {
     )
     @APIResponse(
             responseCode = "500",
-            description = "Internal error - Stripe should retry",
+            description = "Event could not be stored - Stripe should retry",
             content = @Content(mediaType = MediaType.APPLICATION_JSON)
     )
     public Response handleWebhook(
@@ -83,9 +85,7 @@ public class StripeWebhookResource {
                     .build();
         }
 
-        log.info("Processing Stripe event: {} (id: {})", event.getType(), event.getId());
-
-        return processEvent(event);
+        return enqueueEvent(event, payload);
     }
 
     /**
@@ -128,24 +128,30 @@ public class StripeWebhookResource {
     }
 
     /**
-     * Processes the webhook event and returns appropriate response.
+     * Stores the event for background processing. Event types the application does not handle are acknowledged
+     * without being stored.
      *
-     * @param event the Stripe event to process
-     * @return Response indicating success, business error, or system error
+     * @param event the verified Stripe event
+     * @param payload the raw payload the event was verified against
+     * @return Response acknowledging the event, or a system error so that Stripe retries
      */
-    private Response processEvent(Event event) {
+    private Response enqueueEvent(Event event, String payload) {
+        if (StripeEventType.fromString(event.getType()).isEmpty()) {
+            log.debug("Unhandled event type: {}", event.getType());
+            return Response.ok(JSON_RECEIVED_TRUE).build();
+        }
         try {
-            webhookService.handleEvent(event);
+            if (!stripeEventInbox.enqueue(event, payload)) {
+                log.info("Stripe event {} already received, ignored", event.getId());
+                return Response.ok(JSON_RECEIVED_DUPLICATE).build();
+            }
+            log.info("Received Stripe event: {} (id: {})", event.getType(), event.getId());
             return Response.ok(JSON_RECEIVED_TRUE).build();
-        } catch (WebhookProcessingException e) {
-            log.warn("Business error processing webhook event {}: {}", event.getType(), e.getMessage());
-            return Response.ok(String.format(JSON_RECEIVED_SKIPPED, e.getMessage())).build();
         } catch (Exception e) {
-            log.error("Unexpected error processing webhook event {}: {}", event.getType(), e.getMessage(), e);
+            log.error("Failed to store webhook event {}: {}", event.getId(), e.getMessage(), e);
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
                     .entity(String.format(JSON_ERROR, e.getMessage()))
                     .build();
         }
     }
 }
-
@@ -7,6 +7,7 @@ import com.lofo.serenia.rest.dto.out.PlanDTO;
 import com.lofo.serenia.rest.dto.out.PortalSessionDTO;
 import com.lofo.serenia.rest.dto.out.SubscriptionStatusDTO;
 import com.lofo.serenia.rest.util.AuthUtils;
+import com.lofo.serenia.service.subscription.PlanCatalog;
 import com.lofo.serenia.service.subscription.StripeService;
 import com.lofo.serenia.service.subscription.SubscriptionService;
 import io.quarkus.security.Authenticated;
@@ -14,7 +15,10 @@ import io.quarkus.security.identity.SecurityIdentity;
 import jakarta.annotation.security.PermitAll;
 import jakarta.validation.Valid;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import lombok.RequiredArgsConstructor;
 import org.eclipse.microprofile.jwt.JsonWebToken;
@@ -24,7 +28,6 @@ import org.eclipse.microprofile.openapi.annotations.media.Schema;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 
-import java.util.List;
 import java.util.UUID;
 
 /**
@@ -48,16 +51,26 @@ public class SubscriptionResource {
     @PermitAll
     @Operation(
             summary = "Get available plans",
-            description = "Returns the list of all available subscription plans with their limits."
+            description = "Returns the list of all available subscription plans with their limits. " +
+                    "The response carries an ETag; a request whose If-None-Match matches it gets a 304."
     )
     @APIResponse(
             responseCode = "200",
             description = "Plans returned successfully",
             content = @Content(schema = @Schema(implementation = PlanDTO[].class))
     )
-    public Response getPlans() {
-        List<PlanDTO> plans = subscriptionService.getAllPlans();
-        return Response.ok(plans).build();
+    @APIResponse(
+            responseCode = "304",
+            description = "Plans unchanged since the version identified by If-None-Match"
+    )
+    public Response getPlans(@Context Request request) {
+        PlanCatalog.PlanListing listing = subscriptionService.getAllPlans();
+        EntityTag etag = new EntityTag(listing.etag());
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(etag);
+        if (notModified != null) {
+            return notModified.tag(etag).build();
+        }
+        return Response.ok(listing.plans()).tag(etag).build();
     }
 
     @GET
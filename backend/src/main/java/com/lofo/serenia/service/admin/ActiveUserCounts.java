@@ -0,0 +1,7 @@
+package com.lofo.serenia.service.admin;
+
+/**
+ * Estimated distinct active users over the day, the last 7 days and the last 30 days, today (UTC) included.
+ */
+public record ActiveUserCounts(long daily, long weekly, long monthly) {
+}
@@ -0,0 +1,188 @@
+package com.lofo.serenia.service.admin;
+
+import com.lofo.serenia.persistence.repository.ActiveUserSketchRepository;
+import com.lofo.serenia.persistence.repository.ActiveUserSketchRepository.StoredSketch;
+import com.lofo.serenia.service.chat.ChatTurnCompletedEvent;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.ObservesAsync;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Distinct active users (DAU, WAU, MAU) estimated from per-day {@link HyperLogLog} sketches.
+ *
+ * <p>Each completed turn adds its user to this node's sketch of the day, in memory. Every
+ * {@code serenia.stats.sketch-flush-interval} the node writes its open sketches to its own rows and reloads the
+ * other nodes' rows for today and yesterday. Once a day is rolled up, {@link DailyStatsService} replaces its rows
+ * with one sketch built from the messages themselves. Older days no longer change and are kept in memory once
+ * loaded, so a count is a merge of at most 30 in-memory sketches of 4 KB.</p>
+ *
+ * <p>Counts carry the error of a precision-{@value #PRECISION} sketch: at most about 1.6% relative standard
+ * error (within 3.3% 95% of the time) at any number of users, and about 1.2% up to a few thousand users. A crash
+ * loses at most one flush interval of this node's activity until the day is rolled up.</p>
+ */
+@Slf4j
+@ApplicationScoped
+@RequiredArgsConstructor
+public class ActiveUserSketchService {
+
+    static final int PRECISION = 12;
+    static final UUID ROLLUP_NODE = new UUID(0, 0);
+    private static final int MONTH_DAYS = 30;
+    private static final int WEEK_DAYS = 7;
+
+    private final ActiveUserSketchRepository activeUserSketchRepository;
+
+    private final UUID nodeId = UUID.randomUUID();
+    private final Map<LocalDate, HyperLogLog> local = new ConcurrentHashMap<>();
+    private final Map<LocalDate, HyperLogLog> settled = new ConcurrentHashMap<>();
+    private final Set<LocalDate> settledWithoutRows = ConcurrentHashMap.newKeySet();
+    private volatile Map<LocalDate, HyperLogLog> recent = Map.of();
+
+    void onTurnCompleted(@ObservesAsync ChatTurnCompletedEvent event) {
+        record(event.userId());
+    }
+
+    public void record(UUID userId) {
+        local.computeIfAbsent(today(), day -> new HyperLogLog(PRECISION)).add(userId);
+    }
+
+    public ActiveUserCounts count() {
+        LocalDate today = today();
+        loadMissingSettledDays(today);
+        HyperLogLog union = new HyperLogLog(PRECISION);
+        long daily = 0;
+        long weekly = 0;
+        for (int offset = 0; offset < MONTH_DAYS; offset++) {
+            LocalDate day = today.minusDays(offset);
+            for (HyperLogLog sketch : sketchesOf(day, today)) {
+                union.merge(sketch);
+            }
+            if (offset == 0) {
+                daily = union.estimate();
+            }
+            if (offset == WEEK_DAYS - 1) {
+                weekly = union.estimate();
+            }
+        }
+        return new ActiveUserCounts(daily, weekly, union.estimate());
+    }
+
+    /**
+     * Replaces the day's sketches with one built from the given users. Runs in the caller's transaction.
+     */
+    public void rollUp(LocalDate day, List<UUID> activeUserIds, Instant now) {
+        HyperLogLog sketch = new HyperLogLog(PRECISION);
+        activeUserIds.forEach(sketch::add);
+        activeUserSketchRepository.replaceDay(day, ROLLUP_NODE, sketch.toBytes(), now);
+        settled.remove(day);
+        settledWithoutRows.remove(day);
+    }
+
+    @Scheduled(every = "${serenia.stats.sketch-flush-interval:30s}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void flush() {
+        LocalDate today = today();
+        LocalDate yesterday = today.minusDays(1);
+        Instant now = Instant.now();
+        local.forEach((day, sketch) -> {
+            try {
+                activeUserSketchRepository.save(day, nodeId, sketch.toBytes(), now);
+            } catch (RuntimeException e) {
+                log.warn("Failed to flush active user sketch for {}, retrying later", day, e);
+                return;
+            }
+            if (day.isBefore(yesterday)) {
+                local.remove(day, sketch);
+            }
+        });
+        try {
+            recent = mergeByDay(activeUserSketchRepository.findBetween(yesterday, today));
+        } catch (RuntimeException e) {
+            log.warn("Failed to reload recent active user sketches", e);
+        }
+        settled.keySet().removeIf(day -> day.isBefore(today.minusDays(MONTH_DAYS)));
+        for (LocalDate day : settledWithoutRows) {
+            if (settledWithoutRows.remove(day)) {
+                settled.remove(day);
+            }
+        }
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        flush();
+    }
+
+    // ========== Private methods ==========
+
+    /**
+     * Days before yesterday come from the settled cache; today and yesterday from the last reload plus this
+     * node's own sketch, which may be ahead of it.
+     */
+    private List<HyperLogLog> sketchesOf(LocalDate day, LocalDate today) {
+        if (day.isBefore(today.minusDays(1))) {
+            HyperLogLog sketch = settled.get(day);
+            return sketch == null ? List.of() : List.of(sketch);
+        }
+        HyperLogLog stored = recent.get(day);
+        HyperLogLog own = local.get(day);
+        if (stored == null) {
+            return own == null ? List.of() : List.of(own);
+        }
+        return own == null ? List.of(stored) : List.of(stored, own);
+    }
+
+    /**
+     * Loads the settled days of the month not cached yet in one query. Days without any sketch are cached empty so
+     * that counts do not query them again; since the rollup may still backfill them, they are dropped from the
+     * cache at the next flush and reloaded once per flush interval at most.
+     */
+    private void loadMissingSettledDays(LocalDate today) {
+        LocalDate oldest = today.minusDays(MONTH_DAYS - 1);
+        LocalDate newestSettled = today.minusDays(2);
+        LocalDate firstMissing = null;
+        for (LocalDate day = oldest; !day.isAfter(newestSettled); day = day.plusDays(1)) {
+            if (!settled.containsKey(day)) {
+                firstMissing = day;
+                break;
+            }
+        }
+        if (firstMissing == null) {
+            return;
+        }
+        Map<LocalDate, HyperLogLog> loaded = mergeByDay(activeUserSketchRepository.findBetween(firstMissing, newestSettled));
+        for (LocalDate day = firstMissing; !day.isAfter(newestSettled); day = day.plusDays(1)) {
+            HyperLogLog sketch = loaded.get(day);
+            if (sketch == null) {
+                settledWithoutRows.add(day);
+                sketch = new HyperLogLog(PRECISION);
+            }
+            settled.put(day, sketch);
+        }
+    }
+
+    private static Map<LocalDate, HyperLogLog> mergeByDay(List<StoredSketch> stored) {
+        Map<LocalDate, HyperLogLog> byDay = new HashMap<>();
+        for (StoredSketch row : stored) {
+            byDay.computeIfAbsent(row.day(), day -> new HyperLogLog(PRECISION)).merge(HyperLogLog.fromBytes(row.sketch()));
+        }
+        return byDay;
+    }
+
+    private static LocalDate today() {
+        return LocalDate.now(ZoneOffset.UTC);
+    }
+}
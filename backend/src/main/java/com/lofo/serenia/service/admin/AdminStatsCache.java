@@ -0,0 +1,81 @@
+package com.lofo.serenia.service.admin;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.lofo.serenia.config.SereniaConfig;
+import com.lofo.serenia.rest.dto.out.admin.DashboardDTO;
+import com.lofo.serenia.rest.dto.out.admin.TimelineDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.context.ManagedExecutor;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+ * Cached admin dashboard and timeline responses, so that admin traffic costs at most one computation per
+ * response and TTL, however many admins are refreshing.
+ *
+ * <p>Concurrent requests for a response that is not cached yet wait for a single computation. Once an entry is
+ * older than {@code serenia.admin.stats-cache.ttl}, the next request still gets it right away and triggers one
+ * recomputation in the background; an entry nobody asked for within {@code serenia.admin.stats-cache.max-stale}
+ * after that is dropped and computed again on demand. A failed recomputation keeps serving the previous response.
+ * Recomputations run on the managed worker pool, not on the common fork-join pool shared with the rest of the JVM.
+ * Hit/miss/load counters are published under the {@value #DASHBOARD_CACHE_NAME} and {@value #TIMELINE_CACHE_NAME}
+ * cache metrics.</p>
+ */
+@ApplicationScoped
+public class AdminStatsCache {
+
+    static final String DASHBOARD_CACHE_NAME = "serenia.admin.dashboard";
+    static final String TIMELINE_CACHE_NAME = "serenia.admin.timeline";
+    private static final String DASHBOARD_KEY = "dashboard";
+    private static final int MAX_TIMELINES = 64;
+
+    private final LoadingCache<String, DashboardDTO> dashboard;
+    private final LoadingCache<TimelineKey, TimelineDTO> timelines;
+
+    @Inject
+    public AdminStatsCache(AdminStatsService adminStatsService, SereniaConfig sereniaConfig, MeterRegistry meterRegistry,
+                           ManagedExecutor managedExecutor) {
+        this(adminStatsService, sereniaConfig.adminStatsCacheTtl(), sereniaConfig.adminStatsCacheMaxStale(),
+                managedExecutor, Ticker.systemTicker());
+        CaffeineCacheMetrics.monitor(meterRegistry, dashboard, DASHBOARD_CACHE_NAME);
+        CaffeineCacheMetrics.monitor(meterRegistry, timelines, TIMELINE_CACHE_NAME);
+    }
+
+    AdminStatsCache(AdminStatsService adminStatsService, Duration ttl, Duration maxStale, Executor executor,
+                    Ticker ticker) {
+        this.dashboard = newCache(ttl, maxStale, executor, ticker)
+                .maximumSize(1)
+                .build(key -> adminStatsService.getDashboard());
+        this.timelines = newCache(ttl, maxStale, executor, ticker)
+                .maximumSize(MAX_TIMELINES)
+                .build(key -> adminStatsService.getTimeline(key.metric(), key.days()));
+    }
+
+    public DashboardDTO getDashboard() {
+        return dashboard.get(DASHBOARD_KEY);
+    }
+
+    public TimelineDTO getTimeline(String metric, int days) {
+        return timelines.get(new TimelineKey(metric, days));
+    }
+
+    // ========== Private methods ==========
+
+    private static Caffeine<Object, Object> newCache(Duration ttl, Duration maxStale, Executor executor, Ticker ticker) {
+        return Caffeine.newBuilder()
+                .refreshAfterWrite(ttl)
+                .expireAfterWrite(ttl.plus(maxStale))
+                .executor(executor)
+                .ticker(ticker)
+                .recordStats();
+    }
+
+    private record TimelineKey(String metric, int days) {
+    }
+}
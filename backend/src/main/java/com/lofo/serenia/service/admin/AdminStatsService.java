@@ -1,105 +1,64 @@
 package com.lofo.serenia.service.admin;
 
-import com.lofo.serenia.persistence.entity.conversation.MessageRole;
+import com.lofo.serenia.persistence.entity.stats.DailyStats;
 import com.lofo.serenia.persistence.entity.subscription.PlanType;
-import com.lofo.serenia.persistence.repository.MessageRepository;
-import com.lofo.serenia.persistence.repository.PlanRepository;
+import com.lofo.serenia.persistence.entity.user.UserListItem;
 import com.lofo.serenia.persistence.repository.SubscriptionRepository;
 import com.lofo.serenia.persistence.repository.UserRepository;
 import com.lofo.serenia.rest.dto.out.admin.*;
+import com.lofo.serenia.service.chat.KeysetCursor;
+import com.lofo.serenia.service.subscription.PlanCatalog;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import jakarta.ws.rs.BadRequestException;
 import lombok.RequiredArgsConstructor;
 
-import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 
 @ApplicationScoped
 @RequiredArgsConstructor
 public class AdminStatsService {
 
+    static final int DEFAULT_USER_PAGE_SIZE = 20;
+    static final int MAX_USER_PAGE_SIZE = 100;
+
     private final UserRepository userRepository;
-    private final MessageRepository messageRepository;
     private final SubscriptionRepository subscriptionRepository;
-    private final PlanRepository planRepository;
+    private final PlanCatalog planCatalog;
     private final EntityManager entityManager;
+    private final DailyStatsService dailyStatsService;
+    private final ActiveUserSketchService activeUserSketchService;
 
+    @Transactional
     public DashboardDTO getDashboard() {
+        DailyStatsSummary summary = dailyStatsService.summarize();
+        long activatedUsers = userRepository.count("accountActivated", true);
         return new DashboardDTO(
-                getUserStats(),
-                getMessageStats(),
-                getEngagementStats(),
+                getUserStats(summary, activatedUsers),
+                getMessageStats(summary),
+                getEngagementStats(summary, activatedUsers),
                 getSubscriptionStats()
         );
     }
 
     public UserStatsDTO getUserStats() {
-        long totalUsers = userRepository.count();
-        long activatedUsers = userRepository.count("accountActivated", true);
-
-        Instant now = Instant.now();
-        Instant sevenDaysAgo = now.minus(7, ChronoUnit.DAYS);
-        Instant thirtyDaysAgo = now.minus(30, ChronoUnit.DAYS);
-
-        long newUsersLast7Days = userRepository.count("createdAt >= ?1", sevenDaysAgo);
-        long newUsersLast30Days = userRepository.count("createdAt >= ?1", thirtyDaysAgo);
-
-        long freeUsers = countUsersByPlan(PlanType.FREE);
-        long plusUsers = countUsersByPlan(PlanType.PLUS);
-        long maxUsers = countUsersByPlan(PlanType.MAX);
-
-        return new UserStatsDTO(
-                totalUsers,
-                activatedUsers,
-                freeUsers,
-                plusUsers,
-                maxUsers,
-                newUsersLast7Days,
-                newUsersLast30Days
-        );
+        return getUserStats(dailyStatsService.summarize(), userRepository.count("accountActivated", true));
     }
 
-    private static final String USER_MESSAGE_COUNT_QUERY = "role = ?1 AND timestamp >= ?2";
-
     public MessageStatsDTO getMessageStats() {
-        long totalUserMessages = messageRepository.count("role", MessageRole.USER);
-
-        Instant now = Instant.now();
-        Instant startOfToday = LocalDate.now().atStartOfDay(ZoneOffset.UTC).toInstant();
-        Instant sevenDaysAgo = now.minus(7, ChronoUnit.DAYS);
-        Instant thirtyDaysAgo = now.minus(30, ChronoUnit.DAYS);
-
-        long messagesToday = messageRepository.count(USER_MESSAGE_COUNT_QUERY, MessageRole.USER, startOfToday);
-        long messagesLast7Days = messageRepository.count(USER_MESSAGE_COUNT_QUERY, MessageRole.USER, sevenDaysAgo);
-        long messagesLast30Days = messageRepository.count(USER_MESSAGE_COUNT_QUERY, MessageRole.USER, thirtyDaysAgo);
-
-        return new MessageStatsDTO(
-                totalUserMessages,
-                messagesToday,
-                messagesLast7Days,
-                messagesLast30Days
-        );
+        return getMessageStats(dailyStatsService.summarize());
     }
 
     public EngagementStatsDTO getEngagementStats() {
-        long activatedUsers = userRepository.count("accountActivated", true);
-        long activeUsers = countActiveUsers();
-        double activationRate = activatedUsers > 0 ? (double) activeUsers / activatedUsers * 100 : 0;
-
-        long totalUserMessages = messageRepository.count("role", MessageRole.USER);
-        double avgMessagesPerUser = activeUsers > 0 ? (double) totalUserMessages / activeUsers : 0;
-
-        return new EngagementStatsDTO(
-                activeUsers,
-                Math.round(activationRate * 100.0) / 100.0,
-                Math.round(avgMessagesPerUser * 100.0) / 100.0
-        );
+        return getEngagementStats(dailyStatsService.summarize(), userRepository.count("accountActivated", true));
     }
 
     public SubscriptionStatsDTO getSubscriptionStats() {
@@ -107,8 +66,8 @@ public class AdminStatsService {
                 .createQuery("SELECT COALESCE(SUM(s.tokensUsedThisMonth), 0) FROM Subscription s", Long.class)
                 .getSingleResult();
 
-        var plusPlan = planRepository.findByName(PlanType.PLUS);
-        var maxPlan = planRepository.findByName(PlanType.MAX);
+        var plusPlan = planCatalog.findByType(PlanType.PLUS);
+        var maxPlan = planCatalog.findByType(PlanType.MAX);
 
         long plusUsers = countUsersByPlan(PlanType.PLUS);
         long maxUsers = countUsersByPlan(PlanType.MAX);
@@ -123,125 +82,151 @@ public class AdminStatsService {
         );
     }
 
+    @Transactional
     public TimelineDTO getTimeline(String metric, int days) {
-        LocalDate endDate = LocalDate.now();
-        LocalDate startDate = endDate.minusDays((long) days - 1);
-
-        List<TimelineDataPointDTO> data = switch (metric) {
-            case "users" -> getUserTimeline(startDate, endDate);
-            case "messages" -> getMessageTimeline(startDate, endDate);
-            default -> List.of();
+        ToLongFunction<DailyStats> value = switch (metric) {
+            case "users" -> DailyStats::getNewUsers;
+            case "messages" -> DailyStats::getUserMessages;
+            case "active-users" -> DailyStats::getActiveUsers;
+            case "tokens" -> DailyStats::getTokensUsed;
+            default -> null;
         };
+        if (value == null) {
+            return new TimelineDTO(metric, List.of());
+        }
+
+        LocalDate endDate = LocalDate.now(ZoneOffset.UTC);
+        LocalDate startDate = endDate.minusDays((long) days - 1);
+        Map<LocalDate, Long> dataMap = dailyStatsService.findDays(startDate, endDate).stream()
+                .collect(Collectors.toMap(DailyStats::getStatDate, value::applyAsLong));
 
-        return new TimelineDTO(metric, data);
+        List<TimelineDataPointDTO> filled = new ArrayList<>();
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            filled.add(new TimelineDataPointDTO(date, dataMap.getOrDefault(date, 0L)));
+        }
+        return new TimelineDTO(metric, filled);
     }
 
-    @SuppressWarnings("unchecked")
-    private List<TimelineDataPointDTO> getUserTimeline(LocalDate startDate, LocalDate endDate) {
-        List<Object[]> results = entityManager.createNativeQuery(
-                        "SELECT CAST(created_at AS DATE) as date, COUNT(*) as cnt " +
-                                "FROM users WHERE created_at >= ?1 AND created_at < ?2 " +
-                                "GROUP BY CAST(created_at AS DATE) ORDER BY date")
-                .setParameter(1, startDate.atStartOfDay(ZoneOffset.UTC).toInstant())
-                .setParameter(2, endDate.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant())
-                .getResultList();
-
-        return fillMissingDatesNative(results, startDate, endDate);
+    private UserStatsDTO getUserStats(DailyStatsSummary summary, long activatedUsers) {
+        long totalUsers = userRepository.count();
+
+        long freeUsers = countUsersByPlan(PlanType.FREE);
+        long plusUsers = countUsersByPlan(PlanType.PLUS);
+        long maxUsers = countUsersByPlan(PlanType.MAX);
+
+        return new UserStatsDTO(
+                totalUsers,
+                activatedUsers,
+                freeUsers,
+                plusUsers,
+                maxUsers,
+                summary.last7Days().newUsers(),
+                summary.last30Days().newUsers()
+        );
     }
 
-    @SuppressWarnings("unchecked")
-    private List<TimelineDataPointDTO> getMessageTimeline(LocalDate startDate, LocalDate endDate) {
-        List<Object[]> results = entityManager.createNativeQuery(
-                        "SELECT CAST(timestamp AS DATE) as date, COUNT(*) as cnt " +
-                                "FROM messages WHERE role = ?1 AND timestamp >= ?2 AND timestamp < ?3 " +
-                                "GROUP BY CAST(timestamp AS DATE) ORDER BY date")
-                .setParameter(1, MessageRole.USER.name())
-                .setParameter(2, startDate.atStartOfDay(ZoneOffset.UTC).toInstant())
-                .setParameter(3, endDate.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant())
-                .getResultList();
-
-        return fillMissingDatesNative(results, startDate, endDate);
+    private MessageStatsDTO getMessageStats(DailyStatsSummary summary) {
+        return new MessageStatsDTO(
+                summary.allTime().userMessages(),
+                summary.today().userMessages(),
+                summary.last7Days().userMessages(),
+                summary.last30Days().userMessages()
+        );
     }
 
-    private List<TimelineDataPointDTO> fillMissingDatesNative(List<Object[]> results, LocalDate startDate, LocalDate endDate) {
-        Map<LocalDate, Long> dataMap = results.stream()
-                .collect(Collectors.toMap(
-                        row -> toLocalDate(row[0]),
-                        row -> ((Number) row[1]).longValue()
-                ));
+    private EngagementStatsDTO getEngagementStats(DailyStatsSummary summary, long activatedUsers) {
+        long activeUsers = summary.allTime().newActiveUsers();
+        double activationRate = activatedUsers > 0 ? (double) activeUsers / activatedUsers * 100 : 0;
 
-        List<TimelineDataPointDTO> filled = new ArrayList<>();
-        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
-            filled.add(new TimelineDataPointDTO(date, dataMap.getOrDefault(date, 0L)));
-        }
-        return filled;
-    }
+        long totalUserMessages = summary.allTime().userMessages();
+        double avgMessagesPerUser = activeUsers > 0 ? (double) totalUserMessages / activeUsers : 0;
 
-    private LocalDate toLocalDate(Object value) {
-        if (value instanceof LocalDate ld) {
-            return ld;
-        }
-        if (value instanceof java.sql.Date sqlDate) {
-            return sqlDate.toLocalDate();
-        }
-        if (value instanceof java.util.Date utilDate) {
-            return utilDate.toInstant().atZone(ZoneOffset.UTC).toLocalDate();
-        }
-        throw new IllegalArgumentException("Cannot convert to LocalDate: " + value.getClass());
+        ActiveUserCounts recent = activeUserSketchService.count();
+        double monthlyEngagementRate = activatedUsers > 0 ? (double) recent.monthly() / activatedUsers * 100 : 0;
+
+        return new EngagementStatsDTO(
+                activeUsers,
+                Math.round(activationRate * 100.0) / 100.0,
+                Math.round(avgMessagesPerUser * 100.0) / 100.0,
+                recent.daily(),
+                recent.weekly(),
+                recent.monthly(),
+                Math.round(monthlyEngagementRate * 100.0) / 100.0
+        );
     }
 
     private long countUsersByPlan(PlanType planType) {
         return subscriptionRepository.count("plan.name", planType);
     }
 
-    private long countActiveUsers() {
-        return entityManager
-                .createQuery("SELECT COUNT(DISTINCT m.userId) FROM Message m WHERE m.role = :role", Long.class)
-                .setParameter("role", MessageRole.USER)
-                .getSingleResult();
-    }
-
     public UserListDTO getUserList(int page, int size) {
         long totalCount = userRepository.count();
 
-        var users = userRepository.findAll()
-                .page(page, size)
-                .list()
-                .stream()
-                .map(this::toUserDetail)
+        var users = userRepository.findListItems(page, size).stream()
+                .map(AdminStatsService::toUserDetail)
                 .toList();
 
         return new UserListDTO(users, totalCount, page, size);
     }
 
+    /**
+     * Returns one page of users, newest accounts first, in a single query whatever the page size.
+     *
+     * @param after     cursor returned with the previous page, or null for the first page
+     * @param limit     page size, {@value #DEFAULT_USER_PAGE_SIZE} when null
+     * @param plan      plan name to keep, or null for all plans
+     * @param activated activation state to keep, or null for both
+     */
+    public UserPageDTO getUserPage(String after, Integer limit, String plan, Boolean activated) {
+        int pageSize = limit != null ? limit : DEFAULT_USER_PAGE_SIZE;
+        if (pageSize < 1 || pageSize > MAX_USER_PAGE_SIZE) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_USER_PAGE_SIZE);
+        }
+        PlanType planType = parsePlan(plan);
+        KeysetCursor cursor = after != null && !after.isBlank() ? KeysetCursor.decode(after) : null;
+
+        List<UserListItem> items = cursor == null
+                ? userRepository.findListItemsAfter(planType, activated, null, null, pageSize + 1)
+                : userRepository.findListItemsAfter(planType, activated, cursor.timestamp(), cursor.id(), pageSize + 1);
+
+        boolean hasMore = items.size() > pageSize;
+        List<UserListItem> page = hasMore ? items.subList(0, pageSize) : items;
+        String nextCursor = hasMore
+                ? new KeysetCursor(page.getLast().createdAt(), page.getLast().id()).encode()
+                : null;
+        return new UserPageDTO(page.stream().map(AdminStatsService::toUserDetail).toList(), nextCursor);
+    }
+
     public UserDetailDTO getUserByEmail(String email) {
-        return userRepository.find("email", email)
-                .firstResultOptional()
-                .map(this::toUserDetail)
+        return userRepository.findListItemByEmail(email)
+                .map(AdminStatsService::toUserDetail)
                 .orElse(null);
     }
 
-    private UserDetailDTO toUserDetail(com.lofo.serenia.persistence.entity.user.User user) {
-        long messageCount = messageRepository.count("userId = ?1 AND role = ?2", user.getId(), MessageRole.USER);
-
-        var subscription = subscriptionRepository.findByUserId(user.getId()).orElse(null);
-        String planType = subscription != null ? subscription.getPlan().getName().name() : "NONE";
-        int tokensUsed = subscription != null ? subscription.getTokensUsedThisMonth() : 0;
-        int messagesSentToday = subscription != null ? subscription.getMessagesSentToday() : 0;
+    private static PlanType parsePlan(String plan) {
+        if (plan == null || plan.isBlank()) {
+            return null;
+        }
+        try {
+            return PlanType.valueOf(plan.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Unknown plan: " + plan);
+        }
+    }
 
+    private static UserDetailDTO toUserDetail(UserListItem user) {
         return new UserDetailDTO(
-                user.getId(),
-                user.getEmail(),
-                user.getFirstName(),
-                user.getLastName(),
-                user.getRole().name(),
-                planType,
-                user.isAccountActivated(),
-                user.getCreatedAt(),
-                messageCount,
-                tokensUsed,
-                messagesSentToday
+                user.id(),
+                user.email(),
+                user.firstName(),
+                user.lastName(),
+                user.role().name(),
+                user.planType() != null ? user.planType().name() : "NONE",
+                user.activated(),
+                user.createdAt(),
+                user.messageCount(),
+                user.tokensUsedThisMonth() != null ? user.tokensUsedThisMonth() : 0,
+                user.messagesSentToday() != null ? user.messagesSentToday() : 0
         );
     }
 }
-
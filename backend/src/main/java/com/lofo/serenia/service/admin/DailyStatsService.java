@@ -0,0 +1,214 @@
+package com.lofo.serenia.service.admin;
+
+import com.lofo.serenia.persistence.entity.stats.DailyStats;
+import com.lofo.serenia.persistence.entity.stats.DailyStatsTotals;
+import com.lofo.serenia.persistence.repository.ActiveUserSketchRepository;
+import com.lofo.serenia.persistence.repository.DailyStatsRepository;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Maintains the {@code daily_stats} rollups and answers the dashboard from them.
+ *
+ * <p>Closed days are rolled up from {@code users} and {@code messages} by a scheduled job, one day per
+ * transaction; a day rolled up shortly after midnight is rolled up once more after {@link #LATE_WRITE_GRACE},
+ * to pick up turns that were still being written. Days after the last rolled-up one, normally just today, form
+ * the live tail and are counted from the source tables on each read, so reads cost O(days) plus one day of
+ * messages. Tokens are summed in memory as calls settle and added to the day's row every
+ * {@code serenia.stats.tokens-flush-interval}; a crash loses at most one interval of token usage. Rolling up a
+ * day also rebuilds its active user sketch, see {@link ActiveUserSketchService}.</p>
+ */
+@Slf4j
+@ApplicationScoped
+@RequiredArgsConstructor
+public class DailyStatsService {
+
+    static final int MAX_DAYS_PER_RUN = 31;
+    static final Duration LATE_WRITE_GRACE = Duration.ofHours(1);
+
+    private final DailyStatsRepository dailyStatsRepository;
+    private final ActiveUserSketchRepository activeUserSketchRepository;
+    private final ActiveUserSketchService activeUserSketchService;
+
+    private final Map<LocalDate, LongAdder> pendingTokens = new ConcurrentHashMap<>();
+
+    /**
+     * Counts tokens consumed now towards today's total, without touching the database.
+     */
+    public void recordTokens(int tokens) {
+        if (tokens > 0) {
+            pendingTokens.computeIfAbsent(today(), day -> new LongAdder()).add(tokens);
+        }
+    }
+
+    @Transactional
+    public DailyStatsSummary summarize() {
+        LocalDate today = today();
+        Optional<DailyStats> lastRolledUp = dailyStatsRepository.findLastRolledUp();
+        LocalDate liveFrom = lastRolledUp.map(stats -> stats.getStatDate().plusDays(1)).orElse(null);
+        LocalDate start7 = today.minusDays(6);
+        LocalDate start30 = today.minusDays(29);
+
+        DailyStatsTotals rolledUp7 = DailyStatsTotals.ZERO;
+        DailyStatsTotals rolledUp30 = DailyStatsTotals.ZERO;
+        DailyStatsTotals rolledUpAllTime = DailyStatsTotals.ZERO;
+        if (lastRolledUp.isPresent()) {
+            for (DailyStats stats : dailyStatsRepository.findBetween(start30, today)) {
+                if (stats.getRolledUpAt() == null) {
+                    continue;
+                }
+                DailyStatsTotals day = DailyStatsTotals.of(stats);
+                rolledUp30 = rolledUp30.plus(day);
+                if (!stats.getStatDate().isBefore(start7)) {
+                    rolledUp7 = rolledUp7.plus(day);
+                }
+            }
+            rolledUpAllTime = dailyStatsRepository.sumRolledUp();
+        }
+
+        Map<LocalDate, DailyStatsTotals> liveTails = new HashMap<>();
+        return new DailyStatsSummary(
+                rolledUpAllTime.plus(liveTail(null, liveFrom, today, liveTails)),
+                liveTail(today, liveFrom, today, liveTails),
+                rolledUp7.plus(liveTail(start7, liveFrom, today, liveTails)),
+                rolledUp30.plus(liveTail(start30, liveFrom, today, liveTails)));
+    }
+
+    /**
+     * Returns one entry per day of {@code [from, to]} that has any activity, rolled up or live.
+     */
+    @Transactional
+    public List<DailyStats> findDays(LocalDate from, LocalDate to) {
+        LocalDate liveFrom = dailyStatsRepository.findLastRolledUp()
+                .map(stats -> stats.getStatDate().plusDays(1))
+                .orElse(from);
+        List<DailyStats> days = new ArrayList<>();
+        Map<LocalDate, Long> liveTokens = new HashMap<>();
+        for (DailyStats stats : dailyStatsRepository.findBetween(from, to)) {
+            if (stats.getStatDate().isBefore(liveFrom)) {
+                days.add(stats);
+            } else {
+                liveTokens.put(stats.getStatDate(), stats.getTokensUsed());
+            }
+        }
+        for (LocalDate day = liveFrom.isAfter(from) ? liveFrom : from; !day.isAfter(to); day = day.plusDays(1)) {
+            DailyStats live = dailyStatsRepository.aggregate(startOf(day), startOf(day.plusDays(1)));
+            live.setStatDate(day);
+            live.setTokensUsed(liveTokens.getOrDefault(day, 0L) + pendingTokensOf(day));
+            days.add(live);
+        }
+        return days;
+    }
+
+    @Scheduled(every = "${serenia.stats.rollup-interval:15m}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void rollUpClosedDays() {
+        rollUp(today(), Instant.now());
+    }
+
+    /**
+     * Rolls up the closed days not yet rolled up, oldest first and at most {@link #MAX_DAYS_PER_RUN} per run.
+     */
+    void rollUp(LocalDate today, Instant now) {
+        LocalDate day = firstDayToRollUp(today, now);
+        for (int rolled = 0; day.isBefore(today) && rolled < MAX_DAYS_PER_RUN; rolled++) {
+            LocalDate current = day;
+            try {
+                QuarkusTransaction.requiringNew().run(() -> {
+                    Instant start = startOf(current);
+                    Instant end = startOf(current.plusDays(1));
+                    dailyStatsRepository.saveRollup(current, dailyStatsRepository.aggregate(start, end), now);
+                    activeUserSketchService.rollUp(current,
+                            activeUserSketchRepository.findActiveUserIds(start, end), now);
+                });
+            } catch (RuntimeException e) {
+                log.error("Failed to roll up daily stats for {}", current, e);
+                return;
+            }
+            day = day.plusDays(1);
+        }
+    }
+
+    @Scheduled(every = "${serenia.stats.tokens-flush-interval:30s}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void flushTokens() {
+        LocalDate today = today();
+        pendingTokens.forEach((day, adder) -> {
+            long tokens = adder.sumThenReset();
+            if (tokens > 0) {
+                try {
+                    QuarkusTransaction.requiringNew().run(() -> dailyStatsRepository.addTokens(day, tokens));
+                } catch (RuntimeException e) {
+                    adder.add(tokens);
+                    log.warn("Failed to flush {} tokens to daily stats for {}, retrying later", tokens, day, e);
+                    return;
+                }
+            }
+            if (day.isBefore(today)) {
+                pendingTokens.remove(day, adder);
+            }
+        });
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        flushTokens();
+    }
+
+    // ========== Private methods ==========
+
+    private LocalDate firstDayToRollUp(LocalDate today, Instant now) {
+        Optional<DailyStats> lastRolledUp = QuarkusTransaction.joiningExisting()
+                .call(dailyStatsRepository::findLastRolledUp);
+        if (lastRolledUp.isEmpty()) {
+            return QuarkusTransaction.joiningExisting().call(dailyStatsRepository::findFirstActivity)
+                    .map(first -> first.atZone(ZoneOffset.UTC).toLocalDate())
+                    .orElse(today.minusDays(1));
+        }
+        LocalDate last = lastRolledUp.get().getStatDate();
+        Instant settled = startOf(last.plusDays(1)).plus(LATE_WRITE_GRACE);
+        boolean rolledUpTooEarly = lastRolledUp.get().getRolledUpAt().isBefore(settled) && now.isAfter(settled);
+        return rolledUpTooEarly ? last : last.plusDays(1);
+    }
+
+    /**
+     * Live counters of {@code [max(from, liveFrom), today]}, memoized by effective start since the windows usually
+     * all reduce to today. {@code liveFrom} null means nothing is rolled up yet and every day is live.
+     */
+    private DailyStatsTotals liveTail(LocalDate from, LocalDate liveFrom, LocalDate today,
+                                      Map<LocalDate, DailyStatsTotals> memo) {
+        LocalDate start = from == null ? liveFrom : liveFrom == null || from.isAfter(liveFrom) ? from : liveFrom;
+        return memo.computeIfAbsent(start, key -> DailyStatsTotals.of(dailyStatsRepository.aggregate(
+                key == null ? null : startOf(key), startOf(today.plusDays(1)))));
+    }
+
+    private long pendingTokensOf(LocalDate day) {
+        LongAdder adder = pendingTokens.get(day);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    private static LocalDate today() {
+        return LocalDate.now(ZoneOffset.UTC);
+    }
+
+    private static Instant startOf(LocalDate day) {
+        return day.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+}
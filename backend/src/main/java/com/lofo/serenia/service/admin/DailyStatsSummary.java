@@ -0,0 +1,13 @@
+package com.lofo.serenia.service.admin;
+
+import com.lofo.serenia.persistence.entity.stats.DailyStatsTotals;
+
+/**
+ * Activity totals over the windows shown on the admin dashboard, each ending today (UTC) included.
+ */
+public record DailyStatsSummary(
+        DailyStatsTotals allTime,
+        DailyStatsTotals today,
+        DailyStatsTotals last7Days,
+        DailyStatsTotals last30Days
+) {}
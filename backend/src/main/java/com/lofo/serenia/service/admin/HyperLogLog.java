@@ -0,0 +1,156 @@
+package com.lofo.serenia.service.admin;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * HyperLogLog sketch of a set of user ids: estimates its cardinality from {@code 2^precision} one-byte registers,
+ * whatever the number of ids added.
+ *
+ * <p>The cardinality is computed with Ertl's improved raw estimator ("New cardinality estimation algorithms for
+ * HyperLogLog sketches", 2017), which corrects the bias of the classic estimator over the whole range, including
+ * the transition from linear counting around {@code 2.5 * 2^precision} ids, without empirical bias tables. The
+ * relative standard error is at most about {@code 1.04 / sqrt(2^precision)}, i.e. 1.6% at precision 12 (within
+ * 3.3% 95% of the time), and lower for sets much smaller than {@code 2^precision}. Two sketches of the same precision merge by taking the maximum of each register;
+ * the result is the sketch of the union, so days and nodes can be combined in any order.</p>
+ *
+ * <p>Serialized as one byte holding the precision followed by the registers.</p>
+ */
+public final class HyperLogLog {
+
+    private static final double ALPHA_INF = 1 / (2 * Math.log(2));
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("precision must be between 4 and 18");
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    private HyperLogLog(int precision, byte[] registers) {
+        this.precision = precision;
+        this.registers = registers;
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        int precision = bytes[0];
+        if (precision < 4 || precision > 18 || bytes.length != (1 << precision) + 1) {
+            throw new IllegalArgumentException("Not a serialized sketch");
+        }
+        return new HyperLogLog(precision, Arrays.copyOfRange(bytes, 1, bytes.length));
+    }
+
+    public synchronized void add(UUID id) {
+        long hash = mix(id.getMostSignificantBits() ^ mix(id.getLeastSignificantBits()));
+        int index = (int) (hash >>> (Long.SIZE - precision));
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    /**
+     * Folds {@code other} into this sketch.
+     *
+     * @throws IllegalArgumentException if the precisions differ
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge sketches of precision " + precision + " and " + other.precision);
+        }
+        byte[] theirs = other.snapshot();
+        synchronized (this) {
+            for (int i = 0; i < registers.length; i++) {
+                if (theirs[i] > registers[i]) {
+                    registers[i] = theirs[i];
+                }
+            }
+        }
+    }
+
+    public synchronized long estimate() {
+        int m = registers.length;
+        int maxRank = Long.SIZE - precision + 1;
+        int[] histogram = new int[maxRank + 1];
+        for (byte register : registers) {
+            histogram[register]++;
+        }
+        if (histogram[0] == m) {
+            return 0;
+        }
+        double z = m * tau(1.0 - (double) histogram[maxRank] / m);
+        for (int rank = maxRank - 1; rank >= 1; rank--) {
+            z = 0.5 * (z + histogram[rank]);
+        }
+        z += m * sigma((double) histogram[0] / m);
+        return Math.round(ALPHA_INF * m * m / z);
+    }
+
+    public synchronized byte[] toBytes() {
+        byte[] bytes = new byte[registers.length + 1];
+        bytes[0] = (byte) precision;
+        System.arraycopy(registers, 0, bytes, 1, registers.length);
+        return bytes;
+    }
+
+    public int precision() {
+        return precision;
+    }
+
+    // ========== Private methods ==========
+
+    private synchronized byte[] snapshot() {
+        return registers.clone();
+    }
+
+    /**
+     * Correction for the registers still at zero: {@code x + sum(2^(k-1) * x^(2^k))} for {@code k >= 1}.
+     */
+    private static double sigma(double x) {
+        double y = 1;
+        double z = x;
+        double previous;
+        do {
+            x *= x;
+            previous = z;
+            z += x * y;
+            y += y;
+        } while (z != previous);
+        return z;
+    }
+
+    /**
+     * Correction for the registers at the maximum rank: {@code (1 - x - sum(2^-k * (1 - x^(2^-k))^2)) / 3}.
+     */
+    private static double tau(double x) {
+        if (x == 0 || x == 1) {
+            return 0;
+        }
+        double y = 1;
+        double z = 1 - x;
+        double previous;
+        do {
+            x = Math.sqrt(x);
+            previous = z;
+            y *= 0.5;
+            z -= (1 - x) * (1 - x) * y;
+        } while (z != previous);
+        return z / 3;
+    }
+
+    /**
+     * MurmurHash3 finalizer, so that every input bit affects the register index and the rank.
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
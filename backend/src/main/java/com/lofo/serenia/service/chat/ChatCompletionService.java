@@ -5,9 +5,13 @@ import com.lofo.serenia.mapper.ChatMessageMapper;
 import com.lofo.serenia.persistence.entity.conversation.ChatMessage;
 import com.openai.client.OpenAIClient;
 import com.openai.client.okhttp.OpenAIOkHttpClient;
+import com.openai.core.http.StreamResponse;
+import com.openai.helpers.ChatCompletionAccumulator;
 import com.openai.models.chat.completions.ChatCompletion;
+import com.openai.models.chat.completions.ChatCompletionChunk;
 import com.openai.models.chat.completions.ChatCompletionCreateParams;
 import com.openai.models.chat.completions.ChatCompletionMessageParam;
+import com.openai.models.chat.completions.ChatCompletionStreamOptions;
 import com.openai.models.chat.completions.ChatCompletionSystemMessageParam;
 import com.openai.models.completions.CompletionUsage;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -16,6 +20,7 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Generates assistant replies using OpenAI API.
@@ -24,6 +29,16 @@ import java.util.List;
 @ApplicationScoped
 public class ChatCompletionService {
 
+    static final String SUMMARY_INSTRUCTIONS = """
+            Tu tiens à jour le résumé d'une conversation entre un utilisateur et Serenia.
+            On te donne le résumé actuel (éventuellement vide) et les échanges qui ont suivi.
+            Réécris le résumé en y intégrant ces nouveaux échanges : faits importants sur l'utilisateur,
+            émotions, sujets en cours, ce que Serenia a promis ou conseillé.
+            Reste factuel, à la troisième personne, 250 mots maximum, sans introduction ni conclusion.
+            """;
+
+    static final int SUMMARY_MAX_COMPLETION_TOKENS = 600;
+
     private final OpenAIConfig config;
     private final ChatMessageMapper chatMessageMapper;
     private final OpenAIClient client;
@@ -43,24 +58,93 @@ public class ChatCompletionService {
      * Returns both the response content and the actual tokens consumed by OpenAI.
      */
     public ChatCompletionResult generateReply(String systemPrompt, List<ChatMessage> conversationMessages) {
-        List<ChatCompletionMessageParam> messages = new ArrayList<>();
+        ChatCompletionCreateParams params = buildRequestParams(systemPrompt, conversationMessages).build();
 
-        addSystemInstructionsToRequest(systemPrompt, messages);
-        addMessagesToRequest(conversationMessages, messages);
+        ChatCompletion completion = sendRequestAndGetCompletion(params);
 
-        log.debug("Sending request to OpenAI API with : {}", messages);
+        log.debug("OpenAI Usage: {}", completion.usage().orElse(null));
+        return parseCompletionAndReturnResult(completion);
+    }
 
+    /**
+     * Streams an assistant reply, pushing each content delta to the consumer as soon as OpenAI emits it.
+     * Blocks until the stream is exhausted and returns the accumulated content with the usage reported
+     * in the final chunk, so callers can persist and bill the reply exactly like {@link #generateReply}.
+     */
+    public ChatCompletionResult streamReply(String systemPrompt, List<ChatMessage> conversationMessages,
+                                            Consumer<String> deltaConsumer) {
+        ChatCompletionCreateParams params = buildRequestParams(systemPrompt, conversationMessages)
+                .streamOptions(ChatCompletionStreamOptions.builder()
+                        .includeUsage(true)
+                        .build())
+                .build();
+
+        ChatCompletionAccumulator accumulator = ChatCompletionAccumulator.create();
+        try (StreamResponse<ChatCompletionChunk> stream = client.chat().completions().createStreaming(params)) {
+            stream.stream()
+                    .map(accumulator::accumulate)
+                    .flatMap(chunk -> chunk.choices().stream())
+                    .flatMap(choice -> choice.delta().content().stream())
+                    .filter(delta -> !delta.isEmpty())
+                    .forEach(deltaConsumer);
+        }
+
+        ChatCompletion completion = accumulator.chatCompletion();
+
+        log.debug("OpenAI Usage (stream): {}", completion.usage().orElse(null));
+        return parseCompletionAndReturnResult(completion);
+    }
+
+    /**
+     * Extends a rolling conversation summary with the messages that followed it.
+     * Only the new messages are sent, so the cost does not grow with the length of the conversation.
+     */
+    public ChatCompletionResult summarize(String previousSummary, List<ChatMessage> newMessages) {
         ChatCompletionCreateParams params = ChatCompletionCreateParams.builder()
                 .model(this.config.model())
-                .messages(messages)
+                .addSystemMessage(SUMMARY_INSTRUCTIONS)
+                .addUserMessage(buildSummaryInput(previousSummary, newMessages))
+                .maxCompletionTokens(SUMMARY_MAX_COMPLETION_TOKENS)
                 .build();
 
         ChatCompletion completion = sendRequestAndGetCompletion(params);
 
-        log.debug("OpenAI Usage: {}", completion.usage().orElse(null));
+        log.debug("OpenAI Usage (summary): {}", completion.usage().orElse(null));
         return parseCompletionAndReturnResult(completion);
     }
 
+    static String buildSummaryInput(String previousSummary, List<ChatMessage> newMessages) {
+        StringBuilder input = new StringBuilder("Résumé actuel :\n")
+                .append(previousSummary == null || previousSummary.isBlank() ? "(aucun)" : previousSummary)
+                .append("\n\nNouveaux échanges :\n");
+        for (ChatMessage message : newMessages) {
+            switch (message.role()) {
+                case USER -> input.append("Utilisateur : ");
+                case ASSISTANT -> input.append("Serenia : ");
+                case SYSTEM -> {
+                    continue;
+                }
+            }
+            input.append(message.content()).append('\n');
+        }
+        return input.toString();
+    }
+
+    private ChatCompletionCreateParams.Builder buildRequestParams(String systemPrompt,
+                                                                  List<ChatMessage> conversationMessages) {
+        List<ChatCompletionMessageParam> messages = new ArrayList<>();
+
+        addSystemInstructionsToRequest(systemPrompt, messages);
+        addMessagesToRequest(conversationMessages, messages);
+
+        log.debug("Sending request to OpenAI API with : {}", messages);
+
+        return ChatCompletionCreateParams.builder()
+                .model(this.config.model())
+                .maxCompletionTokens(this.config.maxCompletionTokens())
+                .messages(messages);
+    }
+
     static @NotNull ChatCompletionResult parseCompletionAndReturnResult(ChatCompletion completion) {
         String content = "";
         int promptTokens = 0;
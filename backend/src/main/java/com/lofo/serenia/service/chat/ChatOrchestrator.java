@@ -2,52 +2,87 @@ package com.lofo.serenia.service.chat;
 
 import com.lofo.serenia.config.SystemPromptProvider;
 import com.lofo.serenia.persistence.entity.conversation.ChatMessage;
-import com.lofo.serenia.persistence.entity.conversation.Conversation;
-import com.lofo.serenia.persistence.entity.conversation.Message;
-import com.lofo.serenia.service.subscription.QuotaService;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
 import jakarta.enterprise.context.ApplicationScoped;
-import jakarta.transaction.Transactional;
+import jakarta.enterprise.event.Event;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.List;
 import java.util.UUID;
 
+/**
+ * Drives a chat turn through its phases.
+ * Intentionally not transactional: the OpenAI call happens between two short transactions
+ * owned by {@link ChatTurnService}, and a failure in between is compensated by aborting the turn.
+ * Completed turns are announced with a {@link ChatTurnCompletedEvent} for background work such as summarisation.
+ */
 @Slf4j
 @RequiredArgsConstructor
 @ApplicationScoped
 public class ChatOrchestrator {
 
-    private final ConversationService conversationService;
-    private final MessageService messageService;
+    private final ChatTurnService chatTurnService;
     private final ChatCompletionService chatCompletionService;
     private final SystemPromptProvider systemPromptProvider;
-    private final QuotaService quotaService;
+    private final Event<ChatTurnCompletedEvent> turnCompletedEvent;
 
-    @Transactional
     public ProcessedMessageResult processUserMessage(UUID userId, String content, UUID conversationId) {
-        Conversation conv = conversationService.getOrCreateActiveConversation(userId, conversationId);
+        ChatTurnService.ChatTurn turn = chatTurnService.beginTurn(userId, content, conversationId);
 
-        quotaService.checkQuotaBeforeCall(userId);
+        try {
+            ChatCompletionService.ChatCompletionResult completionResult = chatCompletionService.generateReply(
+                    systemPromptProvider.getSystemPrompt(),
+                    turn.history()
+            );
 
-        messageService.persistUserMessage(userId, conv.getId(), content);
+            ChatMessage chatMessage = chatTurnService.completeTurn(userId, turn, completionResult);
+            turnCompletedEvent.fireAsync(
+                    new ChatTurnCompletedEvent(userId, turn.conversationId(), turn.conversationStart()));
 
-        List<ChatMessage> history = messageService.decryptConversationMessages(userId, conv.getId());
-        ChatCompletionService.ChatCompletionResult completionResult = chatCompletionService.generateReply(
-                systemPromptProvider.getSystemPrompt(),
-                history
-        );
-
-        Message assistantMsg = messageService.persistAssistantMessage(userId, conv.getId(), completionResult.content());
+            return new ProcessedMessageResult(turn.conversationId(), chatMessage);
+        } catch (RuntimeException e) {
+            abortQuietly(userId, turn);
+            throw e;
+        }
+    }
 
-        quotaService.recordUsage(userId,
-            completionResult.promptTokens(),
-            completionResult.cachedTokens(),
-            completionResult.completionTokens());
+    /**
+     * Streaming variant of {@link #processUserMessage}.
+     * The turn is opened eagerly, then the returned stream emits one DELTA event per token chunk
+     * and a final COMPLETED event once the reply has been persisted and its usage recorded.
+     * The OpenAI call runs on a worker thread, outside any transaction.
+     */
+    public Multi<ChatStreamEvent> streamUserMessage(UUID userId, String content, UUID conversationId) {
+        ChatTurnService.ChatTurn turn = chatTurnService.beginTurn(userId, content, conversationId);
+        UUID convId = turn.conversationId();
+        String systemPrompt = systemPromptProvider.getSystemPrompt();
 
-        ChatMessage chatMessage = new ChatMessage(assistantMsg.getRole(), completionResult.content());
+        return Multi.createFrom().<ChatStreamEvent>emitter(emitter -> {
+            try {
+                ChatCompletionService.ChatCompletionResult completionResult = chatCompletionService.streamReply(
+                        systemPrompt,
+                        turn.history(),
+                        delta -> emitter.emit(ChatStreamEvent.delta(convId, delta))
+                );
+                ChatMessage chatMessage = chatTurnService.completeTurn(userId, turn, completionResult);
+                turnCompletedEvent.fireAsync(new ChatTurnCompletedEvent(userId, convId, turn.conversationStart()));
+                emitter.emit(ChatStreamEvent.completed(convId, chatMessage));
+                emitter.complete();
+            } catch (RuntimeException e) {
+                log.error("Streaming reply failed for user {} in conversation {}", userId, convId, e);
+                abortQuietly(userId, turn);
+                emitter.fail(e);
+            }
+        }).runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+    }
 
-        return new ProcessedMessageResult(conv.getId(), chatMessage);
+    private void abortQuietly(UUID userId, ChatTurnService.ChatTurn turn) {
+        try {
+            chatTurnService.abortTurn(userId, turn);
+        } catch (RuntimeException e) {
+            log.error("Failed to compensate chat turn for user {} in conversation {}",
+                    userId, turn.conversationId(), e);
+        }
     }
 }
-
@@ -0,0 +1,30 @@
+package com.lofo.serenia.service.chat;
+
+import com.lofo.serenia.persistence.entity.conversation.ChatMessage;
+import com.lofo.serenia.persistence.entity.conversation.MessageRole;
+
+import java.util.UUID;
+
+/**
+ * Event emitted by ChatOrchestrator while an assistant reply is streamed.
+ * DELTA events carry a content fragment, the final COMPLETED event carries the full persisted reply.
+ */
+public record ChatStreamEvent(
+        Type type,
+        UUID conversationId,
+        ChatMessage message
+) {
+
+    public enum Type {
+        DELTA,
+        COMPLETED
+    }
+
+    public static ChatStreamEvent delta(UUID conversationId, String content) {
+        return new ChatStreamEvent(Type.DELTA, conversationId, new ChatMessage(MessageRole.ASSISTANT, content));
+    }
+
+    public static ChatStreamEvent completed(UUID conversationId, ChatMessage message) {
+        return new ChatStreamEvent(Type.COMPLETED, conversationId, message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.lofo.serenia.service.chat;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Fired asynchronously once a chat turn has been committed, for follow-up work that must not delay the reply.
+ * {@code conversationStart} is the conversation's creation time, the lower bound of reads of its messages.
+ */
+public record ChatTurnCompletedEvent(UUID userId, UUID conversationId, Instant conversationStart) {
+}
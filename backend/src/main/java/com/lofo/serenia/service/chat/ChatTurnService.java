@@ -0,0 +1,93 @@
+package com.lofo.serenia.service.chat;
+
+import com.lofo.serenia.config.OpenAIConfig;
+import com.lofo.serenia.config.SystemPromptProvider;
+import com.lofo.serenia.persistence.entity.conversation.ChatMessage;
+import com.lofo.serenia.persistence.entity.conversation.Conversation;
+import com.lofo.serenia.persistence.entity.conversation.Message;
+import com.lofo.serenia.persistence.entity.conversation.MessageRole;
+import com.lofo.serenia.persistence.entity.subscription.Plan;
+import com.lofo.serenia.service.subscription.QuotaService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Transactional phases of a chat turn.
+ * Each method runs in its own short transaction so that no JDBC connection or subscription
+ * row lock is held while the assistant reply is generated by OpenAI.
+ */
+@Slf4j
+@ApplicationScoped
+@RequiredArgsConstructor
+public class ChatTurnService {
+
+    private final ConversationService conversationService;
+    private final MessageService messageService;
+    private final QuotaService quotaService;
+    private final ContextWindowBuilder contextWindowBuilder;
+    private final TokenCounter tokenCounter;
+    private final SystemPromptProvider systemPromptProvider;
+    private final OpenAIConfig openAIConfig;
+
+    /**
+     * State carried between the phases of a chat turn.
+     */
+    public record ChatTurn(UUID conversationId, Instant conversationStart, ChatMessage userMessage,
+                           List<ChatMessage> history, UUID reservationId) {}
+
+    /**
+     * Opens a turn: resolves the conversation, checks the quota, loads as much history as the plan's
+     * context token budget allows, ending with the user message, and reserves the worst-case cost of the call.
+     * The user message is only persisted with the reply, in {@link #completeTurn}.
+     * Everything is rolled back if the reservation does not fit.
+     */
+    @Transactional
+    public ChatTurn beginTurn(UUID userId, String content, UUID conversationId) {
+        Conversation conv = conversationService.getOrCreateActiveConversation(userId, conversationId);
+
+        Plan plan = quotaService.checkQuotaBeforeCall(userId);
+
+        ChatMessage userMessage = new ChatMessage(MessageRole.USER, content, Instant.now());
+        List<ChatMessage> history = contextWindowBuilder.buildContext(
+                userId, conv.getId(), conv.getCreatedAt(), userMessage, plan.getContextTokenBudget());
+
+        int estimatedPromptTokens = tokenCounter.estimatePromptTokens(systemPromptProvider.getSystemPrompt(), history);
+        UUID reservationId = quotaService.reserveTokens(userId, estimatedPromptTokens, openAIConfig.maxCompletionTokens());
+
+        return new ChatTurn(conv.getId(), conv.getCreatedAt(), userMessage, history, reservationId);
+    }
+
+    /**
+     * Closes a turn: persists the user message and the assistant reply together and settles the
+     * reservation to the tokens consumed.
+     */
+    @Transactional
+    public ChatMessage completeTurn(UUID userId, ChatTurn turn,
+                                    ChatCompletionService.ChatCompletionResult completionResult) {
+        Message assistantMsg = messageService.persistTurn(userId, turn.conversationId(),
+                turn.userMessage().content(), turn.userMessage().timestamp(), completionResult.content());
+
+        quotaService.settleReservation(userId, turn.reservationId(),
+            completionResult.promptTokens(),
+            completionResult.cachedTokens(),
+            completionResult.completionTokens());
+
+        return new ChatMessage(assistantMsg.getRole(), completionResult.content());
+    }
+
+    /**
+     * Compensates a turn that failed after {@link #beginTurn} committed. No message was persisted and
+     * nothing was billed at this point, so only the quota reservation is released.
+     */
+    @Transactional
+    public void abortTurn(UUID userId, ChatTurn turn) {
+        log.warn("Aborting chat turn for user {} in conversation {}", userId, turn.conversationId());
+        quotaService.releaseReservation(userId, turn.reservationId());
+    }
+}
@@ -0,0 +1,105 @@
+package com.lofo.serenia.service.chat;
+
+import com.lofo.serenia.mapper.MessageMapper;
+import com.lofo.serenia.persistence.entity.conversation.ChatMessage;
+import com.lofo.serenia.persistence.entity.conversation.Message;
+import com.lofo.serenia.persistence.entity.conversation.MessageRole;
+import com.lofo.serenia.persistence.repository.MessageRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import lombok.RequiredArgsConstructor;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Builds the conversation history sent to OpenAI under a token budget.
+ *
+ * <p>When the conversation has a rolling summary, it comes first as a system message and only
+ * messages newer than the summary are considered after it. History is read newest-first in small keyset pages
+ * and each message is decrypted and counted only when it is reached, so older rows are neither fetched
+ * nor decrypted once the budget is spent. The latest message is always included, even if it alone
+ * exceeds the budget.</p>
+ */
+@ApplicationScoped
+@RequiredArgsConstructor
+public class ContextWindowBuilder {
+
+    static final int FETCH_PAGE_SIZE = 16;
+    static final String SUMMARY_PREFIX = "Résumé des échanges précédents avec l'utilisateur :\n";
+
+    private final MessageRepository messageRepository;
+    private final EncryptionService encryptionService;
+    private final MessageMapper messageMapper;
+    private final TokenCounter tokenCounter;
+    private final ConversationSummaryService conversationSummaryService;
+
+    /**
+     * @param tokenBudget maximum number of history tokens, as counted by {@link TokenCounter}
+     * @return the most recent messages fitting the budget, in chronological order
+     */
+    public List<ChatMessage> buildContext(UUID userId, UUID conversationId, Instant conversationStart, int tokenBudget) {
+        return buildContext(userId, conversationId, conversationStart, null, tokenBudget);
+    }
+
+    /**
+     * Same as {@link #buildContext(UUID, UUID, Instant, int)}, ending with a message that is not persisted yet.
+     * The pending message takes the place of the latest one: it is always included and counted first.
+     */
+    public List<ChatMessage> buildContext(UUID userId, UUID conversationId, Instant conversationStart,
+                                          ChatMessage pendingMessage, int tokenBudget) {
+        Optional<ConversationSummaryService.SummaryView> summary =
+                conversationSummaryService.loadSummary(userId, conversationId);
+        if (summary.isEmpty()) {
+            return buildRecentWindow(userId, conversationId, conversationStart, null, pendingMessage, tokenBudget);
+        }
+
+        ChatMessage summaryMessage = new ChatMessage(MessageRole.SYSTEM,
+                SUMMARY_PREFIX + summary.get().content(), summary.get().summarizedUntil());
+        int remainingBudget = tokenBudget - tokenCounter.countMessageTokens(summaryMessage);
+
+        List<ChatMessage> context = new ArrayList<>();
+        context.add(summaryMessage);
+        context.addAll(buildRecentWindow(userId, conversationId, conversationStart, summary.get().summarizedUntil(),
+                pendingMessage, remainingBudget));
+        return context;
+    }
+
+    private List<ChatMessage> buildRecentWindow(UUID userId, UUID conversationId, Instant conversationStart,
+                                                Instant after, ChatMessage pendingMessage, int tokenBudget) {
+        List<ChatMessage> newestFirst = new ArrayList<>();
+        int usedTokens = 0;
+        if (pendingMessage != null) {
+            newestFirst.add(pendingMessage);
+            usedTokens += tokenCounter.countMessageTokens(pendingMessage);
+        }
+
+        Message oldestRead = null;
+        while (true) {
+            List<Message> page = oldestRead == null
+                    ? messageRepository.findLatestPage(conversationId, conversationStart, after, null, null,
+                            FETCH_PAGE_SIZE)
+                    : messageRepository.findLatestPage(conversationId, conversationStart, after,
+                            oldestRead.getTimestamp(), oldestRead.getId(), FETCH_PAGE_SIZE);
+
+            for (Message message : page) {
+                ChatMessage chatMessage = messageMapper.toChatMessage(message,
+                        encryptionService.decryptForUser(userId, message.getEncryptedContent()));
+                int messageTokens = tokenCounter.countMessageTokens(chatMessage);
+
+                if (!newestFirst.isEmpty() && usedTokens + messageTokens > tokenBudget) {
+                    return newestFirst.reversed();
+                }
+                newestFirst.add(chatMessage);
+                usedTokens += messageTokens;
+            }
+
+            if (page.size() < FETCH_PAGE_SIZE) {
+                return newestFirst.reversed();
+            }
+            oldestRead = page.getLast();
+        }
+    }
+}
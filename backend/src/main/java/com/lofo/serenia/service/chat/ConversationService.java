@@ -1,13 +1,15 @@
 package com.lofo.serenia.service.chat;
 
-import com.lofo.serenia.persistence.entity.conversation.ChatMessage;
 import com.lofo.serenia.persistence.entity.conversation.Conversation;
+import com.lofo.serenia.persistence.entity.conversation.ConversationListItem;
 import com.lofo.serenia.persistence.repository.ConversationRepository;
-import com.lofo.serenia.persistence.repository.MessageRepository;
+import com.lofo.serenia.rest.dto.out.ConversationPageDTO;
 import com.lofo.serenia.rest.dto.out.ConversationSummaryDTO;
+import com.lofo.serenia.service.purge.PurgeService;
 import com.lofo.serenia.service.user.shared.UserFinder;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.transaction.Transactional;
+import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.NotFoundException;
 import lombok.RequiredArgsConstructor;
 
@@ -20,14 +22,18 @@ import java.util.UUID;
 @Transactional
 public class ConversationService {
 
+    static final int DEFAULT_MESSAGE_PAGE_SIZE = 16;
+    static final int MAX_MESSAGE_PAGE_SIZE = 100;
+    static final int DEFAULT_CONVERSATION_PAGE_SIZE = 20;
+    static final int MAX_CONVERSATION_PAGE_SIZE = 100;
     private static final String DEFAULT_CONVERSATION_NAME = "Nouvelle conversation";
     private static final String WELCOME_MESSAGE_TEMPLATE =
         "Coucou %s ! C'est Serenia ✨ Ravi de te rencontrer. T'as passé une bonne journée ?";
 
     private final ConversationRepository conversationRepository;
-    private final MessageRepository messageRepository;
     private final MessageService messageService;
     private final UserFinder userFinder;
+    private final PurgeService purgeService;
 
     public Conversation getOrCreateActiveConversation(UUID userId, UUID conversationId) {
         if (conversationId != null) {
@@ -40,10 +46,36 @@ public class ConversationService {
 
     public List<ConversationSummaryDTO> listUserConversations(UUID userId) {
         return conversationRepository.findAllByUserOrderedByLastActivity(userId).stream()
-            .map(c -> new ConversationSummaryDTO(c.getId(), c.getName(), c.getLastActivityAt()))
+            .map(ConversationService::toSummary)
             .toList();
     }
 
+    /**
+     * Returns one page of the user's conversations, most recently active first.
+     * A conversation that becomes active while the client is paging moves to the first page.
+     *
+     * @param after cursor returned with the previous page, or null for the first page
+     * @param limit page size, {@value #DEFAULT_CONVERSATION_PAGE_SIZE} when null
+     */
+    public ConversationPageDTO listUserConversationsPage(UUID userId, String after, Integer limit) {
+        int pageSize = limit != null ? limit : DEFAULT_CONVERSATION_PAGE_SIZE;
+        if (pageSize < 1 || pageSize > MAX_CONVERSATION_PAGE_SIZE) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_CONVERSATION_PAGE_SIZE);
+        }
+        KeysetCursor cursor = after != null && !after.isBlank() ? KeysetCursor.decode(after) : null;
+
+        List<ConversationListItem> items = cursor == null
+            ? conversationRepository.findPageByUserAfter(userId, null, null, pageSize + 1)
+            : conversationRepository.findPageByUserAfter(userId, cursor.timestamp(), cursor.id(), pageSize + 1);
+
+        boolean hasMore = items.size() > pageSize;
+        List<ConversationListItem> page = hasMore ? items.subList(0, pageSize) : items;
+        String nextCursor = hasMore
+            ? new KeysetCursor(page.getLast().lastActivityAt(), page.getLast().id()).encode()
+            : null;
+        return new ConversationPageDTO(page.stream().map(ConversationService::toSummary).toList(), nextCursor);
+    }
+
     public Conversation createNewConversation(UUID userId, String name) {
         String conversationName = (name != null && !name.isBlank()) ? name : DEFAULT_CONVERSATION_NAME;
         return createConversation(userId, conversationName);
@@ -56,24 +88,39 @@ public class ConversationService {
         return conversation;
     }
 
+    /**
+     * Hides the conversation right away; its messages are deleted in the background by the purge worker.
+     */
     public void deleteSingleConversation(UUID conversationId, UUID userId) {
-        Conversation conversation = getOwnedConversation(conversationId, userId);
-        messageRepository.delete("conversationId", conversation.getId());
-        conversationRepository.delete(conversation);
+        purgeService.requestConversationPurge(getOwnedConversation(conversationId, userId));
     }
 
-    public List<ChatMessage> getConversationMessages(UUID conversationId, UUID userId) {
-        assertConversationOwnership(conversationId, userId);
-        return messageService.decryptConversationMessages(userId, conversationId);
+    /**
+     * Returns one page of a conversation's history, oldest first.
+     *
+     * @param before cursor returned with the previous page, or null for the latest messages
+     * @param limit  page size, {@value #DEFAULT_MESSAGE_PAGE_SIZE} when null
+     */
+    public MessagePage getConversationMessages(UUID conversationId, UUID userId, String before, Integer limit) {
+        int pageSize = limit != null ? limit : DEFAULT_MESSAGE_PAGE_SIZE;
+        if (pageSize < 1 || pageSize > MAX_MESSAGE_PAGE_SIZE) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_MESSAGE_PAGE_SIZE);
+        }
+        KeysetCursor cursor = before != null && !before.isBlank() ? KeysetCursor.decode(before) : null;
+
+        Conversation conversation = getOwnedConversation(conversationId, userId);
+        return messageService.decryptConversationPage(userId, conversation, cursor, pageSize);
     }
 
     public Conversation getActiveConversationByUserId(UUID userId) {
         return conversationRepository.findActiveByUser(userId).orElse(null);
     }
 
+    /**
+     * Hides all of the user's conversations right away; their messages are deleted in the background.
+     */
     public void deleteUserConversations(UUID userId) {
-        messageRepository.deleteByUserId(userId);
-        conversationRepository.deleteByUserId(userId);
+        purgeService.requestConversationsPurge(userId);
     }
 
     private Conversation createConversation(UUID userId, String name) {
@@ -91,13 +138,13 @@ public class ConversationService {
         return conversation;
     }
 
+    private static ConversationSummaryDTO toSummary(ConversationListItem item) {
+        return new ConversationSummaryDTO(item.id(), item.name(), item.lastActivityAt());
+    }
+
     private Conversation getOwnedConversation(UUID conversationId, UUID userId) {
         return conversationRepository.findByIdAndUser(conversationId, userId)
             .orElseThrow(() -> new NotFoundException("Conversation not found"));
     }
-
-    private void assertConversationOwnership(UUID conversationId, UUID userId) {
-        getOwnedConversation(conversationId, userId);
-    }
 }
 
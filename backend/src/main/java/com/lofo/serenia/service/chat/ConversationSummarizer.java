@@ -0,0 +1,92 @@
+package com.lofo.serenia.service.chat;
+
+import com.lofo.serenia.exception.exceptions.QuotaExceededException;
+import com.lofo.serenia.persistence.entity.conversation.ChatMessage;
+import com.lofo.serenia.persistence.entity.conversation.MessageRole;
+import com.lofo.serenia.service.subscription.QuotaService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.ObservesAsync;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Background summariser: after each committed turn, folds the oldest unsummarized turns of the
+ * conversation into its rolling summary once the backlog passes the configured threshold.
+ * The OpenAI call runs outside any transaction, like the chat turn itself.
+ *
+ * <p>Summary calls are billed to the user like chat turns: their worst-case cost is reserved before the call
+ * and settled to the actual usage after it, settled to zero if the call fails. A fold that does not fit in the
+ * remaining quota is postponed. No message is counted against the daily limit.</p>
+ */
+@Slf4j
+@ApplicationScoped
+@RequiredArgsConstructor
+public class ConversationSummarizer {
+
+    private final ConversationSummaryService conversationSummaryService;
+    private final ChatCompletionService chatCompletionService;
+    private final QuotaService quotaService;
+    private final TokenCounter tokenCounter;
+
+    private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+
+    void onTurnCompleted(@ObservesAsync ChatTurnCompletedEvent event) {
+        summarizeIfNeeded(event.userId(), event.conversationId(), event.conversationStart());
+    }
+
+    public void summarizeIfNeeded(UUID userId, UUID conversationId, Instant conversationStart) {
+        if (!inFlight.add(conversationId)) {
+            return;
+        }
+        try {
+            conversationSummaryService.findPendingFold(userId, conversationId, conversationStart)
+                    .ifPresent(fold -> fold(userId, conversationId, fold));
+        } catch (RuntimeException e) {
+            log.warn("Failed to update the summary of conversation {}", conversationId, e);
+        } finally {
+            inFlight.remove(conversationId);
+        }
+    }
+
+    private void fold(UUID userId, UUID conversationId, ConversationSummaryService.PendingFold fold) {
+        UUID reservationId;
+        try {
+            reservationId = quotaService.reserveTokens(userId, estimatePromptTokens(fold),
+                    ChatCompletionService.SUMMARY_MAX_COMPLETION_TOKENS);
+        } catch (QuotaExceededException e) {
+            log.debug("Quota of user {} exhausted, postponing the summary of conversation {}", userId, conversationId);
+            return;
+        }
+
+        ChatCompletionService.ChatCompletionResult result;
+        try {
+            result = chatCompletionService.summarize(fold.previousSummary(), fold.messages());
+        } catch (RuntimeException e) {
+            quotaService.settleReservation(userId, reservationId, 0, 0, 0);
+            throw e;
+        }
+        quotaService.settleReservation(userId, reservationId,
+                result.promptTokens(), result.cachedTokens(), result.completionTokens());
+
+        if (result.content().isBlank()) {
+            log.warn("Empty summary returned for conversation {}, keeping the previous one", conversationId);
+            return;
+        }
+        if (conversationSummaryService.applyFold(userId, conversationId, fold, result.content())) {
+            log.debug("Folded {} messages into the summary of conversation {} (prompt: {}, completion: {} tokens)",
+                    fold.messages().size(), conversationId, result.promptTokens(), result.completionTokens());
+        }
+    }
+
+    private int estimatePromptTokens(ConversationSummaryService.PendingFold fold) {
+        String input = ChatCompletionService.buildSummaryInput(fold.previousSummary(), fold.messages());
+        return tokenCounter.estimatePromptTokens(ChatCompletionService.SUMMARY_INSTRUCTIONS,
+                List.of(new ChatMessage(MessageRole.USER, input)));
+    }
+}
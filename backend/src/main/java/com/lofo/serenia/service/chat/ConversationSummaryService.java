@@ -0,0 +1,146 @@
+package com.lofo.serenia.service.chat;
+
+import com.lofo.serenia.config.SereniaConfig;
+import com.lofo.serenia.mapper.MessageMapper;
+import com.lofo.serenia.persistence.entity.conversation.ChatMessage;
+import com.lofo.serenia.persistence.entity.conversation.ConversationSummary;
+import com.lofo.serenia.persistence.entity.conversation.Message;
+import com.lofo.serenia.persistence.repository.ConversationSummaryRepository;
+import com.lofo.serenia.persistence.repository.MessageRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Persistence side of the rolling conversation summary.
+ *
+ * <p>A fold takes the oldest messages not yet covered by the summary, leaving the most recent ones
+ * out, and extends the previous summary with them. Folds are applied with optimistic locking so that
+ * two concurrent folds of the same conversation cannot both win.</p>
+ *
+ * <p>The summary only records the timestamp it covers, so a fold always ends on a timestamp boundary:
+ * messages sharing the timestamp of the first message left out are left out with it, otherwise the next
+ * fold and the prompt tail, which both start strictly after that timestamp, would never see them.</p>
+ */
+@Slf4j
+@ApplicationScoped
+@RequiredArgsConstructor
+public class ConversationSummaryService {
+
+    static final int MAX_FOLD_BATCH = 60;
+
+    private final ConversationSummaryRepository conversationSummaryRepository;
+    private final MessageRepository messageRepository;
+    private final EncryptionService encryptionService;
+    private final MessageMapper messageMapper;
+    private final SereniaConfig sereniaConfig;
+
+    /**
+     * Decrypted summary as used in the prompt.
+     */
+    public record SummaryView(String content, Instant summarizedUntil) {}
+
+    /**
+     * Messages to fold into the previous summary. {@code expectedVersion} is null when no summary exists yet.
+     */
+    public record PendingFold(String previousSummary, List<ChatMessage> messages, Instant foldedUntil,
+                              Long expectedVersion) {}
+
+    public Optional<SummaryView> loadSummary(UUID userId, UUID conversationId) {
+        return conversationSummaryRepository.findByConversationId(conversationId)
+                .map(summary -> new SummaryView(
+                        encryptionService.decryptForUser(userId, summary.getEncryptedSummary()),
+                        summary.getSummarizedUntil()));
+    }
+
+    /**
+     * Returns the next fold to perform, or empty while the unsummarized tail is below the trigger.
+     *
+     * @param conversationStart creation time of the conversation, the lower bound of its message reads
+     */
+    @Transactional
+    public Optional<PendingFold> findPendingFold(UUID userId, UUID conversationId, Instant conversationStart) {
+        Optional<ConversationSummary> summary = conversationSummaryRepository.findByConversationId(conversationId);
+        Instant summarizedUntil = summary.map(ConversationSummary::getSummarizedUntil).orElse(null);
+
+        long unsummarized = messageRepository.countAfter(conversationId, conversationStart, summarizedUntil);
+        if (unsummarized < sereniaConfig.summaryTriggerMessages()) {
+            return Optional.empty();
+        }
+
+        int foldSize = (int) Math.min(unsummarized - sereniaConfig.summaryKeepRecentMessages(), MAX_FOLD_BATCH);
+        if (foldSize <= 0) {
+            return Optional.empty();
+        }
+
+        List<Message> toFold = endOnTimestampBoundary(
+                messageRepository.findOldestAfter(conversationId, conversationStart, summarizedUntil, foldSize + 1),
+                foldSize);
+        if (toFold.isEmpty()) {
+            log.debug("Next {} messages of conversation {} share one timestamp, postponing fold", foldSize, conversationId);
+            return Optional.empty();
+        }
+        List<ChatMessage> messages = toFold.stream()
+                .map(message -> messageMapper.toChatMessage(message,
+                        encryptionService.decryptForUser(userId, message.getEncryptedContent())))
+                .toList();
+
+        String previousSummary = summary
+                .map(existing -> encryptionService.decryptForUser(userId, existing.getEncryptedSummary()))
+                .orElse(null);
+
+        return Optional.of(new PendingFold(previousSummary, messages, toFold.getLast().getTimestamp(),
+                summary.map(ConversationSummary::getVersion).orElse(null)));
+    }
+
+    /**
+     * Keeps at most {@code foldSize} of the given oldest-first messages, dropping the trailing ones that share
+     * their timestamp with the first message left out.
+     */
+    static List<Message> endOnTimestampBoundary(List<Message> oldestFirst, int foldSize) {
+        if (oldestFirst.size() <= foldSize) {
+            return oldestFirst;
+        }
+        Instant firstLeftOut = oldestFirst.get(foldSize).getTimestamp();
+        int end = foldSize;
+        while (end > 0 && oldestFirst.get(end - 1).getTimestamp().equals(firstLeftOut)) {
+            end--;
+        }
+        return oldestFirst.subList(0, end);
+    }
+
+    /**
+     * Stores the extended summary, unless another fold of the same conversation was applied in the meantime.
+     *
+     * @return true when the fold was applied
+     */
+    @Transactional
+    public boolean applyFold(UUID userId, UUID conversationId, PendingFold fold, String newSummary) {
+        Optional<ConversationSummary> current = conversationSummaryRepository.findByConversationId(conversationId);
+        Long currentVersion = current.map(ConversationSummary::getVersion).orElse(null);
+        if (!Objects.equals(currentVersion, fold.expectedVersion())) {
+            log.debug("Summary of conversation {} changed concurrently, dropping fold", conversationId);
+            return false;
+        }
+
+        ConversationSummary summary = current.orElseGet(() -> {
+            ConversationSummary created = new ConversationSummary();
+            created.setConversationId(conversationId);
+            created.setUserId(userId);
+            return created;
+        });
+        summary.setEncryptedSummary(encryptionService.encryptForUser(userId, newSummary));
+        summary.setSummarizedUntil(fold.foldedUntil());
+        summary.setSummarizedMessageCount(summary.getSummarizedMessageCount() + fold.messages().size());
+        summary.setUpdatedAt(Instant.now());
+        conversationSummaryRepository.persist(summary);
+        return true;
+    }
+}
@@ -0,0 +1,50 @@
+package com.lofo.serenia.service.chat;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Small lock-free pool for non thread-safe JCA objects ({@code Cipher}, {@code Mac}).
+ *
+ * <p>A {@code ThreadLocal} would hand every virtual thread its own instance and never reuse it, so
+ * instances are borrowed from a shared queue instead: each borrower has exclusive use of the object
+ * until it gives it back. At most {@code maxIdle} instances are retained; extra ones are left to the GC.</p>
+ */
+final class CryptoObjectPool<T> {
+
+    private final ConcurrentLinkedQueue<T> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final Supplier<T> factory;
+    private final int maxIdle;
+
+    CryptoObjectPool(Supplier<T> factory, int maxIdle) {
+        this.factory = factory;
+        this.maxIdle = maxIdle;
+    }
+
+    static int defaultMaxIdle() {
+        return Runtime.getRuntime().availableProcessors() * 2;
+    }
+
+    T acquire() {
+        T instance = idle.poll();
+        if (instance == null) {
+            return factory.get();
+        }
+        idleCount.decrementAndGet();
+        return instance;
+    }
+
+    /**
+     * Returns an instance to the pool. Only call this when the instance is in a reusable state;
+     * instances that failed mid-operation should simply be dropped.
+     */
+    void release(T instance) {
+        if (idleCount.incrementAndGet() <= maxIdle) {
+            idle.offer(instance);
+        } else {
+            idleCount.decrementAndGet();
+        }
+    }
+}
@@ -8,9 +8,9 @@ import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
-import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.UUID;
 
@@ -29,6 +29,10 @@ import java.util.UUID;
  * <pre>
  * UserKey = HKDF-SHA256(MasterKey, UserID, "serenia-user-encryption-v1")
  * </pre>
+ *
+ * <p>Derived keys are kept in a {@link UserKeyCache}, so derivation is paid once per active user
+ * rather than once per message. {@link Cipher} instances are pooled and payloads are read and written
+ * through offsets, so history loads do not copy each message several times.</p>
  */
 @ApplicationScoped
 public class EncryptionService {
@@ -41,16 +45,26 @@ public class EncryptionService {
     private static final byte PAYLOAD_VERSION_HKDF_V1 = 0x01;
     private static final byte CURRENT_PAYLOAD_VERSION = PAYLOAD_VERSION_HKDF_V1;
 
+    private static final int PAYLOAD_HEADER_LENGTH = 1 + GCM_IV_LENGTH_BYTES;
+
+    /** Scratch buffers above this size are not kept around between operations. */
+    private static final int MAX_RETAINED_SCRATCH_BYTES = 64 * 1024;
+
     private static final String HKDF_CONTEXT = "serenia-user-encryption-v1";
 
     private final SereniaConfig sereniaConfig;
     private final SecretKey masterKey;
+    private final UserKeyCache userKeyCache;
     private final SecureRandom secureRandom = new SecureRandom();
+    private final CryptoObjectPool<CipherSlot> cipherPool =
+            new CryptoObjectPool<>(EncryptionService::newCipherSlot, CryptoObjectPool.defaultMaxIdle());
 
-    public EncryptionService(SereniaConfig sereniaConfig) {
+    public EncryptionService(SereniaConfig sereniaConfig, UserKeyCache userKeyCache) {
         Objects.requireNonNull(sereniaConfig, "sereniaConfig must not be null");
+        Objects.requireNonNull(userKeyCache, "userKeyCache must not be null");
         this.sereniaConfig = sereniaConfig;
         this.masterKey = initMasterKey(sereniaConfig.securityKey());
+        this.userKeyCache = userKeyCache;
     }
 
     public byte[] encryptForUser(UUID userId, String plaintext) {
@@ -58,13 +72,24 @@ public class EncryptionService {
         Objects.requireNonNull(plaintext, "plaintext must not be null");
 
         SecretKey userKey = deriveUserKey(userId);
+        byte[] plaintextBytes = plaintext.getBytes(StandardCharsets.UTF_8);
 
+        CipherSlot slot = cipherPool.acquire();
         try {
-            byte[] iv = generateIv();
-            Cipher cipher = createCipher(Cipher.ENCRYPT_MODE, userKey, iv);
-            byte[] ciphertext = cipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
+            byte[] iv = slot.iv;
+            secureRandom.nextBytes(iv);
+            Cipher cipher = slot.cipher;
+            cipher.init(Cipher.ENCRYPT_MODE, userKey, new GCMParameterSpec(GCM_TAG_LENGTH_BITS, iv));
+
+            byte[] payload = new byte[PAYLOAD_HEADER_LENGTH + cipher.getOutputSize(plaintextBytes.length)];
+            payload[0] = CURRENT_PAYLOAD_VERSION;
+            System.arraycopy(iv, 0, payload, 1, GCM_IV_LENGTH_BYTES);
+            int written = cipher.doFinal(plaintextBytes, 0, plaintextBytes.length, payload, PAYLOAD_HEADER_LENGTH);
 
-            return encodeVersionedPayload(iv, ciphertext);
+            cipherPool.release(slot);
+            return written == payload.length - PAYLOAD_HEADER_LENGTH
+                    ? payload
+                    : Arrays.copyOf(payload, PAYLOAD_HEADER_LENGTH + written);
 
         } catch (Exception e) {
             throw new EncryptionException("Encryption failed for user " + userId, e);
@@ -89,12 +114,15 @@ public class EncryptionService {
     }
 
     private SecretKey deriveUserKey(UUID userId) {
-        byte[] derivedKeyBytes = HkdfUtils.deriveUserKey(
+        return userKeyCache.getOrDerive(userId, this::deriveUserKeyBytes);
+    }
+
+    private byte[] deriveUserKeyBytes(UUID userId) {
+        return HkdfUtils.deriveUserKey(
                 masterKey.getEncoded(),
                 userId,
                 HKDF_CONTEXT
         );
-        return new SecretKeySpec(derivedKeyBytes, KEY_ALGORITHM);
     }
 
     private String decryptWithVersionDetection(UUID userId, byte[] encryptedBytes) throws Exception {
@@ -108,37 +136,33 @@ public class EncryptionService {
     }
 
     private String decryptV1Payload(UUID userId, byte[] encryptedBytes) throws Exception {
-        ByteBuffer buffer = ByteBuffer.wrap(encryptedBytes);
-
-        buffer.get();
-
-        byte[] iv = new byte[GCM_IV_LENGTH_BYTES];
-        buffer.get(iv);
-
-        byte[] ciphertext = new byte[buffer.remaining()];
-        buffer.get(ciphertext);
-
-        SecretKey userKey = deriveUserKey(userId);
-        Cipher cipher = createCipher(Cipher.DECRYPT_MODE, userKey, iv);
-        byte[] plaintextBytes = cipher.doFinal(ciphertext);
-
-        return new String(plaintextBytes, StandardCharsets.UTF_8);
+        return decrypt(deriveUserKey(userId), encryptedBytes, 1);
     }
 
     private String decryptLegacyPayload(byte[] encryptedBytes) throws Exception {
-        ByteBuffer buffer = ByteBuffer.wrap(encryptedBytes);
-
-        byte[] iv = new byte[GCM_IV_LENGTH_BYTES];
-        buffer.get(iv);
-
-        byte[] ciphertext = new byte[buffer.remaining()];
-        buffer.get(ciphertext);
-
-        SecretKey key = getMasterKeyForLegacy();
-        Cipher cipher = createCipher(Cipher.DECRYPT_MODE, key, iv);
-        byte[] plaintextBytes = cipher.doFinal(ciphertext);
+        return decrypt(getMasterKeyForLegacy(), encryptedBytes, 0);
+    }
 
-        return new String(plaintextBytes, StandardCharsets.UTF_8);
+    /**
+     * Decrypts {@code [IV][ciphertext + tag]} starting at {@code ivOffset} without copying the IV or the
+     * ciphertext out of the payload. The plaintext lands in the slot's scratch buffer and is decoded from there.
+     */
+    private String decrypt(SecretKey key, byte[] payload, int ivOffset) throws Exception {
+        int ciphertextOffset = ivOffset + GCM_IV_LENGTH_BYTES;
+        int ciphertextLength = payload.length - ciphertextOffset;
+
+        CipherSlot slot = cipherPool.acquire();
+        Cipher cipher = slot.cipher;
+        cipher.init(Cipher.DECRYPT_MODE, key,
+                new GCMParameterSpec(GCM_TAG_LENGTH_BITS, payload, ivOffset, GCM_IV_LENGTH_BYTES));
+
+        byte[] output = slot.scratch(cipher.getOutputSize(ciphertextLength));
+        int written = cipher.doFinal(payload, ciphertextOffset, ciphertextLength, output, 0);
+        String plaintext = new String(output, 0, written, StandardCharsets.UTF_8);
+
+        Arrays.fill(output, 0, written, (byte) 0);
+        cipherPool.release(slot);
+        return plaintext;
     }
 
     private SecretKey getMasterKeyForLegacy() {
@@ -148,31 +172,14 @@ public class EncryptionService {
         return masterKey;
     }
 
-    private byte[] generateIv() {
-        byte[] iv = new byte[GCM_IV_LENGTH_BYTES];
-        secureRandom.nextBytes(iv);
-        return iv;
-    }
-
-    private Cipher createCipher(int mode, SecretKey key, byte[] iv) {
+    private static CipherSlot newCipherSlot() {
         try {
-            Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
-            GCMParameterSpec spec = new GCMParameterSpec(GCM_TAG_LENGTH_BITS, iv);
-            cipher.init(mode, key, spec);
-            return cipher;
+            return new CipherSlot(Cipher.getInstance(CIPHER_ALGORITHM));
         } catch (Exception e) {
             throw new EncryptionException("Failed to initialize cipher", e);
         }
     }
 
-    private byte[] encodeVersionedPayload(byte[] iv, byte[] ciphertext) {
-        ByteBuffer buffer = ByteBuffer.allocate(1 + iv.length + ciphertext.length);
-        buffer.put(CURRENT_PAYLOAD_VERSION);
-        buffer.put(iv);
-        buffer.put(ciphertext);
-        return buffer.array();
-    }
-
     private SecretKey initMasterKey(String configuredKey) {
         if (configuredKey == null || configuredKey.isBlank()) {
             throw new EncryptionException("Configuration property 'serenia.security.key' must not be null or blank");
@@ -215,5 +222,30 @@ public class EncryptionService {
         }
         return data;
     }
+
+    /**
+     * A pooled cipher together with the buffers it reuses between operations.
+     */
+    private static final class CipherSlot {
+
+        private final Cipher cipher;
+        private final byte[] iv = new byte[GCM_IV_LENGTH_BYTES];
+        private byte[] scratch = new byte[0];
+
+        private CipherSlot(Cipher cipher) {
+            this.cipher = cipher;
+        }
+
+        private byte[] scratch(int minimumLength) {
+            if (scratch.length >= minimumLength) {
+                return scratch;
+            }
+            byte[] buffer = new byte[minimumLength];
+            if (minimumLength <= MAX_RETAINED_SCRATCH_BYTES) {
+                scratch = buffer;
+            }
+            return buffer;
+        }
+    }
 }
 
@@ -1,11 +1,13 @@
 package com.lofo.serenia.service.chat;
 
 import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.UUID;
 
 /**
@@ -17,6 +19,9 @@ public final class HkdfUtils {
     private static final String HMAC_ALGORITHM = "HmacSHA256";
     private static final int HASH_LENGTH = 32;
 
+    private static final CryptoObjectPool<Mac> MAC_POOL =
+            new CryptoObjectPool<>(HkdfUtils::newMac, CryptoObjectPool.defaultMaxIdle());
+
     private HkdfUtils() {
     }
 
@@ -54,34 +59,54 @@ public final class HkdfUtils {
     }
 
     private static byte[] expand(byte[] prk, byte[] info, int length) {
-        int iterations = (int) Math.ceil((double) length / HASH_LENGTH);
         byte[] okm = new byte[length];
-        byte[] previousBlock = new byte[0];
-
-        int offset = 0;
-        for (int i = 1; i <= iterations; i++) {
-            byte[] input = ByteBuffer.allocate(previousBlock.length + info.length + 1)
-                    .put(previousBlock)
-                    .put(info)
-                    .put((byte) i)
-                    .array();
+        Mac mac = MAC_POOL.acquire();
+        try {
+            initMac(mac, prk);
+            byte[] block = new byte[HASH_LENGTH];
 
-            previousBlock = hmacSha256(prk, input);
+            int offset = 0;
+            for (int i = 1; offset < length; i++) {
+                if (i > 1) {
+                    mac.update(block);
+                }
+                mac.update(info);
+                mac.update((byte) i);
+                mac.doFinal(block, 0);
 
-            int copyLength = Math.min(HASH_LENGTH, length - offset);
-            System.arraycopy(previousBlock, 0, okm, offset, copyLength);
-            offset += copyLength;
+                int copyLength = Math.min(HASH_LENGTH, length - offset);
+                System.arraycopy(block, 0, okm, offset, copyLength);
+                offset += copyLength;
+            }
+            Arrays.fill(block, (byte) 0);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException("HMAC-SHA256 output buffer too small", e);
         }
+        MAC_POOL.release(mac);
 
         return okm;
     }
 
     private static byte[] hmacSha256(byte[] key, byte[] data) {
+        Mac mac = MAC_POOL.acquire();
+        initMac(mac, key);
+        byte[] result = mac.doFinal(data);
+        MAC_POOL.release(mac);
+        return result;
+    }
+
+    private static void initMac(Mac mac, byte[] key) {
         try {
-            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
             mac.init(new SecretKeySpec(key, HMAC_ALGORITHM));
-            return mac.doFinal(data);
-        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+        } catch (InvalidKeyException e) {
+            throw new IllegalStateException("HMAC-SHA256 key rejected", e);
+        }
+    }
+
+    private static Mac newMac() {
+        try {
+            return Mac.getInstance(HMAC_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
             throw new IllegalStateException("HMAC-SHA256 not available", e);
         }
     }
@@ -0,0 +1,37 @@
+package com.lofo.serenia.service.chat;
+
+import jakarta.ws.rs.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position in a list sorted by {@code (instant DESC, id)}, handed to clients as an opaque token.
+ * Used for message history ({@code timestamp}), the conversation list ({@code lastActivityAt}) and the admin
+ * user list ({@code createdAt});
+ * paging resumes strictly after this position in that order.
+ */
+public record KeysetCursor(Instant timestamp, UUID id) {
+
+    private static final String SEPARATOR = "|";
+
+    public String encode() {
+        String raw = timestamp + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws BadRequestException if the token was not produced by {@link #encode()}
+     */
+    public static KeysetCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            return new KeysetCursor(Instant.parse(raw.substring(0, separator)), UUID.fromString(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+}
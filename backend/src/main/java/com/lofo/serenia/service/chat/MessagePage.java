@@ -0,0 +1,11 @@
+package com.lofo.serenia.service.chat;
+
+import com.lofo.serenia.persistence.entity.conversation.ChatMessage;
+
+import java.util.List;
+
+/**
+ * One page of decrypted history, oldest first, with the cursor of the next older page (null on the first message).
+ */
+public record MessagePage(List<ChatMessage> messages, String nextCursor) {
+}
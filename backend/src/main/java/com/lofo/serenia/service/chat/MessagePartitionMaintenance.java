@@ -0,0 +1,85 @@
+package com.lofo.serenia.service.chat;
+
+import com.lofo.serenia.config.SereniaConfig;
+import com.lofo.serenia.persistence.repository.MessagePartitionRepository;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps the monthly partitions of {@code messages} ahead of time and applies the retention policy.
+ * Does nothing unless the table is partitioned, i.e. on PostgreSQL once changeset 13 has run.
+ *
+ * <p>Partitions are created {@code serenia.messages.partitions-ahead} months in advance, so that new messages
+ * never land in the default partition. Under a DETACH or DROP policy, a partition is removed once its whole month
+ * is older than the {@code serenia.messages.retention.months} months preceding the current one.</p>
+ */
+@Slf4j
+@ApplicationScoped
+@RequiredArgsConstructor
+public class MessagePartitionMaintenance {
+
+    private final MessagePartitionRepository messagePartitionRepository;
+    private final SereniaConfig sereniaConfig;
+
+    @Scheduled(every = "${serenia.messages.partition-maintenance-interval:6h}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void maintainPartitions() {
+        if (messagePartitionRepository.isPartitioned()) {
+            maintain(YearMonth.now(ZoneOffset.UTC));
+        }
+    }
+
+    void maintain(YearMonth currentMonth) {
+        List<YearMonth> existing = messagePartitionRepository.findPartitionMonths();
+        createMissingPartitions(currentMonth, new HashSet<>(existing));
+        applyRetention(currentMonth, existing);
+    }
+
+    // ========== Private methods ==========
+
+    private void createMissingPartitions(YearMonth currentMonth, Set<YearMonth> existing) {
+        for (int i = 0; i <= sereniaConfig.messagesPartitionsAhead(); i++) {
+            YearMonth month = currentMonth.plusMonths(i);
+            if (existing.contains(month)) {
+                continue;
+            }
+            try {
+                messagePartitionRepository.createPartition(month);
+                log.info("Created messages partition for {}", month);
+            } catch (RuntimeException e) {
+                log.error("Failed to create messages partition for {}", month, e);
+            }
+        }
+    }
+
+    private void applyRetention(YearMonth currentMonth, List<YearMonth> existing) {
+        MessageRetentionPolicy policy = sereniaConfig.messagesRetentionPolicy();
+        if (policy == MessageRetentionPolicy.KEEP) {
+            return;
+        }
+        YearMonth oldestKept = currentMonth.minusMonths(sereniaConfig.messagesRetentionMonths());
+        for (YearMonth month : existing) {
+            if (!month.isBefore(oldestKept)) {
+                continue;
+            }
+            try {
+                if (policy == MessageRetentionPolicy.DETACH) {
+                    messagePartitionRepository.detachPartition(month);
+                } else {
+                    messagePartitionRepository.dropPartition(month);
+                }
+                log.info("Applied {} retention to messages partition for {}", policy, month);
+            } catch (RuntimeException e) {
+                log.error("Failed to apply {} retention to messages partition for {}", policy, month, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.lofo.serenia.service.chat;
+
+/**
+ * What {@link MessagePartitionMaintenance} does with a monthly {@code messages} partition past the retention period.
+ */
+public enum MessageRetentionPolicy {
+    /** Partitions are never removed. */
+    KEEP,
+    /** Partitions are detached and left as standalone tables, e.g. for archiving. */
+    DETACH,
+    /** Partitions and their messages are dropped. */
+    DROP
+}
@@ -2,6 +2,7 @@ package com.lofo.serenia.service.chat;
 
 import com.lofo.serenia.mapper.MessageMapper;
 import com.lofo.serenia.persistence.entity.conversation.ChatMessage;
+import com.lofo.serenia.persistence.entity.conversation.Conversation;
 import com.lofo.serenia.persistence.entity.conversation.Message;
 import com.lofo.serenia.persistence.entity.conversation.MessageRole;
 import com.lofo.serenia.persistence.repository.ConversationRepository;
@@ -24,41 +25,67 @@ public class MessageService {
     private final MessageMapper messageMapper;
 
     @Transactional
-    public void persistUserMessage(UUID userId, UUID conversationId, String content) {
-        persistMessage(userId, conversationId, MessageRole.USER, content);
+    public Message persistAssistantMessage(UUID userId, UUID conversationId, String assistantReply) {
+        return persistMessage(userId, conversationId, MessageRole.ASSISTANT, assistantReply);
     }
 
+    /**
+     * Persists both messages of a completed turn. They are flushed together as one JDBC batch at commit and
+     * the conversation activity is refreshed by a single UPDATE, without loading the conversation.
+     *
+     * @param userTimestamp when the user message was received, so that it sorts before the reply
+     * @return the persisted assistant message
+     */
     @Transactional
-    public Message persistAssistantMessage(UUID userId, UUID conversationId, String assistantReply) {
-        return persistMessage(userId, conversationId, MessageRole.ASSISTANT, assistantReply);
+    public Message persistTurn(UUID userId, UUID conversationId, String userContent, Instant userTimestamp,
+                               String assistantReply) {
+        Instant now = Instant.now();
+        messageRepository.persist(newMessage(userId, conversationId, MessageRole.USER, userContent, userTimestamp));
+        Message assistantMessage = newMessage(userId, conversationId, MessageRole.ASSISTANT, assistantReply, now);
+        messageRepository.persist(assistantMessage);
+        conversationRepository.touchLastActivity(conversationId, now);
+        return assistantMessage;
     }
 
-    public List<ChatMessage> decryptConversationMessages(UUID userId, UUID conversationId) {
-        List<Message> messages = messageRepository.findLatestInChronologicalOrder(conversationId);
-        return messages.stream()
+    /**
+     * Loads and decrypts one page of history older than {@code before} (the latest page when null).
+     * One extra row is read to tell whether an older page exists; it is not decrypted.
+     */
+    public MessagePage decryptConversationPage(UUID userId, Conversation conversation, KeysetCursor before, int limit) {
+        List<Message> newestFirst = before == null
+                ? messageRepository.findPageBefore(conversation.getId(), conversation.getCreatedAt(), null, null, limit + 1)
+                : messageRepository.findPageBefore(conversation.getId(), conversation.getCreatedAt(),
+                        before.timestamp(), before.id(), limit + 1);
+
+        boolean hasOlder = newestFirst.size() > limit;
+        List<Message> page = hasOlder ? newestFirst.subList(0, limit) : newestFirst;
+        String nextCursor = hasOlder
+                ? new KeysetCursor(page.getLast().getTimestamp(), page.getLast().getId()).encode()
+                : null;
+
+        List<ChatMessage> messages = page.reversed().stream()
                 .map(message -> messageMapper.toChatMessage(message,
                         encryptionService.decryptForUser(userId, message.getEncryptedContent())))
                 .toList();
+        return new MessagePage(messages, nextCursor);
     }
 
     private Message persistMessage(UUID userId, UUID conversationId, MessageRole role, String content) {
-        byte[] encryptedContent = encryptionService.encryptForUser(userId, content);
+        Instant now = Instant.now();
+        Message message = newMessage(userId, conversationId, role, content, now);
+        messageRepository.persist(message);
+        conversationRepository.touchLastActivity(conversationId, now);
+        return message;
+    }
+
+    private Message newMessage(UUID userId, UUID conversationId, MessageRole role, String content, Instant timestamp) {
         Message message = new Message();
         message.setConversationId(conversationId);
         message.setUserId(userId);
         message.setRole(role);
-        message.setEncryptedContent(encryptedContent);
-        message.setTimestamp(Instant.now());
-        messageRepository.persist(message);
-        refreshConversationActivity(conversationId);
+        message.setEncryptedContent(encryptionService.encryptForUser(userId, content));
+        message.setTimestamp(timestamp);
         return message;
     }
-
-    private void refreshConversationActivity(UUID conversationId) {
-        conversationRepository.findByConversationId(conversationId).ifPresent(conversation -> {
-            conversation.setLastActivityAt(Instant.now());
-            conversationRepository.persist(conversation);
-        });
-    }
 }
 
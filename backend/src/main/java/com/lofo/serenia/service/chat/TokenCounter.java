@@ -0,0 +1,79 @@
+package com.lofo.serenia.service.chat;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingRegistry;
+import com.knuddels.jtokkit.api.EncodingType;
+import com.lofo.serenia.config.OpenAIConfig;
+import com.lofo.serenia.persistence.entity.conversation.ChatMessage;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+/**
+ * Counts tokens locally with the BPE encoding of the configured OpenAI model
+ * (o200k_base for the gpt-4o family, cl100k_base for older models).
+ *
+ * <p>Counts match what OpenAI bills for message contents; the per-message framing is
+ * approximated with the fixed overhead documented for the chat format.</p>
+ */
+@Slf4j
+@ApplicationScoped
+public class TokenCounter {
+
+    /**
+     * Tokens added by the chat format around each message (role and separators).
+     */
+    static final int TOKENS_PER_MESSAGE = 3;
+
+    /**
+     * Tokens priming the assistant reply at the end of every chat prompt.
+     */
+    static final int REPLY_PRIMING_TOKENS = 3;
+
+    private final Encoding encoding;
+
+    @Inject
+    public TokenCounter(OpenAIConfig openAIConfig) {
+        this(resolveEncoding(openAIConfig.model()));
+    }
+
+    TokenCounter(Encoding encoding) {
+        this.encoding = encoding;
+    }
+
+    public int countTokens(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        return encoding.countTokensOrdinary(text);
+    }
+
+    public int countMessageTokens(ChatMessage message) {
+        return TOKENS_PER_MESSAGE + countTokens(message.content());
+    }
+
+    /**
+     * Estimates the prompt tokens of a chat request made of the system prompt followed by the history.
+     */
+    public int estimatePromptTokens(String systemPrompt, List<ChatMessage> history) {
+        int total = REPLY_PRIMING_TOKENS;
+        if (systemPrompt != null && !systemPrompt.isEmpty()) {
+            total += TOKENS_PER_MESSAGE + countTokens(systemPrompt);
+        }
+        for (ChatMessage message : history) {
+            total += countMessageTokens(message);
+        }
+        return total;
+    }
+
+    static Encoding resolveEncoding(String model) {
+        EncodingRegistry registry = Encodings.newLazyEncodingRegistry();
+        return registry.getEncodingForModel(model).orElseGet(() -> {
+            log.warn("No tokenizer known for model {}, falling back to o200k_base", model);
+            return registry.getEncoding(EncodingType.O200K_BASE);
+        });
+    }
+}
@@ -0,0 +1,111 @@
+package com.lofo.serenia.service.chat;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.lofo.serenia.config.SereniaConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Bounded in-memory cache of HKDF-derived per-user AES keys.
+ *
+ * <p>Entries are evicted by size and idle time; the key material of an evicted entry is
+ * zeroed so that it does not linger on the heap. Hit/miss/eviction counters are published
+ * under the {@value #CACHE_NAME} cache metrics.</p>
+ */
+@ApplicationScoped
+public class UserKeyCache {
+
+    static final String CACHE_NAME = "serenia.encryption.user-keys";
+    private static final String KEY_ALGORITHM = "AES";
+
+    private final Cache<UUID, CachedKey> cache;
+
+    @Inject
+    public UserKeyCache(SereniaConfig sereniaConfig, MeterRegistry meterRegistry) {
+        this(sereniaConfig.encryptionKeyCacheMaxSize(), sereniaConfig.encryptionKeyCacheExpireAfterAccess());
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public UserKeyCache(long maximumSize, Duration expireAfterAccess) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(expireAfterAccess)
+                .removalListener((UUID userId, CachedKey key, RemovalCause cause) -> {
+                    if (key != null) {
+                        key.wipe();
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the key of the given user, deriving and caching it on first access.
+     *
+     * @param userId     the user the key belongs to
+     * @param derivation computes the raw key bytes; its result is owned by the cache afterwards
+     * @return a key usable for a single cipher initialisation
+     */
+    public SecretKey getOrDerive(UUID userId, Function<UUID, byte[]> derivation) {
+        SecretKey key = cache.get(userId, id -> new CachedKey(derivation.apply(id))).toSecretKey();
+        if (key != null) {
+            return key;
+        }
+        // Evicted and wiped between lookup and use: fall back to a one-off derivation.
+        byte[] keyBytes = derivation.apply(userId);
+        try {
+            return new SecretKeySpec(keyBytes, KEY_ALGORITHM);
+        } finally {
+            Arrays.fill(keyBytes, (byte) 0);
+        }
+    }
+
+    /**
+     * Drops and wipes the cached key of a user, e.g. once the account is deleted.
+     */
+    public void invalidate(UUID userId) {
+        // Removal listeners run asynchronously; wipe right away instead of waiting for them.
+        CachedKey key = cache.asMap().remove(userId);
+        if (key != null) {
+            key.wipe();
+        }
+    }
+
+    long estimatedSize() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    /**
+     * Key material guarded so that it can never be handed out after being wiped.
+     */
+    private static final class CachedKey {
+
+        private final byte[] keyBytes;
+        private boolean wiped;
+
+        private CachedKey(byte[] keyBytes) {
+            this.keyBytes = keyBytes;
+        }
+
+        synchronized SecretKey toSecretKey() {
+            return wiped ? null : new SecretKeySpec(keyBytes, KEY_ALGORITHM);
+        }
+
+        synchronized void wipe() {
+            Arrays.fill(keyBytes, (byte) 0);
+            wiped = true;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.lofo.serenia.service.purge;
+
+import com.lofo.serenia.config.SereniaConfig;
+import com.lofo.serenia.persistence.entity.conversation.Conversation;
+import com.lofo.serenia.persistence.entity.purge.PurgeJob;
+import com.lofo.serenia.persistence.entity.purge.PurgeScope;
+import com.lofo.serenia.persistence.entity.user.User;
+import com.lofo.serenia.persistence.repository.ConversationRepository;
+import com.lofo.serenia.persistence.repository.MessageRepository;
+import com.lofo.serenia.persistence.repository.PurgeJobRepository;
+import com.lofo.serenia.persistence.repository.UserRepository;
+import com.lofo.serenia.service.chat.UserKeyCache;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Deletion of accounts and conversations in two steps. A request only hides the data and records a
+ * {@link PurgeJob}, in the caller's transaction; {@link PurgeWorker} then deletes the messages in batches of
+ * {@code serenia.purge.batch-size}, each in its own short transaction, and removes the remaining rows last.
+ * A failing job is retried with exponential backoff and parked after {@code serenia.purge.max-attempts} runs.
+ *
+ * <p>The derived encryption key of a purged account is evicted from this instance's {@link UserKeyCache} when the
+ * purge is requested and when it completes; other instances drop it once it has been idle for the cache expiry.</p>
+ */
+@Slf4j
+@ApplicationScoped
+@RequiredArgsConstructor
+public class PurgeService {
+
+    static final String TOMBSTONE_EMAIL_DOMAIN = "@purge.invalid";
+    private static final int MAX_ERROR_LENGTH = 1000;
+    static final Duration MAX_BACKOFF = Duration.ofHours(1);
+
+    private final PurgeJobRepository purgeJobRepository;
+    private final ConversationRepository conversationRepository;
+    private final MessageRepository messageRepository;
+    private final UserRepository userRepository;
+    private final UserKeyCache userKeyCache;
+    private final SereniaConfig sereniaConfig;
+
+    /**
+     * Closes the account at once and schedules the deletion of its data. The email is replaced so that the
+     * address can neither log in nor be found any more, and can be registered again right away.
+     */
+    @Transactional
+    public void requestAccountPurge(User user) {
+        Instant now = Instant.now();
+        user.setEmail("deleted+" + user.getId() + TOMBSTONE_EMAIL_DOMAIN);
+        user.setAccountActivated(false);
+        hideConversations(user.getId(), now);
+        enqueue(PurgeScope.ACCOUNT, user.getId(), null, now);
+        userKeyCache.invalidate(user.getId());
+        log.info("Account purge requested for user {}", user.getId());
+    }
+
+    @Transactional
+    public void requestConversationPurge(Conversation conversation) {
+        Instant now = Instant.now();
+        conversationRepository.markPurgeRequested(conversation.getId(), now);
+        enqueue(PurgeScope.CONVERSATION, conversation.getUserId(), conversation.getId(), now);
+    }
+
+    /**
+     * Schedules the deletion of every conversation the user currently has, one job per conversation.
+     */
+    @Transactional
+    public void requestConversationsPurge(UUID userId) {
+        Instant now = Instant.now();
+        for (UUID conversationId : hideConversations(userId, now)) {
+            enqueue(PurgeScope.CONVERSATION, userId, conversationId, now);
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} jobs that no instance is working on, oldest first.
+     */
+    @Transactional
+    public List<PurgeJob> findClaimable(int limit) {
+        return purgeJobRepository.findClaimable(Instant.now(), limit);
+    }
+
+    /**
+     * @return true if this instance now holds the job's lease
+     */
+    @Transactional
+    public boolean claim(PurgeJob job) {
+        Instant now = Instant.now();
+        return purgeJobRepository.claim(job.getId(), now, now.plus(sereniaConfig.purgeLease()));
+    }
+
+    /**
+     * Deletes the next batch of messages of the job and records it, extending the lease.
+     *
+     * @return the number of messages deleted, 0 once none are left
+     */
+    @Transactional
+    public int deleteNextBatch(PurgeJob job) {
+        int batchSize = sereniaConfig.purgeBatchSize();
+        int deleted = job.getScope() == PurgeScope.ACCOUNT
+                ? messageRepository.deleteBatchByUser(job.getUserId(), batchSize)
+                : messageRepository.deleteBatchByConversation(job.getConversationId(), batchSize);
+        if (deleted > 0) {
+            Instant now = Instant.now();
+            purgeJobRepository.recordProgress(job.getId(), deleted, now, now.plus(sereniaConfig.purgeLease()));
+        }
+        return deleted;
+    }
+
+    /**
+     * Removes what is left once the messages are gone, and the job with it.
+     */
+    @Transactional
+    public void complete(PurgeJob job) {
+        if (job.getScope() == PurgeScope.ACCOUNT) {
+            conversationRepository.deleteAllByUser(job.getUserId());
+            userRepository.deleteById(job.getUserId());
+            userKeyCache.invalidate(job.getUserId());
+        } else {
+            conversationRepository.deletePurged(job.getConversationId());
+        }
+        purgeJobRepository.deleteById(job.getId());
+    }
+
+    /**
+     * Schedules the next run with exponential backoff, or parks the job once out of attempts.
+     * The batches already deleted stay deleted.
+     *
+     * @return true if the job was parked
+     */
+    @Transactional
+    public boolean recordFailure(PurgeJob job, RuntimeException error) {
+        Instant now = Instant.now();
+        int attempts = job.getAttempts() + 1;
+        String message = String.valueOf(error.getMessage());
+        String truncated = message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+        if (attempts >= sereniaConfig.purgeMaxAttempts()) {
+            purgeJobRepository.park(job.getId(), truncated, now);
+            return true;
+        }
+        purgeJobRepository.recordFailure(job.getId(), truncated, now,
+                now.plus(backoff(sereniaConfig.purgeLease(), attempts)));
+        return false;
+    }
+
+    /**
+     * @return {@code base * 2^(attempts - 1)}, capped at {@link #MAX_BACKOFF}
+     */
+    static Duration backoff(Duration base, int attempts) {
+        int doublings = Math.min(attempts - 1, 30);
+        Duration delay = base.multipliedBy(1L << doublings);
+        return delay.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : delay;
+    }
+
+    // ========== Private methods ==========
+
+    private List<UUID> hideConversations(UUID userId, Instant now) {
+        List<UUID> conversationIds = conversationRepository.findIdsByUser(userId);
+        conversationRepository.markPurgeRequestedByUser(userId, now);
+        return conversationIds;
+    }
+
+    private void enqueue(PurgeScope scope, UUID userId, UUID conversationId, Instant now) {
+        purgeJobRepository.persist(PurgeJob.builder()
+                .scope(scope)
+                .userId(userId)
+                .conversationId(conversationId)
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+    }
+}
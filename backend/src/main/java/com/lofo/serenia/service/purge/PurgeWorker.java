@@ -0,0 +1,87 @@
+package com.lofo.serenia.service.purge;
+
+import com.lofo.serenia.config.SereniaConfig;
+import com.lofo.serenia.persistence.entity.purge.PurgeJob;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+
+/**
+ * Carries out the purge jobs recorded by {@link PurgeService}.
+ *
+ * <p>Each batch of messages is deleted and recorded in its own transaction, followed by a pause of
+ * {@code serenia.purge.batch-pause}, so that a large account never holds locks for long nor writes its
+ * whole deletion to the WAL at once. A job is worked on under a lease that every batch extends; if the
+ * instance stops, another one resumes the job where it stopped once the lease has expired. A job that keeps
+ * failing is parked after {@code serenia.purge.max-attempts} runs and logged as an error for an operator.</p>
+ */
+@Slf4j
+@ApplicationScoped
+@RequiredArgsConstructor
+public class PurgeWorker {
+
+    static final int JOBS_PER_RUN = 20;
+
+    private final PurgeService purgeService;
+    private final SereniaConfig sereniaConfig;
+
+    @Scheduled(every = "${serenia.purge.interval:10s}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    public void runPendingJobs() {
+        for (PurgeJob job : purgeService.findClaimable(JOBS_PER_RUN)) {
+            if (!process(job)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Purges the job to completion unless another instance holds it.
+     *
+     * @return false if the worker was interrupted and should stop
+     */
+    boolean process(PurgeJob job) {
+        if (!purgeService.claim(job)) {
+            return true;
+        }
+        long deleted = 0;
+        try {
+            int batch;
+            while ((batch = purgeService.deleteNextBatch(job)) > 0) {
+                deleted += batch;
+                if (!pause(sereniaConfig.purgeBatchPause())) {
+                    log.info("Purge job {} interrupted after {} messages, left for a later run", job.getId(), deleted);
+                    return false;
+                }
+            }
+            purgeService.complete(job);
+            log.info("Purge job {} ({}) completed: {} messages deleted", job.getId(), job.getScope(), deleted);
+        } catch (RuntimeException e) {
+            if (purgeService.recordFailure(job, e)) {
+                log.error("Purge job {} ({}) parked after {} attempts, {} messages deleted in its last run",
+                        job.getId(), job.getScope(), job.getAttempts() + 1, deleted, e);
+            } else {
+                log.warn("Purge job {} failed after {} messages, will be retried", job.getId(), deleted, e);
+            }
+        }
+        return true;
+    }
+
+    // ========== Private methods ==========
+
+    private static boolean pause(Duration duration) {
+        if (duration.isZero() || duration.isNegative()) {
+            return true;
+        }
+        try {
+            Thread.sleep(duration);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.lofo.serenia.service.subscription;
+
+import com.lofo.serenia.persistence.entity.subscription.Plan;
+import com.lofo.serenia.persistence.entity.subscription.PlanType;
+import com.lofo.serenia.persistence.repository.PlanRepository;
+import com.lofo.serenia.rest.dto.out.PlanDTO;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * In-memory snapshot of the subscription plans, indexed by type, id and Stripe price id.
+ *
+ * <p>Plans almost never change, so they are read once at startup instead of on every registration, checkout,
+ * plan change, quota check or admin stats call. A snapshot is immutable and replaced as a whole: readers see
+ * either the previous plans or the new ones, never a mix. It is rebuilt by {@link #reload()}, when a lookup by
+ * id or Stripe price id misses (a plan was just added or repriced), and every {@code serenia.plans.refresh-interval},
+ * which also picks up plans edited directly in the database.</p>
+ *
+ * <p>Each instance holds its own snapshot: {@link #reload()} only refreshes the instance it runs on, and the others
+ * catch up on their next refresh. Until then, the limits they read here may disagree with the ones
+ * {@link com.lofo.serenia.persistence.repository.SubscriptionRepository#reserveTokens} reads from the plans table
+ * in its own statement: for up to {@code serenia.plans.refresh-interval} after a plan edit, a quota check or
+ * the limits shown to a user can still use the old values while reservations already enforce the new ones.</p>
+ *
+ * <p>The {@link Plan} instances are detached and shared by all callers: they must be treated as read-only.</p>
+ */
+@Slf4j
+@ApplicationScoped
+@RequiredArgsConstructor
+public class PlanCatalog {
+
+    private static final Duration MISS_RELOAD_INTERVAL = Duration.ofSeconds(10);
+
+    private final PlanRepository planRepository;
+
+    private volatile Snapshot snapshot;
+    private volatile long loadedAtNanos;
+
+    /**
+     * Plans as served to clients, with the entity tag identifying this exact content.
+     */
+    public record PlanListing(List<PlanDTO> plans, String etag) {
+    }
+
+    public Optional<Plan> findByType(PlanType planType) {
+        return Optional.ofNullable(current().byType().get(planType));
+    }
+
+    /**
+     * Finds the plan sold under a Stripe price. On a miss, the plans are read again unless they were read less than
+     * {@link #MISS_RELOAD_INTERVAL} ago, so that unknown prices do not cost a query each.
+     */
+    public Optional<Plan> findByStripePriceId(String stripePriceId) {
+        Plan plan = current().byStripePriceId().get(stripePriceId);
+        if (plan == null && System.nanoTime() - loadedAtNanos >= MISS_RELOAD_INTERVAL.toNanos()) {
+            plan = load().byStripePriceId().get(stripePriceId);
+        }
+        return Optional.ofNullable(plan);
+    }
+
+    /**
+     * Resolves the plan a subscription points to, reloading once if the id is not known yet.
+     *
+     * @throws IllegalStateException if no such plan exists
+     */
+    public Plan getById(UUID planId) {
+        Plan plan = current().byId().get(planId);
+        if (plan == null) {
+            plan = load().byId().get(planId);
+        }
+        if (plan == null) {
+            throw new IllegalStateException("Plan not found: " + planId);
+        }
+        return plan;
+    }
+
+    /**
+     * @throws IllegalStateException if the FREE plan is missing
+     */
+    public Plan getFreePlan() {
+        return findByType(PlanType.FREE)
+                .orElseThrow(() -> new IllegalStateException("Plan FREE not found in database"));
+    }
+
+    public PlanListing listing() {
+        return current().listing();
+    }
+
+    /**
+     * Reads the plans again and swaps the snapshot if they changed. Only this instance's snapshot is refreshed.
+     */
+    public void reload() {
+        load();
+    }
+
+    @Scheduled(every = "${serenia.plans.refresh-interval:5m}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void refresh() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            log.error("Failed to refresh subscription plans, keeping the current ones", e);
+        }
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        reload();
+    }
+
+    // ========== Private methods ==========
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        return current != null ? current : load();
+    }
+
+    private synchronized Snapshot load() {
+        List<Plan> plans = QuarkusTransaction.requiringNew().call(planRepository::listAll);
+        Snapshot loaded = Snapshot.of(plans);
+        loadedAtNanos = System.nanoTime();
+        Snapshot previous = snapshot;
+        if (previous != null && previous.listing().etag().equals(loaded.listing().etag())) {
+            return previous;
+        }
+        snapshot = loaded;
+        log.info("Loaded {} subscription plans (version {})", plans.size(), loaded.listing().etag());
+        return loaded;
+    }
+
+    /**
+     * Immutable view of the plans at one point in time.
+     */
+    record Snapshot(Map<PlanType, Plan> byType, Map<UUID, Plan> byId, Map<String, Plan> byStripePriceId,
+                    PlanListing listing) {
+
+        static Snapshot of(List<Plan> plans) {
+            List<Plan> sorted = plans.stream().sorted(Comparator.comparing(Plan::getName)).toList();
+            Map<PlanType, Plan> byType = new EnumMap<>(PlanType.class);
+            Map<UUID, Plan> byId = new HashMap<>();
+            Map<String, Plan> byStripePriceId = new HashMap<>();
+            for (Plan plan : sorted) {
+                byType.put(plan.getName(), plan);
+                byId.put(plan.getId(), plan);
+                if (plan.getStripePriceId() != null && !plan.getStripePriceId().isEmpty()) {
+                    byStripePriceId.put(plan.getStripePriceId(), plan);
+                }
+            }
+            return new Snapshot(Map.copyOf(byType), Map.copyOf(byId), Map.copyOf(byStripePriceId),
+                    new PlanListing(sorted.stream().map(PlanDTO::from).toList(), fingerprint(sorted)));
+        }
+
+        /**
+         * Digest of every field clients or limits depend on, so that it is the same on every instance
+         * serving the same plans.
+         */
+        private static String fingerprint(List<Plan> plans) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                for (Plan plan : plans) {
+                    String line = String.join("|", String.valueOf(plan.getId()), plan.getName().name(),
+                            String.valueOf(plan.getMonthlyTokenLimit()), String.valueOf(plan.getDailyMessageLimit()),
+                            String.valueOf(plan.getContextTokenBudget()), String.valueOf(plan.getPriceCents()),
+                            plan.getCurrency(), String.valueOf(plan.getStripePriceId())) + "\n";
+                    digest.update(line.getBytes(StandardCharsets.UTF_8));
+                }
+                return HexFormat.of().formatHex(digest.digest(), 0, 16);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+    }
+}
@@ -1,68 +1,167 @@
 package com.lofo.serenia.service.subscription;
 
+import com.lofo.serenia.config.SereniaConfig;
 import com.lofo.serenia.exception.exceptions.QuotaExceededException;
 import com.lofo.serenia.persistence.entity.subscription.Plan;
+import com.lofo.serenia.persistence.entity.subscription.QuotaReservation;
 import com.lofo.serenia.persistence.entity.subscription.Subscription;
+import com.lofo.serenia.persistence.repository.QuotaReservationRepository;
 import com.lofo.serenia.persistence.repository.SubscriptionRepository;
+import com.lofo.serenia.service.admin.DailyStatsService;
+import com.lofo.serenia.service.subscription.quota.InMemoryQuotaEngine;
+import io.quarkus.scheduler.Scheduled;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.Instant;
 import java.util.UUID;
 
 /**
  * Service for managing usage quotas.
  * Handles verification and recording of user consumption.
  * Tokens are now recorded directly from the OpenAI API, without approximation.
+ *
+ * <p>Before a call, the worst-case cost (estimated prompt plus the maximum completion) is reserved
+ * against the monthly limit; after the call the reservation is settled to the actual usage. Every check
+ * and increment is a single conditional UPDATE on the subscription row (see {@link SubscriptionRepository}),
+ * so no lock is held between reading the counters and writing them back, and none during the call itself.
+ * A reservation that never settles (crashed node) is released by the purge job once expired.</p>
+ *
+ * <p>When {@code serenia.quota.in-memory.enabled} is set, the same operations run against in-memory
+ * counters written behind to the database instead (see {@link InMemoryQuotaEngine}).</p>
  */
 @Slf4j
 @ApplicationScoped
 @RequiredArgsConstructor
 public class QuotaService {
 
+    private static final int PURGE_BATCH_SIZE = 500;
+
     private final SubscriptionRepository subscriptionRepository;
+    private final QuotaReservationRepository quotaReservationRepository;
+    private final SereniaConfig sereniaConfig;
+    private final InMemoryQuotaEngine inMemoryQuotaEngine;
+    private final DailyStatsService dailyStatsService;
+    private final PlanCatalog planCatalog;
 
     /**
-     * Checks that the user still has available quota before a call.
-     * Resets expired periods if necessary.
+     * Admits one message for the user: resets expired periods, checks both limits and counts the
+     * message in a single statement. The message is given back if the turn is later released.
      *
      * @param userId the user identifier
+     * @return the plan of the user, so that callers can apply its other limits
      * @throws QuotaExceededException if a limit is reached
      */
     @Transactional
-    public void checkQuotaBeforeCall(UUID userId) {
-        Subscription subscription = getSubscriptionForUpdate(userId);
-        resetExpiredPeriods(subscription);
-
-        validateMonthlyTokenLimit(userId, subscription);
-        validateDailyMessageLimit(userId, subscription);
+    public Plan checkQuotaBeforeCall(UUID userId) {
+        if (inMemoryQuotaEngine.isEnabled()) {
+            return inMemoryQuotaEngine.admitMessage(userId);
+        }
+        if (subscriptionRepository.admitMessage(userId, Instant.now()) == 0) {
+            throw rejection(userId);
+        }
 
-        logQuotaStatus(userId, subscription);
+        log.debug("Quota check passed for user {}", userId);
+        return planCatalog.getById(subscriptionRepository.findPlanIdByUserId(userId)
+                .orElseThrow(() -> subscriptionNotFound(userId)));
     }
 
     /**
-     * Records the token usage with cost normalization.
-     * Raw tokens are logged for monitoring, normalized tokens are stored for billing.
+     * Reserves the worst-case cost of an upcoming call against the monthly token limit.
+     * Reservations of other in-flight calls are part of the same condition, so concurrent calls cannot
+     * together overshoot the limit.
      *
      * @param userId the user identifier
-     * @param promptTokens total input tokens (from usage.promptTokens())
-     * @param cachedTokens cached input tokens (from usage.promptTokensDetails().cachedTokens())
-     * @param completionTokens output tokens (from usage.completionTokens())
+     * @param estimatedPromptTokens prompt size counted locally before the call
+     * @param maxCompletionTokens completion cap sent with the call
+     * @return the reservation identifier, to be settled or released
+     * @throws QuotaExceededException if the reservation does not fit in the remaining quota
      */
     @Transactional
-    public void recordUsage(UUID userId, int promptTokens, int cachedTokens, int completionTokens) {
-        Subscription subscription = getSubscriptionForUpdate(userId);
+    public UUID reserveTokens(UUID userId, int estimatedPromptTokens, int maxCompletionTokens) {
+        int requested = normalizeTokens(estimatedPromptTokens, 0, maxCompletionTokens);
+        if (inMemoryQuotaEngine.isEnabled()) {
+            return inMemoryQuotaEngine.reserveTokens(userId, requested);
+        }
+        Instant now = Instant.now();
+
+        if (subscriptionRepository.reserveTokens(userId, requested, now) == 0) {
+            Subscription subscription = getSubscription(userId);
+            int limit = planOf(subscription).getMonthlyTokenLimit();
+            int committed = subscription.getTokensUsedThisMonth() + subscription.getTokensReserved();
+            log.warn("User {} cannot reserve {} tokens: {}/{} already used or reserved", userId, requested, committed, limit);
+            throw QuotaExceededException.monthlyTokenLimit(limit, committed, requested);
+        }
+
+        QuotaReservation reservation = QuotaReservation.builder()
+                .userId(userId)
+                .reservedTokens(requested)
+                .createdAt(now)
+                .expiresAt(now.plus(sereniaConfig.quotaReservationTtl()))
+                .build();
+        quotaReservationRepository.persist(reservation);
+
+        log.debug("Reserved {} tokens for user {}", requested, userId);
+        return reservation.getId();
+    }
 
+    /**
+     * Replaces a reservation with the usage actually reported by OpenAI.
+     * If the reservation was already purged, only the usage is recorded.
+     */
+    @Transactional
+    public void settleReservation(UUID userId, UUID reservationId,
+                                  int promptTokens, int cachedTokens, int completionTokens) {
         int normalizedTokens = normalizeTokens(promptTokens, cachedTokens, completionTokens);
+        dailyStatsService.recordTokens(normalizedTokens);
+        if (inMemoryQuotaEngine.isEnabled()) {
+            inMemoryQuotaEngine.settle(userId, reservationId, normalizedTokens);
+            return;
+        }
+        int releasedTokens = quotaReservationRepository.claim(reservationId)
+                .map(QuotaReservation::getReservedTokens)
+                .orElse(0);
 
-        updateUsageCounters(subscription, normalizedTokens);
+        applyUsage(userId, normalizedTokens, releasedTokens);
+        log.debug("Token usage for user {} - Raw [prompt: {}, cached: {}, completion: {}] | Normalized: {} | Released: {}",
+                userId, promptTokens, cachedTokens, completionTokens, normalizedTokens, releasedTokens);
+    }
 
-        subscriptionRepository.persist(subscription);
+    /**
+     * Drops a reservation whose call failed, without recording any usage.
+     * The message counted at admission is given back as well.
+     */
+    @Transactional
+    public void releaseReservation(UUID userId, UUID reservationId) {
+        if (inMemoryQuotaEngine.isEnabled()) {
+            inMemoryQuotaEngine.release(userId, reservationId);
+            return;
+        }
+        quotaReservationRepository.claim(reservationId).ifPresent(reservation ->
+                subscriptionRepository.refundTurn(userId, reservation.getReservedTokens(),
+                        reservation.getCreatedAt(), Instant.now()));
+    }
 
-        log.debug("Token usage for user {} - Raw [prompt: {}, cached: {}, completion: {}] | Normalized: {} | Monthly total: {}",
-                userId, promptTokens, cachedTokens, completionTokens,
-                normalizedTokens, subscription.getTokensUsedThisMonth());
+    /**
+     * Releases expired reservations left behind by calls that never settled.
+     */
+    @Scheduled(every = "${serenia.quota.reservation-purge-interval:1m}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    @Transactional
+    void purgeExpiredReservations() {
+        Instant now = Instant.now();
+        int purged = 0;
+        for (QuotaReservation reservation : quotaReservationRepository.findExpired(now, PURGE_BATCH_SIZE)) {
+            if (quotaReservationRepository.deleteById(reservation.getId()) > 0) {
+                subscriptionRepository.applyUsage(reservation.getUserId(), 0, reservation.getReservedTokens(), now);
+                purged++;
+            }
+        }
+        if (purged > 0) {
+            log.info("Purged {} expired quota reservations", purged);
+        }
     }
 
     /**
@@ -74,6 +173,9 @@ public class QuotaService {
      */
     public boolean canSendMessage(UUID userId) {
         try {
+            if (inMemoryQuotaEngine.isEnabled()) {
+                return inMemoryQuotaEngine.hasAvailableQuota(userId);
+            }
             return subscriptionRepository.findByUserId(userId)
                     .map(this::hasAvailableQuota)
                     .orElse(true);
@@ -85,12 +187,54 @@ public class QuotaService {
 
     // ========== Private methods ==========
 
-    private Subscription getSubscriptionForUpdate(UUID userId) {
-        return subscriptionRepository.findByUserIdForUpdate(userId)
-                .orElseThrow(() -> {
-                    log.error("Subscription not found for user {} - this should never happen", userId);
-                    return new IllegalStateException("Subscription not found for user: " + userId);
-                });
+    private void applyUsage(UUID userId, int usedTokens, int releasedTokens) {
+        if (subscriptionRepository.applyUsage(userId, usedTokens, releasedTokens, Instant.now()) == 0) {
+            throw subscriptionNotFound(userId);
+        }
+    }
+
+    private Subscription getSubscription(UUID userId) {
+        return subscriptionRepository.findByUserId(userId)
+                .orElseThrow(() -> subscriptionNotFound(userId));
+    }
+
+    /**
+     * Only the plan id is read from the subscription; limits come from {@link PlanCatalog}.
+     */
+    private Plan planOf(Subscription subscription) {
+        return planCatalog.getById(subscription.getPlan().getId());
+    }
+
+    private IllegalStateException subscriptionNotFound(UUID userId) {
+        log.error("Subscription not found for user {} - this should never happen", userId);
+        return new IllegalStateException("Subscription not found for user: " + userId);
+    }
+
+    /**
+     * Explains why {@link SubscriptionRepository#admitMessage} refused the message.
+     * Only runs on the rejection path, from a plain read of the counters.
+     */
+    private QuotaExceededException rejection(UUID userId) {
+        Subscription subscription = getSubscription(userId);
+        Plan plan = planOf(subscription);
+
+        if (!subscription.isMonthlyPeriodExpired()
+                && subscription.getTokensUsedThisMonth() >= plan.getMonthlyTokenLimit()) {
+            log.warn("User {} has exhausted monthly token limit: {}/{}",
+                    userId, subscription.getTokensUsedThisMonth(), plan.getMonthlyTokenLimit());
+            return QuotaExceededException.monthlyTokenLimit(
+                    plan.getMonthlyTokenLimit(),
+                    subscription.getTokensUsedThisMonth(),
+                    0
+            );
+        }
+
+        log.warn("User {} reached daily message limit: {}/{}",
+                userId, subscription.getMessagesSentToday(), plan.getDailyMessageLimit());
+        return QuotaExceededException.dailyMessageLimit(
+                plan.getDailyMessageLimit(),
+                subscription.getMessagesSentToday()
+        );
     }
 
     /**
@@ -103,7 +247,7 @@ public class QuotaService {
      * <p>Note: Integer division may cause minor truncation (e.g., 501/2 = 250 instead of 250.5).
      * This is negligible at the per-million-token pricing scale and does not impact billing accuracy.</p>
      */
-    private int normalizeTokens(int promptTokens, int cachedTokens, int completionTokens) {
+    static int normalizeTokens(int promptTokens, int cachedTokens, int completionTokens) {
         validateTokenParameters(promptTokens, cachedTokens, completionTokens);
 
         int nonCachedInput = promptTokens - cachedTokens;
@@ -112,7 +256,7 @@ public class QuotaService {
         return nonCachedInput + cachedNormalized + outputNormalized;
     }
 
-    private void validateTokenParameters(int promptTokens, int cachedTokens, int completionTokens) {
+    private static void validateTokenParameters(int promptTokens, int cachedTokens, int completionTokens) {
         if (promptTokens < 0) {
             log.warn("Invalid promptTokens value: {}. Treating as 0.", promptTokens);
             throw new IllegalArgumentException("promptTokens cannot be negative: " + promptTokens);
@@ -131,67 +275,9 @@ public class QuotaService {
         }
     }
 
-    private void validateMonthlyTokenLimit(UUID userId, Subscription subscription) {
-        Plan plan = subscription.getPlan();
-        if (subscription.getTokensUsedThisMonth() >= plan.getMonthlyTokenLimit()) {
-            log.warn("User {} has exhausted monthly token limit: {}/{}",
-                    userId, subscription.getTokensUsedThisMonth(), plan.getMonthlyTokenLimit());
-            throw QuotaExceededException.monthlyTokenLimit(
-                    plan.getMonthlyTokenLimit(),
-                    subscription.getTokensUsedThisMonth(),
-                    0
-            );
-        }
-    }
-
-    private void validateDailyMessageLimit(UUID userId, Subscription subscription) {
-        Plan plan = subscription.getPlan();
-        if (subscription.getMessagesSentToday() >= plan.getDailyMessageLimit()) {
-            log.warn("User {} reached daily message limit: {}/{}",
-                    userId, subscription.getMessagesSentToday(), plan.getDailyMessageLimit());
-            throw QuotaExceededException.dailyMessageLimit(
-                    plan.getDailyMessageLimit(),
-                    subscription.getMessagesSentToday()
-            );
-        }
-    }
-
-    private void logQuotaStatus(UUID userId, Subscription subscription) {
-        Plan plan = subscription.getPlan();
-        log.debug("Quota check passed for user {}: {}/{} tokens, {}/{} messages",
-                userId,
-                subscription.getTokensUsedThisMonth(), plan.getMonthlyTokenLimit(),
-                subscription.getMessagesSentToday(), plan.getDailyMessageLimit());
-    }
-
-    private void updateUsageCounters(Subscription subscription, int tokensUsed) {
-        subscription.setTokensUsedThisMonth(subscription.getTokensUsedThisMonth() + tokensUsed);
-        subscription.setMessagesSentToday(subscription.getMessagesSentToday() + 1);
-    }
-
     private boolean hasAvailableQuota(Subscription subscription) {
-        Plan plan = subscription.getPlan();
+        Plan plan = planOf(subscription);
         return subscription.getTokensUsedThisMonth() < plan.getMonthlyTokenLimit()
                 && subscription.getMessagesSentToday() < plan.getDailyMessageLimit();
     }
-
-    private void resetExpiredPeriods(Subscription subscription) {
-        boolean updated = false;
-
-        if (subscription.isMonthlyPeriodExpired()) {
-            log.info("Resetting monthly period for subscription {}", subscription.getId());
-            subscription.resetMonthlyPeriod();
-            updated = true;
-        }
-
-        if (subscription.isDailyPeriodExpired()) {
-            log.info("Resetting daily period for subscription {}", subscription.getId());
-            subscription.resetDailyPeriod();
-            updated = true;
-        }
-
-        if (updated) {
-            subscriptionRepository.persist(subscription);
-        }
-    }
 }
@@ -22,6 +22,9 @@ public enum StripeEventType {
     INVOICE_PAYMENT_FAILED("invoice.payment_failed"),
     INVOICE_PAID("invoice.paid");
 
+    private static final java.util.Map<String, StripeEventType> BY_STRING = java.util.Arrays.stream(values())
+            .collect(java.util.stream.Collectors.toUnmodifiableMap(e -> e.eventTypeString, e -> e));
+
     private final String eventTypeString;
 
     StripeEventType(String eventTypeString) {
@@ -36,9 +39,9 @@ public enum StripeEventType {
      * @return the corresponding enum value, or empty Optional if not recognized
      */
     public static java.util.Optional<StripeEventType> fromString(String eventTypeString) {
-        return java.util.Arrays.stream(values())
-                .filter(e -> e.eventTypeString.equals(eventTypeString))
-                .findFirst();
+        return eventTypeString == null
+                ? java.util.Optional.empty()
+                : java.util.Optional.ofNullable(BY_STRING.get(eventTypeString));
     }
 }
 
@@ -1,23 +1,21 @@
 package com.lofo.serenia.service.subscription;
 
 import com.lofo.serenia.config.StripeConfig;
+import com.lofo.serenia.config.StripeSdk;
 import com.lofo.serenia.exception.exceptions.SereniaException;
 import com.lofo.serenia.persistence.entity.subscription.Plan;
 import com.lofo.serenia.persistence.entity.subscription.PlanType;
 import com.lofo.serenia.persistence.entity.subscription.Subscription;
 import com.lofo.serenia.persistence.entity.user.User;
-import com.lofo.serenia.persistence.repository.PlanRepository;
 import com.lofo.serenia.persistence.repository.SubscriptionRepository;
 import com.lofo.serenia.rest.dto.out.CheckoutSessionDTO;
 import com.lofo.serenia.rest.dto.out.PortalSessionDTO;
 import com.lofo.serenia.service.user.shared.UserFinder;
-import com.stripe.Stripe;
 import com.stripe.exception.StripeException;
 import com.stripe.model.Customer;
 import com.stripe.model.checkout.Session;
 import com.stripe.param.CustomerCreateParams;
 import com.stripe.param.checkout.SessionCreateParams;
-import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
@@ -36,14 +34,9 @@ public class StripeService {
 
     private final StripeConfig stripeConfig;
     private final SubscriptionRepository subscriptionRepository;
-    private final PlanRepository planRepository;
+    private final PlanCatalog planCatalog;
     private final UserFinder userFinder;
-
-    @PostConstruct
-    void init() {
-        Stripe.apiKey = stripeConfig.apiKey();
-        log.info("Stripe SDK initialized");
-    }
+    private final StripeSdk stripeSdk;
 
     /**
      * Creates a Stripe Checkout session for subscribing to a paid plan.
@@ -185,7 +178,7 @@ public class StripeService {
     }
 
     private Plan getPlanOrThrow(PlanType planType) {
-        return planRepository.findByName(planType)
+        return planCatalog.findByType(planType)
                 .orElseThrow(() -> SereniaException.notFound("Plan not found: " + planType));
     }
 }
@@ -5,9 +5,7 @@ import com.lofo.serenia.persistence.entity.subscription.Plan;
 import com.lofo.serenia.persistence.entity.subscription.PlanType;
 import com.lofo.serenia.persistence.entity.subscription.Subscription;
 import com.lofo.serenia.persistence.entity.user.User;
-import com.lofo.serenia.persistence.repository.PlanRepository;
 import com.lofo.serenia.persistence.repository.SubscriptionRepository;
-import com.lofo.serenia.rest.dto.out.PlanDTO;
 import com.lofo.serenia.rest.dto.out.SubscriptionStatusDTO;
 import com.lofo.serenia.service.user.shared.UserFinder;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -16,7 +14,6 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.Instant;
-import java.util.List;
 import java.util.UUID;
 
 /**
@@ -29,7 +26,7 @@ import java.util.UUID;
 public class SubscriptionService {
 
     private final SubscriptionRepository subscriptionRepository;
-    private final PlanRepository planRepository;
+    private final PlanCatalog planCatalog;
     private final UserFinder userFinder;
 
     /**
@@ -116,14 +113,12 @@ public class SubscriptionService {
     }
 
     /**
-     * Retrieves the list of all available plans.
+     * Retrieves the list of all available plans, with the entity tag of this version of the list.
      *
-     * @return the list of plans as DTOs
+     * @return the plans as DTOs and their entity tag
      */
-    public List<PlanDTO> getAllPlans() {
-        return planRepository.listAll().stream()
-                .map(PlanDTO::from)
-                .toList();
+    public PlanCatalog.PlanListing getAllPlans() {
+        return planCatalog.listing();
     }
 
     private void validateNoExistingSubscription(UUID userId) {
@@ -133,7 +128,7 @@ public class SubscriptionService {
     }
 
     private Plan findPlanOrThrow(PlanType planType) {
-        return planRepository.findByName(planType)
+        return planCatalog.findByType(planType)
                 .orElseThrow(() -> SereniaException.notFound("Plan not found: " + planType));
     }
 
@@ -150,7 +145,7 @@ public class SubscriptionService {
     }
 
     private SubscriptionStatusDTO buildStatusDTO(Subscription subscription) {
-        Plan plan = subscription.getPlan();
+        Plan plan = planCatalog.getById(subscription.getPlan().getId());
 
         int tokensRemaining = Math.max(0,
                 plan.getMonthlyTokenLimit() - subscription.getTokensUsedThisMonth());
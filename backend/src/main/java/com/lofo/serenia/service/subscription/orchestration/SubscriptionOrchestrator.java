@@ -2,8 +2,9 @@ package com.lofo.serenia.service.subscription.orchestration;
 
 import com.lofo.serenia.persistence.entity.subscription.Plan;
 import com.lofo.serenia.persistence.entity.subscription.Subscription;
-import com.lofo.serenia.persistence.repository.PlanRepository;
+import com.lofo.serenia.persistence.entity.subscription.SubscriptionStatus;
 import com.lofo.serenia.persistence.repository.SubscriptionRepository;
+import com.lofo.serenia.service.subscription.PlanCatalog;
 import com.lofo.serenia.service.subscription.mapper.DateTimeConverter;
 import com.lofo.serenia.service.subscription.mapper.StripeStatusMapper;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -25,10 +26,8 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class SubscriptionOrchestrator {
 
-    private static final String STRIPE_PRICE_ID = "stripePriceId";
-
     private final SubscriptionRepository subscriptionRepository;
-    private final PlanRepository planRepository;
+    private final PlanCatalog planCatalog;
     private final StripeStatusMapper statusMapper;
     private final DateTimeConverter dateTimeConverter;
 
@@ -51,6 +50,27 @@ public class SubscriptionOrchestrator {
         log.debug("Subscription {} synchronized from Stripe", stripeSubscription.getId());
     }
 
+    /**
+     * Moves a subscription back to the FREE plan once its Stripe subscription has ended.
+     * Keeps the Stripe customer, so that the user can subscribe again with it, and clears the rest of the
+     * Stripe subscription data.
+     *
+     * @param subscription the internal subscription to downgrade
+     */
+    public void downgradeToFree(Subscription subscription) {
+        Plan freePlan = planCatalog.getFreePlan();
+        subscription.setPlan(freePlan);
+        subscription.setStripeSubscriptionId(null);
+        subscription.setStatus(SubscriptionStatus.ACTIVE);
+        subscription.setCancelAtPeriodEnd(false);
+        subscription.setCurrentPeriodEnd(null);
+
+        subscriptionRepository.persist(subscription);
+        log.info("User {} returned to FREE plan after subscription end", subscription.getUser().getId());
+    }
+
+    // ========== Private methods ==========
+
     /**
      * Updates basic subscription fields from Stripe subscription.
      * Covers: ID, status, cancel-at-period-end flag, and period end date.
@@ -93,9 +113,7 @@ public class SubscriptionOrchestrator {
 
         String priceId = stripeSubscription.getItems().getData().getFirst().getPrice().getId();
 
-        Optional<Plan> planOpt = planRepository
-                .find(STRIPE_PRICE_ID, priceId)
-                .firstResultOptional();
+        Optional<Plan> planOpt = planCatalog.findByStripePriceId(priceId);
 
         if (planOpt.isPresent()) {
             Plan newPlan = planOpt.get();
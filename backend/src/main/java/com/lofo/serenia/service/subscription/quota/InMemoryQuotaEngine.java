@@ -0,0 +1,240 @@
+package com.lofo.serenia.service.subscription.quota;
+
+import com.lofo.serenia.config.SereniaConfig;
+import com.lofo.serenia.persistence.entity.subscription.Plan;
+import com.lofo.serenia.persistence.entity.subscription.Subscription;
+import com.lofo.serenia.persistence.repository.SubscriptionRepository;
+import com.lofo.serenia.persistence.repository.SubscriptionRepository.CounterDelta;
+import com.lofo.serenia.service.subscription.PlanCatalog;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Optional quota engine keeping per-user counters in memory and writing them behind to {@code subscriptions}.
+ * Enabled with {@code serenia.quota.in-memory.enabled}; {@code QuotaService} delegates to it when it is.
+ *
+ * <p>Counters are loaded from the database on first use after startup, so the database is the reconciled
+ * state a restarted instance starts from. Pending changes are flushed in one JDBC batch every
+ * {@code serenia.quota.in-memory.flush-interval}, on shutdown, and right away for a user whose unflushed
+ * changes reach {@code max-unflushed-tokens} or {@code max-unflushed-messages}.</p>
+ *
+ * <p>Crash bound: reservations live in memory only, so a crash loses both the unflushed changes and the
+ * reservations of every call still in flight, whose usage is then never recorded. After a restart a user can
+ * therefore go over quota by up to {@code max-unflushed-tokens} plus the reserved cost of all their calls in
+ * flight at the time of the crash, which is only bounded by their remaining monthly quota, and by
+ * {@code max-unflushed-messages} messages. The engine assumes each user is served by a single instance; two
+ * instances would each enforce the limits against their own counters.</p>
+ */
+@Slf4j
+@ApplicationScoped
+@RequiredArgsConstructor
+public class InMemoryQuotaEngine {
+
+    private static final Duration IDLE_EVICTION = Duration.ofMinutes(10);
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final SereniaConfig sereniaConfig;
+    private final PlanCatalog planCatalog;
+
+    private final Map<UUID, QuotaCounters> counters = new ConcurrentHashMap<>();
+    private final Map<UUID, Reservation> reservations = new ConcurrentHashMap<>();
+
+    private record Reservation(UUID userId, int tokens, Instant createdAt, Instant expiresAt) {
+    }
+
+    public boolean isEnabled() {
+        return sereniaConfig.quotaInMemoryEnabled();
+    }
+
+    /**
+     * @return the plan of the user
+     * @throws com.lofo.serenia.exception.exceptions.QuotaExceededException if a limit is reached
+     */
+    public Plan admitMessage(UUID userId) {
+        Instant now = Instant.now();
+        QuotaCounters userCounters = countersFor(userId, now);
+        while (!userCounters.admit(now)) {
+            userCounters = countersFor(userId, now);
+        }
+        flushIfOverBound(userCounters);
+        return userCounters.plan();
+    }
+
+    /**
+     * @return the reservation identifier, to be settled or released
+     * @throws com.lofo.serenia.exception.exceptions.QuotaExceededException if the reservation does not fit
+     */
+    public UUID reserveTokens(UUID userId, int tokens) {
+        Instant now = Instant.now();
+        QuotaCounters userCounters = countersFor(userId, now);
+        while (!userCounters.reserve(tokens, now)) {
+            userCounters = countersFor(userId, now);
+        }
+        UUID reservationId = UUID.randomUUID();
+        reservations.put(reservationId, new Reservation(userId, tokens, now,
+                now.plus(sereniaConfig.quotaReservationTtl())));
+        return reservationId;
+    }
+
+    /**
+     * Records usage and gives back the reservation, if any and not already purged.
+     */
+    public void settle(UUID userId, UUID reservationId, int usedTokens) {
+        Instant now = Instant.now();
+        Reservation reservation = reservationId != null ? reservations.remove(reservationId) : null;
+        int releasedTokens = reservation != null ? reservation.tokens() : 0;
+
+        QuotaCounters userCounters = countersFor(userId, now);
+        while (!userCounters.settle(usedTokens, releasedTokens, now)) {
+            userCounters = countersFor(userId, now);
+        }
+        flushIfOverBound(userCounters);
+    }
+
+    /**
+     * Gives back the reservation and the message admitted with it.
+     */
+    public void release(UUID userId, UUID reservationId) {
+        Reservation reservation = reservations.remove(reservationId);
+        if (reservation == null) {
+            return;
+        }
+        Instant now = Instant.now();
+        QuotaCounters userCounters = countersFor(userId, now);
+        while (!userCounters.refund(reservation.tokens(), reservation.createdAt(), now)) {
+            userCounters = countersFor(userId, now);
+        }
+    }
+
+    public boolean hasAvailableQuota(UUID userId) {
+        Instant now = Instant.now();
+        return countersFor(userId, now).hasAvailableQuota(now);
+    }
+
+    /**
+     * Releases expired reservations, writes pending changes and drops idle counters.
+     */
+    @Scheduled(every = "${serenia.quota.in-memory.flush-interval:1s}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void flush() {
+        if (!isEnabled()) {
+            return;
+        }
+        Instant now = Instant.now();
+        releaseExpiredReservations(now);
+
+        List<QuotaCounters> drained = new ArrayList<>();
+        List<CounterDelta> deltas = new ArrayList<>();
+        for (QuotaCounters userCounters : counters.values()) {
+            CounterDelta delta = userCounters.drain();
+            if (delta != null) {
+                drained.add(userCounters);
+                deltas.add(delta);
+            }
+        }
+        write(drained, deltas, now);
+
+        Instant idleSince = now.minus(IDLE_EVICTION);
+        counters.entrySet().removeIf(entry -> entry.getValue().retireIfIdle(idleSince));
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (isEnabled()) {
+            log.info("In-memory quota engine enabled: a crash can lose at most {} tokens and {} messages per user",
+                    sereniaConfig.quotaInMemoryMaxUnflushedTokens(), sereniaConfig.quotaInMemoryMaxUnflushedMessages());
+        }
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        flush();
+    }
+
+    // ========== Private methods ==========
+
+    private QuotaCounters countersFor(UUID userId, Instant now) {
+        QuotaCounters userCounters = counters.get(userId);
+        if (userCounters != null && userCounters.isRetired()) {
+            counters.remove(userId, userCounters);
+            userCounters = null;
+        }
+        if (userCounters == null) {
+            QuotaCounters loaded = load(userId, now);
+            userCounters = counters.putIfAbsent(userId, loaded);
+            return userCounters != null ? userCounters : loaded;
+        }
+        if (userCounters.isPlanStale(now.minus(sereniaConfig.quotaInMemoryPlanRefresh()))) {
+            userCounters.refreshPlan(loadPlan(userId), now);
+        }
+        return userCounters;
+    }
+
+    private QuotaCounters load(UUID userId, Instant now) {
+        return QuarkusTransaction.joiningExisting().call(() -> {
+            Subscription subscription = subscriptionRepository.findByUserId(userId)
+                    .orElseThrow(() -> subscriptionNotFound(userId));
+            return new QuotaCounters(userId, subscription, loadPlan(userId), now);
+        });
+    }
+
+    private Plan loadPlan(UUID userId) {
+        UUID planId = QuarkusTransaction.joiningExisting().call(() -> subscriptionRepository.findPlanIdByUserId(userId)
+                .orElseThrow(() -> subscriptionNotFound(userId)));
+        return planCatalog.getById(planId);
+    }
+
+    private void releaseExpiredReservations(Instant now) {
+        reservations.forEach((reservationId, reservation) -> {
+            if (!reservation.expiresAt().isAfter(now) && reservations.remove(reservationId, reservation)) {
+                QuotaCounters userCounters = counters.get(reservation.userId());
+                if (userCounters != null) {
+                    userCounters.settle(0, reservation.tokens(), now);
+                }
+            }
+        });
+    }
+
+    private void flushIfOverBound(QuotaCounters userCounters) {
+        if (userCounters.pendingTokens() < sereniaConfig.quotaInMemoryMaxUnflushedTokens()
+                && userCounters.pendingMessages() < sereniaConfig.quotaInMemoryMaxUnflushedMessages()) {
+            return;
+        }
+        CounterDelta delta = userCounters.drain();
+        if (delta != null) {
+            write(List.of(userCounters), List.of(delta), Instant.now());
+        }
+    }
+
+    private void write(List<QuotaCounters> drained, List<CounterDelta> deltas, Instant now) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        try {
+            QuarkusTransaction.requiringNew().run(() -> subscriptionRepository.applyCounterDeltas(deltas, now));
+            log.debug("Flushed quota counters of {} users", deltas.size());
+        } catch (RuntimeException e) {
+            log.error("Failed to flush quota counters of {} users, will retry", deltas.size(), e);
+            for (int i = 0; i < drained.size(); i++) {
+                drained.get(i).restore(deltas.get(i));
+            }
+        }
+    }
+
+    private IllegalStateException subscriptionNotFound(UUID userId) {
+        log.error("Subscription not found for user {} - this should never happen", userId);
+        return new IllegalStateException("Subscription not found for user: " + userId);
+    }
+}
@@ -0,0 +1,269 @@
+package com.lofo.serenia.service.subscription.quota;
+
+import com.lofo.serenia.exception.exceptions.QuotaExceededException;
+import com.lofo.serenia.persistence.entity.subscription.Plan;
+import com.lofo.serenia.persistence.entity.subscription.Subscription;
+import com.lofo.serenia.persistence.repository.SubscriptionRepository.CounterDelta;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Quota counters of one user, held in memory by {@link InMemoryQuotaEngine}.
+ *
+ * <p>The whole state is an immutable snapshot swapped by compare-and-set, so concurrent senders never
+ * block each other and a limit check always sees the exact counters it increments. Changes not yet
+ * written to the database are tracked alongside as pending deltas.</p>
+ *
+ * <p>Once retired (idle and fully flushed), the counters refuse every operation; callers then load
+ * fresh counters from the database, so that no update can land on an instance that was dropped.</p>
+ */
+final class QuotaCounters {
+
+    private final UUID userId;
+    private final AtomicReference<State> state;
+    private volatile Plan plan;
+    private volatile Instant planLoadedAt;
+    private volatile Instant lastAccess;
+
+    QuotaCounters(UUID userId, Subscription subscription, Plan plan, Instant now) {
+        this.userId = userId;
+        this.state = new AtomicReference<>(new State(
+                subscription.getTokensUsedThisMonth(), 0, subscription.getMessagesSentToday(),
+                subscription.getMonthlyPeriodStart(), subscription.getDailyPeriodStart(),
+                0, 0, false, false, false));
+        this.plan = plan;
+        this.planLoadedAt = now;
+        this.lastAccess = now;
+    }
+
+    /**
+     * Resets expired periods, checks both limits and counts one message.
+     *
+     * @return false if these counters are retired
+     * @throws QuotaExceededException if a limit is reached
+     */
+    boolean admit(Instant now) {
+        while (true) {
+            State current = state.get();
+            if (current.retired()) {
+                return false;
+            }
+            State reset = current.withExpiredPeriodsReset(now);
+            if (reset.tokensUsed() >= plan.getMonthlyTokenLimit()) {
+                throw QuotaExceededException.monthlyTokenLimit(plan.getMonthlyTokenLimit(), reset.tokensUsed(), 0);
+            }
+            if (reset.messagesToday() >= plan.getDailyMessageLimit()) {
+                throw QuotaExceededException.dailyMessageLimit(plan.getDailyMessageLimit(), reset.messagesToday());
+            }
+            if (state.compareAndSet(current, reset.withMessages(1))) {
+                lastAccess = now;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Reserves tokens if used plus reserved tokens stay within the monthly limit.
+     *
+     * @return false if these counters are retired
+     * @throws QuotaExceededException if the reservation does not fit
+     */
+    boolean reserve(int tokens, Instant now) {
+        while (true) {
+            State current = state.get();
+            if (current.retired()) {
+                return false;
+            }
+            int committed = current.tokensUsed() + current.tokensReserved();
+            if (committed + tokens > plan.getMonthlyTokenLimit()) {
+                throw QuotaExceededException.monthlyTokenLimit(plan.getMonthlyTokenLimit(), committed, tokens);
+            }
+            if (state.compareAndSet(current, current.withReserved(tokens))) {
+                lastAccess = now;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Adds actual usage and gives back reserved tokens.
+     *
+     * @return false if these counters are retired
+     */
+    boolean settle(int usedTokens, int releasedTokens, Instant now) {
+        while (true) {
+            State current = state.get();
+            if (current.retired()) {
+                return false;
+            }
+            if (state.compareAndSet(current, current.withTokens(usedTokens).withReserved(-releasedTokens))) {
+                lastAccess = now;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gives back reserved tokens and the message admitted at {@code admittedAt}, if its day is still running.
+     *
+     * @return false if these counters are retired
+     */
+    boolean refund(int releasedTokens, Instant admittedAt, Instant now) {
+        while (true) {
+            State current = state.get();
+            if (current.retired()) {
+                return false;
+            }
+            State next = current.withReserved(-releasedTokens);
+            if (current.messagesToday() > 0 && !current.dailyPeriodStart().isAfter(admittedAt)) {
+                next = next.withMessages(-1);
+            }
+            if (state.compareAndSet(current, next)) {
+                lastAccess = now;
+                return true;
+            }
+        }
+    }
+
+    boolean hasAvailableQuota(Instant now) {
+        State current = state.get().withExpiredPeriodsReset(now);
+        return current.tokensUsed() < plan.getMonthlyTokenLimit()
+                && current.messagesToday() < plan.getDailyMessageLimit();
+    }
+
+    /**
+     * Takes the pending changes for writing, or returns null if there are none.
+     * If the write fails, they must be handed back with {@link #restore}.
+     */
+    CounterDelta drain() {
+        while (true) {
+            State current = state.get();
+            if (!current.isDirty()) {
+                return null;
+            }
+            if (state.compareAndSet(current, current.withoutPending())) {
+                return new CounterDelta(userId,
+                        current.pendingTokens(), current.monthlyReset(), current.monthlyPeriodStart(),
+                        current.pendingMessages(), current.dailyReset(), current.dailyPeriodStart());
+            }
+        }
+    }
+
+    /**
+     * Merges back changes whose write failed. A counter reset since the drain supersedes them.
+     */
+    void restore(CounterDelta delta) {
+        while (true) {
+            State current = state.get();
+            if (state.compareAndSet(current, current.withRestored(delta))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Retires the counters if nothing is pending or reserved and they have not been used since {@code idleSince}.
+     */
+    boolean retireIfIdle(Instant idleSince) {
+        State current = state.get();
+        if (current.retired() || current.isDirty() || current.tokensReserved() > 0 || lastAccess.isAfter(idleSince)) {
+            return false;
+        }
+        return state.compareAndSet(current, current.asRetired());
+    }
+
+    boolean isRetired() {
+        return state.get().retired();
+    }
+
+    boolean isPlanStale(Instant refreshBefore) {
+        return planLoadedAt.isBefore(refreshBefore);
+    }
+
+    void refreshPlan(Plan plan, Instant now) {
+        this.plan = plan;
+        this.planLoadedAt = now;
+    }
+
+    Plan plan() {
+        return plan;
+    }
+
+    int pendingTokens() {
+        return state.get().pendingTokens();
+    }
+
+    int pendingMessages() {
+        return state.get().pendingMessages();
+    }
+
+    int tokensReserved() {
+        return state.get().tokensReserved();
+    }
+
+    record State(int tokensUsed, int tokensReserved, int messagesToday,
+                 Instant monthlyPeriodStart, Instant dailyPeriodStart,
+                 int pendingTokens, int pendingMessages, boolean monthlyReset, boolean dailyReset,
+                 boolean retired) {
+
+        boolean isDirty() {
+            return pendingTokens != 0 || pendingMessages != 0 || monthlyReset || dailyReset;
+        }
+
+        /**
+         * Same boundaries as {@link Subscription#isMonthlyPeriodExpired()} and {@link Subscription#isDailyPeriodExpired()}.
+         */
+        State withExpiredPeriodsReset(Instant now) {
+            State next = this;
+            if (now.isAfter(monthlyPeriodStart.atZone(ZoneOffset.UTC).plusMonths(1).toInstant())) {
+                next = new State(0, next.tokensReserved, next.messagesToday, now, next.dailyPeriodStart,
+                        0, next.pendingMessages, true, next.dailyReset, retired);
+            }
+            if (now.isAfter(dailyPeriodStart.atZone(ZoneOffset.UTC).plusDays(1).toInstant())) {
+                next = new State(next.tokensUsed, next.tokensReserved, 0, next.monthlyPeriodStart, now,
+                        next.pendingTokens, 0, next.monthlyReset, true, retired);
+            }
+            return next;
+        }
+
+        State withMessages(int messages) {
+            return new State(tokensUsed, tokensReserved, messagesToday + messages, monthlyPeriodStart, dailyPeriodStart,
+                    pendingTokens, pendingMessages + messages, monthlyReset, dailyReset, retired);
+        }
+
+        State withTokens(int tokens) {
+            return new State(tokensUsed + tokens, tokensReserved, messagesToday, monthlyPeriodStart, dailyPeriodStart,
+                    pendingTokens + tokens, pendingMessages, monthlyReset, dailyReset, retired);
+        }
+
+        State withReserved(int tokens) {
+            return new State(tokensUsed, Math.max(0, tokensReserved + tokens), messagesToday,
+                    monthlyPeriodStart, dailyPeriodStart,
+                    pendingTokens, pendingMessages, monthlyReset, dailyReset, retired);
+        }
+
+        State withoutPending() {
+            return new State(tokensUsed, tokensReserved, messagesToday, monthlyPeriodStart, dailyPeriodStart,
+                    0, 0, false, false, retired);
+        }
+
+        State withRestored(CounterDelta delta) {
+            boolean keepMonthly = !monthlyReset;
+            boolean keepDaily = !dailyReset;
+            return new State(tokensUsed, tokensReserved, messagesToday, monthlyPeriodStart, dailyPeriodStart,
+                    keepMonthly ? pendingTokens + delta.tokens() : pendingTokens,
+                    keepDaily ? pendingMessages + delta.messages() : pendingMessages,
+                    monthlyReset || delta.monthlyReset(),
+                    dailyReset || delta.dailyReset(),
+                    retired);
+        }
+
+        State asRetired() {
+            return new State(tokensUsed, tokensReserved, messagesToday, monthlyPeriodStart, dailyPeriodStart,
+                    pendingTokens, pendingMessages, monthlyReset, dailyReset, true);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.lofo.serenia.service.subscription.reconciliation;
+
+import java.time.Duration;
+
+/**
+ * Outcome of one reconciliation pass over the Stripe subscriptions.
+ *
+ * @param scanned   Stripe subscriptions read
+ * @param fixed     local subscriptions that had drifted and were synchronized
+ * @param unmatched Stripe subscriptions with no local row to compare with (unknown customer, or replaced)
+ * @param failed    Stripe subscriptions in batches whose transaction failed, retried on the next pass
+ * @param elapsed   wall-clock time of the pass
+ */
+public record ReconciliationReport(long scanned, long fixed, long unmatched, long failed, Duration elapsed) {
+
+    /**
+     * Stripe subscriptions scanned per second.
+     */
+    public double throughput() {
+        long millis = elapsed.toMillis();
+        return millis > 0 ? scanned * 1000.0 / millis : scanned;
+    }
+}
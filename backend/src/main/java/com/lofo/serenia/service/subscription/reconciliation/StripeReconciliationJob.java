@@ -0,0 +1,201 @@
+package com.lofo.serenia.service.subscription.reconciliation;
+
+import com.lofo.serenia.config.StripeConfig;
+import com.lofo.serenia.config.StripeSdk;
+import com.lofo.serenia.persistence.entity.subscription.Plan;
+import com.lofo.serenia.persistence.entity.subscription.Subscription;
+import com.lofo.serenia.persistence.repository.SubscriptionRepository;
+import com.lofo.serenia.service.subscription.PlanCatalog;
+import com.lofo.serenia.service.subscription.mapper.DateTimeConverter;
+import com.lofo.serenia.service.subscription.mapper.StripeStatusMapper;
+import com.lofo.serenia.service.subscription.orchestration.SubscriptionOrchestrator;
+import com.stripe.exception.StripeException;
+import com.stripe.model.SubscriptionItem;
+import com.stripe.param.SubscriptionListParams;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Catches up on subscription changes whose webhook was missed, by comparing every Stripe subscription with
+ * the local row of its customer.
+ *
+ * <p>Stripe subscriptions are listed with auto-pagination, {@code stripe.reconciliation.page-size} per request,
+ * and handled {@code stripe.reconciliation.batch-size} at a time: the local rows of a batch are loaded in one
+ * query, and those that drifted are fixed through {@link SubscriptionOrchestrator#synchronizeFromStripe} in one
+ * transaction. A failed batch is logged and left for the next pass.</p>
+ *
+ * <p>A Stripe subscription is compared with the local row holding its id; a row without one is only linked to
+ * a subscription that is still live, so that the canceled subscriptions of a returning customer are ignored.
+ * A tracked subscription that ended on Stripe (a missed {@code customer.subscription.deleted}) is returned to
+ * the FREE plan through {@link SubscriptionOrchestrator#downgradeToFree}, as the webhook would have done.</p>
+ */
+@Slf4j
+@ApplicationScoped
+@RequiredArgsConstructor
+public class StripeReconciliationJob {
+
+    private static final Set<String> TERMINAL_STATUSES = Set.of("canceled", "incomplete_expired");
+
+    private final StripeConfig stripeConfig;
+    private final SubscriptionRepository subscriptionRepository;
+    private final SubscriptionOrchestrator subscriptionOrchestrator;
+    private final StripeStatusMapper statusMapper;
+    private final DateTimeConverter dateTimeConverter;
+    private final PlanCatalog planCatalog;
+    private final StripeSdk stripeSdk;
+
+    private record BatchResult(long fixed, long unmatched, long failed) {
+
+        static final BatchResult NONE = new BatchResult(0, 0, 0);
+
+        BatchResult plus(BatchResult other) {
+            return new BatchResult(fixed + other.fixed, unmatched + other.unmatched, failed + other.failed);
+        }
+    }
+
+    @Scheduled(every = "${stripe.reconciliation.interval:6h}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void run() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            log.error("Stripe reconciliation failed", e);
+        }
+    }
+
+    /**
+     * Runs one full pass over the Stripe subscriptions.
+     *
+     * @throws IllegalStateException if Stripe cannot be listed
+     */
+    public ReconciliationReport reconcile() {
+        long started = System.nanoTime();
+        int batchSize = stripeConfig.reconciliationBatchSize();
+        long scanned = 0;
+        BatchResult total = BatchResult.NONE;
+
+        List<com.stripe.model.Subscription> batch = new ArrayList<>(batchSize);
+        for (com.stripe.model.Subscription remote : listSubscriptions()) {
+            batch.add(remote);
+            scanned++;
+            if (batch.size() == batchSize) {
+                total = total.plus(reconcileBatchSafely(batch));
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            total = total.plus(reconcileBatchSafely(batch));
+        }
+
+        ReconciliationReport report = new ReconciliationReport(scanned, total.fixed(), total.unmatched(), total.failed(),
+                Duration.ofNanos(System.nanoTime() - started));
+        log.info("Stripe reconciliation: {} subscriptions scanned, {} fixed, {} unmatched, {} failed in {} ms ({}/s)",
+                report.scanned(), report.fixed(), report.unmatched(), report.failed(), report.elapsed().toMillis(),
+                Math.round(report.throughput()));
+        return report;
+    }
+
+    /**
+     * Tells whether the local row differs from Stripe on any field {@link SubscriptionOrchestrator} maintains.
+     * Only the plan id of the local row is read, so its plan is not loaded.
+     */
+    boolean hasDrifted(Subscription local, com.stripe.model.Subscription remote) {
+        if (!Objects.equals(local.getStripeSubscriptionId(), remote.getId())
+                || local.getStatus() != statusMapper.mapStatus(remote.getStatus())
+                || !Objects.equals(local.getCancelAtPeriodEnd(), Boolean.TRUE.equals(remote.getCancelAtPeriodEnd()))) {
+            return true;
+        }
+        SubscriptionItem item = firstItem(remote);
+        if (item == null) {
+            return false;
+        }
+        if (item.getCurrentPeriodEnd() != null
+                && !dateTimeConverter.convertEpochToDateTime(item.getCurrentPeriodEnd()).equals(local.getCurrentPeriodEnd())) {
+            return true;
+        }
+        UUID remotePlanId = item.getPrice() == null ? null : planCatalog.findByStripePriceId(item.getPrice().getId())
+                .map(Plan::getId)
+                .orElse(null);
+        return remotePlanId != null && !remotePlanId.equals(local.getPlan().getId());
+    }
+
+    // ========== Private methods ==========
+
+    private Iterable<com.stripe.model.Subscription> listSubscriptions() {
+        SubscriptionListParams params = SubscriptionListParams.builder()
+                .setStatus(SubscriptionListParams.Status.ALL)
+                .setLimit((long) stripeConfig.reconciliationPageSize())
+                .build();
+        try {
+            return com.stripe.model.Subscription.list(params).autoPagingIterable();
+        } catch (StripeException e) {
+            throw new IllegalStateException("Failed to list Stripe subscriptions", e);
+        }
+    }
+
+    private BatchResult reconcileBatchSafely(List<com.stripe.model.Subscription> batch) {
+        try {
+            return QuarkusTransaction.requiringNew().call(() -> reconcileBatch(batch));
+        } catch (RuntimeException e) {
+            log.error("Failed to reconcile a batch of {} Stripe subscriptions starting at {}, will retry on next pass",
+                    batch.size(), batch.getFirst().getId(), e);
+            return new BatchResult(0, 0, batch.size());
+        }
+    }
+
+    private BatchResult reconcileBatch(List<com.stripe.model.Subscription> batch) {
+        Set<String> customerIds = batch.stream()
+                .map(com.stripe.model.Subscription::getCustomer)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<String, Subscription> locals = subscriptionRepository.findByStripeCustomerIds(customerIds).stream()
+                .collect(Collectors.toMap(Subscription::getStripeCustomerId, Function.identity()));
+
+        long fixed = 0;
+        long unmatched = 0;
+        for (com.stripe.model.Subscription remote : batch) {
+            Subscription local = locals.get(remote.getCustomer());
+            if (local == null || !isTrackedBy(local, remote)) {
+                unmatched++;
+            } else if (TERMINAL_STATUSES.contains(remote.getStatus())) {
+                log.info("Subscription {} of customer {} ended on Stripe, returning to FREE plan",
+                        remote.getId(), remote.getCustomer());
+                subscriptionOrchestrator.downgradeToFree(local);
+                fixed++;
+            } else if (hasDrifted(local, remote)) {
+                log.info("Subscription {} of customer {} drifted from Stripe, synchronizing",
+                        remote.getId(), remote.getCustomer());
+                subscriptionOrchestrator.synchronizeFromStripe(local, remote);
+                fixed++;
+            }
+        }
+        return new BatchResult(fixed, unmatched, 0);
+    }
+
+    private static boolean isTrackedBy(Subscription local, com.stripe.model.Subscription remote) {
+        if (local.getStripeSubscriptionId() != null) {
+            return local.getStripeSubscriptionId().equals(remote.getId());
+        }
+        return !TERMINAL_STATUSES.contains(remote.getStatus());
+    }
+
+    private static SubscriptionItem firstItem(com.stripe.model.Subscription remote) {
+        if (remote.getItems() == null || remote.getItems().getData() == null || remote.getItems().getData().isEmpty()) {
+            return null;
+        }
+        return remote.getItems().getData().getFirst();
+    }
+}
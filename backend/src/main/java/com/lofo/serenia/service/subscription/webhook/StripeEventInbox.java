@@ -0,0 +1,146 @@
+package com.lofo.serenia.service.subscription.webhook;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.lofo.serenia.config.StripeConfig;
+import com.lofo.serenia.persistence.entity.subscription.StripeInboxEvent;
+import com.lofo.serenia.persistence.entity.subscription.StripeInboxStatus;
+import com.lofo.serenia.persistence.repository.StripeInboxEventRepository;
+import com.stripe.model.Event;
+import com.stripe.net.ApiResource;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Durable inbox of verified Stripe webhook events. The webhook only stores the event, in a single insert that
+ * ignores redeliveries of an event already received, and acknowledges it; {@link StripeEventInboxWorker} then
+ * hands it to {@link StripeWebhookService}.
+ *
+ * <p>A failed event is retried after {@code stripe.webhook.inbox.retry-backoff}, doubled on each attempt up to
+ * {@link #MAX_BACKOFF}, and dead-lettered after {@code stripe.webhook.inbox.max-attempts}. Events rejected with a
+ * {@link com.lofo.serenia.exception.exceptions.WebhookProcessingException} are business errors that a retry
+ * would not fix; they are marked done with the reason, as the webhook used to acknowledge them.</p>
+ */
+@Slf4j
+@ApplicationScoped
+@RequiredArgsConstructor
+public class StripeEventInbox {
+
+    static final Duration MAX_BACKOFF = Duration.ofHours(1);
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final StripeInboxEventRepository stripeInboxEventRepository;
+    private final StripeWebhookService stripeWebhookService;
+    private final StripeConfig stripeConfig;
+
+    /**
+     * Stores a verified event for processing.
+     *
+     * @param payload the raw payload the event was verified against
+     * @return false if the event had already been received
+     */
+    @Transactional
+    public boolean enqueue(Event event, String payload) {
+        Instant now = Instant.now();
+        Instant createdAt = event.getCreated() != null ? Instant.ofEpochSecond(event.getCreated()) : now;
+        return stripeInboxEventRepository.insertIfAbsent(event.getId(), event.getType(), customerIdOf(payload),
+                payload, createdAt, now);
+    }
+
+    /**
+     * Returns up to {@code limit} events ready to be processed, at most one per customer.
+     */
+    @Transactional
+    public List<StripeInboxEvent> findClaimable(int limit) {
+        return stripeInboxEventRepository.findClaimable(Instant.now(), limit);
+    }
+
+    /**
+     * @return true if this instance now holds the event's lease
+     */
+    @Transactional
+    public boolean claim(StripeInboxEvent inboxEvent) {
+        Instant now = Instant.now();
+        return stripeInboxEventRepository.claim(inboxEvent.getId(), now, now.plus(stripeConfig.webhookInboxLease()));
+    }
+
+    /**
+     * Handles the event and marks it done in the same transaction.
+     */
+    @Transactional
+    public void process(StripeInboxEvent inboxEvent) {
+        Event event = ApiResource.GSON.fromJson(inboxEvent.getPayload(), Event.class);
+        stripeWebhookService.handleEvent(event);
+        stripeInboxEventRepository.markDone(inboxEvent.getId(), null, Instant.now());
+    }
+
+    @Transactional
+    public void skip(StripeInboxEvent inboxEvent, RuntimeException reason) {
+        stripeInboxEventRepository.markDone(inboxEvent.getId(), truncate(reason), Instant.now());
+    }
+
+    /**
+     * Schedules the next attempt with exponential backoff, or dead-letters the event once out of attempts.
+     *
+     * @return true if the event was dead-lettered
+     */
+    @Transactional
+    public boolean recordFailure(StripeInboxEvent inboxEvent, RuntimeException error) {
+        int attempts = inboxEvent.getAttempts() + 1;
+        boolean dead = attempts >= stripeConfig.webhookInboxMaxAttempts();
+        Instant nextAttemptAt = Instant.now().plus(backoff(stripeConfig.webhookInboxRetryBackoff(), attempts));
+        stripeInboxEventRepository.recordFailure(inboxEvent.getId(), truncate(error),
+                dead ? StripeInboxStatus.DEAD : StripeInboxStatus.PENDING, nextAttemptAt);
+        return dead;
+    }
+
+    /**
+     * Forgets processed events older than {@code stripe.webhook.inbox.retention}, past which Stripe no longer
+     * redelivers them. Dead-lettered events are kept.
+     */
+    @Transactional
+    public long deleteExpired() {
+        return stripeInboxEventRepository.deleteProcessedBefore(Instant.now().minus(stripeConfig.webhookInboxRetention()));
+    }
+
+    /**
+     * @return {@code base * 2^(attempts - 1)}, capped at {@link #MAX_BACKOFF}
+     */
+    static Duration backoff(Duration base, int attempts) {
+        int doublings = Math.min(attempts - 1, 30);
+        Duration delay = base.multipliedBy(1L << doublings);
+        return delay.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : delay;
+    }
+
+    // ========== Private methods ==========
+
+    /**
+     * Reads {@code data.object.customer}, the key that orders a customer's events; null for events without one.
+     */
+    private static String customerIdOf(String payload) {
+        try {
+            JsonObject object = JsonParser.parseString(payload).getAsJsonObject()
+                    .getAsJsonObject("data").getAsJsonObject("object");
+            JsonElement customer = object != null ? object.get("customer") : null;
+            if (customer == null || customer.isJsonNull()) {
+                return null;
+            }
+            return customer.isJsonObject() ? customer.getAsJsonObject().get("id").getAsString() : customer.getAsString();
+        } catch (RuntimeException e) {
+            log.warn("Could not read the customer of a Stripe event, processing it unordered: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static String truncate(RuntimeException error) {
+        String message = String.valueOf(error.getMessage());
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+}
@@ -0,0 +1,110 @@
+package com.lofo.serenia.service.subscription.webhook;
+
+import com.lofo.serenia.config.StripeConfig;
+import com.lofo.serenia.exception.exceptions.WebhookProcessingException;
+import com.lofo.serenia.persistence.entity.subscription.StripeInboxEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.context.ManagedExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Drains the {@link StripeEventInbox}.
+ *
+ * <p>Each round takes the oldest pending event of every customer and processes them in parallel, with at most
+ * {@code stripe.webhook.inbox.workers} of them in flight on the managed worker pool, so different customers do
+ * not wait for each other while a customer's own events run one at a time and in order. A round waits for all
+ * its events before the next one picks up the events that became due, until the inbox is empty.</p>
+ */
+@Slf4j
+@ApplicationScoped
+public class StripeEventInboxWorker {
+
+    static final int EVENTS_PER_ROUND = 50;
+
+    private final StripeEventInbox stripeEventInbox;
+    private final ExecutorService executor;
+    private final int workers;
+
+    @Inject
+    public StripeEventInboxWorker(StripeEventInbox stripeEventInbox, StripeConfig stripeConfig,
+                                  ManagedExecutor managedExecutor) {
+        this(stripeEventInbox, managedExecutor, stripeConfig.webhookInboxWorkers());
+    }
+
+    StripeEventInboxWorker(StripeEventInbox stripeEventInbox, ExecutorService executor, int workers) {
+        this.stripeEventInbox = stripeEventInbox;
+        this.executor = executor;
+        this.workers = workers;
+    }
+
+    @Scheduled(every = "${stripe.webhook.inbox.interval:1s}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    public void drain() {
+        List<StripeInboxEvent> round;
+        while (!(round = stripeEventInbox.findClaimable(EVENTS_PER_ROUND)).isEmpty()) {
+            Queue<StripeInboxEvent> pending = new ConcurrentLinkedQueue<>(round);
+            int parallelism = Math.min(workers, round.size());
+            List<Callable<Void>> tasks = new ArrayList<>(parallelism);
+            for (int i = 0; i < parallelism; i++) {
+                tasks.add(() -> {
+                    StripeInboxEvent inboxEvent;
+                    while ((inboxEvent = pending.poll()) != null) {
+                        process(inboxEvent);
+                    }
+                    return null;
+                });
+            }
+            try {
+                executor.invokeAll(tasks);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @Scheduled(every = "${stripe.webhook.inbox.cleanup-interval:1h}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void deleteExpired() {
+        long deleted = stripeEventInbox.deleteExpired();
+        if (deleted > 0) {
+            log.info("Deleted {} processed Stripe events past retention", deleted);
+        }
+    }
+
+    /**
+     * Processes one event unless another instance holds it. A failed event leaves the failure recorded and its
+     * lease released, so that it comes back first in its customer's queue once its backoff has passed.
+     */
+    void process(StripeInboxEvent inboxEvent) {
+        if (!stripeEventInbox.claim(inboxEvent)) {
+            return;
+        }
+        try {
+            stripeEventInbox.process(inboxEvent);
+            log.info("Processed Stripe event {} ({})", inboxEvent.getId(), inboxEvent.getType());
+        } catch (WebhookProcessingException e) {
+            log.warn("Business error processing Stripe event {} ({}), skipped: {}",
+                    inboxEvent.getId(), inboxEvent.getType(), e.getMessage());
+            stripeEventInbox.skip(inboxEvent, e);
+        } catch (RuntimeException e) {
+            boolean dead = stripeEventInbox.recordFailure(inboxEvent, e);
+            if (dead) {
+                log.error("Stripe event {} ({}) dead-lettered after {} attempts",
+                        inboxEvent.getId(), inboxEvent.getType(), inboxEvent.getAttempts() + 1, e);
+            } else {
+                log.warn("Stripe event {} ({}) failed, will be retried: {}",
+                        inboxEvent.getId(), inboxEvent.getType(), e.getMessage());
+            }
+        }
+    }
+}
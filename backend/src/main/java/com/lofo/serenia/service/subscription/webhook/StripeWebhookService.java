@@ -1,15 +1,26 @@
 package com.lofo.serenia.service.subscription.webhook;
 
 import com.lofo.serenia.exception.exceptions.WebhookHandlerNotFoundException;
+import com.lofo.serenia.exception.exceptions.WebhookProcessingException;
 import com.lofo.serenia.service.subscription.StripeEventType;
 import com.lofo.serenia.service.subscription.webhook.handlers.StripeEventHandler;
 import com.stripe.model.Event;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.runtime.StartupEvent;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
 import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Main Stripe webhook dispatcher service.
  * Routes incoming events to appropriate handlers based on event type.
@@ -19,15 +30,50 @@ import lombok.extern.slf4j.Slf4j;
  * - Event routing via StripeEventType enum
  * - Handler lookup and delegation
  * - Transaction management
+ * - Per-event-type metrics
+ *
+ * The registry maps each StripeEventType to exactly one handler. It is built once, when the application starts,
+ * and the deployment fails if a type has no handler or more than one.
+ *
+ * Every handled event is timed under {@value #HANDLER_TIMER}, tagged with its type and outcome
+ * (success, skipped for business errors, error); each timer also counts its events. Events of a type
+ * the application does not handle are counted under {@value #UNHANDLED_COUNTER}.
  *
  * Business logic is delegated to specific StripeEventHandler implementations.
  */
 @Slf4j
 @ApplicationScoped
-@RequiredArgsConstructor
 public class StripeWebhookService {
 
-    private final Instance<StripeEventHandler> handlers;
+    static final String HANDLER_TIMER = "serenia.stripe.webhook.handler";
+    static final String UNHANDLED_COUNTER = "serenia.stripe.webhook.unhandled";
+
+    private final Map<StripeEventType, StripeEventHandler> handlers;
+    private final Map<StripeEventType, HandlerMetrics> metrics;
+    private final Counter unhandled;
+
+    @Inject
+    public StripeWebhookService(Instance<StripeEventHandler> handlers, MeterRegistry meterRegistry) {
+        this((Iterable<StripeEventHandler>) handlers, meterRegistry);
+    }
+
+    StripeWebhookService(Iterable<StripeEventHandler> handlers, MeterRegistry meterRegistry) {
+        this.handlers = buildRegistry(handlers);
+        EnumMap<StripeEventType, HandlerMetrics> byType = new EnumMap<>(StripeEventType.class);
+        for (StripeEventType eventType : StripeEventType.values()) {
+            byType.put(eventType, HandlerMetrics.register(meterRegistry, eventType));
+        }
+        this.metrics = Collections.unmodifiableMap(byType);
+        this.unhandled = meterRegistry.counter(UNHANDLED_COUNTER);
+    }
+
+    /**
+     * Observing the startup event makes the container create this bean at boot rather than on the first webhook,
+     * so that the registry check in the constructor fails the deployment on a missing or duplicate handler.
+     */
+    void onStart(@Observes StartupEvent event) {
+        log.info("Stripe webhook handlers registered for {} event types", handlers.size());
+    }
 
     /**
      * Main entry point for processing Stripe webhook events.
@@ -42,49 +88,77 @@ public class StripeWebhookService {
         StripeEventType.fromString(event.getType())
                 .ifPresentOrElse(
                         eventType -> delegateToHandler(eventType, event),
-                        () -> log.debug("Unhandled event type: {}", event.getType())
+                        () -> {
+                            unhandled.increment();
+                            log.debug("Unhandled event type: {}", event.getType());
+                        }
                 );
     }
 
     /**
-     * Finds and delegates event processing to the appropriate handler.
+     * Delegates event processing to the handler registered for its type, timing it.
      *
      * @param eventType the typed event type
      * @param event the Stripe event to process
-     * @throws WebhookHandlerNotFoundException if no handler is registered for the event type
      */
     private void delegateToHandler(StripeEventType eventType, Event event) {
-        var handler = findHandlerForEventType(eventType);
+        StripeEventHandler handler = handlers.get(eventType);
+        HandlerMetrics handlerMetrics = metrics.get(eventType);
+        log.debug("Delegating event {} to handler {}", event.getId(), handler.getClass().getSimpleName());
 
-        if (handler.isPresent()) {
-            log.debug("Delegating event {} to handler {}", event.getId(), handler.get().getClass().getSimpleName());
-            handler.get().handle(event);
-        } else {
-            String errorMsg = String.format("No handler registered for event type: %s (id: %s)", eventType, event.getId());
-            log.error(errorMsg);
-            throw new WebhookHandlerNotFoundException(errorMsg);
+        long start = System.nanoTime();
+        Timer outcome = handlerMetrics.error();
+        try {
+            handler.handle(event);
+            outcome = handlerMetrics.success();
+        } catch (WebhookProcessingException e) {
+            outcome = handlerMetrics.skipped();
+            throw e;
+        } finally {
+            outcome.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
     }
 
     /**
-     * Finds a handler instance for the given event type.
+     * Maps each event type to its single handler.
      *
-     * @param eventType the event type to find a handler for
-     * @return an Optional containing the handler if found
+     * @throws WebhookHandlerNotFoundException if an event type has no handler
+     * @throws IllegalStateException if an event type has more than one handler
+     */
+    private static Map<StripeEventType, StripeEventHandler> buildRegistry(Iterable<StripeEventHandler> handlers) {
+        EnumMap<StripeEventType, StripeEventHandler> registry = new EnumMap<>(StripeEventType.class);
+        for (StripeEventHandler handler : handlers) {
+            StripeEventHandler previous = registry.putIfAbsent(handler.getEventType(), handler);
+            if (previous != null) {
+                throw new IllegalStateException(String.format("Several handlers registered for event type %s: %s and %s",
+                        handler.getEventType(), previous.getClass().getSimpleName(), handler.getClass().getSimpleName()));
+            }
+        }
+        for (StripeEventType eventType : StripeEventType.values()) {
+            if (!registry.containsKey(eventType)) {
+                throw new WebhookHandlerNotFoundException("No handler registered for event type: " + eventType);
+            }
+        }
+        return Collections.unmodifiableMap(registry);
+    }
+
+    /**
+     * Handler timers of one event type, one per outcome, registered once.
      */
-    private java.util.Optional<StripeEventHandler> findHandlerForEventType(StripeEventType eventType) {
-        java.util.Objects.requireNonNull(handlers, "StripeEventHandler CDI instance must not be null");
+    private record HandlerMetrics(Timer success, Timer skipped, Timer error) {
 
-        java.util.Iterator<StripeEventHandler> iterator = handlers.iterator();
-        java.util.Objects.requireNonNull(iterator, "Iterator over StripeEventHandler instances must not be null");
+        static HandlerMetrics register(MeterRegistry meterRegistry, StripeEventType eventType) {
+            return new HandlerMetrics(
+                    timer(meterRegistry, eventType, "success"),
+                    timer(meterRegistry, eventType, "skipped"),
+                    timer(meterRegistry, eventType, "error"));
+        }
 
-        while (iterator.hasNext()) {
-            StripeEventHandler handler = iterator.next();
-            if (handler.getEventType() == eventType) {
-                return java.util.Optional.of(handler);
-            }
+        private static Timer timer(MeterRegistry meterRegistry, StripeEventType eventType, String outcome) {
+            return Timer.builder(HANDLER_TIMER)
+                    .tag("type", eventType.getEventTypeString())
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
         }
-        return java.util.Optional.empty();
     }
 }
-
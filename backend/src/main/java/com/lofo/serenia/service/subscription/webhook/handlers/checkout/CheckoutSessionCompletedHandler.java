@@ -26,8 +26,6 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 public class CheckoutSessionCompletedHandler implements StripeEventHandler {
 
-    private static final String STRIPE_CUSTOMER_ID = "stripeCustomerId";
-
     private final SubscriptionRepository subscriptionRepository;
     private final StripeObjectMapper stripeObjectMapper;
 
@@ -86,9 +84,7 @@ public class CheckoutSessionCompletedHandler implements StripeEventHandler {
      * @throws WebhookProcessingException if subscription not found
      */
     private Subscription findSubscriptionByCustomerId(String customerId) {
-        return subscriptionRepository
-                .find(STRIPE_CUSTOMER_ID, customerId)
-                .firstResultOptional()
+        return subscriptionRepository.findByStripeCustomerId(customerId)
                 .orElseThrow(() ->
                     new WebhookProcessingException("No subscription found for Stripe customer: " + customerId)
                 );
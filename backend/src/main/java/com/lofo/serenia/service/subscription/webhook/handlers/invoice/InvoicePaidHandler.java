@@ -22,8 +22,6 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class InvoicePaidHandler implements StripeEventHandler {
 
-    private static final String STRIPE_CUSTOMER_ID = "stripeCustomerId";
-
     private final SubscriptionRepository subscriptionRepository;
     private final StripeObjectMapper stripeObjectMapper;
 
@@ -40,9 +38,7 @@ public class InvoicePaidHandler implements StripeEventHandler {
 
         log.info("Invoice paid for customer: {}", customerId);
 
-        Optional<Subscription> subscriptionOpt = subscriptionRepository
-                .find(STRIPE_CUSTOMER_ID, customerId)
-                .firstResultOptional();
+        Optional<Subscription> subscriptionOpt = subscriptionRepository.findByStripeCustomerId(customerId);
 
         if (subscriptionOpt.isPresent()) {
             log.debug("Invoice paid for customer: {}", customerId);
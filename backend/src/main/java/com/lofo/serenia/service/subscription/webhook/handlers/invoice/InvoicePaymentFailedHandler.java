@@ -22,8 +22,6 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 public class InvoicePaymentFailedHandler implements StripeEventHandler {
 
-    private static final String STRIPE_CUSTOMER_ID = "stripeCustomerId";
-
     private final SubscriptionRepository subscriptionRepository;
     private final StripeObjectMapper stripeObjectMapper;
 
@@ -54,9 +52,7 @@ public class InvoicePaymentFailedHandler implements StripeEventHandler {
      * @throws WebhookProcessingException if subscription not found
      */
     private Subscription findSubscriptionByCustomerId(String customerId) {
-        return subscriptionRepository
-                .find(STRIPE_CUSTOMER_ID, customerId)
-                .firstResultOptional()
+        return subscriptionRepository.findByStripeCustomerId(customerId)
                 .orElseThrow(() ->
                     new WebhookProcessingException("No subscription found for Stripe customer: " + customerId)
                 );
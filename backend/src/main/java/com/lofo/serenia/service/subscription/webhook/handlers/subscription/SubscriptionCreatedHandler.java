@@ -21,8 +21,6 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 public class SubscriptionCreatedHandler implements StripeEventHandler {
 
-    private static final String STRIPE_CUSTOMER_ID = "stripeCustomerId";
-
     private final SubscriptionRepository subscriptionRepository;
     private final StripeObjectMapper stripeObjectMapper;
     private final SubscriptionOrchestrator subscriptionOrchestrator;
@@ -52,9 +50,7 @@ public class SubscriptionCreatedHandler implements StripeEventHandler {
      * @throws WebhookProcessingException if subscription not found
      */
     private Subscription findSubscriptionByCustomerId(String customerId) {
-        return subscriptionRepository
-                .find(STRIPE_CUSTOMER_ID, customerId)
-                .firstResultOptional()
+        return subscriptionRepository.findByStripeCustomerId(customerId)
                 .orElseThrow(() ->
                     new WebhookProcessingException("No subscription found for Stripe customer: " + customerId)
                 );
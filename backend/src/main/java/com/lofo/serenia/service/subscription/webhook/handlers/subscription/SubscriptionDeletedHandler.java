@@ -1,13 +1,11 @@
 package com.lofo.serenia.service.subscription.webhook.handlers.subscription;
 
 import com.lofo.serenia.exception.exceptions.WebhookProcessingException;
-import com.lofo.serenia.persistence.entity.subscription.Plan;
 import com.lofo.serenia.persistence.entity.subscription.Subscription;
-import com.lofo.serenia.persistence.entity.subscription.SubscriptionStatus;
-import com.lofo.serenia.persistence.repository.PlanRepository;
 import com.lofo.serenia.persistence.repository.SubscriptionRepository;
 import com.lofo.serenia.service.subscription.StripeEventType;
 import com.lofo.serenia.service.subscription.mapper.StripeObjectMapper;
+import com.lofo.serenia.service.subscription.orchestration.SubscriptionOrchestrator;
 import com.lofo.serenia.service.subscription.webhook.handlers.StripeEventHandler;
 import com.stripe.model.Event;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -23,10 +21,8 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 public class SubscriptionDeletedHandler implements StripeEventHandler {
 
-    private static final String STRIPE_CUSTOMER_ID = "stripeCustomerId";
-
     private final SubscriptionRepository subscriptionRepository;
-    private final PlanRepository planRepository;
+    private final SubscriptionOrchestrator subscriptionOrchestrator;
     private final StripeObjectMapper stripeObjectMapper;
 
     @Override
@@ -43,16 +39,7 @@ public class SubscriptionDeletedHandler implements StripeEventHandler {
         log.info("Subscription deleted for customer: {}, returning to FREE plan", customerId);
 
         Subscription subscription = findSubscriptionByCustomerId(customerId);
-
-        Plan freePlan = planRepository.getFreePlan();
-        subscription.setPlan(freePlan);
-        subscription.setStripeSubscriptionId(null);
-        subscription.setStatus(SubscriptionStatus.ACTIVE);
-        subscription.setCancelAtPeriodEnd(false);
-        subscription.setCurrentPeriodEnd(null);
-
-        subscriptionRepository.persist(subscription);
-        log.info("User {} returned to FREE plan after subscription deletion", subscription.getUser().getId());
+        subscriptionOrchestrator.downgradeToFree(subscription);
     }
 
     /**
@@ -63,9 +50,7 @@ public class SubscriptionDeletedHandler implements StripeEventHandler {
      * @throws WebhookProcessingException if subscription not found
      */
     private Subscription findSubscriptionByCustomerId(String customerId) {
-        return subscriptionRepository
-                .find(STRIPE_CUSTOMER_ID, customerId)
-                .firstResultOptional()
+        return subscriptionRepository.findByStripeCustomerId(customerId)
                 .orElseThrow(() ->
                     new WebhookProcessingException("No subscription found for Stripe customer: " + customerId)
                 );
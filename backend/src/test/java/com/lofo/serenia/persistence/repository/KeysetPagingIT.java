@@ -0,0 +1,206 @@
+package com.lofo.serenia.persistence.repository;
+
+import com.lofo.serenia.persistence.entity.conversation.Message;
+import com.lofo.serenia.persistence.entity.conversation.MessageRole;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the keyset pages walk their index as one bounded range: the cursor must appear as an index
+ * condition in the H2 plan, not only as a filter applied to every row from the start of the index.
+ */
+@QuarkusTest
+@DisplayName("Keyset paging Integration Tests")
+class KeysetPagingIT {
+
+    private static final UUID CONVERSATION_ID = UUID.fromString("0190a000-0000-7000-8000-000000000001");
+    private static final UUID USER_ID = UUID.fromString("0190a000-0000-7000-8000-000000000002");
+    private static final Instant START = Instant.parse("2026-01-01T00:00:00Z");
+
+    @Inject
+    MessageRepository messageRepository;
+
+    @Inject
+    EntityManager entityManager;
+
+    @AfterEach
+    void tearDown() {
+        QuarkusTransaction.requiringNew().run(() -> messageRepository.delete("conversationId", CONVERSATION_ID));
+    }
+
+    @Test
+    @DisplayName("should bound the message page scan by the cursor timestamp")
+    void should_seek_message_page_on_cursor() {
+        String conditions = indexConditions("SELECT id FROM messages WHERE conversation_id = '" + CONVERSATION_ID + "' "
+                + "AND timestamp >= '2026-01-01 00:00:00+00' AND timestamp <= '2026-02-01 00:00:00+00' "
+                + "AND (timestamp < '2026-02-01 00:00:00+00' "
+                + "OR (timestamp = '2026-02-01 00:00:00+00' AND id > '" + USER_ID + "')) "
+                + "ORDER BY timestamp DESC, id ASC", "IDX_MESSAGES_CONVERSATION_TIMESTAMP");
+
+        assertThat(conditions).containsPattern("CONVERSATION_ID\\s*=")
+                .containsPattern("TIMESTAMP\\s*>=")
+                .containsPattern("TIMESTAMP\\s*<=");
+    }
+
+    @Test
+    @DisplayName("should bound the context window and summary reads by the conversation start")
+    void should_seek_per_turn_reads_from_conversation_start() {
+        String conversation = "conversation_id = '" + CONVERSATION_ID + "' AND timestamp >= '2026-01-01 00:00:00+00' ";
+        String latestPage = indexConditions("SELECT id FROM messages WHERE " + conversation
+                + "ORDER BY timestamp DESC, id ASC", "IDX_MESSAGES_CONVERSATION_TIMESTAMP");
+        String oldest = indexConditions("SELECT id FROM messages WHERE " + conversation
+                + "ORDER BY timestamp ASC", "IDX_MESSAGES_CONVERSATION_TIMESTAMP");
+        String count = indexConditions("SELECT COUNT(*) FROM messages WHERE " + conversation,
+                "IDX_MESSAGES_CONVERSATION_TIMESTAMP");
+
+        assertThat(List.of(latestPage, oldest, count)).allSatisfy(conditions ->
+                assertThat(conditions).containsPattern("CONVERSATION_ID\\s*=").containsPattern("TIMESTAMP\\s*>="));
+    }
+
+    @Test
+    @DisplayName("should only read the messages from the conversation start on")
+    void should_read_from_conversation_start() {
+        Instant conversationStart = START.plusSeconds(7);
+        QuarkusTransaction.requiringNew().run(this::persistMessages);
+
+        long count = QuarkusTransaction.requiringNew().call(() ->
+                messageRepository.countAfter(CONVERSATION_ID, conversationStart, null));
+        List<Message> oldest = QuarkusTransaction.requiringNew().call(() ->
+                messageRepository.findOldestAfter(CONVERSATION_ID, conversationStart, null, 100));
+        List<Message> latest = QuarkusTransaction.requiringNew().call(() ->
+                messageRepository.findLatestPage(CONVERSATION_ID, conversationStart, null, null, null, 100));
+
+        assertThat(count).isEqualTo(6);
+        assertThat(oldest).hasSize(6).allSatisfy(message ->
+                assertThat(message.getTimestamp()).isAfterOrEqualTo(conversationStart));
+        assertThat(latest).hasSize(6).allSatisfy(message ->
+                assertThat(message.getTimestamp()).isAfterOrEqualTo(conversationStart));
+    }
+
+    @Test
+    @DisplayName("should bound the conversation page scan by the cursor activity")
+    void should_seek_conversation_page_on_cursor() {
+        String conditions = indexConditions("SELECT id, name, last_activity_at FROM conversations "
+                + "WHERE user_id = '" + USER_ID + "' AND last_activity_at <= '2026-02-01 00:00:00+00' "
+                + "AND (last_activity_at < '2026-02-01 00:00:00+00' "
+                + "OR (last_activity_at = '2026-02-01 00:00:00+00' AND id > '" + CONVERSATION_ID + "')) "
+                + "ORDER BY last_activity_at DESC, id ASC", "IDX_CONVERSATIONS_USER_ACTIVITY");
+
+        assertThat(conditions).containsPattern("USER_ID\\s*=")
+                .containsPattern("LAST_ACTIVITY_AT\\s*<=");
+    }
+
+    @Test
+    @DisplayName("should bound the user list scan by the cursor creation date")
+    void should_seek_user_page_on_cursor() {
+        String conditions = indexConditions("SELECT id, email FROM users "
+                + "WHERE created_at <= '2026-02-01 00:00:00+00' "
+                + "AND (created_at < '2026-02-01 00:00:00+00' "
+                + "OR (created_at = '2026-02-01 00:00:00+00' AND id > '" + USER_ID + "')) "
+                + "ORDER BY created_at DESC, id ASC", "IDX_USERS_CREATED_AT_ID");
+
+        assertThat(conditions).containsPattern("CREATED_AT\\s*<=");
+    }
+
+    @Test
+    @DisplayName("should count a user's messages from the user and role index")
+    void should_count_user_messages_from_index() {
+        String conditions = indexConditions("SELECT COUNT(*) FROM messages "
+                + "WHERE user_id = '" + USER_ID + "' AND role = 'USER'", "IDX_MESSAGES_USER_ROLE");
+
+        assertThat(conditions).containsPattern("USER_ID\\s*=")
+                .containsPattern("ROLE\\s*=");
+    }
+
+    @Test
+    @DisplayName("should page through messages sharing a timestamp without skipping or repeating any")
+    void should_page_through_timestamp_ties() {
+        List<UUID> expected = QuarkusTransaction.requiringNew().call(() -> {
+            persistMessages();
+            return messageRepository.findPageBefore(CONVERSATION_ID, START, null, null, 100).stream()
+                    .map(Message::getId)
+                    .toList();
+        });
+
+        List<UUID> paged = new ArrayList<>();
+        Message last = null;
+        do {
+            Instant beforeTimestamp = last == null ? null : last.getTimestamp();
+            UUID beforeId = last == null ? null : last.getId();
+            List<Message> page = QuarkusTransaction.requiringNew().call(() ->
+                    messageRepository.findPageBefore(CONVERSATION_ID, START, beforeTimestamp, beforeId, 3));
+            page.forEach(message -> paged.add(message.getId()));
+            last = page.isEmpty() ? null : page.getLast();
+        } while (last != null);
+
+        assertThat(expected).hasSize(8);
+        assertThat(paged).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    @DisplayName("should page through the context window's messages sharing a timestamp without skipping or repeating any")
+    void should_page_latest_messages_through_timestamp_ties() {
+        List<UUID> expected = QuarkusTransaction.requiringNew().call(() -> {
+            persistMessages();
+            return messageRepository.findLatestPage(CONVERSATION_ID, START, null, null, null, 100).stream()
+                    .map(Message::getId)
+                    .toList();
+        });
+
+        List<UUID> paged = new ArrayList<>();
+        Message last = null;
+        do {
+            Instant beforeTimestamp = last == null ? null : last.getTimestamp();
+            UUID beforeId = last == null ? null : last.getId();
+            List<Message> page = QuarkusTransaction.requiringNew().call(() ->
+                    messageRepository.findLatestPage(CONVERSATION_ID, START, null, beforeTimestamp, beforeId, 3));
+            page.forEach(message -> paged.add(message.getId()));
+            last = page.isEmpty() ? null : page.getLast();
+        } while (last != null);
+
+        assertThat(expected).hasSize(8);
+        assertThat(paged).containsExactlyElementsOf(expected);
+    }
+
+    /**
+     * Persists 8 messages, the first five sharing one timestamp.
+     */
+    private void persistMessages() {
+        for (int i = 0; i < 8; i++) {
+            Message message = new Message();
+            message.setConversationId(CONVERSATION_ID);
+            message.setUserId(USER_ID);
+            message.setRole(MessageRole.USER);
+            message.setEncryptedContent(new byte[]{(byte) i});
+            message.setTimestamp(START.plusSeconds(i < 5 ? 60 : i));
+            messageRepository.persist(message);
+        }
+    }
+
+    /**
+     * Returns the conditions H2 uses to seek the given index, upper-cased and unquoted.
+     */
+    private String indexConditions(String sql, String indexName) {
+        String plan = QuarkusTransaction.requiringNew().call(() ->
+                        String.valueOf(entityManager.createNativeQuery("EXPLAIN " + sql).getSingleResult()))
+                .replace("\"", "")
+                .toUpperCase();
+        Matcher matcher = Pattern.compile("/\\*\\s*(?:PUBLIC\\.)?" + indexName + ":(.*?)\\*/", Pattern.DOTALL).matcher(plan);
+        assertThat(matcher.find()).as("plan uses %s: %s", indexName, plan).isTrue();
+        return matcher.group(1);
+    }
+}
@@ -151,6 +151,37 @@ class AdminResourceIT {
                 .body("size", equalTo(10));
     }
 
+    @Test
+    @DisplayName("should return keyset user page for admin")
+    void should_return_user_page_for_admin() {
+        String token = JwtTestTokenGenerator.generateToken(ADMIN_EMAIL, adminUserId, "ADMIN");
+
+        given()
+                .header("Authorization", "Bearer " + token)
+                .queryParam("limit", 1)
+                .queryParam("activated", true)
+                .when()
+                .get("/admin/users/page")
+                .then()
+                .statusCode(200)
+                .body("users", hasSize(1))
+                .body("nextCursor", notNullValue());
+    }
+
+    @Test
+    @DisplayName("should reject unknown plan filter")
+    void should_reject_unknown_plan_filter() {
+        String token = JwtTestTokenGenerator.generateToken(ADMIN_EMAIL, adminUserId, "ADMIN");
+
+        given()
+                .header("Authorization", "Bearer " + token)
+                .queryParam("plan", "GOLD")
+                .when()
+                .get("/admin/users/page")
+                .then()
+                .statusCode(400);
+    }
+
     @Test
     @DisplayName("should return user by email for admin")
     void should_return_user_by_email_for_admin() {
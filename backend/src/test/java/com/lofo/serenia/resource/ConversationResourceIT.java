@@ -9,6 +9,7 @@ import com.lofo.serenia.persistence.repository.UserRepository;
 import com.lofo.serenia.rest.dto.in.CreateConversationRequestDTO;
 import com.lofo.serenia.rest.dto.in.MessageRequestDTO;
 import com.lofo.serenia.rest.dto.in.RenameConversationRequestDTO;
+import com.lofo.serenia.service.chat.MessageService;
 import com.lofo.serenia.util.JwtTestTokenGenerator;
 import io.quarkus.test.junit.QuarkusTest;
 import io.restassured.RestAssured;
@@ -36,6 +37,9 @@ class ConversationResourceIT {
     @Inject
     MessageRepository messageRepository;
 
+    @Inject
+    MessageService messageService;
+
     private static final String CONVERSATIONS_PATH = "/conversations";
     private static final String ADD_MESSAGE_PATH = CONVERSATIONS_PATH + "/add-message";
     private static final String MY_MESSAGES_PATH = CONVERSATIONS_PATH + "/my-messages";
@@ -432,6 +436,101 @@ class ConversationResourceIT {
             .statusCode(404);
     }
 
+    @Test
+    @DisplayName("should_page_back_through_history_with_cursor")
+    void should_page_back_through_history_with_cursor() {
+        User user = createAndPersistUser(TEST_EMAIL);
+        String token = JwtTestTokenGenerator.generateToken(TEST_EMAIL, user.getId(), "USER");
+        Conversation conversation = createConversation(user.getId());
+        for (String content : new String[]{"first", "second", "third"}) {
+            messageService.persistAssistantMessage(user.getId(), conversation.getId(), content);
+        }
+
+        String cursor = given()
+            .contentType(ContentType.JSON)
+            .header("Authorization", "Bearer " + token)
+            .queryParam("limit", 2)
+            .when()
+            .get(CONVERSATIONS_PATH + "/" + conversation.getId() + "/messages")
+            .then()
+            .statusCode(200)
+            .body("messages.content", contains("second", "third"))
+            .body("nextCursor", notNullValue())
+            .extract().path("nextCursor");
+
+        given()
+            .contentType(ContentType.JSON)
+            .header("Authorization", "Bearer " + token)
+            .queryParam("limit", 2)
+            .queryParam("before", cursor)
+            .when()
+            .get(CONVERSATIONS_PATH + "/" + conversation.getId() + "/messages")
+            .then()
+            .statusCode(200)
+            .body("messages.content", contains("first"))
+            .body("nextCursor", nullValue());
+    }
+
+    @Test
+    @DisplayName("should_return_400_when_paging_parameters_are_invalid")
+    void should_return_400_when_paging_parameters_are_invalid() {
+        User user = createAndPersistUser(TEST_EMAIL);
+        String token = JwtTestTokenGenerator.generateToken(TEST_EMAIL, user.getId(), "USER");
+        Conversation conversation = createConversation(user.getId());
+
+        given()
+            .contentType(ContentType.JSON)
+            .header("Authorization", "Bearer " + token)
+            .queryParam("limit", 0)
+            .when()
+            .get(CONVERSATIONS_PATH + "/" + conversation.getId() + "/messages")
+            .then()
+            .statusCode(400);
+
+        given()
+            .contentType(ContentType.JSON)
+            .header("Authorization", "Bearer " + token)
+            .queryParam("before", "not-a-cursor")
+            .when()
+            .get(CONVERSATIONS_PATH + "/" + conversation.getId() + "/messages")
+            .then()
+            .statusCode(400);
+    }
+
+    @Test
+    @DisplayName("should_page_through_conversations_with_cursor")
+    void should_page_through_conversations_with_cursor() {
+        User user = createAndPersistUser(TEST_EMAIL);
+        String token = JwtTestTokenGenerator.generateToken(TEST_EMAIL, user.getId(), "USER");
+        createConversation(user.getId());
+        createConversation(user.getId());
+        createConversation(user.getId());
+
+        String cursor = given()
+            .contentType(ContentType.JSON)
+            .header("Authorization", "Bearer " + token)
+            .queryParam("limit", 2)
+            .when()
+            .get(CONVERSATIONS_PATH + "/page")
+            .then()
+            .statusCode(200)
+            .body("conversations.size()", equalTo(2))
+            .body("nextCursor", notNullValue())
+            .extract().path("nextCursor");
+
+        given()
+            .contentType(ContentType.JSON)
+            .header("Authorization", "Bearer " + token)
+            .queryParam("limit", 2)
+            .queryParam("after", cursor)
+            .when()
+            .get(CONVERSATIONS_PATH + "/page")
+            .then()
+            .statusCode(200)
+            .body("conversations.size()", equalTo(1))
+            .body("nextCursor", nullValue());
+    }
+
     // ============== HELPER METHODS ==============
 
     @Transactional
@@ -4,12 +4,17 @@ import com.lofo.serenia.config.StripeConfig;
 import com.lofo.serenia.persistence.entity.subscription.Plan;
 import com.lofo.serenia.persistence.entity.subscription.PlanType;
 import com.lofo.serenia.persistence.entity.subscription.Subscription;
+import com.lofo.serenia.persistence.entity.subscription.StripeInboxEvent;
+import com.lofo.serenia.persistence.entity.subscription.StripeInboxStatus;
 import com.lofo.serenia.persistence.entity.subscription.SubscriptionStatus;
 import com.lofo.serenia.persistence.entity.user.Role;
 import com.lofo.serenia.persistence.entity.user.User;
 import com.lofo.serenia.persistence.repository.PlanRepository;
+import com.lofo.serenia.persistence.repository.StripeInboxEventRepository;
 import com.lofo.serenia.persistence.repository.SubscriptionRepository;
 import com.lofo.serenia.persistence.repository.UserRepository;
+import com.lofo.serenia.service.subscription.webhook.StripeEventInboxWorker;
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import io.quarkus.test.junit.QuarkusTest;
 import io.restassured.RestAssured;
 import io.restassured.http.ContentType;
@@ -27,6 +32,7 @@ import java.time.Instant;
 import java.util.UUID;
 
 import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 
 @QuarkusTest
@@ -45,6 +51,12 @@ class StripeWebhookResourceIT {
     @Inject
     StripeConfig stripeConfig;
 
+    @Inject
+    StripeInboxEventRepository stripeInboxEventRepository;
+
+    @Inject
+    StripeEventInboxWorker stripeEventInboxWorker;
+
     private String stripeCustomerId;
     private static final String TEST_EMAIL = "stripe-webhook-user@example.com";
     private static final String WEBHOOK_PATH = "/stripe/webhook";
@@ -53,6 +65,7 @@ class StripeWebhookResourceIT {
     @Transactional
     void setup() {
         RestAssured.baseURI = "http://localhost:8081";
+        stripeInboxEventRepository.deleteAll();
         subscriptionRepository.deleteAll();
         userRepository.deleteAll();
 
@@ -135,6 +148,69 @@ class StripeWebhookResourceIT {
                     .then()
                     .statusCode(200);
         }
+
+        @Test
+        @DisplayName("should store the event for background processing")
+        void should_store_event_for_background_processing() {
+            String payload = createInvoicePaidPayload();
+
+            given()
+                    .contentType(ContentType.JSON)
+                    .header("Stripe-Signature", generateStripeSignature(payload))
+                    .body(payload)
+                    .when()
+                    .post(WEBHOOK_PATH)
+                    .then()
+                    .statusCode(200)
+                    .body("received", equalTo(true));
+
+            StripeInboxEvent stored = QuarkusTransaction.requiringNew()
+                    .call(() -> stripeInboxEventRepository.findAll().firstResult());
+            assertThat(stored.getType()).isEqualTo("invoice.paid");
+            assertThat(stored.getCustomerId()).isEqualTo(stripeCustomerId);
+            assertThat(stored.getStatus()).isEqualTo(StripeInboxStatus.PENDING);
+        }
+
+        @Test
+        @DisplayName("should acknowledge a redelivered event without storing it twice")
+        void should_acknowledge_redelivered_event_once() {
+            String payload = createInvoicePaidPayload();
+
+            for (int delivery = 0; delivery < 2; delivery++) {
+                given()
+                        .contentType(ContentType.JSON)
+                        .header("Stripe-Signature", generateStripeSignature(payload))
+                        .body(payload)
+                        .when()
+                        .post(WEBHOOK_PATH)
+                        .then()
+                        .statusCode(200);
+            }
+
+            assertThat(QuarkusTransaction.requiringNew().call(() -> stripeInboxEventRepository.count())).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("should record business errors once the event is processed")
+        void should_record_business_errors_when_processed() {
+            stripeCustomerId = "cus_unknown";
+            String payload = createSubscriptionCreatedPayload();
+
+            given()
+                    .contentType(ContentType.JSON)
+                    .header("Stripe-Signature", generateStripeSignature(payload))
+                    .body(payload)
+                    .when()
+                    .post(WEBHOOK_PATH)
+                    .then()
+                    .statusCode(200);
+            stripeEventInboxWorker.drain();
+
+            StripeInboxEvent stored = QuarkusTransaction.requiringNew()
+                    .call(() -> stripeInboxEventRepository.findAll().firstResult());
+            assertThat(stored.getStatus()).isEqualTo(StripeInboxStatus.DONE);
+            assertThat(stored.getLastError()).contains("cus_unknown");
+        }
     }
 
     @Nested
@@ -24,6 +24,7 @@ import java.util.UUID;
 
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.notNullValue;
 
 /**
@@ -42,6 +43,7 @@ class SubscriptionResourceIT {
 
     private static final String SUBSCRIPTION_STATUS_PATH = "/subscription/status";
     private static final String CHANGE_PLAN_PATH = "/subscription/plan";
+    private static final String PLANS_PATH = "/subscription/plans";
     private static final String TEST_EMAIL = "subscription-test@example.com";
 
     private UUID testUserId;
@@ -327,4 +329,47 @@ class SubscriptionResourceIT {
                 .then()
                 .statusCode(404);
     }
+
+    @Test
+    @DisplayName("should return plans with an entity tag")
+    void should_return_plans_with_etag() {
+        given()
+                .when()
+                .get(PLANS_PATH)
+                .then()
+                .statusCode(200)
+                .header("ETag", notNullValue())
+                .body("$", hasSize(PlanType.values().length));
+    }
+
+    @Test
+    @DisplayName("should return 304 when the plans match If-None-Match")
+    void should_return_304_when_plans_unchanged() {
+        String etag = given()
+                .when()
+                .get(PLANS_PATH)
+                .then()
+                .statusCode(200)
+                .extract().header("ETag");
+
+        given()
+                .header("If-None-Match", etag)
+                .when()
+                .get(PLANS_PATH)
+                .then()
+                .statusCode(304)
+                .header("ETag", equalTo(etag));
+    }
+
+    @Test
+    @DisplayName("should return the plans again when If-None-Match is stale")
+    void should_return_plans_when_etag_stale() {
+        given()
+                .header("If-None-Match", "\"stale\"")
+                .when()
+                .get(PLANS_PATH)
+                .then()
+                .statusCode(200)
+                .body("$", hasSize(PlanType.values().length));
+    }
 }
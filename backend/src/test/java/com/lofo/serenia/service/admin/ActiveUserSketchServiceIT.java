@@ -0,0 +1,122 @@
+package com.lofo.serenia.service.admin;
+
+import com.lofo.serenia.persistence.repository.ActiveUserSketchRepository;
+import com.lofo.serenia.persistence.repository.ActiveUserSketchRepository.StoredSketch;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@QuarkusTest
+@DisplayName("ActiveUserSketchService Integration Tests")
+class ActiveUserSketchServiceIT {
+
+    private static final LocalDate TODAY = LocalDate.now(ZoneOffset.UTC);
+
+    @Inject
+    ActiveUserSketchService activeUserSketchService;
+
+    @Inject
+    ActiveUserSketchRepository activeUserSketchRepository;
+
+    @Inject
+    EntityManager entityManager;
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    @BeforeEach
+    @Transactional
+    void setup() {
+        entityManager.createNativeQuery("DELETE FROM active_user_sketches").executeUpdate();
+    }
+
+    @Test
+    @DisplayName("should count users recorded today in every window")
+    void should_count_recorded_users() {
+        ActiveUserCounts before = activeUserSketchService.count();
+
+        UUID user = UUID.randomUUID();
+        activeUserSketchService.record(user);
+        activeUserSketchService.record(user);
+        activeUserSketchService.record(UUID.randomUUID());
+        ActiveUserCounts after = activeUserSketchService.count();
+
+        assertThat(after.daily() - before.daily()).isEqualTo(2);
+        assertThat(after.weekly() - before.weekly()).isEqualTo(2);
+        assertThat(after.monthly() - before.monthly()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("should persist today's sketch on flush without double counting it")
+    void should_flush_sketch() {
+        activeUserSketchService.record(UUID.randomUUID());
+        ActiveUserCounts before = activeUserSketchService.count();
+
+        activeUserSketchService.flush();
+
+        List<StoredSketch> stored = activeUserSketchRepository.findBetween(TODAY, TODAY);
+        assertThat(stored).hasSize(1);
+        assertThat(HyperLogLog.fromBytes(stored.getFirst().sketch()).estimate()).isEqualTo(before.daily());
+        assertThat(activeUserSketchService.count().daily()).isEqualTo(before.daily());
+    }
+
+    @Test
+    @DisplayName("should replace every node's sketch of a rolled-up day and count it in the week and month")
+    void should_roll_up_day() {
+        LocalDate day = TODAY.minusDays(3);
+        activeUserSketchRepository.save(day, UUID.randomUUID(), sketchOf(UUID.randomUUID()).toBytes(), Instant.now());
+        activeUserSketchRepository.save(day, UUID.randomUUID(), sketchOf(UUID.randomUUID()).toBytes(), Instant.now());
+        // Drops the day from the cache if an earlier count saw it without rows.
+        activeUserSketchService.flush();
+        ActiveUserCounts before = activeUserSketchService.count();
+
+        List<UUID> activeUsers = Stream.generate(UUID::randomUUID).limit(4).toList();
+        activeUserSketchService.rollUp(day, activeUsers, Instant.now());
+        ActiveUserCounts after = activeUserSketchService.count();
+
+        assertThat(activeUserSketchRepository.findBetween(day, day)).hasSize(1);
+        assertThat(after.daily()).isEqualTo(before.daily());
+        assertThat(after.weekly() - before.weekly()).isEqualTo(2);
+        assertThat(after.monthly() - before.monthly()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("should not query settled days without sketches again until the next flush")
+    void should_cache_settled_days_without_rows() {
+        activeUserSketchService.flush();
+        activeUserSketchService.count();
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+
+        activeUserSketchService.count();
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+
+        LocalDate day = TODAY.minusDays(5);
+        activeUserSketchRepository.save(day, UUID.randomUUID(), sketchOf(UUID.randomUUID()).toBytes(), Instant.now());
+        ActiveUserCounts stale = activeUserSketchService.count();
+        activeUserSketchService.flush();
+
+        assertThat(activeUserSketchService.count().monthly() - stale.monthly()).isEqualTo(1);
+    }
+
+    private static HyperLogLog sketchOf(UUID... ids) {
+        HyperLogLog sketch = new HyperLogLog(ActiveUserSketchService.PRECISION);
+        Stream.of(ids).forEach(sketch::add);
+        return sketch;
+    }
+}
@@ -0,0 +1,151 @@
+package com.lofo.serenia.service.admin;
+
+import com.lofo.serenia.rest.dto.out.admin.DashboardDTO;
+import com.lofo.serenia.rest.dto.out.admin.TimelineDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("AdminStatsCache tests")
+class AdminStatsCacheTest {
+
+    private static final Duration TTL = Duration.ofSeconds(30);
+    private static final Duration MAX_STALE = Duration.ofMinutes(5);
+
+    @Mock
+    private AdminStatsService adminStatsService;
+
+    private final AtomicLong nanos = new AtomicLong();
+    private AdminStatsCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new AdminStatsCache(adminStatsService, TTL, MAX_STALE, Runnable::run, nanos::get);
+    }
+
+    @Test
+    @DisplayName("should compute the dashboard once within the TTL")
+    void should_compute_dashboard_once_within_ttl() {
+        DashboardDTO dashboard = dashboard();
+        when(adminStatsService.getDashboard()).thenReturn(dashboard);
+
+        cache.getDashboard();
+        advance(TTL.minusSeconds(1));
+        DashboardDTO cached = cache.getDashboard();
+
+        assertThat(cached).isSameAs(dashboard);
+        verify(adminStatsService, times(1)).getDashboard();
+    }
+
+    @Test
+    @DisplayName("should share one computation between concurrent requests")
+    void should_share_one_computation_between_concurrent_requests() throws Exception {
+        DashboardDTO dashboard = dashboard();
+        CountDownLatch release = new CountDownLatch(1);
+        when(adminStatsService.getDashboard()).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return dashboard;
+        });
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<DashboardDTO>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(cache::getDashboard));
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<DashboardDTO> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(dashboard);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        verify(adminStatsService, times(1)).getDashboard();
+    }
+
+    @Test
+    @DisplayName("should serve the stale dashboard while recomputing it past the TTL")
+    void should_serve_stale_while_revalidating() {
+        DashboardDTO stale = dashboard();
+        DashboardDTO fresh = dashboard();
+        when(adminStatsService.getDashboard()).thenReturn(stale, fresh);
+
+        cache.getDashboard();
+        advance(TTL.plusSeconds(1));
+
+        assertThat(cache.getDashboard()).isSameAs(stale);
+        assertThat(cache.getDashboard()).isSameAs(fresh);
+        verify(adminStatsService, times(2)).getDashboard();
+    }
+
+    @Test
+    @DisplayName("should keep serving the previous dashboard when a recomputation fails")
+    void should_keep_previous_dashboard_when_refresh_fails() {
+        DashboardDTO stale = dashboard();
+        when(adminStatsService.getDashboard()).thenReturn(stale).thenThrow(new IllegalStateException("db down"));
+
+        cache.getDashboard();
+        advance(TTL.plusSeconds(1));
+
+        assertThat(cache.getDashboard()).isSameAs(stale);
+        assertThat(cache.getDashboard()).isSameAs(stale);
+    }
+
+    @Test
+    @DisplayName("should recompute on demand once past the maximum staleness")
+    void should_recompute_past_max_stale() {
+        DashboardDTO expired = dashboard();
+        DashboardDTO fresh = dashboard();
+        when(adminStatsService.getDashboard()).thenReturn(expired, fresh);
+
+        cache.getDashboard();
+        advance(TTL.plus(MAX_STALE).plusSeconds(1));
+
+        assertThat(cache.getDashboard()).isSameAs(fresh);
+    }
+
+    @Test
+    @DisplayName("should cache timelines per metric and period")
+    void should_cache_timelines_per_metric_and_period() {
+        when(adminStatsService.getTimeline("messages", 7)).thenReturn(new TimelineDTO("messages", List.of()));
+        when(adminStatsService.getTimeline("messages", 30)).thenReturn(new TimelineDTO("messages", List.of()));
+        when(adminStatsService.getTimeline("users", 7)).thenReturn(new TimelineDTO("users", List.of()));
+
+        cache.getTimeline("messages", 7);
+        cache.getTimeline("messages", 7);
+        cache.getTimeline("messages", 30);
+        TimelineDTO users = cache.getTimeline("users", 7);
+
+        assertThat(users.metric()).isEqualTo("users");
+        verify(adminStatsService, times(1)).getTimeline("messages", 7);
+        verify(adminStatsService, times(1)).getTimeline("messages", 30);
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+
+    private static DashboardDTO dashboard() {
+        return new DashboardDTO(null, null, null, null);
+    }
+}
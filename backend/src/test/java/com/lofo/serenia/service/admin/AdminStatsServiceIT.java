@@ -7,6 +7,7 @@ import com.lofo.serenia.persistence.entity.subscription.PlanType;
 import com.lofo.serenia.persistence.entity.subscription.Subscription;
 import com.lofo.serenia.persistence.entity.user.Role;
 import com.lofo.serenia.persistence.entity.user.User;
+import com.lofo.serenia.persistence.repository.DailyStatsRepository;
 import com.lofo.serenia.persistence.repository.MessageRepository;
 import com.lofo.serenia.persistence.repository.PlanRepository;
 import com.lofo.serenia.persistence.repository.SubscriptionRepository;
@@ -15,12 +16,15 @@ import com.lofo.serenia.rest.dto.out.admin.*;
 import io.quarkus.test.junit.QuarkusTest;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import java.time.Instant;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -43,9 +47,16 @@ class AdminStatsServiceIT {
     @Inject
     PlanRepository planRepository;
 
+    @Inject
+    DailyStatsRepository dailyStatsRepository;
+
+    @Inject
+    SessionFactory sessionFactory;
+
     @BeforeEach
     @Transactional
     void setup() {
+        dailyStatsRepository.deleteAll();
         messageRepository.deleteAll();
         subscriptionRepository.deleteAll();
         userRepository.deleteAll();
@@ -143,6 +154,66 @@ class AdminStatsServiceIT {
         assertThat(timeline.data()).hasSize(7);
     }
 
+    @Test
+    @DisplayName("should load a page of users with their plan and message count in one query")
+    @Transactional
+    void should_load_user_page_in_one_query() {
+        Plan freePlan = planRepository.findByName(PlanType.FREE).orElseThrow();
+        Plan plusPlan = planRepository.findByName(PlanType.PLUS).orElseThrow();
+        for (int i = 0; i < 5; i++) {
+            User user = createUser("user" + i + "@test.com", i % 2 == 0);
+            createSubscription(user, i < 3 ? freePlan : plusPlan);
+            for (int j = 0; j <= i; j++) {
+                createMessage(user.getId(), UUID.randomUUID(), MessageRole.USER);
+            }
+        }
+        userRepository.flush();
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+
+        UserPageDTO page = adminStatsService.getUserPage(null, 100, null, null);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(page.users()).hasSize(5);
+        assertThat(page.users()).extracting(UserDetailDTO::messageCount).containsExactlyInAnyOrder(1L, 2L, 3L, 4L, 5L);
+        assertThat(page.nextCursor()).isNull();
+    }
+
+    @Test
+    @DisplayName("should filter the user page by plan and activation state")
+    @Transactional
+    void should_filter_user_page() {
+        Plan freePlan = planRepository.findByName(PlanType.FREE).orElseThrow();
+        Plan plusPlan = planRepository.findByName(PlanType.PLUS).orElseThrow();
+        createSubscription(createUser("free-active@test.com", true), freePlan);
+        createSubscription(createUser("plus-active@test.com", true), plusPlan);
+        createSubscription(createUser("plus-inactive@test.com", false), plusPlan);
+
+        UserPageDTO page = adminStatsService.getUserPage(null, null, "PLUS", true);
+
+        assertThat(page.users()).extracting(UserDetailDTO::email).containsExactly("plus-active@test.com");
+    }
+
+    @Test
+    @DisplayName("should walk the whole user list page by page")
+    @Transactional
+    void should_walk_user_pages() {
+        for (int i = 0; i < 5; i++) {
+            createUser("page" + i + "@test.com", true);
+        }
+
+        UserPageDTO first = adminStatsService.getUserPage(null, 2, null, null);
+        UserPageDTO second = adminStatsService.getUserPage(first.nextCursor(), 2, null, null);
+        UserPageDTO third = adminStatsService.getUserPage(second.nextCursor(), 2, null, null);
+
+        assertThat(first.users()).hasSize(2);
+        assertThat(second.users()).hasSize(2);
+        assertThat(third.users()).hasSize(1);
+        assertThat(third.nextCursor()).isNull();
+        assertThat(Stream.of(first, second, third).flatMap(page -> page.users().stream())
+                .map(UserDetailDTO::email).distinct()).hasSize(5);
+    }
+
     private User createUser(String email, boolean activated) {
         User user = User.builder()
                 .email(email)
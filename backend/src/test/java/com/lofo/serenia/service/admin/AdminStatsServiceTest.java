@@ -1,13 +1,17 @@
 package com.lofo.serenia.service.admin;
 
-import com.lofo.serenia.persistence.entity.conversation.MessageRole;
+import com.lofo.serenia.persistence.entity.stats.DailyStats;
+import com.lofo.serenia.persistence.entity.stats.DailyStatsTotals;
 import com.lofo.serenia.persistence.entity.subscription.Plan;
 import com.lofo.serenia.persistence.entity.subscription.PlanType;
-import com.lofo.serenia.persistence.repository.MessageRepository;
-import com.lofo.serenia.persistence.repository.PlanRepository;
+import com.lofo.serenia.persistence.entity.user.Role;
+import com.lofo.serenia.persistence.entity.user.UserListItem;
 import com.lofo.serenia.persistence.repository.SubscriptionRepository;
 import com.lofo.serenia.persistence.repository.UserRepository;
 import com.lofo.serenia.rest.dto.out.admin.*;
+import com.lofo.serenia.service.chat.KeysetCursor;
+import com.lofo.serenia.service.subscription.PlanCatalog;
+import jakarta.ws.rs.BadRequestException;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
 import org.junit.jupiter.api.BeforeEach;
@@ -18,10 +22,17 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,14 +42,11 @@ class AdminStatsServiceTest {
     @Mock
     private UserRepository userRepository;
 
-    @Mock
-    private MessageRepository messageRepository;
-
     @Mock
     private SubscriptionRepository subscriptionRepository;
 
     @Mock
-    private PlanRepository planRepository;
+    private PlanCatalog planCatalog;
 
     @Mock
     private EntityManager entityManager;
@@ -46,16 +54,23 @@ class AdminStatsServiceTest {
     @Mock
     private TypedQuery<Long> longQuery;
 
+    @Mock
+    private DailyStatsService dailyStatsService;
+
+    @Mock
+    private ActiveUserSketchService activeUserSketchService;
+
     private AdminStatsService adminStatsService;
 
     @BeforeEach
     void setUp() {
         adminStatsService = new AdminStatsService(
                 userRepository,
-                messageRepository,
                 subscriptionRepository,
-                planRepository,
-                entityManager
+                planCatalog,
+                entityManager,
+                dailyStatsService,
+                activeUserSketchService
         );
     }
 
@@ -68,15 +83,14 @@ class AdminStatsServiceTest {
         void should_return_complete_dashboard_with_all_stats() {
             when(userRepository.count()).thenReturn(100L);
             when(userRepository.count(eq("accountActivated"), eq(true))).thenReturn(80L);
-            when(userRepository.count(eq("createdAt >= ?1"), (Object) any())).thenReturn(10L);
+            when(dailyStatsService.summarize()).thenReturn(summary(totals(1, 50, 1), totals(5, 100, 5),
+                    totals(10, 200, 10), totals(100, 500, 80)));
+            when(activeUserSketchService.count()).thenReturn(new ActiveUserCounts(1, 5, 10));
             when(subscriptionRepository.count(eq("plan.name"), any(PlanType.class))).thenReturn(50L);
-            when(messageRepository.count(eq("role"), eq(MessageRole.USER))).thenReturn(500L);
-            when(messageRepository.count(anyString(), eq(MessageRole.USER), any())).thenReturn(50L);
             when(entityManager.createQuery(anyString(), eq(Long.class))).thenReturn(longQuery);
             when(longQuery.getSingleResult()).thenReturn(10000L);
-            when(longQuery.setParameter(anyString(), any())).thenReturn(longQuery);
-            when(planRepository.findByName(PlanType.PLUS)).thenReturn(Optional.of(createPlan(PlanType.PLUS, 999)));
-            when(planRepository.findByName(PlanType.MAX)).thenReturn(Optional.of(createPlan(PlanType.MAX, 1999)));
+            when(planCatalog.findByType(PlanType.PLUS)).thenReturn(Optional.of(createPlan(PlanType.PLUS, 999)));
+            when(planCatalog.findByType(PlanType.MAX)).thenReturn(Optional.of(createPlan(PlanType.MAX, 1999)));
 
             DashboardDTO dashboard = adminStatsService.getDashboard();
 
@@ -85,6 +99,8 @@ class AdminStatsServiceTest {
             assertThat(dashboard.messages()).isNotNull();
             assertThat(dashboard.engagement()).isNotNull();
             assertThat(dashboard.subscriptions()).isNotNull();
+            assertThat(dashboard.messages().totalUserMessages()).isEqualTo(500L);
+            assertThat(dashboard.users().newUsersLast30Days()).isEqualTo(10L);
         }
     }
 
@@ -97,7 +113,8 @@ class AdminStatsServiceTest {
         void should_return_user_stats_with_correct_counts() {
             when(userRepository.count()).thenReturn(100L);
             when(userRepository.count(eq("accountActivated"), eq(true))).thenReturn(80L);
-            when(userRepository.count(eq("createdAt >= ?1"), (Object) any())).thenReturn(10L);
+            when(dailyStatsService.summarize()).thenReturn(summary(totals(1, 0, 0), totals(4, 0, 0),
+                    totals(10, 0, 0), totals(100, 0, 0)));
             when(subscriptionRepository.count(eq("plan.name"), eq(PlanType.FREE))).thenReturn(50L);
             when(subscriptionRepository.count(eq("plan.name"), eq(PlanType.PLUS))).thenReturn(30L);
             when(subscriptionRepository.count(eq("plan.name"), eq(PlanType.MAX))).thenReturn(20L);
@@ -106,6 +123,8 @@ class AdminStatsServiceTest {
 
             assertThat(stats.totalUsers()).isEqualTo(100L);
             assertThat(stats.activatedUsers()).isEqualTo(80L);
+            assertThat(stats.newUsersLast7Days()).isEqualTo(4L);
+            assertThat(stats.newUsersLast30Days()).isEqualTo(10L);
         }
 
         @Test
@@ -113,7 +132,8 @@ class AdminStatsServiceTest {
         void should_count_users_by_plan_type() {
             when(userRepository.count()).thenReturn(100L);
             when(userRepository.count(eq("accountActivated"), eq(true))).thenReturn(80L);
-            when(userRepository.count(eq("createdAt >= ?1"), (Object) any())).thenReturn(10L);
+            when(dailyStatsService.summarize()).thenReturn(summary(totals(1, 0, 0), totals(4, 0, 0),
+                    totals(10, 0, 0), totals(100, 0, 0)));
             when(subscriptionRepository.count(eq("plan.name"), eq(PlanType.FREE))).thenReturn(50L);
             when(subscriptionRepository.count(eq("plan.name"), eq(PlanType.PLUS))).thenReturn(30L);
             when(subscriptionRepository.count(eq("plan.name"), eq(PlanType.MAX))).thenReturn(20L);
@@ -133,9 +153,8 @@ class AdminStatsServiceTest {
         @Test
         @DisplayName("should return message stats for different periods")
         void should_return_message_stats_for_different_periods() {
-            when(messageRepository.count(eq("role"), eq(MessageRole.USER))).thenReturn(1000L);
-            when(messageRepository.count(anyString(), eq(MessageRole.USER), any()))
-                    .thenReturn(50L, 200L, 400L);
+            when(dailyStatsService.summarize()).thenReturn(summary(totals(0, 50, 0), totals(0, 200, 0),
+                    totals(0, 400, 0), totals(0, 1000, 0)));
 
             MessageStatsDTO stats = adminStatsService.getMessageStats();
 
@@ -154,30 +173,46 @@ class AdminStatsServiceTest {
         @DisplayName("should calculate activation rate correctly")
         void should_calculate_activation_rate_correctly() {
             when(userRepository.count(eq("accountActivated"), eq(true))).thenReturn(100L);
-            when(entityManager.createQuery(anyString(), eq(Long.class))).thenReturn(longQuery);
-            when(longQuery.setParameter(anyString(), any())).thenReturn(longQuery);
-            when(longQuery.getSingleResult()).thenReturn(80L);
-            when(messageRepository.count(eq("role"), eq(MessageRole.USER))).thenReturn(500L);
+            when(dailyStatsService.summarize()).thenReturn(summary(DailyStatsTotals.ZERO, DailyStatsTotals.ZERO,
+                    DailyStatsTotals.ZERO, totals(0, 500, 80)));
+            when(activeUserSketchService.count()).thenReturn(new ActiveUserCounts(0, 0, 0));
 
             EngagementStatsDTO stats = adminStatsService.getEngagementStats();
 
             assertThat(stats.activeUsers()).isEqualTo(80L);
             assertThat(stats.activationRate()).isEqualTo(80.0);
+            assertThat(stats.avgMessagesPerUser()).isEqualTo(6.25);
         }
 
         @Test
         @DisplayName("should return zero when no users")
         void should_return_zero_when_no_users() {
             when(userRepository.count(eq("accountActivated"), eq(true))).thenReturn(0L);
-            when(entityManager.createQuery(anyString(), eq(Long.class))).thenReturn(longQuery);
-            when(longQuery.setParameter(anyString(), any())).thenReturn(longQuery);
-            when(longQuery.getSingleResult()).thenReturn(0L);
-            when(messageRepository.count(eq("role"), eq(MessageRole.USER))).thenReturn(0L);
+            when(dailyStatsService.summarize()).thenReturn(summary(DailyStatsTotals.ZERO, DailyStatsTotals.ZERO,
+                    DailyStatsTotals.ZERO, DailyStatsTotals.ZERO));
+            when(activeUserSketchService.count()).thenReturn(new ActiveUserCounts(0, 0, 0));
 
             EngagementStatsDTO stats = adminStatsService.getEngagementStats();
 
             assertThat(stats.activationRate()).isEqualTo(0.0);
             assertThat(stats.avgMessagesPerUser()).isEqualTo(0.0);
+            assertThat(stats.monthlyEngagementRate()).isEqualTo(0.0);
+        }
+
+        @Test
+        @DisplayName("should report daily, weekly and monthly active users from sketches")
+        void should_report_recent_active_users_from_sketches() {
+            when(userRepository.count(eq("accountActivated"), eq(true))).thenReturn(200L);
+            when(dailyStatsService.summarize()).thenReturn(summary(DailyStatsTotals.ZERO, DailyStatsTotals.ZERO,
+                    DailyStatsTotals.ZERO, totals(0, 500, 80)));
+            when(activeUserSketchService.count()).thenReturn(new ActiveUserCounts(12, 40, 50));
+
+            EngagementStatsDTO stats = adminStatsService.getEngagementStats();
+
+            assertThat(stats.dailyActiveUsers()).isEqualTo(12L);
+            assertThat(stats.weeklyActiveUsers()).isEqualTo(40L);
+            assertThat(stats.monthlyActiveUsers()).isEqualTo(50L);
+            assertThat(stats.monthlyEngagementRate()).isEqualTo(25.0);
         }
     }
 
@@ -190,8 +225,8 @@ class AdminStatsServiceTest {
         void should_calculate_total_revenue_from_plans() {
             when(entityManager.createQuery(anyString(), eq(Long.class))).thenReturn(longQuery);
             when(longQuery.getSingleResult()).thenReturn(50000L);
-            when(planRepository.findByName(PlanType.PLUS)).thenReturn(Optional.of(createPlan(PlanType.PLUS, 999)));
-            when(planRepository.findByName(PlanType.MAX)).thenReturn(Optional.of(createPlan(PlanType.MAX, 1999)));
+            when(planCatalog.findByType(PlanType.PLUS)).thenReturn(Optional.of(createPlan(PlanType.PLUS, 999)));
+            when(planCatalog.findByType(PlanType.MAX)).thenReturn(Optional.of(createPlan(PlanType.MAX, 1999)));
             when(subscriptionRepository.count(eq("plan.name"), eq(PlanType.PLUS))).thenReturn(10L);
             when(subscriptionRepository.count(eq("plan.name"), eq(PlanType.MAX))).thenReturn(5L);
 
@@ -214,7 +249,86 @@ class AdminStatsServiceTest {
 
             assertThat(timeline.metric()).isEqualTo("unknown");
             assertThat(timeline.data()).isEmpty();
+            verifyNoInteractions(dailyStatsService);
         }
+
+        @Test
+        @DisplayName("should read the requested metric from daily stats and fill missing days")
+        void should_fill_missing_days_from_daily_stats() {
+            LocalDate today = LocalDate.now(ZoneOffset.UTC);
+            when(dailyStatsService.findDays(today.minusDays(6), today)).thenReturn(List.of(
+                    DailyStats.builder().statDate(today.minusDays(2)).userMessages(12).tokensUsed(3400).build(),
+                    DailyStats.builder().statDate(today).userMessages(3).tokensUsed(900).build()));
+
+            TimelineDTO timeline = adminStatsService.getTimeline("tokens", 7);
+
+            assertThat(timeline.data()).hasSize(7);
+            assertThat(timeline.data().get(4).value()).isEqualTo(3400L);
+            assertThat(timeline.data().get(5).value()).isZero();
+            assertThat(timeline.data().get(6).value()).isEqualTo(900L);
+        }
+    }
+
+    @Nested
+    @DisplayName("getUserPage")
+    class GetUserPage {
+
+        @Test
+        @DisplayName("should return a cursor when more users follow")
+        void should_return_cursor_when_more_users_follow() {
+            UserListItem newest = listItem(Instant.parse("2026-03-02T10:00:00Z"), PlanType.PLUS, 12);
+            UserListItem older = listItem(Instant.parse("2026-03-01T10:00:00Z"), null, 0);
+            UserListItem extra = listItem(Instant.parse("2026-02-28T10:00:00Z"), PlanType.FREE, 3);
+            when(userRepository.findListItemsAfter(PlanType.PLUS, true, null, null, 3))
+                    .thenReturn(List.of(newest, older, extra));
+
+            UserPageDTO page = adminStatsService.getUserPage(null, 2, "plus", true);
+
+            assertThat(page.users()).extracting(UserDetailDTO::id).containsExactly(newest.id(), older.id());
+            assertThat(page.users().get(0).planType()).isEqualTo("PLUS");
+            assertThat(page.users().get(0).messageCount()).isEqualTo(12);
+            assertThat(page.users().get(1).planType()).isEqualTo("NONE");
+            assertThat(page.users().get(1).tokensUsedThisMonth()).isZero();
+            assertThat(KeysetCursor.decode(page.nextCursor())).isEqualTo(new KeysetCursor(older.createdAt(), older.id()));
+        }
+
+        @Test
+        @DisplayName("should resume after the cursor and end without cursor")
+        void should_resume_after_cursor() {
+            KeysetCursor cursor = new KeysetCursor(Instant.parse("2026-03-01T10:00:00Z"), UUID.randomUUID());
+            UserListItem last = listItem(Instant.parse("2026-02-28T10:00:00Z"), PlanType.FREE, 3);
+            when(userRepository.findListItemsAfter(null, null, cursor.timestamp(), cursor.id(), 21))
+                    .thenReturn(List.of(last));
+
+            UserPageDTO page = adminStatsService.getUserPage(cursor.encode(), null, null, null);
+
+            assertThat(page.users()).hasSize(1);
+            assertThat(page.nextCursor()).isNull();
+        }
+
+        @Test
+        @DisplayName("should reject an unknown plan or an out-of-range limit")
+        void should_reject_invalid_parameters() {
+            assertThatThrownBy(() -> adminStatsService.getUserPage(null, null, "gold", null))
+                    .isInstanceOf(BadRequestException.class);
+            assertThatThrownBy(() -> adminStatsService.getUserPage(null, 101, null, null))
+                    .isInstanceOf(BadRequestException.class);
+            verifyNoInteractions(userRepository);
+        }
+    }
+
+    private UserListItem listItem(Instant createdAt, PlanType planType, long messageCount) {
+        return new UserListItem(UUID.randomUUID(), "user@test.com", "Test", "User", Role.USER, planType, true,
+                createdAt, messageCount, planType != null ? 1000 : null, planType != null ? 2 : null);
+    }
+
+    private DailyStatsSummary summary(DailyStatsTotals today, DailyStatsTotals last7Days,
+                                      DailyStatsTotals last30Days, DailyStatsTotals allTime) {
+        return new DailyStatsSummary(allTime, today, last7Days, last30Days);
+    }
+
+    private DailyStatsTotals totals(long newUsers, long userMessages, long newActiveUsers) {
+        return new DailyStatsTotals(newUsers, userMessages, newActiveUsers);
     }
 
     private Plan createPlan(PlanType type, int priceCents) {
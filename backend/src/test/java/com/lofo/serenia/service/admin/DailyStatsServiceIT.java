@@ -0,0 +1,154 @@
+package com.lofo.serenia.service.admin;
+
+import com.lofo.serenia.persistence.entity.conversation.Message;
+import com.lofo.serenia.persistence.entity.conversation.MessageRole;
+import com.lofo.serenia.persistence.entity.stats.DailyStats;
+import com.lofo.serenia.persistence.entity.user.Role;
+import com.lofo.serenia.persistence.entity.user.User;
+import com.lofo.serenia.persistence.repository.DailyStatsRepository;
+import com.lofo.serenia.persistence.repository.MessageRepository;
+import com.lofo.serenia.persistence.repository.SubscriptionRepository;
+import com.lofo.serenia.persistence.repository.UserRepository;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@QuarkusTest
+@DisplayName("DailyStatsService Integration Tests")
+class DailyStatsServiceIT {
+
+    private static final LocalDate TODAY = LocalDate.now(ZoneOffset.UTC);
+    private static final LocalDate YESTERDAY = TODAY.minusDays(1);
+
+    @Inject
+    DailyStatsService dailyStatsService;
+
+    @Inject
+    DailyStatsRepository dailyStatsRepository;
+
+    @Inject
+    UserRepository userRepository;
+
+    @Inject
+    MessageRepository messageRepository;
+
+    @Inject
+    SubscriptionRepository subscriptionRepository;
+
+    @BeforeEach
+    @Transactional
+    void setup() {
+        dailyStatsRepository.deleteAll();
+        messageRepository.deleteAll();
+        subscriptionRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("should roll up closed days and leave today live")
+    void should_roll_up_closed_days_only() {
+        QuarkusTransaction.requiringNew().run(() -> {
+            User returning = createUser("returning@test.com", midday(YESTERDAY));
+            User newcomer = createUser("newcomer@test.com", midday(YESTERDAY));
+            createMessage(returning.getId(), MessageRole.USER, midday(YESTERDAY));
+            createMessage(returning.getId(), MessageRole.USER, midday(YESTERDAY));
+            createMessage(returning.getId(), MessageRole.ASSISTANT, midday(YESTERDAY));
+            createMessage(returning.getId(), MessageRole.USER, Instant.now());
+            createMessage(newcomer.getId(), MessageRole.USER, Instant.now());
+        });
+
+        dailyStatsService.rollUp(TODAY, Instant.now());
+
+        DailyStats yesterday = QuarkusTransaction.requiringNew().call(() -> dailyStatsRepository.findById(YESTERDAY));
+        assertThat(yesterday.getUserMessages()).isEqualTo(2);
+        assertThat(yesterday.getActiveUsers()).isEqualTo(1);
+        assertThat(yesterday.getNewActiveUsers()).isEqualTo(1);
+        assertThat(yesterday.getRolledUpAt()).isNotNull();
+        assertThat(QuarkusTransaction.requiringNew().call(() -> dailyStatsRepository.findById(TODAY))).isNull();
+
+        DailyStatsSummary summary = dailyStatsService.summarize();
+
+        assertThat(summary.allTime().userMessages()).isEqualTo(4);
+        assertThat(summary.allTime().newActiveUsers()).isEqualTo(2);
+        assertThat(summary.today().userMessages()).isEqualTo(2);
+        assertThat(summary.today().newActiveUsers()).isEqualTo(1);
+        assertThat(summary.last7Days().newUsers()).isEqualTo(2);
+
+        List<DailyStats> days = dailyStatsService.findDays(YESTERDAY, TODAY);
+        assertThat(days).extracting(DailyStats::getStatDate).containsExactly(YESTERDAY, TODAY);
+        assertThat(days).extracting(DailyStats::getActiveUsers).containsExactly(1L, 2L);
+    }
+
+    @Test
+    @DisplayName("should roll up a day again once late writes have settled")
+    void should_roll_up_again_after_grace() {
+        User user = QuarkusTransaction.requiringNew().call(() -> createUser("late@test.com", midday(YESTERDAY)));
+        Instant justAfterMidnight = TODAY.atStartOfDay(ZoneOffset.UTC).toInstant().plusSeconds(60);
+        dailyStatsService.rollUp(TODAY, justAfterMidnight);
+
+        QuarkusTransaction.requiringNew().run(() -> createMessage(user.getId(), MessageRole.USER, midday(YESTERDAY)));
+        dailyStatsService.rollUp(TODAY, justAfterMidnight.plus(DailyStatsService.LATE_WRITE_GRACE).plus(Duration.ofMinutes(1)));
+
+        DailyStats yesterday = QuarkusTransaction.requiringNew().call(() -> dailyStatsRepository.findById(YESTERDAY));
+        assertThat(yesterday.getUserMessages()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should add flushed tokens to the day's row")
+    void should_accumulate_flushed_tokens() {
+        dailyStatsService.recordTokens(1200);
+        dailyStatsService.flushTokens();
+        dailyStatsService.recordTokens(300);
+        dailyStatsService.flushTokens();
+
+        DailyStats today = QuarkusTransaction.requiringNew().call(() -> dailyStatsRepository.findById(TODAY));
+        assertThat(today.getTokensUsed()).isEqualTo(1500);
+        assertThat(today.getRolledUpAt()).isNull();
+    }
+
+    private Instant midday(LocalDate day) {
+        return day.atStartOfDay(ZoneOffset.UTC).toInstant().plus(Duration.ofHours(12));
+    }
+
+    private User createUser(String email, Instant createdAt) {
+        User user = User.builder()
+                .email(email)
+                .password("hashedpassword")
+                .firstName("Test")
+                .lastName("User")
+                .accountActivated(true)
+                .role(Role.USER)
+                .build();
+        userRepository.persist(user);
+        userRepository.flush();
+        userRepository.getEntityManager()
+                .createNativeQuery("UPDATE users SET created_at = ?1 WHERE id = ?2")
+                .setParameter(1, createdAt)
+                .setParameter(2, user.getId())
+                .executeUpdate();
+        return user;
+    }
+
+    private void createMessage(UUID userId, MessageRole role, Instant timestamp) {
+        Message message = new Message();
+        message.setUserId(userId);
+        message.setConversationId(UUID.randomUUID());
+        message.setRole(role);
+        message.setEncryptedContent(new byte[]{1, 2, 3});
+        message.setTimestamp(timestamp);
+        messageRepository.persist(message);
+    }
+}
@@ -0,0 +1,118 @@
+package com.lofo.serenia.service.admin;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+@DisplayName("HyperLogLog tests")
+class HyperLogLogTest {
+
+    private static final int PRECISION = 12;
+
+    @Test
+    @DisplayName("should estimate a large cardinality within three standard errors")
+    void should_estimate_large_cardinality() {
+        HyperLogLog sketch = new HyperLogLog(PRECISION);
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            sketch.add(new UUID(random.nextLong(), random.nextLong()));
+        }
+
+        assertThat((double) sketch.estimate()).isCloseTo(100_000, within(100_000 * 3 * 1.04 / 64));
+    }
+
+    @Test
+    @DisplayName("should stay unbiased where linear counting hands over to the raw estimate")
+    void should_stay_unbiased_in_transition_range() {
+        int cardinality = 12_000;
+        int sketches = 30;
+        double totalRelativeError = 0;
+        for (int seed = 0; seed < sketches; seed++) {
+            HyperLogLog sketch = new HyperLogLog(PRECISION);
+            Random random = new Random(seed);
+            for (int i = 0; i < cardinality; i++) {
+                sketch.add(new UUID(random.nextLong(), random.nextLong()));
+            }
+            double relativeError = (sketch.estimate() - cardinality) / (double) cardinality;
+            assertThat(relativeError).isCloseTo(0, within(3 * 1.04 / 64));
+            totalRelativeError += relativeError;
+        }
+
+        assertThat(totalRelativeError / sketches).isCloseTo(0, within(0.005));
+    }
+
+    @Test
+    @DisplayName("should estimate zero for an empty sketch")
+    void should_estimate_zero_when_empty() {
+        assertThat(new HyperLogLog(PRECISION).estimate()).isZero();
+    }
+
+    @Test
+    @DisplayName("should count small sets almost exactly and ignore duplicates")
+    void should_count_small_sets_exactly() {
+        HyperLogLog sketch = new HyperLogLog(PRECISION);
+        Random random = new Random(7);
+        for (int i = 0; i < 100; i++) {
+            UUID id = new UUID(random.nextLong(), random.nextLong());
+            sketch.add(id);
+            sketch.add(id);
+        }
+
+        assertThat(sketch.estimate()).isBetween(98L, 102L);
+    }
+
+    @Test
+    @DisplayName("should estimate the union when merging overlapping sketches")
+    void should_merge_into_union() {
+        HyperLogLog monday = new HyperLogLog(PRECISION);
+        HyperLogLog tuesday = new HyperLogLog(PRECISION);
+        HyperLogLog both = new HyperLogLog(PRECISION);
+        Random random = new Random(1);
+        for (int i = 0; i < 20_000; i++) {
+            UUID id = new UUID(random.nextLong(), random.nextLong());
+            (i < 12_000 ? monday : tuesday).add(id);
+            if (i >= 8_000 && i < 12_000) {
+                tuesday.add(id);
+            }
+            both.add(id);
+        }
+
+        monday.merge(tuesday);
+
+        assertThat(monday.estimate()).isEqualTo(both.estimate());
+        assertThat(monday.toBytes()).isEqualTo(both.toBytes());
+    }
+
+    @Test
+    @DisplayName("should round-trip through its serialized form")
+    void should_round_trip_bytes() {
+        HyperLogLog sketch = new HyperLogLog(PRECISION);
+        for (int i = 0; i < 500; i++) {
+            sketch.add(UUID.randomUUID());
+        }
+
+        byte[] bytes = sketch.toBytes();
+        HyperLogLog restored = HyperLogLog.fromBytes(bytes);
+
+        assertThat(bytes).hasSize((1 << PRECISION) + 1);
+        assertThat(restored.precision()).isEqualTo(PRECISION);
+        assertThat(restored.estimate()).isEqualTo(sketch.estimate());
+    }
+
+    @Test
+    @DisplayName("should reject sketches of another precision or malformed bytes")
+    void should_reject_incompatible_sketches() {
+        HyperLogLog sketch = new HyperLogLog(PRECISION);
+
+        assertThatThrownBy(() -> sketch.merge(new HyperLogLog(10)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> HyperLogLog.fromBytes(new byte[]{12, 0, 0}))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -1,10 +1,10 @@
 package com.lofo.serenia.service.chat;
 
 import com.lofo.serenia.config.SystemPromptProvider;
-import com.lofo.serenia.persistence.entity.conversation.Conversation;
-import com.lofo.serenia.persistence.entity.conversation.Message;
+import com.lofo.serenia.exception.exceptions.QuotaExceededException;
+import com.lofo.serenia.persistence.entity.conversation.ChatMessage;
 import com.lofo.serenia.persistence.entity.conversation.MessageRole;
-import com.lofo.serenia.service.subscription.QuotaService;
+import jakarta.enterprise.event.Event;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -14,12 +14,17 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 
+import java.time.Instant;
 import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -30,12 +35,11 @@ class ChatOrchestratorTest {
 
     private static final UUID FIXED_USER_ID = UUID.fromString("00000000-0000-0000-0000-000000000001");
     private static final UUID FIXED_CONV_ID = UUID.fromString("00000000-0000-0000-0000-000000000002");
+    private static final UUID FIXED_RESERVATION_ID = UUID.fromString("00000000-0000-0000-0000-000000000004");
+    private static final Instant CONVERSATION_START = Instant.parse("2026-01-01T10:00:00Z");
 
     @Mock
-    private ConversationService conversationService;
-
-    @Mock
-    private MessageService messageService;
+    private ChatTurnService chatTurnService;
 
     @Mock
     private ChatCompletionService chatCompletionService;
@@ -44,33 +48,28 @@ class ChatOrchestratorTest {
     private SystemPromptProvider systemPromptProvider;
 
     @Mock
-    private QuotaService quotaService;
+    private Event<ChatTurnCompletedEvent> turnCompletedEvent;
 
     private ChatOrchestrator chatOrchestrator;
 
     @BeforeEach
     void setup() {
-        chatOrchestrator = new ChatOrchestrator(conversationService, messageService, chatCompletionService,
-                systemPromptProvider, quotaService);
+        chatOrchestrator = new ChatOrchestrator(chatTurnService, chatCompletionService, systemPromptProvider,
+                turnCompletedEvent);
+        when(systemPromptProvider.getSystemPrompt()).thenReturn("System prompt");
     }
 
     @Test
     @DisplayName("Should process user message and return assistant reply with conversation ID")
     void should_process_user_message_and_return_assistant_reply_with_conversation_id() {
-        Conversation conv = new Conversation();
-        conv.setId(FIXED_CONV_ID);
-
+        ChatTurnService.ChatTurn turn = turn(FIXED_CONV_ID);
         ChatCompletionService.ChatCompletionResult completionResult =
                 new ChatCompletionService.ChatCompletionResult("Assistant reply", 500, 100, 50);
 
-        when(conversationService.getOrCreateActiveConversation(FIXED_USER_ID, null)).thenReturn(conv);
-        when(systemPromptProvider.getSystemPrompt()).thenReturn("System prompt");
-        when(messageService.decryptConversationMessages(FIXED_USER_ID, FIXED_CONV_ID))
-                .thenReturn(Collections.emptyList());
-        when(messageService.persistAssistantMessage(eq(FIXED_USER_ID), eq(FIXED_CONV_ID), nullable(String.class)))
-                .thenReturn(messageWithRole(MessageRole.ASSISTANT));
-        when(chatCompletionService.generateReply(anyString(), anyList()))
-                .thenReturn(completionResult);
+        when(chatTurnService.beginTurn(FIXED_USER_ID, "Hello world", null)).thenReturn(turn);
+        when(chatCompletionService.generateReply(anyString(), anyList())).thenReturn(completionResult);
+        when(chatTurnService.completeTurn(FIXED_USER_ID, turn, completionResult))
+                .thenReturn(new ChatMessage(MessageRole.ASSISTANT, "Assistant reply"));
 
         ProcessedMessageResult result = chatOrchestrator.processUserMessage(FIXED_USER_ID, "Hello world", null);
 
@@ -80,40 +79,131 @@ class ChatOrchestratorTest {
         assertEquals(MessageRole.ASSISTANT, result.assistantMessage().role());
         assertEquals("Assistant reply", result.assistantMessage().content());
 
-        verify(messageService).persistUserMessage(FIXED_USER_ID, FIXED_CONV_ID, "Hello world");
-        verify(messageService).persistAssistantMessage(FIXED_USER_ID, FIXED_CONV_ID, "Assistant reply");
-        verify(chatCompletionService).generateReply(eq("System prompt"), anyList());
-        verify(quotaService).recordUsage(FIXED_USER_ID, 500, 100, 50);
+        verify(chatCompletionService).generateReply(eq("System prompt"), eq(turn.history()));
+        verify(chatTurnService).completeTurn(FIXED_USER_ID, turn, completionResult);
+        verify(chatTurnService, never()).abortTurn(any(), any());
+        verify(turnCompletedEvent).fireAsync(new ChatTurnCompletedEvent(FIXED_USER_ID, FIXED_CONV_ID, CONVERSATION_START));
     }
 
     @Test
     @DisplayName("Should process message targeting a specific conversation")
     void should_process_message_with_specific_conversation_id() {
         UUID targetConvId = UUID.randomUUID();
-        Conversation conv = new Conversation();
-        conv.setId(targetConvId);
-
+        ChatTurnService.ChatTurn turn = turn(targetConvId);
         ChatCompletionService.ChatCompletionResult completionResult =
                 new ChatCompletionService.ChatCompletionResult("Reply", 200, 50, 25);
 
-        when(conversationService.getOrCreateActiveConversation(FIXED_USER_ID, targetConvId)).thenReturn(conv);
-        when(systemPromptProvider.getSystemPrompt()).thenReturn("System prompt");
-        when(messageService.decryptConversationMessages(FIXED_USER_ID, targetConvId))
-                .thenReturn(Collections.emptyList());
-        when(messageService.persistAssistantMessage(eq(FIXED_USER_ID), eq(targetConvId), nullable(String.class)))
-                .thenReturn(messageWithRole(MessageRole.ASSISTANT));
-        when(chatCompletionService.generateReply(anyString(), anyList()))
-                .thenReturn(completionResult);
+        when(chatTurnService.beginTurn(FIXED_USER_ID, "Hi", targetConvId)).thenReturn(turn);
+        when(chatCompletionService.generateReply(anyString(), anyList())).thenReturn(completionResult);
+        when(chatTurnService.completeTurn(FIXED_USER_ID, turn, completionResult))
+                .thenReturn(new ChatMessage(MessageRole.ASSISTANT, "Reply"));
 
         ProcessedMessageResult result = chatOrchestrator.processUserMessage(FIXED_USER_ID, "Hi", targetConvId);
 
         assertEquals(targetConvId, result.conversationId());
-        verify(conversationService).getOrCreateActiveConversation(FIXED_USER_ID, targetConvId);
+        verify(chatTurnService).beginTurn(FIXED_USER_ID, "Hi", targetConvId);
+    }
+
+    @Test
+    @DisplayName("Should abort the turn and rethrow when OpenAI fails")
+    void should_abort_turn_when_openai_fails() {
+        ChatTurnService.ChatTurn turn = turn(FIXED_CONV_ID);
+
+        when(chatTurnService.beginTurn(FIXED_USER_ID, "Hello world", null)).thenReturn(turn);
+        when(chatCompletionService.generateReply(anyString(), anyList()))
+                .thenThrow(new IllegalStateException("OpenAI unavailable"));
+
+        assertThrows(IllegalStateException.class,
+                () -> chatOrchestrator.processUserMessage(FIXED_USER_ID, "Hello world", null));
+
+        verify(chatTurnService).abortTurn(FIXED_USER_ID, turn);
+        verify(chatTurnService, never()).completeTurn(any(), any(), any());
+        verify(turnCompletedEvent, never()).fireAsync(any());
+    }
+
+    @Test
+    @DisplayName("Should abort the turn when persisting the reply fails")
+    void should_abort_turn_when_completion_fails() {
+        ChatTurnService.ChatTurn turn = turn(FIXED_CONV_ID);
+        ChatCompletionService.ChatCompletionResult completionResult =
+                new ChatCompletionService.ChatCompletionResult("Reply", 200, 50, 25);
+
+        when(chatTurnService.beginTurn(FIXED_USER_ID, "Hello world", null)).thenReturn(turn);
+        when(chatCompletionService.generateReply(anyString(), anyList())).thenReturn(completionResult);
+        when(chatTurnService.completeTurn(FIXED_USER_ID, turn, completionResult))
+                .thenThrow(new IllegalStateException("Database unavailable"));
+
+        assertThrows(IllegalStateException.class,
+                () -> chatOrchestrator.processUserMessage(FIXED_USER_ID, "Hello world", null));
+
+        verify(chatTurnService).abortTurn(FIXED_USER_ID, turn);
+    }
+
+    @Test
+    @DisplayName("Should not call OpenAI when the turn cannot be opened")
+    void should_not_call_openai_when_quota_exceeded() {
+        when(chatTurnService.beginTurn(FIXED_USER_ID, "Hello world", null))
+                .thenThrow(QuotaExceededException.dailyMessageLimit(10, 10));
+
+        assertThrows(QuotaExceededException.class,
+                () -> chatOrchestrator.processUserMessage(FIXED_USER_ID, "Hello world", null));
+
+        verify(chatCompletionService, never()).generateReply(any(), any());
+        verify(chatTurnService, never()).abortTurn(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should stream deltas then a completed event once the reply is persisted")
+    void should_stream_deltas_then_completed_event() {
+        ChatTurnService.ChatTurn turn = turn(FIXED_CONV_ID);
+        ChatCompletionService.ChatCompletionResult completionResult =
+                new ChatCompletionService.ChatCompletionResult("Assistant reply", 500, 100, 50);
+
+        when(chatTurnService.beginTurn(FIXED_USER_ID, "Hello world", null)).thenReturn(turn);
+        when(chatCompletionService.streamReply(anyString(), anyList(), any())).thenAnswer(invocation -> {
+            Consumer<String> consumer = invocation.getArgument(2);
+            consumer.accept("Assistant ");
+            consumer.accept("reply");
+            return completionResult;
+        });
+        when(chatTurnService.completeTurn(FIXED_USER_ID, turn, completionResult))
+                .thenReturn(new ChatMessage(MessageRole.ASSISTANT, "Assistant reply"));
+
+        List<ChatStreamEvent> events = chatOrchestrator.streamUserMessage(FIXED_USER_ID, "Hello world", null)
+                .collect().asList()
+                .await().indefinitely();
+
+        assertEquals(3, events.size());
+        assertEquals(ChatStreamEvent.Type.DELTA, events.get(0).type());
+        assertEquals("Assistant ", events.get(0).message().content());
+        assertEquals("reply", events.get(1).message().content());
+        assertEquals(ChatStreamEvent.Type.COMPLETED, events.get(2).type());
+        assertEquals(FIXED_CONV_ID, events.get(2).conversationId());
+        assertEquals("Assistant reply", events.get(2).message().content());
+
+        verify(chatTurnService).completeTurn(FIXED_USER_ID, turn, completionResult);
+    }
+
+    @Test
+    @DisplayName("Should fail the stream and abort the turn when OpenAI fails")
+    void should_fail_stream_and_abort_turn_when_openai_fails() {
+        ChatTurnService.ChatTurn turn = turn(FIXED_CONV_ID);
+
+        when(chatTurnService.beginTurn(FIXED_USER_ID, "Hello world", null)).thenReturn(turn);
+        when(chatCompletionService.streamReply(anyString(), anyList(), any()))
+                .thenThrow(new IllegalStateException("OpenAI unavailable"));
+
+        var stream = chatOrchestrator.streamUserMessage(FIXED_USER_ID, "Hello world", null)
+                .collect().asList();
+
+        assertThrows(IllegalStateException.class, () -> stream.await().indefinitely());
+        verify(chatTurnService, never()).completeTurn(any(), any(), any());
+        verify(chatTurnService).abortTurn(FIXED_USER_ID, turn);
     }
 
-    private Message messageWithRole(MessageRole role) {
-        Message message = new Message();
-        message.setRole(role);
-        return message;
+    private ChatTurnService.ChatTurn turn(UUID conversationId) {
+        return new ChatTurnService.ChatTurn(conversationId, CONVERSATION_START,
+                new ChatMessage(MessageRole.USER, "Hello world"),
+                Collections.emptyList(), FIXED_RESERVATION_ID);
     }
 }
@@ -0,0 +1,153 @@
+package com.lofo.serenia.service.chat;
+
+import com.lofo.serenia.config.OpenAIConfig;
+import com.lofo.serenia.config.SystemPromptProvider;
+import com.lofo.serenia.exception.exceptions.QuotaExceededException;
+import com.lofo.serenia.persistence.entity.conversation.ChatMessage;
+import com.lofo.serenia.persistence.entity.conversation.Conversation;
+import com.lofo.serenia.persistence.entity.conversation.Message;
+import com.lofo.serenia.persistence.entity.conversation.MessageRole;
+import com.lofo.serenia.persistence.entity.subscription.Plan;
+import com.lofo.serenia.persistence.entity.subscription.PlanType;
+import com.lofo.serenia.service.subscription.QuotaService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ChatTurnService tests")
+class ChatTurnServiceTest {
+
+    private static final UUID FIXED_USER_ID = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID FIXED_CONV_ID = UUID.fromString("00000000-0000-0000-0000-000000000002");
+    private static final Instant CONVERSATION_START = Instant.parse("2026-03-01T09:00:00Z");
+    private static final Instant USER_MESSAGE_TIME = Instant.parse("2026-03-15T12:00:00Z");
+    private static final UUID FIXED_RESERVATION_ID = UUID.fromString("00000000-0000-0000-0000-000000000004");
+
+    @Mock
+    private ConversationService conversationService;
+
+    @Mock
+    private MessageService messageService;
+
+    @Mock
+    private QuotaService quotaService;
+
+    @Mock
+    private ContextWindowBuilder contextWindowBuilder;
+
+    @Mock
+    private TokenCounter tokenCounter;
+
+    @Mock
+    private SystemPromptProvider systemPromptProvider;
+
+    @Mock
+    private OpenAIConfig openAIConfig;
+
+    private ChatTurnService chatTurnService;
+
+    @BeforeEach
+    void setUp() {
+        chatTurnService = new ChatTurnService(conversationService, messageService, quotaService, contextWindowBuilder,
+                tokenCounter, systemPromptProvider, openAIConfig);
+    }
+
+    @Test
+    @DisplayName("Should check quota and load history ending with the pending user message within the plan budget")
+    void should_open_turn() {
+        Conversation conv = new Conversation();
+        conv.setId(FIXED_CONV_ID);
+        conv.setCreatedAt(CONVERSATION_START);
+        List<ChatMessage> history = List.of(new ChatMessage(MessageRole.USER, "Hello world"));
+
+        when(conversationService.getOrCreateActiveConversation(FIXED_USER_ID, null)).thenReturn(conv);
+        when(quotaService.checkQuotaBeforeCall(FIXED_USER_ID))
+                .thenReturn(Plan.builder().name(PlanType.FREE).contextTokenBudget(2000).build());
+        when(contextWindowBuilder.buildContext(eq(FIXED_USER_ID), eq(FIXED_CONV_ID), eq(CONVERSATION_START),
+                any(ChatMessage.class), eq(2000)))
+                .thenReturn(history);
+        when(systemPromptProvider.getSystemPrompt()).thenReturn("System prompt");
+        when(tokenCounter.estimatePromptTokens("System prompt", history)).thenReturn(120);
+        when(openAIConfig.maxCompletionTokens()).thenReturn(512);
+        when(quotaService.reserveTokens(FIXED_USER_ID, 120, 512)).thenReturn(FIXED_RESERVATION_ID);
+
+        ChatTurnService.ChatTurn turn = chatTurnService.beginTurn(FIXED_USER_ID, "Hello world", null);
+
+        assertEquals(FIXED_CONV_ID, turn.conversationId());
+        assertEquals(CONVERSATION_START, turn.conversationStart());
+        assertEquals(MessageRole.USER, turn.userMessage().role());
+        assertEquals("Hello world", turn.userMessage().content());
+        assertNotNull(turn.userMessage().timestamp());
+        assertEquals(history, turn.history());
+        assertEquals(FIXED_RESERVATION_ID, turn.reservationId());
+        verifyNoInteractions(messageService);
+    }
+
+    @Test
+    @DisplayName("Should not load history nor reserve tokens when the quota is exceeded")
+    void should_not_open_turn_when_quota_exceeded() {
+        Conversation conv = new Conversation();
+        conv.setId(FIXED_CONV_ID);
+
+        when(conversationService.getOrCreateActiveConversation(FIXED_USER_ID, null)).thenReturn(conv);
+        doThrow(QuotaExceededException.dailyMessageLimit(10, 10)).when(quotaService).checkQuotaBeforeCall(FIXED_USER_ID);
+
+        assertThrows(QuotaExceededException.class,
+                () -> chatTurnService.beginTurn(FIXED_USER_ID, "Hello world", null));
+
+        verifyNoInteractions(contextWindowBuilder);
+        verify(quotaService, never()).reserveTokens(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should persist both messages and settle the reservation when completing a turn")
+    void should_complete_turn() {
+        Message assistantMessage = new Message();
+        assistantMessage.setRole(MessageRole.ASSISTANT);
+        ChatCompletionService.ChatCompletionResult completionResult =
+                new ChatCompletionService.ChatCompletionResult("Assistant reply", 500, 100, 50);
+
+        when(messageService.persistTurn(FIXED_USER_ID, FIXED_CONV_ID, "Hello world", USER_MESSAGE_TIME, "Assistant reply"))
+                .thenReturn(assistantMessage);
+
+        ChatMessage reply = chatTurnService.completeTurn(FIXED_USER_ID, turn(), completionResult);
+
+        assertEquals(MessageRole.ASSISTANT, reply.role());
+        assertEquals("Assistant reply", reply.content());
+        verify(quotaService).settleReservation(FIXED_USER_ID, FIXED_RESERVATION_ID, 500, 100, 50);
+    }
+
+    @Test
+    @DisplayName("Should only release the reservation when aborting a turn")
+    void should_release_reservation_when_aborting_turn() {
+        chatTurnService.abortTurn(FIXED_USER_ID, turn());
+
+        verifyNoInteractions(messageService);
+        verify(quotaService).releaseReservation(FIXED_USER_ID, FIXED_RESERVATION_ID);
+    }
+
+    private ChatTurnService.ChatTurn turn() {
+        return new ChatTurnService.ChatTurn(FIXED_CONV_ID, CONVERSATION_START,
+                new ChatMessage(MessageRole.USER, "Hello world", USER_MESSAGE_TIME), List.of(), FIXED_RESERVATION_ID);
+    }
+}
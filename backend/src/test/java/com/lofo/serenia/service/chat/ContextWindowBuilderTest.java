@@ -0,0 +1,169 @@
+package com.lofo.serenia.service.chat;
+
+import com.lofo.serenia.mapper.MessageMapper;
+import com.lofo.serenia.persistence.entity.conversation.ChatMessage;
+import com.lofo.serenia.persistence.entity.conversation.Message;
+import com.lofo.serenia.persistence.entity.conversation.MessageRole;
+import com.lofo.serenia.persistence.repository.MessageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ContextWindowBuilder tests")
+class ContextWindowBuilderTest {
+
+    private static final UUID FIXED_USER_ID = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID FIXED_CONV_ID = UUID.fromString("00000000-0000-0000-0000-000000000002");
+    private static final Instant START = Instant.parse("2026-01-01T10:00:00Z");
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    @Mock
+    private EncryptionService encryptionService;
+
+    @Mock
+    private MessageMapper messageMapper;
+
+    @Mock
+    private TokenCounter tokenCounter;
+
+    @Mock
+    private ConversationSummaryService conversationSummaryService;
+
+    private ContextWindowBuilder contextWindowBuilder;
+
+    @BeforeEach
+    void setUp() {
+        contextWindowBuilder = new ContextWindowBuilder(messageRepository, encryptionService, messageMapper, tokenCounter,
+                conversationSummaryService);
+        lenient().when(encryptionService.decryptForUser(eq(FIXED_USER_ID), any()))
+                .thenAnswer(invocation -> new String((byte[]) invocation.getArgument(1)));
+        lenient().when(messageMapper.toChatMessage(any(), any()))
+                .thenAnswer(invocation -> {
+                    Message message = invocation.getArgument(0);
+                    return new ChatMessage(message.getRole(), invocation.getArgument(1), message.getTimestamp());
+                });
+        // One token per character keeps the arithmetic readable.
+        lenient().when(tokenCounter.countMessageTokens(any()))
+                .thenAnswer(invocation -> ((ChatMessage) invocation.getArgument(0)).content().length());
+    }
+
+    @Test
+    @DisplayName("should_return_whole_history_in_chronological_order_when_it_fits")
+    void should_return_whole_history_in_chronological_order_when_it_fits() {
+        when(messageRepository.findLatestPage(FIXED_CONV_ID, START, null, null, null, ContextWindowBuilder.FETCH_PAGE_SIZE))
+                .thenReturn(List.of(message(2, "ccc"), message(1, "bb"), message(0, "a")));
+
+        List<ChatMessage> context = contextWindowBuilder.buildContext(FIXED_USER_ID, FIXED_CONV_ID, START, 100);
+
+        assertEquals(List.of("a", "bb", "ccc"), context.stream().map(ChatMessage::content).toList());
+    }
+
+    @Test
+    @DisplayName("should_stop_at_the_first_message_exceeding_the_budget")
+    void should_stop_at_the_first_message_exceeding_the_budget() {
+        when(messageRepository.findLatestPage(FIXED_CONV_ID, START, null, null, null, ContextWindowBuilder.FETCH_PAGE_SIZE))
+                .thenReturn(List.of(message(3, "dddd"), message(2, "ccc"), message(1, "bbbbbbbb"), message(0, "a")));
+
+        List<ChatMessage> context = contextWindowBuilder.buildContext(FIXED_USER_ID, FIXED_CONV_ID, START, 10);
+
+        assertEquals(List.of("ccc", "dddd"), context.stream().map(ChatMessage::content).toList());
+        verify(encryptionService, times(3)).decryptForUser(eq(FIXED_USER_ID), any());
+    }
+
+    @Test
+    @DisplayName("should_always_keep_the_latest_message")
+    void should_always_keep_the_latest_message() {
+        when(messageRepository.findLatestPage(FIXED_CONV_ID, START, null, null, null, ContextWindowBuilder.FETCH_PAGE_SIZE))
+                .thenReturn(List.of(message(1, "a long latest message"), message(0, "a")));
+
+        List<ChatMessage> context = contextWindowBuilder.buildContext(FIXED_USER_ID, FIXED_CONV_ID, START, 5);
+
+        assertEquals(List.of("a long latest message"), context.stream().map(ChatMessage::content).toList());
+    }
+
+    @Test
+    @DisplayName("should_end_with_the_pending_message_and_count_it_first")
+    void should_end_with_the_pending_message_and_count_it_first() {
+        when(messageRepository.findLatestPage(FIXED_CONV_ID, START, null, null, null, ContextWindowBuilder.FETCH_PAGE_SIZE))
+                .thenReturn(List.of(message(1, "ccc"), message(0, "bbbb")));
+        ChatMessage pending = new ChatMessage(MessageRole.USER, "pending", START.plusSeconds(2));
+
+        List<ChatMessage> context = contextWindowBuilder.buildContext(FIXED_USER_ID, FIXED_CONV_ID, START, pending, 10);
+
+        assertEquals(List.of("ccc", "pending"), context.stream().map(ChatMessage::content).toList());
+    }
+
+    @Test
+    @DisplayName("should_fetch_older_pages_only_while_budget_remains")
+    void should_fetch_older_pages_only_while_budget_remains() {
+        int pageSize = ContextWindowBuilder.FETCH_PAGE_SIZE;
+        when(messageRepository.findLatestPage(FIXED_CONV_ID, START, null, null, null, pageSize))
+                .thenReturn(page(2 * pageSize, pageSize));
+        when(messageRepository.findLatestPage(FIXED_CONV_ID, START, null, START.plusSeconds(pageSize + 1),
+                idOf(pageSize + 1), pageSize)).thenReturn(page(pageSize, pageSize));
+
+        List<ChatMessage> context = contextWindowBuilder.buildContext(FIXED_USER_ID, FIXED_CONV_ID, START, pageSize + 4);
+
+        assertEquals(pageSize + 4, context.size());
+        verify(messageRepository, times(2)).findLatestPage(eq(FIXED_CONV_ID), eq(START), any(), any(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("should_put_the_summary_first_and_only_add_newer_messages")
+    void should_put_the_summary_first_and_only_add_newer_messages() {
+        Instant summarizedUntil = START.plusSeconds(1);
+        when(conversationSummaryService.loadSummary(FIXED_USER_ID, FIXED_CONV_ID))
+                .thenReturn(Optional.of(new ConversationSummaryService.SummaryView("sum", summarizedUntil)));
+        when(messageRepository.findLatestPage(FIXED_CONV_ID, START, summarizedUntil, null, null, ContextWindowBuilder.FETCH_PAGE_SIZE))
+                .thenReturn(List.of(message(3, "dddd"), message(2, "ccc")));
+
+        int summaryTokens = ContextWindowBuilder.SUMMARY_PREFIX.length() + "sum".length();
+        List<ChatMessage> context = contextWindowBuilder.buildContext(FIXED_USER_ID, FIXED_CONV_ID, START, summaryTokens + 5);
+
+        assertEquals(MessageRole.SYSTEM, context.getFirst().role());
+        assertEquals(ContextWindowBuilder.SUMMARY_PREFIX + "sum", context.getFirst().content());
+        assertEquals(List.of("dddd"), context.stream().skip(1).map(ChatMessage::content).toList());
+    }
+
+    private static List<Message> page(int newestIndex, int size) {
+        List<Message> page = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            page.add(message(newestIndex - i, "x"));
+        }
+        return page;
+    }
+
+    private static UUID idOf(int index) {
+        return new UUID(0, index);
+    }
+
+    private static Message message(int index, String content) {
+        Message message = new Message();
+        message.setId(idOf(index));
+        message.setRole(index % 2 == 0 ? MessageRole.USER : MessageRole.ASSISTANT);
+        message.setEncryptedContent(content.getBytes());
+        message.setTimestamp(START.plusSeconds(index));
+        return message;
+    }
+}
@@ -2,12 +2,15 @@ package com.lofo.serenia.service.chat;
 
 import com.lofo.serenia.persistence.entity.conversation.ChatMessage;
 import com.lofo.serenia.persistence.entity.conversation.Conversation;
+import com.lofo.serenia.persistence.entity.conversation.ConversationListItem;
 import com.lofo.serenia.persistence.entity.conversation.MessageRole;
 import com.lofo.serenia.persistence.entity.user.User;
 import com.lofo.serenia.persistence.repository.ConversationRepository;
-import com.lofo.serenia.persistence.repository.MessageRepository;
+import com.lofo.serenia.rest.dto.out.ConversationPageDTO;
 import com.lofo.serenia.rest.dto.out.ConversationSummaryDTO;
+import com.lofo.serenia.service.purge.PurgeService;
 import com.lofo.serenia.service.user.shared.UserFinder;
+import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.NotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -42,21 +45,21 @@ class ConversationServiceTest {
     @Mock
     private ConversationRepository conversationRepository;
 
-    @Mock
-    private MessageRepository messageRepository;
-
     @Mock
     private MessageService messageService;
 
     @Mock
     private UserFinder userFinder;
 
+    @Mock
+    private PurgeService purgeService;
+
     private ConversationService conversationService;
 
     @BeforeEach
     void setup() {
         conversationService = new ConversationService(
-            conversationRepository, messageRepository, messageService, userFinder);
+            conversationRepository, messageService, userFinder, purgeService);
         lenient().when(conversationRepository.findByIdAndUser(any(UUID.class), eq(FIXED_USER_ID)))
             .thenAnswer(invocation -> Optional.of(
                 conversationWithId(invocation.getArgument(0), FIXED_USER_ID)));
@@ -69,13 +72,37 @@ class ConversationServiceTest {
     void should_decrypt_messages_when_requested() {
         when(conversationRepository.findByIdAndUser(FIXED_CONV_ID, FIXED_USER_ID))
             .thenReturn(Optional.of(conversationWithId(FIXED_CONV_ID, FIXED_USER_ID)));
-        when(messageService.decryptConversationMessages(FIXED_USER_ID, FIXED_CONV_ID))
-            .thenReturn(Collections.singletonList(new ChatMessage(MessageRole.USER, "Hi")));
+        when(messageService.decryptConversationPage(eq(FIXED_USER_ID), ownedConversation(), isNull(), eq(16)))
+            .thenReturn(new MessagePage(Collections.singletonList(new ChatMessage(MessageRole.USER, "Hi")), null));
 
-        List<ChatMessage> decrypted = conversationService.getConversationMessages(FIXED_CONV_ID, FIXED_USER_ID);
+        MessagePage page = conversationService.getConversationMessages(FIXED_CONV_ID, FIXED_USER_ID, null, null);
 
-        assertEquals(1, decrypted.size());
-        assertEquals("Hi", decrypted.get(0).content());
+        assertEquals(1, page.messages().size());
+        assertEquals("Hi", page.messages().get(0).content());
+    }
+
+    @Test
+    @DisplayName("Should pass the decoded cursor and requested limit")
+    void should_pass_cursor_and_limit() {
+        KeysetCursor cursor = new KeysetCursor(Instant.parse("2026-01-01T10:00:00Z"), FIXED_CONV_ID);
+        when(messageService.decryptConversationPage(eq(FIXED_USER_ID), ownedConversation(), eq(cursor), eq(50)))
+            .thenReturn(new MessagePage(List.of(), null));
+
+        conversationService.getConversationMessages(FIXED_CONV_ID, FIXED_USER_ID, cursor.encode(), 50);
+
+        verify(messageService).decryptConversationPage(eq(FIXED_USER_ID), ownedConversation(), eq(cursor), eq(50));
+    }
+
+    @Test
+    @DisplayName("Should reject an out of range limit or a malformed cursor")
+    void should_reject_invalid_paging_parameters() {
+        assertThrows(BadRequestException.class,
+            () -> conversationService.getConversationMessages(FIXED_CONV_ID, FIXED_USER_ID, null, 0));
+        assertThrows(BadRequestException.class,
+            () -> conversationService.getConversationMessages(FIXED_CONV_ID, FIXED_USER_ID, null, 101));
+        assertThrows(BadRequestException.class,
+            () -> conversationService.getConversationMessages(FIXED_CONV_ID, FIXED_USER_ID, "not-a-cursor", null));
+        verifyNoInteractions(messageService);
     }
 
     @Test
@@ -85,7 +112,7 @@ class ConversationServiceTest {
         when(conversationRepository.findByIdAndUser(FIXED_CONV_ID, otherUser)).thenReturn(Optional.empty());
 
         assertThrows(NotFoundException.class,
-            () -> conversationService.getConversationMessages(FIXED_CONV_ID, otherUser));
+            () -> conversationService.getConversationMessages(FIXED_CONV_ID, otherUser, null, null));
     }
 
     @Test
@@ -150,12 +177,8 @@ class ConversationServiceTest {
     @Test
     @DisplayName("Should list user conversations")
     void should_list_user_conversations() {
-        Conversation c1 = conversationWithId(FIXED_CONV_ID, FIXED_USER_ID);
-        c1.setName("Conv 1");
-        c1.setLastActivityAt(Instant.now());
-        Conversation c2 = conversationWithId(UUID.randomUUID(), FIXED_USER_ID);
-        c2.setName("Conv 2");
-        c2.setLastActivityAt(Instant.now());
+        ConversationListItem c1 = new ConversationListItem(FIXED_CONV_ID, "Conv 1", Instant.now());
+        ConversationListItem c2 = new ConversationListItem(UUID.randomUUID(), "Conv 2", Instant.now());
 
         when(conversationRepository.findAllByUserOrderedByLastActivity(FIXED_USER_ID))
             .thenReturn(List.of(c1, c2));
@@ -166,6 +189,35 @@ class ConversationServiceTest {
         assertThat(result.get(0).name()).isEqualTo("Conv 1");
     }
 
+    @Test
+    @DisplayName("Should return a conversation page with a cursor on its last row when more exist")
+    void should_list_conversation_page_with_cursor() {
+        Instant now = Instant.parse("2026-01-01T10:00:00Z");
+        ConversationListItem c1 = new ConversationListItem(FIXED_CONV_ID, "Conv 1", now);
+        ConversationListItem c2 = new ConversationListItem(UUID.randomUUID(), "Conv 2", now.minusSeconds(60));
+        ConversationListItem c3 = new ConversationListItem(UUID.randomUUID(), "Conv 3", now.minusSeconds(120));
+        when(conversationRepository.findPageByUserAfter(FIXED_USER_ID, null, null, 3)).thenReturn(List.of(c1, c2, c3));
+
+        ConversationPageDTO page = conversationService.listUserConversationsPage(FIXED_USER_ID, null, 2);
+
+        assertThat(page.conversations()).extracting(ConversationSummaryDTO::name).containsExactly("Conv 1", "Conv 2");
+        assertThat(KeysetCursor.decode(page.nextCursor())).isEqualTo(new KeysetCursor(c2.lastActivityAt(), c2.id()));
+    }
+
+    @Test
+    @DisplayName("Should resume after the cursor and end without one")
+    void should_resume_conversation_page_after_cursor() {
+        KeysetCursor cursor = new KeysetCursor(Instant.parse("2026-01-01T10:00:00Z"), FIXED_CONV_ID);
+        ConversationListItem last = new ConversationListItem(UUID.randomUUID(), "Old", Instant.parse("2025-12-01T10:00:00Z"));
+        when(conversationRepository.findPageByUserAfter(FIXED_USER_ID, cursor.timestamp(), cursor.id(), 21))
+            .thenReturn(List.of(last));
+
+        ConversationPageDTO page = conversationService.listUserConversationsPage(FIXED_USER_ID, cursor.encode(), null);
+
+        assertThat(page.conversations()).hasSize(1);
+        assertThat(page.nextCursor()).isNull();
+    }
+
     @Test
     @DisplayName("Should create new conversation with custom name")
     void should_create_new_conversation_with_custom_name() {
@@ -198,7 +250,7 @@ class ConversationServiceTest {
     }
 
     @Test
-    @DisplayName("Should delete single conversation with its messages")
+    @DisplayName("Should schedule the purge of a single conversation")
     void should_delete_single_conversation() {
         Conversation conversation = conversationWithId(FIXED_CONV_ID, FIXED_USER_ID);
         when(conversationRepository.findByIdAndUser(FIXED_CONV_ID, FIXED_USER_ID))
@@ -206,8 +258,7 @@ class ConversationServiceTest {
 
         conversationService.deleteSingleConversation(FIXED_CONV_ID, FIXED_USER_ID);
 
-        verify(messageRepository).delete("conversationId", FIXED_CONV_ID);
-        verify(conversationRepository).delete(conversation);
+        verify(purgeService).requestConversationPurge(conversation);
     }
 
     @Test
@@ -219,6 +270,15 @@ class ConversationServiceTest {
 
         assertThrows(NotFoundException.class,
             () -> conversationService.deleteSingleConversation(FIXED_CONV_ID, otherUser));
+        verifyNoInteractions(purgeService);
+    }
+
+    @Test
+    @DisplayName("Should schedule the purge of all the user's conversations")
+    void should_schedule_purge_of_user_conversations() {
+        conversationService.deleteUserConversations(FIXED_USER_ID);
+
+        verify(purgeService).requestConversationsPurge(FIXED_USER_ID);
     }
 
     @Test
@@ -240,4 +300,8 @@ class ConversationServiceTest {
         conversation.setUserId(userId);
         return conversation;
     }
+
+    private static Conversation ownedConversation() {
+        return argThat(conversation -> FIXED_CONV_ID.equals(conversation.getId()));
+    }
 }
@@ -0,0 +1,124 @@
+package com.lofo.serenia.service.chat;
+
+import com.lofo.serenia.exception.exceptions.QuotaExceededException;
+import com.lofo.serenia.persistence.entity.conversation.ChatMessage;
+import com.lofo.serenia.persistence.entity.conversation.MessageRole;
+import com.lofo.serenia.service.subscription.QuotaService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ConversationSummarizer tests")
+class ConversationSummarizerTest {
+
+    private static final UUID FIXED_USER_ID = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID FIXED_CONV_ID = UUID.fromString("00000000-0000-0000-0000-000000000002");
+    private static final UUID FIXED_RESERVATION_ID = UUID.fromString("00000000-0000-0000-0000-000000000003");
+    private static final Instant CONVERSATION_START = Instant.parse("2026-01-01T10:00:00Z");
+
+    @Mock
+    private ConversationSummaryService conversationSummaryService;
+
+    @Mock
+    private ChatCompletionService chatCompletionService;
+
+    @Mock
+    private QuotaService quotaService;
+
+    @Mock
+    private TokenCounter tokenCounter;
+
+    private ConversationSummarizer conversationSummarizer;
+
+    @BeforeEach
+    void setUp() {
+        conversationSummarizer = new ConversationSummarizer(conversationSummaryService, chatCompletionService,
+                quotaService, tokenCounter);
+    }
+
+    @Test
+    @DisplayName("should_fold_new_messages_into_the_previous_summary")
+    void should_fold_new_messages_into_the_previous_summary() {
+        List<ChatMessage> messages = List.of(new ChatMessage(MessageRole.USER, "J'ai eu une dure journée"));
+        ConversationSummaryService.PendingFold fold =
+                new ConversationSummaryService.PendingFold("old", messages, Instant.EPOCH, 2L);
+        when(conversationSummaryService.findPendingFold(FIXED_USER_ID, FIXED_CONV_ID, CONVERSATION_START)).thenReturn(Optional.of(fold));
+        when(tokenCounter.estimatePromptTokens(eq(ChatCompletionService.SUMMARY_INSTRUCTIONS), any())).thenReturn(150);
+        when(quotaService.reserveTokens(FIXED_USER_ID, 150, ChatCompletionService.SUMMARY_MAX_COMPLETION_TOKENS))
+                .thenReturn(FIXED_RESERVATION_ID);
+        when(chatCompletionService.summarize("old", messages))
+                .thenReturn(new ChatCompletionService.ChatCompletionResult("new", 120, 0, 40));
+
+        conversationSummarizer.summarizeIfNeeded(FIXED_USER_ID, FIXED_CONV_ID, CONVERSATION_START);
+
+        verify(quotaService).settleReservation(FIXED_USER_ID, FIXED_RESERVATION_ID, 120, 0, 40);
+        verify(conversationSummaryService).applyFold(FIXED_USER_ID, FIXED_CONV_ID, fold, "new");
+    }
+
+    @Test
+    @DisplayName("should_postpone_the_fold_when_the_quota_is_exhausted")
+    void should_postpone_the_fold_when_the_quota_is_exhausted() {
+        ConversationSummaryService.PendingFold fold = new ConversationSummaryService.PendingFold(
+                null, List.of(new ChatMessage(MessageRole.USER, "Salut")), Instant.EPOCH, null);
+        when(conversationSummaryService.findPendingFold(FIXED_USER_ID, FIXED_CONV_ID, CONVERSATION_START)).thenReturn(Optional.of(fold));
+        when(quotaService.reserveTokens(eq(FIXED_USER_ID), anyInt(), anyInt()))
+                .thenThrow(QuotaExceededException.monthlyTokenLimit(10000, 10000, 700));
+
+        conversationSummarizer.summarizeIfNeeded(FIXED_USER_ID, FIXED_CONV_ID, CONVERSATION_START);
+
+        verify(chatCompletionService, never()).summarize(any(), any());
+        verify(conversationSummaryService, never()).applyFold(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("should_not_call_openai_when_nothing_to_fold")
+    void should_not_call_openai_when_nothing_to_fold() {
+        when(conversationSummaryService.findPendingFold(FIXED_USER_ID, FIXED_CONV_ID, CONVERSATION_START)).thenReturn(Optional.empty());
+
+        conversationSummarizer.summarizeIfNeeded(FIXED_USER_ID, FIXED_CONV_ID, CONVERSATION_START);
+
+        verify(chatCompletionService, never()).summarize(any(), any());
+    }
+
+    @Test
+    @DisplayName("should_swallow_failures_and_keep_the_previous_summary")
+    void should_swallow_failures_and_keep_the_previous_summary() {
+        ConversationSummaryService.PendingFold fold =
+                new ConversationSummaryService.PendingFold(null, List.of(), Instant.EPOCH, null);
+        when(conversationSummaryService.findPendingFold(FIXED_USER_ID, FIXED_CONV_ID, CONVERSATION_START)).thenReturn(Optional.of(fold));
+        when(quotaService.reserveTokens(eq(FIXED_USER_ID), anyInt(), anyInt())).thenReturn(FIXED_RESERVATION_ID);
+        when(chatCompletionService.summarize(any(), any())).thenThrow(new IllegalStateException("OpenAI unavailable"));
+
+        assertDoesNotThrow(() -> conversationSummarizer.summarizeIfNeeded(FIXED_USER_ID, FIXED_CONV_ID, CONVERSATION_START));
+        verify(quotaService).settleReservation(FIXED_USER_ID, FIXED_RESERVATION_ID, 0, 0, 0);
+        verify(conversationSummaryService, never()).applyFold(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("should_label_turns_by_speaker_in_the_summary_input")
+    void should_label_turns_by_speaker_in_the_summary_input() {
+        String input = ChatCompletionService.buildSummaryInput(null, List.of(
+                new ChatMessage(MessageRole.USER, "Salut"),
+                new ChatMessage(MessageRole.ASSISTANT, "Coucou !")));
+
+        assertEquals("Résumé actuel :\n(aucun)\n\nNouveaux échanges :\nUtilisateur : Salut\nSerenia : Coucou !\n", input);
+    }
+}
@@ -0,0 +1,201 @@
+package com.lofo.serenia.service.chat;
+
+import com.lofo.serenia.config.SereniaConfig;
+import com.lofo.serenia.mapper.MessageMapper;
+import com.lofo.serenia.persistence.entity.conversation.ChatMessage;
+import com.lofo.serenia.persistence.entity.conversation.ConversationSummary;
+import com.lofo.serenia.persistence.entity.conversation.Message;
+import com.lofo.serenia.persistence.entity.conversation.MessageRole;
+import com.lofo.serenia.persistence.repository.ConversationSummaryRepository;
+import com.lofo.serenia.persistence.repository.MessageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("ConversationSummaryService tests")
+class ConversationSummaryServiceTest {
+
+    private static final UUID FIXED_USER_ID = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID FIXED_CONV_ID = UUID.fromString("00000000-0000-0000-0000-000000000002");
+    private static final Instant START = Instant.parse("2026-01-01T10:00:00Z");
+
+    @Mock
+    private ConversationSummaryRepository conversationSummaryRepository;
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    @Mock
+    private EncryptionService encryptionService;
+
+    @Mock
+    private MessageMapper messageMapper;
+
+    @Mock
+    private SereniaConfig sereniaConfig;
+
+    private ConversationSummaryService conversationSummaryService;
+
+    @BeforeEach
+    void setUp() {
+        conversationSummaryService = new ConversationSummaryService(conversationSummaryRepository, messageRepository,
+                encryptionService, messageMapper, sereniaConfig);
+        when(sereniaConfig.summaryTriggerMessages()).thenReturn(40);
+        when(sereniaConfig.summaryKeepRecentMessages()).thenReturn(20);
+        when(encryptionService.decryptForUser(eq(FIXED_USER_ID), any()))
+                .thenAnswer(invocation -> new String((byte[]) invocation.getArgument(1)));
+        when(encryptionService.encryptForUser(eq(FIXED_USER_ID), any()))
+                .thenAnswer(invocation -> ((String) invocation.getArgument(1)).getBytes());
+        when(messageMapper.toChatMessage(any(), any())).thenAnswer(invocation -> {
+            Message message = invocation.getArgument(0);
+            return new ChatMessage(message.getRole(), invocation.getArgument(1), message.getTimestamp());
+        });
+    }
+
+    @Test
+    @DisplayName("should_not_fold_below_the_trigger")
+    void should_not_fold_below_the_trigger() {
+        when(conversationSummaryRepository.findByConversationId(FIXED_CONV_ID)).thenReturn(Optional.empty());
+        when(messageRepository.countAfter(FIXED_CONV_ID, START, null)).thenReturn(39L);
+
+        assertTrue(conversationSummaryService.findPendingFold(FIXED_USER_ID, FIXED_CONV_ID, START).isEmpty());
+        verify(messageRepository, never()).findOldestAfter(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("should_fold_only_messages_after_the_existing_summary_and_keep_recent_ones")
+    void should_fold_only_messages_after_the_existing_summary_and_keep_recent_ones() {
+        Instant summarizedUntil = START.plusSeconds(100);
+        when(conversationSummaryRepository.findByConversationId(FIXED_CONV_ID))
+                .thenReturn(Optional.of(summary(summarizedUntil, 3L)));
+        when(messageRepository.countAfter(FIXED_CONV_ID, START, summarizedUntil)).thenReturn(45L);
+        when(messageRepository.findOldestAfter(FIXED_CONV_ID, START, summarizedUntil, 26)).thenReturn(messages(101, 26));
+
+        ConversationSummaryService.PendingFold fold =
+                conversationSummaryService.findPendingFold(FIXED_USER_ID, FIXED_CONV_ID, START).orElseThrow();
+
+        assertEquals("previous summary", fold.previousSummary());
+        assertEquals(25, fold.messages().size());
+        assertEquals(START.plusSeconds(125), fold.foldedUntil());
+        assertEquals(3L, fold.expectedVersion());
+    }
+
+    @Test
+    @DisplayName("should_cap_a_single_fold_to_the_batch_size")
+    void should_cap_a_single_fold_to_the_batch_size() {
+        when(conversationSummaryRepository.findByConversationId(FIXED_CONV_ID)).thenReturn(Optional.empty());
+        when(messageRepository.countAfter(FIXED_CONV_ID, START, null)).thenReturn(5_000L);
+        when(messageRepository.findOldestAfter(FIXED_CONV_ID, START, null, ConversationSummaryService.MAX_FOLD_BATCH + 1))
+                .thenReturn(messages(0, ConversationSummaryService.MAX_FOLD_BATCH + 1));
+
+        ConversationSummaryService.PendingFold fold =
+                conversationSummaryService.findPendingFold(FIXED_USER_ID, FIXED_CONV_ID, START).orElseThrow();
+
+        assertNull(fold.previousSummary());
+        assertNull(fold.expectedVersion());
+        assertEquals(ConversationSummaryService.MAX_FOLD_BATCH, fold.messages().size());
+    }
+
+    @Test
+    @DisplayName("should_leave_out_messages_sharing_the_timestamp_of_the_first_unfolded_one")
+    void should_leave_out_messages_sharing_the_timestamp_of_the_first_unfolded_one() {
+        List<Message> oldest = messages(0, 26);
+        oldest.get(24).setTimestamp(START.plusSeconds(25));
+        when(conversationSummaryRepository.findByConversationId(FIXED_CONV_ID)).thenReturn(Optional.empty());
+        when(messageRepository.countAfter(FIXED_CONV_ID, START, null)).thenReturn(45L);
+        when(messageRepository.findOldestAfter(FIXED_CONV_ID, START, null, 26)).thenReturn(oldest);
+
+        ConversationSummaryService.PendingFold fold =
+                conversationSummaryService.findPendingFold(FIXED_USER_ID, FIXED_CONV_ID, START).orElseThrow();
+
+        assertEquals(24, fold.messages().size());
+        assertEquals(START.plusSeconds(23), fold.foldedUntil());
+    }
+
+    @Test
+    @DisplayName("should_postpone_a_fold_when_every_candidate_shares_one_timestamp")
+    void should_postpone_a_fold_when_every_candidate_shares_one_timestamp() {
+        List<Message> oldest = messages(0, 26);
+        oldest.forEach(message -> message.setTimestamp(START));
+        when(conversationSummaryRepository.findByConversationId(FIXED_CONV_ID)).thenReturn(Optional.empty());
+        when(messageRepository.countAfter(FIXED_CONV_ID, START, null)).thenReturn(45L);
+        when(messageRepository.findOldestAfter(FIXED_CONV_ID, START, null, 26)).thenReturn(oldest);
+
+        assertTrue(conversationSummaryService.findPendingFold(FIXED_USER_ID, FIXED_CONV_ID, START).isEmpty());
+    }
+
+    @Test
+    @DisplayName("should_create_the_summary_on_first_fold")
+    void should_create_the_summary_on_first_fold() {
+        when(conversationSummaryRepository.findByConversationId(FIXED_CONV_ID)).thenReturn(Optional.empty());
+        ConversationSummaryService.PendingFold fold = new ConversationSummaryService.PendingFold(
+                null, List.of(new ChatMessage(MessageRole.USER, "hi")), START, null);
+
+        assertTrue(conversationSummaryService.applyFold(FIXED_USER_ID, FIXED_CONV_ID, fold, "new summary"));
+
+        ArgumentCaptor<ConversationSummary> captor = ArgumentCaptor.forClass(ConversationSummary.class);
+        verify(conversationSummaryRepository).persist(captor.capture());
+        ConversationSummary saved = captor.getValue();
+        assertEquals(FIXED_CONV_ID, saved.getConversationId());
+        assertArrayEquals("new summary".getBytes(), saved.getEncryptedSummary());
+        assertEquals(START, saved.getSummarizedUntil());
+        assertEquals(1, saved.getSummarizedMessageCount());
+    }
+
+    @Test
+    @DisplayName("should_drop_a_fold_when_the_summary_changed_concurrently")
+    void should_drop_a_fold_when_the_summary_changed_concurrently() {
+        when(conversationSummaryRepository.findByConversationId(FIXED_CONV_ID))
+                .thenReturn(Optional.of(summary(START, 4L)));
+        ConversationSummaryService.PendingFold fold = new ConversationSummaryService.PendingFold(
+                "previous summary", List.of(new ChatMessage(MessageRole.USER, "hi")), START.plusSeconds(5), 3L);
+
+        assertFalse(conversationSummaryService.applyFold(FIXED_USER_ID, FIXED_CONV_ID, fold, "new summary"));
+        verify(conversationSummaryRepository, never()).persist(any(ConversationSummary.class));
+    }
+
+    private static ConversationSummary summary(Instant summarizedUntil, Long version) {
+        ConversationSummary summary = new ConversationSummary();
+        summary.setConversationId(FIXED_CONV_ID);
+        summary.setUserId(FIXED_USER_ID);
+        summary.setEncryptedSummary("previous summary".getBytes());
+        summary.setSummarizedUntil(summarizedUntil);
+        summary.setSummarizedMessageCount(60);
+        summary.setVersion(version);
+        return summary;
+    }
+
+    private static List<Message> messages(int firstIndex, int count) {
+        return IntStream.range(firstIndex, firstIndex + count)
+                .mapToObj(i -> {
+                    Message message = new Message();
+                    message.setRole(i % 2 == 0 ? MessageRole.USER : MessageRole.ASSISTANT);
+                    message.setEncryptedContent(("message " + i).getBytes());
+                    message.setTimestamp(START.plusSeconds(i));
+                    return message;
+                })
+                .toList();
+    }
+}
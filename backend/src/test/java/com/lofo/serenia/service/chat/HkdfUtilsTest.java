@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.HexFormat;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -208,4 +209,22 @@ class HkdfUtilsTest {
             }
         }
     }
+
+    @Nested
+    @DisplayName("RFC 5869 Test Vectors")
+    class Rfc5869TestVectors {
+
+        @Test
+        @DisplayName("Should match RFC 5869 test case 1 across multiple expand blocks")
+        void shouldMatchRfcTestCase1() {
+            byte[] ikm = HexFormat.of().parseHex("0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b");
+            byte[] salt = HexFormat.of().parseHex("000102030405060708090a0b0c");
+            byte[] info = HexFormat.of().parseHex("f0f1f2f3f4f5f6f7f8f9");
+
+            byte[] okm = HkdfUtils.derive(ikm, salt, info, 42);
+
+            assertEquals("3cb25f25faacd57a90434f64d0362f2a2d2d0a90cf1a5a4c5db02d56ecc4c5bf34007208d5b887185865",
+                    HexFormat.of().formatHex(okm));
+        }
+    }
 }
@@ -0,0 +1,117 @@
+package com.lofo.serenia.service.chat;
+
+import com.lofo.serenia.config.SereniaConfig;
+import com.lofo.serenia.persistence.repository.MessagePartitionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("MessagePartitionMaintenance tests")
+class MessagePartitionMaintenanceTest {
+
+    private static final YearMonth CURRENT = YearMonth.of(2026, 3);
+
+    @Mock
+    private MessagePartitionRepository messagePartitionRepository;
+
+    @Mock
+    private SereniaConfig sereniaConfig;
+
+    private MessagePartitionMaintenance maintenance;
+
+    @BeforeEach
+    void setUp() {
+        maintenance = new MessagePartitionMaintenance(messagePartitionRepository, sereniaConfig);
+        lenient().when(sereniaConfig.messagesPartitionsAhead()).thenReturn(2);
+        lenient().when(sereniaConfig.messagesRetentionMonths()).thenReturn(12);
+    }
+
+    @Test
+    @DisplayName("should create the missing partitions up to the configured number of months ahead")
+    void should_create_missing_partitions() {
+        when(messagePartitionRepository.findPartitionMonths()).thenReturn(List.of(CURRENT));
+        when(sereniaConfig.messagesRetentionPolicy()).thenReturn(MessageRetentionPolicy.KEEP);
+
+        maintenance.maintain(CURRENT);
+
+        verify(messagePartitionRepository, never()).createPartition(CURRENT);
+        verify(messagePartitionRepository).createPartition(YearMonth.of(2026, 4));
+        verify(messagePartitionRepository).createPartition(YearMonth.of(2026, 5));
+        verify(messagePartitionRepository, never()).createPartition(YearMonth.of(2026, 6));
+    }
+
+    @Test
+    @DisplayName("should keep creating partitions when one of them fails")
+    void should_continue_after_failed_creation() {
+        when(messagePartitionRepository.findPartitionMonths()).thenReturn(List.of());
+        when(sereniaConfig.messagesRetentionPolicy()).thenReturn(MessageRetentionPolicy.KEEP);
+        doThrow(new IllegalStateException("rows in default partition"))
+                .when(messagePartitionRepository).createPartition(CURRENT);
+
+        maintenance.maintain(CURRENT);
+
+        verify(messagePartitionRepository).createPartition(YearMonth.of(2026, 5));
+    }
+
+    @Test
+    @DisplayName("should never remove partitions under the KEEP policy")
+    void should_keep_old_partitions() {
+        when(messagePartitionRepository.findPartitionMonths()).thenReturn(List.of(YearMonth.of(2020, 1)));
+        when(sereniaConfig.messagesRetentionPolicy()).thenReturn(MessageRetentionPolicy.KEEP);
+
+        maintenance.maintain(CURRENT);
+
+        verify(messagePartitionRepository, never()).dropPartition(any());
+        verify(messagePartitionRepository, never()).detachPartition(any());
+    }
+
+    @Test
+    @DisplayName("should drop only the partitions whose month is past the retention period")
+    void should_drop_expired_partitions() {
+        when(messagePartitionRepository.findPartitionMonths())
+                .thenReturn(List.of(YearMonth.of(2025, 2), YearMonth.of(2025, 3), CURRENT));
+        when(sereniaConfig.messagesRetentionPolicy()).thenReturn(MessageRetentionPolicy.DROP);
+
+        maintenance.maintain(CURRENT);
+
+        verify(messagePartitionRepository).dropPartition(YearMonth.of(2025, 2));
+        verify(messagePartitionRepository, never()).dropPartition(YearMonth.of(2025, 3));
+        verify(messagePartitionRepository, never()).dropPartition(CURRENT);
+    }
+
+    @Test
+    @DisplayName("should detach instead of dropping under the DETACH policy")
+    void should_detach_expired_partitions() {
+        when(messagePartitionRepository.findPartitionMonths()).thenReturn(List.of(YearMonth.of(2024, 12)));
+        when(sereniaConfig.messagesRetentionPolicy()).thenReturn(MessageRetentionPolicy.DETACH);
+
+        maintenance.maintain(CURRENT);
+
+        verify(messagePartitionRepository).detachPartition(YearMonth.of(2024, 12));
+        verify(messagePartitionRepository, never()).dropPartition(any());
+    }
+
+    @Test
+    @DisplayName("should do nothing when messages is not partitioned")
+    void should_skip_unpartitioned_table() {
+        when(messagePartitionRepository.isPartitioned()).thenReturn(false);
+
+        maintenance.maintainPartitions();
+
+        verify(messagePartitionRepository, never()).findPartitionMonths();
+    }
+}
@@ -0,0 +1,92 @@
+package com.lofo.serenia.service.chat;
+
+import com.lofo.serenia.persistence.entity.conversation.Conversation;
+import com.lofo.serenia.persistence.entity.user.Role;
+import com.lofo.serenia.persistence.entity.user.User;
+import com.lofo.serenia.persistence.repository.ConversationRepository;
+import com.lofo.serenia.persistence.repository.MessageRepository;
+import com.lofo.serenia.persistence.repository.UserRepository;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures the statements issued when a chat turn is written.
+ */
+@QuarkusTest
+@DisplayName("MessageService Integration Tests")
+class MessageServiceIT {
+
+    @Inject
+    MessageService messageService;
+
+    @Inject
+    MessageRepository messageRepository;
+
+    @Inject
+    ConversationRepository conversationRepository;
+
+    @Inject
+    UserRepository userRepository;
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    private UUID userId;
+    private UUID conversationId;
+
+    @BeforeEach
+    @Transactional
+    void setup() {
+        messageRepository.deleteAll();
+        conversationRepository.deleteAll();
+        userRepository.deleteAll();
+
+        User user = User.builder()
+                .email("turn@example.com")
+                .password("hashedpassword")
+                .firstName("Test")
+                .lastName("User")
+                .accountActivated(true)
+                .role(Role.USER)
+                .build();
+        userRepository.persist(user);
+        Conversation conversation = new Conversation();
+        conversation.setUserId(user.getId());
+        conversationRepository.persist(conversation);
+        userId = user.getId();
+        conversationId = conversation.getId();
+    }
+
+    @Test
+    @DisplayName("should write a turn with one batched insert and one conversation update")
+    void should_write_turn_in_two_statements() {
+        // Warms the user key cache so that only the turn itself is measured.
+        messageService.persistAssistantMessage(userId, conversationId, "warm-up");
+        Instant userTime = Instant.now();
+
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+        messageService.persistTurn(userId, conversationId, "Hello", userTime, "Reply");
+
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+
+        Conversation conversation = QuarkusTransaction.requiringNew()
+                .call(() -> conversationRepository.findByConversationId(conversationId).orElseThrow());
+        assertThat(conversation.getLastActivityAt()).isAfterOrEqualTo(userTime);
+        assertThat(messageRepository.count("conversationId", conversationId)).isEqualTo(3);
+    }
+}
@@ -17,11 +17,15 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.Instant;
 import java.util.List;
-import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,6 +34,7 @@ class MessageServiceTest {
 
     private static final UUID FIXED_USER_ID = UUID.fromString("00000000-0000-0000-0000-000000000001");
     private static final UUID FIXED_CONV_ID = UUID.fromString("00000000-0000-0000-0000-000000000002");
+    private static final Instant CONVERSATION_START = Instant.parse("2025-12-01T09:00:00Z");
 
     @Mock
     private MessageRepository messageRepository;
@@ -50,38 +55,11 @@ class MessageServiceTest {
         messageService = new MessageService(messageRepository, encryptionService, conversationRepository, messageMapper);
     }
 
-    @Test
-    @DisplayName("Should persist user message with encrypted payload")
-    void should_persist_user_message_with_encrypted_payload() {
-        when(encryptionService.encryptForUser(FIXED_USER_ID, "Hello"))
-                .thenReturn("[encrypted]Hello".getBytes());
-        Conversation conversation = new Conversation();
-        conversation.setId(FIXED_CONV_ID);
-        when(conversationRepository.findByConversationId(FIXED_CONV_ID))
-                .thenReturn(Optional.of(conversation));
-
-        messageService.persistUserMessage(FIXED_USER_ID, FIXED_CONV_ID, "Hello");
-
-        ArgumentCaptor<Message> captor = ArgumentCaptor.forClass(Message.class);
-        verify(messageRepository).persist(captor.capture());
-        Message persisted = captor.getValue();
-
-        assertEquals(FIXED_CONV_ID, persisted.getConversationId());
-        assertEquals(FIXED_USER_ID, persisted.getUserId());
-        assertEquals(MessageRole.USER, persisted.getRole());
-        assertArrayEquals("[encrypted]Hello".getBytes(), persisted.getEncryptedContent());
-        assertNotNull(persisted.getTimestamp());
-        assertNotNull(conversation.getLastActivityAt());
-        assertTrue(conversation.getLastActivityAt().isAfter(Instant.EPOCH));
-    }
-
     @Test
     @DisplayName("Should persist assistant message and return created entity")
     void should_persist_assistant_message_and_return_created_entity() {
         when(encryptionService.encryptForUser(FIXED_USER_ID, "Reply"))
                 .thenReturn("[encrypted]Reply".getBytes());
-        when(conversationRepository.findByConversationId(FIXED_CONV_ID))
-                .thenReturn(Optional.empty());
 
         Message saved = messageService.persistAssistantMessage(FIXED_USER_ID, FIXED_CONV_ID, "Reply");
 
@@ -94,21 +72,79 @@ class MessageServiceTest {
     }
 
     @Test
-    @DisplayName("Should decrypt all conversation messages")
-    void should_decrypt_all_conversation_messages() {
-        Message message = new Message();
-        message.setRole(MessageRole.ASSISTANT);
-        message.setEncryptedContent("[encrypted]Answer".getBytes());
-        when(messageRepository.findLatestInChronologicalOrder(FIXED_CONV_ID)).thenReturn(List.of(message));
+    @DisplayName("Should persist both messages of a turn and refresh the conversation activity once")
+    void should_persist_turn_with_single_activity_update() {
+        Instant userTime = Instant.parse("2026-01-01T10:00:00Z");
+        when(encryptionService.encryptForUser(FIXED_USER_ID, "Hello")).thenReturn("[encrypted]Hello".getBytes());
+        when(encryptionService.encryptForUser(FIXED_USER_ID, "Reply")).thenReturn("[encrypted]Reply".getBytes());
+
+        Message reply = messageService.persistTurn(FIXED_USER_ID, FIXED_CONV_ID, "Hello", userTime, "Reply");
+
+        ArgumentCaptor<Message> captor = ArgumentCaptor.forClass(Message.class);
+        verify(messageRepository, times(2)).persist(captor.capture());
+        Message userMessage = captor.getAllValues().get(0);
+        assertEquals(MessageRole.USER, userMessage.getRole());
+        assertEquals(userTime, userMessage.getTimestamp());
+        assertSame(reply, captor.getAllValues().get(1));
+        assertEquals(MessageRole.ASSISTANT, reply.getRole());
+        assertTrue(reply.getTimestamp().isAfter(userTime));
+        verify(conversationRepository).touchLastActivity(FIXED_CONV_ID, reply.getTimestamp());
+        verifyNoMoreInteractions(conversationRepository);
+    }
+
+    @Test
+    @DisplayName("Should decrypt the latest page without a cursor when no older message exists")
+    void should_decrypt_latest_page() {
+        Message message = message(Instant.parse("2026-01-01T10:00:00Z"), "[encrypted]Answer");
+        when(messageRepository.findPageBefore(FIXED_CONV_ID, CONVERSATION_START, null, null, 17)).thenReturn(List.of(message));
         when(encryptionService.decryptForUser(FIXED_USER_ID, message.getEncryptedContent()))
                 .thenReturn("Answer");
         when(messageMapper.toChatMessage(message, "Answer"))
                 .thenReturn(new ChatMessage(MessageRole.ASSISTANT, "Answer"));
 
-        List<ChatMessage> decrypted = messageService.decryptConversationMessages(FIXED_USER_ID, FIXED_CONV_ID);
+        MessagePage page = messageService.decryptConversationPage(FIXED_USER_ID, conversation(), null, 16);
+
+        assertEquals(1, page.messages().size());
+        assertEquals(MessageRole.ASSISTANT, page.messages().get(0).role());
+        assertEquals("Answer", page.messages().get(0).content());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    @DisplayName("Should return the page oldest first with a cursor on its oldest message, without decrypting the extra row")
+    void should_decrypt_only_requested_page() {
+        Instant start = Instant.parse("2026-01-01T10:00:00Z");
+        Message newest = message(start.plusSeconds(2), "[encrypted]C");
+        Message middle = message(start.plusSeconds(1), "[encrypted]B");
+        Message oldest = message(start, "[encrypted]A");
+        KeysetCursor before = new KeysetCursor(start.plusSeconds(3), UUID.randomUUID());
+        when(messageRepository.findPageBefore(FIXED_CONV_ID, CONVERSATION_START, before.timestamp(), before.id(), 3))
+                .thenReturn(List.of(newest, middle, oldest));
+        when(encryptionService.decryptForUser(eq(FIXED_USER_ID), any()))
+                .thenAnswer(invocation -> new String((byte[]) invocation.getArgument(1)).replace("[encrypted]", ""));
+        when(messageMapper.toChatMessage(any(), any()))
+                .thenAnswer(invocation -> new ChatMessage(MessageRole.USER, invocation.getArgument(1)));
+
+        MessagePage page = messageService.decryptConversationPage(FIXED_USER_ID, conversation(), before, 2);
+
+        assertEquals(List.of("B", "C"), page.messages().stream().map(ChatMessage::content).toList());
+        assertEquals(new KeysetCursor(middle.getTimestamp(), middle.getId()), KeysetCursor.decode(page.nextCursor()));
+        verify(encryptionService, never()).decryptForUser(FIXED_USER_ID, oldest.getEncryptedContent());
+    }
 
-        assertEquals(1, decrypted.size());
-        assertEquals(MessageRole.ASSISTANT, decrypted.get(0).role());
-        assertEquals("Answer", decrypted.get(0).content());
+    private Message message(Instant timestamp, String encryptedContent) {
+        Message message = new Message();
+        message.setId(UUID.randomUUID());
+        message.setRole(MessageRole.ASSISTANT);
+        message.setTimestamp(timestamp);
+        message.setEncryptedContent(encryptedContent.getBytes());
+        return message;
+    }
+
+    private static Conversation conversation() {
+        Conversation conversation = new Conversation();
+        conversation.setId(FIXED_CONV_ID);
+        conversation.setCreatedAt(CONVERSATION_START);
+        return conversation;
     }
 }
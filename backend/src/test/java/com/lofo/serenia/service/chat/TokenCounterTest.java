@@ -0,0 +1,64 @@
+package com.lofo.serenia.service.chat;
+
+import com.knuddels.jtokkit.api.EncodingType;
+import com.lofo.serenia.persistence.entity.conversation.ChatMessage;
+import com.lofo.serenia.persistence.entity.conversation.MessageRole;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("TokenCounter tests")
+class TokenCounterTest {
+
+    private final TokenCounter tokenCounter = new TokenCounter(TokenCounter.resolveEncoding("gpt-4o-mini"));
+
+    @Test
+    @DisplayName("should_use_o200k_for_gpt_4o_models")
+    void should_use_o200k_for_gpt_4o_models() {
+        assertEquals(EncodingType.O200K_BASE.getName(), TokenCounter.resolveEncoding("gpt-4o-mini").getName());
+    }
+
+    @Test
+    @DisplayName("should_fall_back_to_o200k_for_unknown_models")
+    void should_fall_back_to_o200k_for_unknown_models() {
+        assertEquals(EncodingType.O200K_BASE.getName(), TokenCounter.resolveEncoding("some-future-model").getName());
+    }
+
+    @Test
+    @DisplayName("should_count_tokens_of_plain_text")
+    void should_count_tokens_of_plain_text() {
+        assertEquals(0, tokenCounter.countTokens(""));
+        assertEquals(0, tokenCounter.countTokens(null));
+        assertEquals(2, tokenCounter.countTokens("Hello world"));
+    }
+
+    @Test
+    @DisplayName("should_not_fail_on_special_token_text")
+    void should_not_fail_on_special_token_text() {
+        assertTrue(tokenCounter.countTokens("<|endoftext|>") > 1);
+    }
+
+    @Test
+    @DisplayName("should_add_framing_overhead_per_message")
+    void should_add_framing_overhead_per_message() {
+        ChatMessage message = new ChatMessage(MessageRole.USER, "Hello world");
+
+        assertEquals(2 + TokenCounter.TOKENS_PER_MESSAGE, tokenCounter.countMessageTokens(message));
+    }
+
+    @Test
+    @DisplayName("should_estimate_prompt_with_system_prompt_history_and_reply_priming")
+    void should_estimate_prompt_with_system_prompt_history_and_reply_priming() {
+        List<ChatMessage> history = List.of(
+                new ChatMessage(MessageRole.USER, "Hello world"),
+                new ChatMessage(MessageRole.ASSISTANT, "Hello world"));
+
+        int estimate = tokenCounter.estimatePromptTokens("Hello world", history);
+
+        assertEquals(TokenCounter.REPLY_PRIMING_TOKENS + 3 * (TokenCounter.TOKENS_PER_MESSAGE + 2), estimate);
+    }
+}
@@ -0,0 +1,81 @@
+package com.lofo.serenia.service.chat;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("UserKeyCache tests")
+class UserKeyCacheTest {
+
+    private static final UUID FIXED_USER_ID = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID OTHER_USER_ID = UUID.fromString("00000000-0000-0000-0000-000000000002");
+
+    @Test
+    @DisplayName("should_derive_key_once_per_user")
+    void should_derive_key_once_per_user() {
+        UserKeyCache cache = new UserKeyCache(10, Duration.ofMinutes(5));
+        AtomicInteger derivations = new AtomicInteger();
+
+        SecretKey first = cache.getOrDerive(FIXED_USER_ID, id -> derive(id, derivations));
+        SecretKey second = cache.getOrDerive(FIXED_USER_ID, id -> derive(id, derivations));
+
+        assertEquals(1, derivations.get());
+        assertArrayEquals(first.getEncoded(), second.getEncoded());
+        assertEquals("AES", first.getAlgorithm());
+    }
+
+    @Test
+    @DisplayName("should_keep_keys_separate_per_user")
+    void should_keep_keys_separate_per_user() {
+        UserKeyCache cache = new UserKeyCache(10, Duration.ofMinutes(5));
+        AtomicInteger derivations = new AtomicInteger();
+
+        SecretKey first = cache.getOrDerive(FIXED_USER_ID, id -> derive(id, derivations));
+        SecretKey other = cache.getOrDerive(OTHER_USER_ID, id -> derive(id, derivations));
+
+        assertEquals(2, derivations.get());
+        assertTrue(first.getEncoded()[0] != other.getEncoded()[0]);
+    }
+
+    @Test
+    @DisplayName("should_wipe_key_bytes_when_invalidated")
+    void should_wipe_key_bytes_when_invalidated() {
+        UserKeyCache cache = new UserKeyCache(10, Duration.ofMinutes(5));
+        byte[] keyBytes = derive(FIXED_USER_ID, new AtomicInteger());
+        cache.getOrDerive(FIXED_USER_ID, id -> keyBytes);
+
+        cache.invalidate(FIXED_USER_ID);
+
+        assertEquals(0, cache.estimatedSize());
+        assertArrayEquals(new byte[32], keyBytes);
+    }
+
+    @Test
+    @DisplayName("should_rederive_key_after_invalidation")
+    void should_rederive_key_after_invalidation() {
+        UserKeyCache cache = new UserKeyCache(10, Duration.ofMinutes(5));
+        AtomicInteger derivations = new AtomicInteger();
+        SecretKey before = cache.getOrDerive(FIXED_USER_ID, id -> derive(id, derivations));
+
+        cache.invalidate(FIXED_USER_ID);
+        SecretKey after = cache.getOrDerive(FIXED_USER_ID, id -> derive(id, derivations));
+
+        assertEquals(2, derivations.get());
+        assertArrayEquals(before.getEncoded(), after.getEncoded());
+    }
+
+    private static byte[] derive(UUID userId, AtomicInteger derivations) {
+        derivations.incrementAndGet();
+        byte[] key = new byte[32];
+        key[0] = (byte) userId.getLeastSignificantBits();
+        return key;
+    }
+}
@@ -0,0 +1,217 @@
+package com.lofo.serenia.service.purge;
+
+import com.lofo.serenia.config.SereniaConfig;
+import com.lofo.serenia.persistence.entity.conversation.Conversation;
+import com.lofo.serenia.persistence.entity.purge.PurgeJob;
+import com.lofo.serenia.persistence.entity.purge.PurgeScope;
+import com.lofo.serenia.persistence.entity.user.User;
+import com.lofo.serenia.persistence.repository.ConversationRepository;
+import com.lofo.serenia.persistence.repository.MessageRepository;
+import com.lofo.serenia.persistence.repository.PurgeJobRepository;
+import com.lofo.serenia.persistence.repository.UserRepository;
+import com.lofo.serenia.service.chat.UserKeyCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PurgeService tests")
+class PurgeServiceTest {
+
+    private static final UUID USER_ID = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID CONV_ID = UUID.fromString("00000000-0000-0000-0000-000000000002");
+
+    @Mock
+    private PurgeJobRepository purgeJobRepository;
+
+    @Mock
+    private ConversationRepository conversationRepository;
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserKeyCache userKeyCache;
+
+    @Mock
+    private SereniaConfig sereniaConfig;
+
+    private PurgeService purgeService;
+
+    @BeforeEach
+    void setUp() {
+        purgeService = new PurgeService(purgeJobRepository, conversationRepository, messageRepository,
+                userRepository, userKeyCache, sereniaConfig);
+        lenient().when(sereniaConfig.purgeBatchSize()).thenReturn(1000);
+        lenient().when(sereniaConfig.purgeLease()).thenReturn(Duration.ofMinutes(1));
+    }
+
+    @Test
+    @DisplayName("should close the account, hide its conversations and enqueue an account job")
+    void should_request_account_purge() {
+        User user = User.builder().id(USER_ID).email("user@example.com").accountActivated(true).build();
+        when(conversationRepository.findIdsByUser(USER_ID)).thenReturn(List.of(CONV_ID));
+
+        purgeService.requestAccountPurge(user);
+
+        assertThat(user.getEmail()).isEqualTo("deleted+" + USER_ID + PurgeService.TOMBSTONE_EMAIL_DOMAIN);
+        assertThat(user.isAccountActivated()).isFalse();
+        verify(conversationRepository).markPurgeRequestedByUser(eq(USER_ID), any(Instant.class));
+        verify(conversationRepository, never()).markPurgeRequested(any(), any());
+        PurgeJob job = capturePersistedJobs().getFirst();
+        assertThat(job.getScope()).isEqualTo(PurgeScope.ACCOUNT);
+        assertThat(job.getUserId()).isEqualTo(USER_ID);
+        verify(userKeyCache).invalidate(USER_ID);
+        verifyNoInteractions(messageRepository);
+    }
+
+    @Test
+    @DisplayName("should enqueue one job per conversation of the user")
+    void should_request_conversations_purge() {
+        UUID otherConv = UUID.randomUUID();
+        when(conversationRepository.findIdsByUser(USER_ID)).thenReturn(List.of(CONV_ID, otherConv));
+
+        purgeService.requestConversationsPurge(USER_ID);
+
+        assertThat(capturePersistedJobs())
+                .extracting(PurgeJob::getConversationId)
+                .containsExactly(CONV_ID, otherConv);
+        verify(conversationRepository).markPurgeRequestedByUser(eq(USER_ID), any(Instant.class));
+        verify(conversationRepository, never()).markPurgeRequested(any(), any());
+        verifyNoInteractions(messageRepository);
+    }
+
+    @Test
+    @DisplayName("should hide a single conversation and enqueue its job")
+    void should_request_conversation_purge() {
+        Conversation conversation = new Conversation();
+        conversation.setId(CONV_ID);
+        conversation.setUserId(USER_ID);
+
+        purgeService.requestConversationPurge(conversation);
+
+        verify(conversationRepository).markPurgeRequested(eq(CONV_ID), any(Instant.class));
+        PurgeJob job = capturePersistedJobs().getFirst();
+        assertThat(job.getScope()).isEqualTo(PurgeScope.CONVERSATION);
+        assertThat(job.getConversationId()).isEqualTo(CONV_ID);
+    }
+
+    @Test
+    @DisplayName("should delete one bounded batch and record the progress")
+    void should_delete_next_batch() {
+        PurgeJob job = job(PurgeScope.CONVERSATION);
+        when(messageRepository.deleteBatchByConversation(CONV_ID, 1000)).thenReturn(1000);
+
+        assertThat(purgeService.deleteNextBatch(job)).isEqualTo(1000);
+
+        verify(purgeJobRepository).recordProgress(eq(job.getId()), eq(1000), any(Instant.class), any(Instant.class));
+    }
+
+    @Test
+    @DisplayName("should not record progress once no message is left")
+    void should_not_record_empty_batch() {
+        PurgeJob job = job(PurgeScope.ACCOUNT);
+        when(messageRepository.deleteBatchByUser(USER_ID, 1000)).thenReturn(0);
+
+        assertThat(purgeService.deleteNextBatch(job)).isZero();
+
+        verify(purgeJobRepository, never()).recordProgress(any(), anyInt(), any(), any());
+    }
+
+    @Test
+    @DisplayName("should delete the conversations and the user when completing an account job")
+    void should_complete_account_job() {
+        PurgeJob job = job(PurgeScope.ACCOUNT);
+
+        purgeService.complete(job);
+
+        verify(conversationRepository).deleteAllByUser(USER_ID);
+        verify(userRepository).deleteById(USER_ID);
+        verify(userKeyCache).invalidate(USER_ID);
+        verify(purgeJobRepository).deleteById(job.getId());
+    }
+
+    @Test
+    @DisplayName("should delete only the conversation when completing a conversation job")
+    void should_complete_conversation_job() {
+        PurgeJob job = job(PurgeScope.CONVERSATION);
+
+        purgeService.complete(job);
+
+        verify(conversationRepository).deletePurged(CONV_ID);
+        verifyNoInteractions(userRepository);
+        verify(purgeJobRepository).deleteById(job.getId());
+    }
+
+    @Test
+    @DisplayName("should retry a failed job with a backoff doubling at every attempt")
+    void should_back_off_failed_job() {
+        when(sereniaConfig.purgeMaxAttempts()).thenReturn(10);
+        PurgeJob job = job(PurgeScope.CONVERSATION);
+        job.setAttempts(2);
+        Instant before = Instant.now();
+
+        boolean parked = purgeService.recordFailure(job, new IllegalStateException("lock timeout"));
+
+        ArgumentCaptor<Instant> retryAt = ArgumentCaptor.forClass(Instant.class);
+        verify(purgeJobRepository).recordFailure(eq(job.getId()), eq("lock timeout"), any(Instant.class), retryAt.capture());
+        assertThat(parked).isFalse();
+        assertThat(retryAt.getValue()).isAfterOrEqualTo(before.plus(Duration.ofMinutes(4)));
+        verify(purgeJobRepository, never()).park(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("should park a job once it is out of attempts")
+    void should_park_job_out_of_attempts() {
+        when(sereniaConfig.purgeMaxAttempts()).thenReturn(10);
+        PurgeJob job = job(PurgeScope.ACCOUNT);
+        job.setAttempts(9);
+
+        boolean parked = purgeService.recordFailure(job, new IllegalStateException("poison"));
+
+        assertThat(parked).isTrue();
+        verify(purgeJobRepository).park(eq(job.getId()), eq("poison"), any(Instant.class));
+        verify(purgeJobRepository, never()).recordFailure(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("should cap the retry backoff")
+    void should_cap_backoff() {
+        assertThat(PurgeService.backoff(Duration.ofMinutes(1), 1)).isEqualTo(Duration.ofMinutes(1));
+        assertThat(PurgeService.backoff(Duration.ofMinutes(1), 3)).isEqualTo(Duration.ofMinutes(4));
+        assertThat(PurgeService.backoff(Duration.ofMinutes(1), 40)).isEqualTo(PurgeService.MAX_BACKOFF);
+    }
+
+    private PurgeJob job(PurgeScope scope) {
+        return PurgeJob.builder()
+                .id(UUID.randomUUID())
+                .scope(scope)
+                .userId(USER_ID)
+                .conversationId(scope == PurgeScope.CONVERSATION ? CONV_ID : null)
+                .build();
+    }
+
+    private List<PurgeJob> capturePersistedJobs() {
+        ArgumentCaptor<PurgeJob> captor = ArgumentCaptor.forClass(PurgeJob.class);
+        verify(purgeJobRepository, atLeastOnce()).persist(captor.capture());
+        return captor.getAllValues();
+    }
+}
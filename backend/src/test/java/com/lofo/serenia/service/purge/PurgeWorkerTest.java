@@ -0,0 +1,100 @@
+package com.lofo.serenia.service.purge;
+
+import com.lofo.serenia.config.SereniaConfig;
+import com.lofo.serenia.persistence.entity.purge.PurgeJob;
+import com.lofo.serenia.persistence.entity.purge.PurgeScope;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PurgeWorker tests")
+class PurgeWorkerTest {
+
+    @Mock
+    private PurgeService purgeService;
+
+    @Mock
+    private SereniaConfig sereniaConfig;
+
+    private PurgeWorker worker;
+    private PurgeJob job;
+
+    @BeforeEach
+    void setUp() {
+        worker = new PurgeWorker(purgeService, sereniaConfig);
+        lenient().when(sereniaConfig.purgeBatchPause()).thenReturn(Duration.ZERO);
+        job = PurgeJob.builder()
+                .id(UUID.randomUUID())
+                .scope(PurgeScope.ACCOUNT)
+                .userId(UUID.randomUUID())
+                .build();
+    }
+
+    @Test
+    @DisplayName("should delete batches until none is left, then complete the job")
+    void should_delete_batches_then_complete() {
+        when(purgeService.claim(job)).thenReturn(true);
+        when(purgeService.deleteNextBatch(job)).thenReturn(1000, 1000, 250, 0);
+
+        assertTrue(worker.process(job));
+
+        InOrder inOrder = inOrder(purgeService);
+        inOrder.verify(purgeService).claim(job);
+        inOrder.verify(purgeService, times(4)).deleteNextBatch(job);
+        inOrder.verify(purgeService).complete(job);
+        verify(purgeService, never()).recordFailure(any(), any());
+    }
+
+    @Test
+    @DisplayName("should leave a job held by another instance alone")
+    void should_skip_job_not_claimed() {
+        when(purgeService.claim(job)).thenReturn(false);
+
+        assertTrue(worker.process(job));
+
+        verify(purgeService, never()).deleteNextBatch(any());
+        verify(purgeService, never()).complete(any());
+    }
+
+    @Test
+    @DisplayName("should record a failure without completing the job")
+    void should_record_failure() {
+        RuntimeException failure = new IllegalStateException("lock timeout");
+        when(purgeService.claim(job)).thenReturn(true);
+        when(purgeService.deleteNextBatch(job)).thenReturn(1000).thenThrow(failure);
+
+        assertTrue(worker.process(job));
+
+        verify(purgeService).recordFailure(job, failure);
+        verify(purgeService, never()).complete(any());
+    }
+
+    @Test
+    @DisplayName("should keep processing the next jobs after a failed one")
+    void should_continue_after_failed_job() {
+        PurgeJob other = PurgeJob.builder().id(UUID.randomUUID()).scope(PurgeScope.CONVERSATION)
+                .userId(UUID.randomUUID()).conversationId(UUID.randomUUID()).build();
+        when(purgeService.findClaimable(PurgeWorker.JOBS_PER_RUN)).thenReturn(List.of(job, other));
+        when(purgeService.claim(any())).thenReturn(true);
+        when(purgeService.deleteNextBatch(job)).thenThrow(new IllegalStateException("boom"));
+        when(purgeService.deleteNextBatch(other)).thenReturn(0);
+
+        worker.runPendingJobs();
+
+        verify(purgeService).recordFailure(any(), any());
+        verify(purgeService).complete(other);
+    }
+}
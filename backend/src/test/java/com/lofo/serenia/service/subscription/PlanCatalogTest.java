@@ -0,0 +1,93 @@
+package com.lofo.serenia.service.subscription;
+
+import com.lofo.serenia.persistence.entity.subscription.Plan;
+import com.lofo.serenia.persistence.entity.subscription.PlanType;
+import com.lofo.serenia.rest.dto.out.PlanDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("PlanCatalog snapshot tests")
+class PlanCatalogTest {
+
+    private Plan free;
+    private Plan plus;
+    private Plan max;
+
+    @BeforeEach
+    void setUp() {
+        free = createPlan(PlanType.FREE, 0, null);
+        plus = createPlan(PlanType.PLUS, 999, "price_plus");
+        max = createPlan(PlanType.MAX, 1999, "price_max");
+    }
+
+    @Test
+    @DisplayName("should index plans by type, id and Stripe price id")
+    void should_index_plans() {
+        PlanCatalog.Snapshot snapshot = PlanCatalog.Snapshot.of(List.of(max, free, plus));
+
+        assertThat(snapshot.byType()).containsEntry(PlanType.FREE, free)
+                .containsEntry(PlanType.PLUS, plus)
+                .containsEntry(PlanType.MAX, max);
+        assertThat(snapshot.byId()).containsEntry(plus.getId(), plus).hasSize(3);
+        assertThat(snapshot.byStripePriceId()).containsOnlyKeys("price_plus", "price_max");
+    }
+
+    @Test
+    @DisplayName("should list plans in type order whatever the load order")
+    void should_list_plans_in_type_order() {
+        PlanCatalog.Snapshot snapshot = PlanCatalog.Snapshot.of(List.of(max, free, plus));
+
+        assertThat(snapshot.listing().plans()).extracting(PlanDTO::type)
+                .containsExactly(PlanType.FREE, PlanType.PLUS, PlanType.MAX);
+    }
+
+    @Test
+    @DisplayName("should give the same entity tag to the same plans")
+    void should_give_same_etag_to_same_plans() {
+        String first = PlanCatalog.Snapshot.of(List.of(free, plus, max)).listing().etag();
+        String second = PlanCatalog.Snapshot.of(List.of(max, plus, free)).listing().etag();
+
+        assertThat(first).isEqualTo(second).hasSize(32);
+    }
+
+    @Test
+    @DisplayName("should change the entity tag when a limit changes")
+    void should_change_etag_when_limit_changes() {
+        String before = PlanCatalog.Snapshot.of(List.of(free, plus, max)).listing().etag();
+        plus.setDailyMessageLimit(plus.getDailyMessageLimit() + 1);
+        String after = PlanCatalog.Snapshot.of(List.of(free, plus, max)).listing().etag();
+
+        assertThat(after).isNotEqualTo(before);
+    }
+
+    @Test
+    @DisplayName("should not allow the snapshot to be modified")
+    void should_be_immutable() {
+        PlanCatalog.Snapshot snapshot = PlanCatalog.Snapshot.of(List.of(free, plus, max));
+
+        assertThatThrownBy(() -> snapshot.byType().remove(PlanType.FREE))
+                .isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> snapshot.listing().plans().clear())
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    private Plan createPlan(PlanType type, int priceCents, String stripePriceId) {
+        return Plan.builder()
+                .id(UUID.randomUUID())
+                .name(type)
+                .monthlyTokenLimit(10000)
+                .dailyMessageLimit(10)
+                .contextTokenBudget(4000)
+                .priceCents(priceCents)
+                .currency("EUR")
+                .stripePriceId(stripePriceId)
+                .build();
+    }
+}
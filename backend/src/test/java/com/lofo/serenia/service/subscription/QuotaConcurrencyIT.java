@@ -0,0 +1,224 @@
+package com.lofo.serenia.service.subscription;
+
+import com.lofo.serenia.exception.exceptions.QuotaExceededException;
+import com.lofo.serenia.persistence.entity.subscription.Plan;
+import com.lofo.serenia.persistence.entity.subscription.Subscription;
+import com.lofo.serenia.persistence.entity.user.Role;
+import com.lofo.serenia.persistence.entity.user.User;
+import com.lofo.serenia.persistence.repository.PlanRepository;
+import com.lofo.serenia.persistence.repository.QuotaReservationRepository;
+import com.lofo.serenia.persistence.repository.SubscriptionRepository;
+import com.lofo.serenia.persistence.repository.UserRepository;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.persistence.LockModeType;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Hammers a single subscription row from 64 concurrent senders and checks that the single-statement
+ * quota updates neither lose increments nor let admissions overshoot the plan limits.
+ */
+@Slf4j
+@QuarkusTest
+@DisplayName("Quota concurrency Integration Tests")
+class QuotaConcurrencyIT {
+
+    private static final int SENDERS = 64;
+    private static final int CALLS_PER_SENDER = 20;
+
+    @Inject
+    QuotaService quotaService;
+
+    @Inject
+    SubscriptionRepository subscriptionRepository;
+
+    @Inject
+    QuotaReservationRepository quotaReservationRepository;
+
+    @Inject
+    PlanRepository planRepository;
+
+    @Inject
+    UserRepository userRepository;
+
+    private UUID userId;
+
+    @BeforeEach
+    @Transactional
+    void setup() {
+        quotaReservationRepository.deleteAll();
+        subscriptionRepository.deleteAll();
+        userRepository.deleteAll();
+
+        User user = User.builder()
+                .email("quota@example.com")
+                .password("hashedpassword")
+                .firstName("Test")
+                .lastName("User")
+                .accountActivated(true)
+                .role(Role.USER)
+                .build();
+        userRepository.persist(user);
+        subscriptionRepository.persist(Subscription.builder()
+                .user(user)
+                .plan(planRepository.getFreePlan())
+                .monthlyPeriodStart(Instant.now())
+                .dailyPeriodStart(Instant.now())
+                .build());
+        userId = user.getId();
+    }
+
+    @Test
+    @DisplayName("should admit exactly the daily limit out of 64 parallel senders")
+    void should_not_overshoot_daily_limit() throws Exception {
+        int dailyLimit = plan().getDailyMessageLimit();
+        AtomicInteger admitted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        runConcurrently(1, () -> {
+            try {
+                quotaService.checkQuotaBeforeCall(userId);
+                admitted.incrementAndGet();
+            } catch (QuotaExceededException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertThat(admitted.get()).isEqualTo(dailyLimit);
+        assertThat(rejected.get()).isEqualTo(SENDERS - dailyLimit);
+        assertThat(subscription().getMessagesSentToday()).isEqualTo(dailyLimit);
+    }
+
+    @Test
+    @DisplayName("should lose no update when 64 senders reserve and settle in parallel")
+    void should_lose_no_update_when_settling_in_parallel() throws Exception {
+        runConcurrently(1, () -> {
+            UUID reservationId = quotaService.reserveTokens(userId, 10, 10);
+            quotaService.settleReservation(userId, reservationId, 10, 0, 10);
+        });
+
+        Subscription subscription = subscription();
+        assertThat(subscription.getTokensUsedThisMonth()).isEqualTo(SENDERS * 50);
+        assertThat(subscription.getTokensReserved()).isZero();
+        assertThat(quotaReservationRepository.count()).isZero();
+    }
+
+    @Test
+    @DisplayName("should give back reservations and messages when turns are released in parallel")
+    void should_refund_released_turns() throws Exception {
+        runConcurrently(1, () -> {
+            try {
+                quotaService.checkQuotaBeforeCall(userId);
+            } catch (QuotaExceededException e) {
+                return;
+            }
+            UUID reservationId = quotaService.reserveTokens(userId, 10, 10);
+            quotaService.releaseReservation(userId, reservationId);
+        });
+
+        Subscription subscription = subscription();
+        assertThat(subscription.getMessagesSentToday()).isZero();
+        assertThat(subscription.getTokensReserved()).isZero();
+        assertThat(subscription.getTokensUsedThisMonth()).isZero();
+    }
+
+    @Test
+    @DisplayName("should fold the daily reset into the admission")
+    void should_reset_expired_daily_period_on_admission() {
+        QuarkusTransaction.requiringNew().run(() -> {
+            Subscription subscription = subscriptionRepository.findByUserId(userId).orElseThrow();
+            subscription.setMessagesSentToday(plan().getDailyMessageLimit());
+            subscription.setDailyPeriodStart(Instant.now().minus(2, ChronoUnit.DAYS));
+        });
+
+        quotaService.checkQuotaBeforeCall(userId);
+
+        Subscription subscription = subscription();
+        assertThat(subscription.getMessagesSentToday()).isEqualTo(1);
+        assertThat(subscription.getDailyPeriodStart()).isAfter(Instant.now().minus(1, ChronoUnit.MINUTES));
+    }
+
+    @Test
+    @DisplayName("should keep exact totals on both paths and report their throughput")
+    void should_compare_throughput_with_locking_path() throws Exception {
+        int expected = SENDERS * CALLS_PER_SENDER;
+
+        Duration atomic = runConcurrently(CALLS_PER_SENDER,
+                () -> quotaService.settleReservation(userId, UUID.randomUUID(), 1, 0, 0));
+        assertThat(subscription().getTokensUsedThisMonth()).isEqualTo(expected);
+
+        Duration locking = runConcurrently(CALLS_PER_SENDER, () -> QuarkusTransaction.requiringNew().run(() -> {
+            Subscription subscription = findForUpdate();
+            subscription.setTokensUsedThisMonth(subscription.getTokensUsedThisMonth() + 1);
+        }));
+        assertThat(subscription().getTokensUsedThisMonth()).isEqualTo(2 * expected);
+
+        log.info("Quota updates, {} senders x {} calls: conditional UPDATE {} ops/s, SELECT FOR UPDATE {} ops/s",
+                SENDERS, CALLS_PER_SENDER, opsPerSecond(expected, atomic), opsPerSecond(expected, locking));
+    }
+
+    private Duration runConcurrently(int callsPerSender, Runnable call) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(SENDERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < SENDERS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < callsPerSender; j++) {
+                        call.run();
+                    }
+                    return null;
+                }));
+            }
+            Instant begin = Instant.now();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return Duration.between(begin, Instant.now());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long opsPerSecond(int operations, Duration elapsed) {
+        return operations * 1000L / Math.max(1, elapsed.toMillis());
+    }
+
+    /**
+     * The read-modify-write path the single-statement updates replaced, kept here as the baseline.
+     */
+    private Subscription findForUpdate() {
+        return subscriptionRepository.find("user.id", userId)
+                .withLock(LockModeType.PESSIMISTIC_WRITE)
+                .firstResult();
+    }
+
+    private Subscription subscription() {
+        return QuarkusTransaction.requiringNew().call(() -> subscriptionRepository.findByUserId(userId).orElseThrow());
+    }
+
+    private Plan plan() {
+        return QuarkusTransaction.requiringNew().call(planRepository::getFreePlan);
+    }
+}
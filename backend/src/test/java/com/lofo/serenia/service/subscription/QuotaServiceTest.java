@@ -1,24 +1,35 @@
 package com.lofo.serenia.service.subscription;
 
+import com.lofo.serenia.config.SereniaConfig;
 import com.lofo.serenia.exception.exceptions.QuotaExceededException;
 import com.lofo.serenia.exception.exceptions.QuotaType;
 import com.lofo.serenia.persistence.entity.subscription.Plan;
 import com.lofo.serenia.persistence.entity.subscription.PlanType;
+import com.lofo.serenia.persistence.entity.subscription.QuotaReservation;
 import com.lofo.serenia.persistence.entity.subscription.Subscription;
 import com.lofo.serenia.persistence.entity.user.User;
+import com.lofo.serenia.persistence.repository.QuotaReservationRepository;
 import com.lofo.serenia.persistence.repository.SubscriptionRepository;
+import com.lofo.serenia.service.admin.DailyStatsService;
+import com.lofo.serenia.service.subscription.quota.InMemoryQuotaEngine;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,6 +39,20 @@ class QuotaServiceTest {
     @Mock
     private SubscriptionRepository subscriptionRepository;
 
+    @Mock
+    private QuotaReservationRepository quotaReservationRepository;
+
+    @Mock
+    private SereniaConfig sereniaConfig;
+
+    @Mock
+    private InMemoryQuotaEngine inMemoryQuotaEngine;
+
+    @Mock
+    private DailyStatsService dailyStatsService;
+
+    @Mock
+    private PlanCatalog planCatalog;
 
     private QuotaService quotaService;
     private static final UUID USER_ID = UUID.randomUUID();
@@ -36,7 +61,8 @@ class QuotaServiceTest {
 
     @BeforeEach
     void setUp() {
-        quotaService = new QuotaService(subscriptionRepository);
+        quotaService = new QuotaService(subscriptionRepository, quotaReservationRepository, sereniaConfig,
+                inMemoryQuotaEngine, dailyStatsService, planCatalog);
         Plan freePlan = Plan.builder()
                 .id(UUID.randomUUID())
                 .name(PlanType.FREE)
@@ -56,6 +82,7 @@ class QuotaServiceTest {
                 .monthlyPeriodStart(Instant.now())
                 .dailyPeriodStart(Instant.now())
                 .build();
+        lenient().when(planCatalog.getById(freePlan.getId())).thenReturn(freePlan);
     }
 
     @Nested
@@ -63,19 +90,20 @@ class QuotaServiceTest {
     class CheckQuotaBeforeCall {
 
         @Test
-        @DisplayName("should allow when quotas are OK")
+        @DisplayName("should admit the message in one update and return the user's plan")
         void should_allow_when_quotas_ok() {
-            when(subscriptionRepository.findByUserIdForUpdate(USER_ID))
-                    .thenReturn(Optional.of(subscription));
-            assertDoesNotThrow(() -> quotaService.checkQuotaBeforeCall(USER_ID));
+            when(subscriptionRepository.admitMessage(eq(USER_ID), any())).thenReturn(1);
+            when(subscriptionRepository.findPlanIdByUserId(USER_ID)).thenReturn(Optional.of(subscription.getPlan().getId()));
+
+            assertSame(subscription.getPlan(), quotaService.checkQuotaBeforeCall(USER_ID));
         }
 
         @Test
         @DisplayName("should reject when monthly tokens exhausted")
         void should_reject_when_monthly_tokens_exhausted() {
             subscription.setTokensUsedThisMonth(10000);
-            when(subscriptionRepository.findByUserIdForUpdate(USER_ID))
-                    .thenReturn(Optional.of(subscription));
+            when(subscriptionRepository.admitMessage(eq(USER_ID), any())).thenReturn(0);
+            when(subscriptionRepository.findByUserId(USER_ID)).thenReturn(Optional.of(subscription));
             QuotaExceededException exception = assertThrows(
                     QuotaExceededException.class,
                     () -> quotaService.checkQuotaBeforeCall(USER_ID)
@@ -87,97 +115,65 @@ class QuotaServiceTest {
         @DisplayName("should reject when daily message limit reached")
         void should_reject_when_daily_message_limit_reached() {
             subscription.setMessagesSentToday(10);
-            when(subscriptionRepository.findByUserIdForUpdate(USER_ID))
-                    .thenReturn(Optional.of(subscription));
+            when(subscriptionRepository.admitMessage(eq(USER_ID), any())).thenReturn(0);
+            when(subscriptionRepository.findByUserId(USER_ID)).thenReturn(Optional.of(subscription));
             QuotaExceededException exception = assertThrows(
                     QuotaExceededException.class,
                     () -> quotaService.checkQuotaBeforeCall(USER_ID)
             );
             assertEquals(QuotaType.DAILY_MESSAGE_LIMIT, exception.getQuotaType());
+            assertEquals(10, exception.getCurrent());
         }
 
         @Test
-        @DisplayName("should throw exception when subscription not found")
-        void should_throw_exception_when_subscription_not_found() {
-            when(subscriptionRepository.findByUserIdForUpdate(USER_ID))
-                    .thenReturn(Optional.empty());
-            assertThrows(IllegalStateException.class,
-                    () -> quotaService.checkQuotaBeforeCall(USER_ID));
-        }
-
-        @Test
-        @DisplayName("should reset daily counter when period expired")
-        void should_reset_daily_counter_when_period_expired() {
-            subscription.setMessagesSentToday(10);
-            subscription.setDailyPeriodStart(Instant.now().minus(2, ChronoUnit.DAYS));
-            when(subscriptionRepository.findByUserIdForUpdate(USER_ID))
-                    .thenReturn(Optional.of(subscription));
-            assertDoesNotThrow(() -> quotaService.checkQuotaBeforeCall(USER_ID));
-            assertEquals(0, subscription.getMessagesSentToday());
-        }
-
-        @Test
-        @DisplayName("should reset monthly counter when period expired")
-        void should_reset_monthly_counter_when_period_expired() {
+        @DisplayName("should report the daily limit when the monthly period is expired")
+        void should_report_daily_limit_when_monthly_period_expired() {
             subscription.setTokensUsedThisMonth(10000);
-            subscription.setMonthlyPeriodStart(Instant.now().minus(62, ChronoUnit.DAYS)); // ~2 months ago
-            when(subscriptionRepository.findByUserIdForUpdate(USER_ID))
-                    .thenReturn(Optional.of(subscription));
-            assertDoesNotThrow(() -> quotaService.checkQuotaBeforeCall(USER_ID));
-            assertEquals(0, subscription.getTokensUsedThisMonth());
+            subscription.setMonthlyPeriodStart(Instant.now().minus(62, ChronoUnit.DAYS));
+            subscription.setMessagesSentToday(10);
+            when(subscriptionRepository.admitMessage(eq(USER_ID), any())).thenReturn(0);
+            when(subscriptionRepository.findByUserId(USER_ID)).thenReturn(Optional.of(subscription));
+            QuotaExceededException exception = assertThrows(
+                    QuotaExceededException.class,
+                    () -> quotaService.checkQuotaBeforeCall(USER_ID)
+            );
+            assertEquals(QuotaType.DAILY_MESSAGE_LIMIT, exception.getQuotaType());
         }
 
         @Test
-        @DisplayName("should allow when only 1 token remaining")
-        void should_allow_when_only_one_token_remaining() {
-            subscription.setTokensUsedThisMonth(9999);
-            when(subscriptionRepository.findByUserIdForUpdate(USER_ID))
-                    .thenReturn(Optional.of(subscription));
-            assertDoesNotThrow(() -> quotaService.checkQuotaBeforeCall(USER_ID));
+        @DisplayName("should throw exception when subscription not found")
+        void should_throw_exception_when_subscription_not_found() {
+            when(subscriptionRepository.admitMessage(eq(USER_ID), any())).thenReturn(0);
+            when(subscriptionRepository.findByUserId(USER_ID)).thenReturn(Optional.empty());
+            assertThrows(IllegalStateException.class,
+                    () -> quotaService.checkQuotaBeforeCall(USER_ID));
         }
     }
 
     @Nested
-    @DisplayName("recordUsage")
-    class RecordUsage {
+    @DisplayName("settleReservation of a purged reservation")
+    class SettlePurgedReservation {
 
         @Test
-        @DisplayName("should increment counters with normalized tokens")
+        @DisplayName("should add normalized tokens in a single update without counting a message")
         void should_increment_counters_with_normalized_tokens() {
-            when(subscriptionRepository.findByUserIdForUpdate(USER_ID))
-                    .thenReturn(Optional.of(subscription));
+            when(quotaReservationRepository.claim(any())).thenReturn(Optional.empty());
+            when(subscriptionRepository.applyUsage(eq(USER_ID), anyInt(), anyInt(), any())).thenReturn(1);
 
-            quotaService.recordUsage(USER_ID, 500, 0, 100);
+            quotaService.settleReservation(USER_ID, UUID.randomUUID(), 500, 0, 100);
 
-            assertEquals(900, subscription.getTokensUsedThisMonth());
-            assertEquals(1, subscription.getMessagesSentToday());
-            verify(subscriptionRepository).persist(subscription);
+            verify(subscriptionRepository).applyUsage(eq(USER_ID), eq(900), eq(0), any());
+            verify(subscriptionRepository, never()).persist(any(Subscription.class));
+            verify(subscriptionRepository, never()).admitMessage(any(), any());
         }
 
         @Test
         @DisplayName("should throw when subscription not found")
         void should_throw_when_subscription_not_found() {
-            when(subscriptionRepository.findByUserIdForUpdate(USER_ID))
-                    .thenReturn(Optional.empty());
+            when(quotaReservationRepository.claim(any())).thenReturn(Optional.empty());
+            when(subscriptionRepository.applyUsage(eq(USER_ID), anyInt(), anyInt(), any())).thenReturn(0);
             assertThrows(IllegalStateException.class,
-                    () -> quotaService.recordUsage(USER_ID, 100, 0, 50));
-        }
-
-        @Test
-        @DisplayName("should accumulate normalized tokens on multiple calls")
-        void should_accumulate_tokens_on_multiple_calls() {
-            when(subscriptionRepository.findByUserIdForUpdate(USER_ID))
-                    .thenReturn(Optional.of(subscription));
-
-            quotaService.recordUsage(USER_ID, 200, 0, 25);
-            assertEquals(300, subscription.getTokensUsedThisMonth());
-            assertEquals(1, subscription.getMessagesSentToday());
-
-            quotaService.recordUsage(USER_ID, 300, 200, 50);
-            assertEquals(700, subscription.getTokensUsedThisMonth());
-            assertEquals(2, subscription.getMessagesSentToday());
-
-            verify(subscriptionRepository, times(2)).persist(subscription);
+                    () -> quotaService.settleReservation(USER_ID, UUID.randomUUID(), 100, 0, 50));
         }
     }
 
@@ -188,69 +184,44 @@ class QuotaServiceTest {
         @Test
         @DisplayName("should normalize tokens without cache")
         void should_normalize_tokens_without_cache() {
-            when(subscriptionRepository.findByUserIdForUpdate(USER_ID))
-                    .thenReturn(Optional.of(subscription));
-
-            quotaService.recordUsage(USER_ID, 1000, 0, 100);
-
-            assertEquals(1400, subscription.getTokensUsedThisMonth());
+            assertEquals(1400, QuotaService.normalizeTokens(1000, 0, 100));
         }
 
         @Test
         @DisplayName("should normalize tokens with partial cache")
         void should_normalize_tokens_with_partial_cache() {
-            when(subscriptionRepository.findByUserIdForUpdate(USER_ID))
-                    .thenReturn(Optional.of(subscription));
-
-            quotaService.recordUsage(USER_ID, 1000, 800, 100);
-
-            assertEquals(1000, subscription.getTokensUsedThisMonth());
+            assertEquals(1000, QuotaService.normalizeTokens(1000, 800, 100));
         }
 
         @Test
         @DisplayName("should normalize tokens with full cache")
         void should_normalize_tokens_with_full_cache() {
-            when(subscriptionRepository.findByUserIdForUpdate(USER_ID))
-                    .thenReturn(Optional.of(subscription));
-
-            quotaService.recordUsage(USER_ID, 500, 500, 50);
-
-            assertEquals(450, subscription.getTokensUsedThisMonth());
+            assertEquals(450, QuotaService.normalizeTokens(500, 500, 50));
         }
 
         @Test
         @DisplayName("should handle output only")
         void should_handle_output_only() {
-            when(subscriptionRepository.findByUserIdForUpdate(USER_ID))
-                    .thenReturn(Optional.of(subscription));
-
-            quotaService.recordUsage(USER_ID, 0, 0, 100);
-
-            assertEquals(400, subscription.getTokensUsedThisMonth());
+            assertEquals(400, QuotaService.normalizeTokens(0, 0, 100));
         }
 
         @Test
         @DisplayName("should throw when promptTokens is negative")
         void should_throw_when_prompt_tokens_negative() {
-            when(subscriptionRepository.findByUserIdForUpdate(USER_ID))
-                    .thenReturn(Optional.of(subscription));
-
             IllegalArgumentException exception = assertThrows(
                     IllegalArgumentException.class,
-                    () -> quotaService.recordUsage(USER_ID, -100, 0, 50)
+                    () -> quotaService.settleReservation(USER_ID, UUID.randomUUID(), -100, 0, 50)
             );
             assertTrue(exception.getMessage().contains("promptTokens cannot be negative"));
+            verifyNoInteractions(subscriptionRepository);
         }
 
         @Test
         @DisplayName("should throw when cachedTokens is negative")
         void should_throw_when_cached_tokens_negative() {
-            when(subscriptionRepository.findByUserIdForUpdate(USER_ID))
-                    .thenReturn(Optional.of(subscription));
-
             IllegalArgumentException exception = assertThrows(
                     IllegalArgumentException.class,
-                    () -> quotaService.recordUsage(USER_ID, 100, -50, 50)
+                    () -> quotaService.settleReservation(USER_ID, UUID.randomUUID(), 100, -50, 50)
             );
             assertTrue(exception.getMessage().contains("cachedTokens cannot be negative"));
         }
@@ -258,12 +229,9 @@ class QuotaServiceTest {
         @Test
         @DisplayName("should throw when completionTokens is negative")
         void should_throw_when_completion_tokens_negative() {
-            when(subscriptionRepository.findByUserIdForUpdate(USER_ID))
-                    .thenReturn(Optional.of(subscription));
-
             IllegalArgumentException exception = assertThrows(
                     IllegalArgumentException.class,
-                    () -> quotaService.recordUsage(USER_ID, 100, 0, -50)
+                    () -> quotaService.settleReservation(USER_ID, UUID.randomUUID(), 100, 0, -50)
             );
             assertTrue(exception.getMessage().contains("completionTokens cannot be negative"));
         }
@@ -271,18 +239,170 @@ class QuotaServiceTest {
         @Test
         @DisplayName("should throw when cachedTokens exceeds promptTokens")
         void should_throw_when_cached_exceeds_prompt() {
-            when(subscriptionRepository.findByUserIdForUpdate(USER_ID))
-                    .thenReturn(Optional.of(subscription));
-
             IllegalArgumentException exception = assertThrows(
                     IllegalArgumentException.class,
-                    () -> quotaService.recordUsage(USER_ID, 100, 200, 50)
+                    () -> quotaService.settleReservation(USER_ID, UUID.randomUUID(), 100, 200, 50)
             );
             assertTrue(exception.getMessage().contains("cachedTokens"));
             assertTrue(exception.getMessage().contains("cannot exceed promptTokens"));
         }
     }
 
+    @Nested
+    @DisplayName("reservations")
+    class Reservations {
+
+        @Test
+        @DisplayName("should reserve worst-case normalized cost when it fits")
+        void should_reserve_when_it_fits() {
+            when(subscriptionRepository.reserveTokens(eq(USER_ID), eq(1000 + 500 * 4), any())).thenReturn(1);
+            when(sereniaConfig.quotaReservationTtl()).thenReturn(Duration.ofMinutes(5));
+
+            quotaService.reserveTokens(USER_ID, 1000, 500);
+
+            ArgumentCaptor<QuotaReservation> captor = ArgumentCaptor.forClass(QuotaReservation.class);
+            verify(quotaReservationRepository).persist(captor.capture());
+            QuotaReservation reservation = captor.getValue();
+            assertEquals(USER_ID, reservation.getUserId());
+            assertEquals(1000 + 500 * 4, reservation.getReservedTokens());
+            assertEquals(Duration.ofMinutes(5), Duration.between(reservation.getCreatedAt(), reservation.getExpiresAt()));
+        }
+
+        @Test
+        @DisplayName("should reject when used plus reserved tokens leave no room")
+        void should_reject_when_reservations_leave_no_room() {
+            subscription.setTokensUsedThisMonth(5000);
+            subscription.setTokensReserved(3000);
+            when(subscriptionRepository.reserveTokens(eq(USER_ID), eq(3000), any())).thenReturn(0);
+            when(subscriptionRepository.findByUserId(USER_ID)).thenReturn(Optional.of(subscription));
+
+            QuotaExceededException ex = assertThrows(QuotaExceededException.class,
+                    () -> quotaService.reserveTokens(USER_ID, 1000, 500));
+
+            assertEquals(QuotaType.MONTHLY_TOKEN_LIMIT, ex.getQuotaType());
+            assertEquals(8000, ex.getCurrent());
+            assertEquals(3000, ex.getRequested());
+            verify(quotaReservationRepository, never()).persist(any(QuotaReservation.class));
+        }
+
+        @Test
+        @DisplayName("should add actual usage and release the reserved amount in one update when settling")
+        void should_settle_to_actual_usage() {
+            UUID reservationId = UUID.randomUUID();
+            when(quotaReservationRepository.claim(reservationId)).thenReturn(Optional.of(reservation(reservationId, 3000)));
+            when(subscriptionRepository.applyUsage(eq(USER_ID), anyInt(), anyInt(), any())).thenReturn(1);
+
+            quotaService.settleReservation(USER_ID, reservationId, 1000, 200, 100);
+
+            verify(subscriptionRepository).applyUsage(eq(USER_ID), eq(800 + 100 + 400), eq(3000), any());
+            verify(dailyStatsService).recordTokens(800 + 100 + 400);
+        }
+
+        @Test
+        @DisplayName("should only record usage when the reservation was already purged")
+        void should_settle_without_release_when_already_purged() {
+            UUID reservationId = UUID.randomUUID();
+            when(quotaReservationRepository.claim(reservationId)).thenReturn(Optional.empty());
+            when(subscriptionRepository.applyUsage(eq(USER_ID), anyInt(), anyInt(), any())).thenReturn(1);
+
+            quotaService.settleReservation(USER_ID, reservationId, 100, 0, 0);
+
+            verify(subscriptionRepository).applyUsage(eq(USER_ID), eq(100), eq(0), any());
+        }
+
+        @Test
+        @DisplayName("should give back reserved tokens and the admitted message when releasing")
+        void should_release_without_usage() {
+            UUID reservationId = UUID.randomUUID();
+            QuotaReservation reservation = reservation(reservationId, 3000);
+            when(quotaReservationRepository.claim(reservationId)).thenReturn(Optional.of(reservation));
+
+            quotaService.releaseReservation(USER_ID, reservationId);
+
+            verify(subscriptionRepository).refundTurn(eq(USER_ID), eq(3000), eq(reservation.getCreatedAt()), any());
+            verify(subscriptionRepository, never()).applyUsage(any(), anyInt(), anyInt(), any());
+        }
+
+        @Test
+        @DisplayName("should do nothing when releasing a reservation claimed by someone else")
+        void should_not_refund_twice() {
+            UUID reservationId = UUID.randomUUID();
+            when(quotaReservationRepository.claim(reservationId)).thenReturn(Optional.empty());
+
+            quotaService.releaseReservation(USER_ID, reservationId);
+
+            verifyNoInteractions(subscriptionRepository);
+        }
+
+        @Test
+        @DisplayName("should release expired reservations only once when purging")
+        void should_purge_expired_reservations() {
+            QuotaReservation won = reservation(UUID.randomUUID(), 2000);
+            QuotaReservation lost = reservation(UUID.randomUUID(), 500);
+            when(quotaReservationRepository.findExpired(any(), anyInt())).thenReturn(List.of(won, lost));
+            when(quotaReservationRepository.deleteById(won.getId())).thenReturn(1L);
+            when(quotaReservationRepository.deleteById(lost.getId())).thenReturn(0L);
+
+            quotaService.purgeExpiredReservations();
+
+            verify(subscriptionRepository).applyUsage(eq(USER_ID), eq(0), eq(2000), any());
+            verify(subscriptionRepository, never()).applyUsage(any(), anyInt(), eq(500), any());
+        }
+
+        private QuotaReservation reservation(UUID id, int tokens) {
+            Instant now = Instant.now();
+            return QuotaReservation.builder()
+                    .id(id)
+                    .userId(USER_ID)
+                    .reservedTokens(tokens)
+                    .createdAt(now)
+                    .expiresAt(now.plus(Duration.ofMinutes(5)))
+                    .build();
+        }
+    }
+
+    @Nested
+    @DisplayName("in-memory engine")
+    class InMemoryEngine {
+
+        @BeforeEach
+        void enableEngine() {
+            when(inMemoryQuotaEngine.isEnabled()).thenReturn(true);
+        }
+
+        @Test
+        @DisplayName("should admit through the engine without touching the database")
+        void should_admit_through_engine() {
+            when(inMemoryQuotaEngine.admitMessage(USER_ID)).thenReturn(subscription.getPlan());
+
+            assertSame(subscription.getPlan(), quotaService.checkQuotaBeforeCall(USER_ID));
+            verifyNoInteractions(subscriptionRepository);
+        }
+
+        @Test
+        @DisplayName("should reserve the normalized worst case through the engine")
+        void should_reserve_through_engine() {
+            UUID reservationId = UUID.randomUUID();
+            when(inMemoryQuotaEngine.reserveTokens(USER_ID, 1000 + 500 * 4)).thenReturn(reservationId);
+
+            assertEquals(reservationId, quotaService.reserveTokens(USER_ID, 1000, 500));
+            verifyNoInteractions(subscriptionRepository, quotaReservationRepository);
+        }
+
+        @Test
+        @DisplayName("should settle and release through the engine")
+        void should_settle_and_release_through_engine() {
+            UUID reservationId = UUID.randomUUID();
+
+            quotaService.settleReservation(USER_ID, reservationId, 1000, 200, 100);
+            quotaService.releaseReservation(USER_ID, reservationId);
+
+            verify(inMemoryQuotaEngine).settle(USER_ID, reservationId, 800 + 100 + 400);
+            verify(inMemoryQuotaEngine).release(USER_ID, reservationId);
+            verifyNoInteractions(subscriptionRepository, quotaReservationRepository);
+        }
+    }
+
     @Nested
     @DisplayName("canSendMessage")
     class CanSendMessage {
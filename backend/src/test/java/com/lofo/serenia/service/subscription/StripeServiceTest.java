@@ -1,12 +1,12 @@
 package com.lofo.serenia.service.subscription;
 
 import com.lofo.serenia.config.StripeConfig;
+import com.lofo.serenia.config.StripeSdk;
 import com.lofo.serenia.exception.exceptions.SereniaException;
 import com.lofo.serenia.persistence.entity.subscription.Plan;
 import com.lofo.serenia.persistence.entity.subscription.PlanType;
 import com.lofo.serenia.persistence.entity.subscription.Subscription;
 import com.lofo.serenia.persistence.entity.user.User;
-import com.lofo.serenia.persistence.repository.PlanRepository;
 import com.lofo.serenia.persistence.repository.SubscriptionRepository;
 import com.lofo.serenia.service.user.shared.UserFinder;
 import org.junit.jupiter.api.BeforeEach;
@@ -34,11 +34,14 @@ class StripeServiceTest {
     private SubscriptionRepository subscriptionRepository;
 
     @Mock
-    private PlanRepository planRepository;
+    private PlanCatalog planCatalog;
 
     @Mock
     private UserFinder userFinder;
 
+    @Mock
+    private StripeSdk stripeSdk;
+
     private StripeService stripeService;
 
     private static final UUID USER_ID = UUID.randomUUID();
@@ -50,7 +53,7 @@ class StripeServiceTest {
 
     @BeforeEach
     void setUp() {
-        stripeService = new StripeService(stripeConfig, subscriptionRepository, planRepository, userFinder);
+        stripeService = new StripeService(stripeConfig, subscriptionRepository, planCatalog, userFinder, stripeSdk);
 
         user = User.builder()
                 .id(USER_ID)
@@ -123,7 +126,7 @@ class StripeServiceTest {
         void should_throw_when_plan_not_found() {
             when(userFinder.findByIdOrThrow(USER_ID)).thenReturn(user);
             when(subscriptionRepository.findByUserId(USER_ID)).thenReturn(Optional.of(subscription));
-            when(planRepository.findByName(PlanType.PLUS)).thenReturn(Optional.empty());
+            when(planCatalog.findByType(PlanType.PLUS)).thenReturn(Optional.empty());
 
             SereniaException exception = assertThrows(
                     SereniaException.class,
@@ -145,7 +148,7 @@ class StripeServiceTest {
 
             when(userFinder.findByIdOrThrow(USER_ID)).thenReturn(user);
             when(subscriptionRepository.findByUserId(USER_ID)).thenReturn(Optional.of(subscription));
-            when(planRepository.findByName(PlanType.PLUS)).thenReturn(Optional.of(planWithoutStripeId));
+            when(planCatalog.findByType(PlanType.PLUS)).thenReturn(Optional.of(planWithoutStripeId));
 
             SereniaException exception = assertThrows(
                     SereniaException.class,
@@ -7,7 +7,6 @@ import com.lofo.serenia.persistence.entity.subscription.Subscription;
 import com.lofo.serenia.persistence.entity.subscription.SubscriptionStatus;
 import com.lofo.serenia.persistence.entity.user.Role;
 import com.lofo.serenia.persistence.entity.user.User;
-import com.lofo.serenia.persistence.repository.PlanRepository;
 import com.lofo.serenia.persistence.repository.SubscriptionRepository;
 import com.lofo.serenia.rest.dto.out.PlanDTO;
 import com.lofo.serenia.rest.dto.out.SubscriptionStatusDTO;
@@ -24,6 +23,7 @@ import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -39,7 +39,7 @@ class SubscriptionServiceTest {
     private SubscriptionRepository subscriptionRepository;
 
     @Mock
-    private PlanRepository planRepository;
+    private PlanCatalog planCatalog;
 
     @Mock
     private UserFinder userFinder;
@@ -51,7 +51,7 @@ class SubscriptionServiceTest {
 
     @BeforeEach
     void setUp() {
-        subscriptionService = new SubscriptionService(subscriptionRepository, planRepository, userFinder);
+        subscriptionService = new SubscriptionService(subscriptionRepository, planCatalog, userFinder);
     }
 
     @Nested
@@ -66,7 +66,7 @@ class SubscriptionServiceTest {
 
             when(subscriptionRepository.existsByUserId(USER_ID)).thenReturn(false);
             when(userFinder.findByIdOrThrow(USER_ID)).thenReturn(user);
-            when(planRepository.findByName(PlanType.FREE)).thenReturn(Optional.of(freePlan));
+            when(planCatalog.findByType(PlanType.FREE)).thenReturn(Optional.of(freePlan));
 
             Subscription subscription = subscriptionService.createDefaultSubscription(USER_ID);
 
@@ -88,7 +88,7 @@ class SubscriptionServiceTest {
 
             when(subscriptionRepository.existsByUserId(USER_ID)).thenReturn(false);
             when(userFinder.findByIdOrThrow(USER_ID)).thenReturn(user);
-            when(planRepository.findByName(PlanType.PLUS)).thenReturn(Optional.of(plusPlan));
+            when(planCatalog.findByType(PlanType.PLUS)).thenReturn(Optional.of(plusPlan));
 
             Subscription subscription = subscriptionService.createSubscription(USER_ID, PlanType.PLUS);
 
@@ -158,7 +158,7 @@ class SubscriptionServiceTest {
             Plan maxPlan = createPlan(PlanType.MAX);
 
             when(subscriptionRepository.findByUserId(USER_ID)).thenReturn(Optional.of(subscription));
-            when(planRepository.findByName(PlanType.MAX)).thenReturn(Optional.of(maxPlan));
+            when(planCatalog.findByType(PlanType.MAX)).thenReturn(Optional.of(maxPlan));
 
             Subscription updated = subscriptionService.changePlan(USER_ID, PlanType.MAX);
 
@@ -171,7 +171,7 @@ class SubscriptionServiceTest {
         void should_throw_when_plan_not_found() {
             Subscription subscription = createSubscription();
             when(subscriptionRepository.findByUserId(USER_ID)).thenReturn(Optional.of(subscription));
-            when(planRepository.findByName(PlanType.MAX)).thenReturn(Optional.empty());
+            when(planCatalog.findByType(PlanType.MAX)).thenReturn(Optional.empty());
 
             assertThatThrownBy(() -> subscriptionService.changePlan(USER_ID, PlanType.MAX))
                     .isInstanceOf(SereniaException.class)
@@ -188,6 +188,7 @@ class SubscriptionServiceTest {
         void should_return_correct_status_dto() {
             Subscription subscription = createSubscription();
             when(subscriptionRepository.findByUserId(USER_ID)).thenReturn(Optional.of(subscription));
+            when(planCatalog.getById(subscription.getPlan().getId())).thenReturn(subscription.getPlan());
 
             SubscriptionStatusDTO status = subscriptionService.getStatus(USER_ID);
 
@@ -201,18 +202,17 @@ class SubscriptionServiceTest {
     class GetAllPlans {
 
         @Test
-        @DisplayName("should return all available plans")
+        @DisplayName("should return all available plans with their entity tag")
         void should_return_all_available_plans() {
-            List<Plan> plans = List.of(
-                    createPlan(PlanType.FREE),
-                    createPlan(PlanType.PLUS),
-                    createPlan(PlanType.MAX)
-            );
-            when(planRepository.listAll()).thenReturn(plans);
+            List<PlanDTO> plans = Stream.of(PlanType.values())
+                    .map(type -> PlanDTO.from(createPlan(type)))
+                    .toList();
+            when(planCatalog.listing()).thenReturn(new PlanCatalog.PlanListing(plans, "v1"));
 
-            List<PlanDTO> result = subscriptionService.getAllPlans();
+            PlanCatalog.PlanListing result = subscriptionService.getAllPlans();
 
-            assertThat(result).hasSize(3);
+            assertThat(result.plans()).hasSize(3);
+            assertThat(result.etag()).isEqualTo("v1");
         }
     }
 
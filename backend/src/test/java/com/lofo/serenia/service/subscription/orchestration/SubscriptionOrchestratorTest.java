@@ -4,15 +4,14 @@ import com.lofo.serenia.persistence.entity.subscription.Plan;
 import com.lofo.serenia.persistence.entity.subscription.PlanType;
 import com.lofo.serenia.persistence.entity.subscription.SubscriptionStatus;
 import com.lofo.serenia.persistence.entity.user.User;
-import com.lofo.serenia.persistence.repository.PlanRepository;
 import com.lofo.serenia.persistence.repository.SubscriptionRepository;
+import com.lofo.serenia.service.subscription.PlanCatalog;
 import com.lofo.serenia.service.subscription.mapper.DateTimeConverter;
 import com.lofo.serenia.service.subscription.mapper.StripeStatusMapper;
 import com.stripe.model.Price;
 import com.stripe.model.Subscription;
 import com.stripe.model.SubscriptionItem;
 import com.stripe.model.SubscriptionItemCollection;
-import io.quarkus.hibernate.orm.panache.PanacheQuery;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -29,6 +28,7 @@ import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -43,7 +43,7 @@ class SubscriptionOrchestratorTest {
     private SubscriptionRepository subscriptionRepository;
 
     @Mock
-    private PlanRepository planRepository;
+    private PlanCatalog planCatalog;
 
     @Mock
     private StripeStatusMapper statusMapper;
@@ -51,18 +51,16 @@ class SubscriptionOrchestratorTest {
     @Mock
     private DateTimeConverter dateTimeConverter;
 
-    @Mock
-    private PanacheQuery<Plan> planQuery;
-
     private com.lofo.serenia.persistence.entity.subscription.Subscription internalSubscription;
     private Subscription stripeSubscription;
     private Plan planPlus;
+    private Plan freePlan;
 
     @BeforeEach
     void setUp() {
         orchestrator = new SubscriptionOrchestrator(
                 subscriptionRepository,
-                planRepository,
+                planCatalog,
                 statusMapper,
                 dateTimeConverter
         );
@@ -72,7 +70,7 @@ class SubscriptionOrchestratorTest {
                 .email("test@example.com")
                 .build();
 
-        Plan freePlan = Plan.builder()
+        freePlan = Plan.builder()
                 .id(UUID.randomUUID())
                 .name(PlanType.FREE)
                 .build();
@@ -119,8 +117,7 @@ class SubscriptionOrchestratorTest {
             when(statusMapper.mapStatus("active")).thenReturn(SubscriptionStatus.ACTIVE);
             when(dateTimeConverter.convertEpochToDateTime(anyLong()))
                     .thenReturn(Instant.now().plus(30, ChronoUnit.DAYS));
-            when(planRepository.find("stripePriceId", "price_test123")).thenReturn(planQuery);
-            when(planQuery.firstResultOptional()).thenReturn(Optional.of(planPlus));
+            when(planCatalog.findByStripePriceId("price_test123")).thenReturn(Optional.of(planPlus));
 
             orchestrator.synchronizeFromStripe(internalSubscription, stripeSubscription);
 
@@ -141,13 +138,39 @@ class SubscriptionOrchestratorTest {
             when(statusMapper.mapStatus("active")).thenReturn(SubscriptionStatus.ACTIVE);
             when(dateTimeConverter.convertEpochToDateTime(anyLong()))
                     .thenReturn(Instant.now().plus(30, ChronoUnit.DAYS));
-            when(planRepository.find("stripePriceId", "price_test123")).thenReturn(planQuery);
-            when(planQuery.firstResultOptional()).thenReturn(Optional.of(planPlus));
+            when(planCatalog.findByStripePriceId("price_test123")).thenReturn(Optional.of(planPlus));
 
             orchestrator.synchronizeFromStripe(internalSubscription, stripeSubscription);
 
             verify(subscriptionRepository).persist(internalSubscription);
         }
     }
+
+    @Nested
+    @DisplayName("downgradeToFree")
+    class DowngradeToFree {
+
+        @Test
+        @DisplayName("should return to the FREE plan and clear subscription data but keep the customer")
+        void should_downgrade_to_free_plan() {
+            internalSubscription.setPlan(planPlus);
+            internalSubscription.setStripeSubscriptionId("sub_test123");
+            internalSubscription.setStatus(SubscriptionStatus.CANCELED);
+            internalSubscription.setCancelAtPeriodEnd(true);
+            internalSubscription.setCurrentPeriodEnd(Instant.now());
+            when(planCatalog.getFreePlan()).thenReturn(freePlan);
+
+            orchestrator.downgradeToFree(internalSubscription);
+
+            assertEquals(freePlan, internalSubscription.getPlan());
+            assertNull(internalSubscription.getStripeSubscriptionId());
+            assertEquals("cus_test123", internalSubscription.getStripeCustomerId());
+            assertEquals(SubscriptionStatus.ACTIVE, internalSubscription.getStatus());
+            assertFalse(internalSubscription.getCancelAtPeriodEnd());
+            assertNull(internalSubscription.getCurrentPeriodEnd());
+
+            verify(subscriptionRepository).persist(internalSubscription);
+        }
+    }
 }
 
@@ -0,0 +1,199 @@
+package com.lofo.serenia.service.subscription.quota;
+
+import com.lofo.serenia.exception.exceptions.QuotaExceededException;
+import com.lofo.serenia.exception.exceptions.QuotaType;
+import com.lofo.serenia.persistence.entity.subscription.Plan;
+import com.lofo.serenia.persistence.entity.subscription.PlanType;
+import com.lofo.serenia.persistence.entity.subscription.Subscription;
+import com.lofo.serenia.persistence.repository.SubscriptionRepository.CounterDelta;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("QuotaCounters tests")
+class QuotaCountersTest {
+
+    private static final UUID USER_ID = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final Instant NOW = Instant.parse("2026-03-15T12:00:00Z");
+
+    private Plan plan;
+    private Subscription subscription;
+
+    @BeforeEach
+    void setUp() {
+        plan = Plan.builder()
+                .name(PlanType.FREE)
+                .monthlyTokenLimit(10000)
+                .dailyMessageLimit(10)
+                .build();
+        subscription = Subscription.builder()
+                .plan(plan)
+                .tokensUsedThisMonth(0)
+                .messagesSentToday(0)
+                .monthlyPeriodStart(NOW.minus(1, ChronoUnit.DAYS))
+                .dailyPeriodStart(NOW.minus(1, ChronoUnit.HOURS))
+                .build();
+    }
+
+    @Test
+    @DisplayName("should count admitted messages as pending deltas")
+    void should_count_admitted_messages() {
+        QuotaCounters counters = counters();
+
+        assertTrue(counters.admit(NOW));
+        assertTrue(counters.admit(NOW));
+
+        CounterDelta delta = counters.drain();
+        assertEquals(2, delta.messages());
+        assertFalse(delta.dailyReset());
+        assertNull(counters.drain());
+    }
+
+    @Test
+    @DisplayName("should reject with the daily limit once reached")
+    void should_reject_at_daily_limit() {
+        subscription.setMessagesSentToday(10);
+        QuotaCounters counters = counters();
+
+        QuotaExceededException ex = assertThrows(QuotaExceededException.class, () -> counters.admit(NOW));
+
+        assertEquals(QuotaType.DAILY_MESSAGE_LIMIT, ex.getQuotaType());
+        assertNull(counters.drain());
+    }
+
+    @Test
+    @DisplayName("should reset an expired day and overwrite the stored counter on flush")
+    void should_reset_expired_day() {
+        subscription.setMessagesSentToday(10);
+        subscription.setDailyPeriodStart(NOW.minus(2, ChronoUnit.DAYS));
+        QuotaCounters counters = counters();
+
+        assertTrue(counters.admit(NOW));
+
+        CounterDelta delta = counters.drain();
+        assertTrue(delta.dailyReset());
+        assertEquals(NOW, delta.dailyPeriodStart());
+        assertEquals(1, delta.messages());
+    }
+
+    @Test
+    @DisplayName("should count reservations against the monthly limit")
+    void should_bound_reservations() {
+        subscription.setTokensUsedThisMonth(6000);
+        QuotaCounters counters = counters();
+
+        assertTrue(counters.reserve(3000, NOW));
+        QuotaExceededException ex = assertThrows(QuotaExceededException.class, () -> counters.reserve(2000, NOW));
+
+        assertEquals(9000, ex.getCurrent());
+        assertEquals(3000, counters.tokensReserved());
+    }
+
+    @Test
+    @DisplayName("should add usage and release the reservation when settling")
+    void should_settle() {
+        QuotaCounters counters = counters();
+        counters.reserve(3000, NOW);
+
+        assertTrue(counters.settle(1200, 3000, NOW));
+
+        assertEquals(0, counters.tokensReserved());
+        assertEquals(1200, counters.pendingTokens());
+    }
+
+    @Test
+    @DisplayName("should give back the message of a refunded turn")
+    void should_refund_turn() {
+        QuotaCounters counters = counters();
+        counters.admit(NOW);
+        counters.reserve(3000, NOW);
+
+        assertTrue(counters.refund(3000, NOW, NOW));
+
+        assertEquals(0, counters.tokensReserved());
+        assertNull(counters.drain());
+    }
+
+    @Test
+    @DisplayName("should merge back a failed flush")
+    void should_restore_failed_flush() {
+        QuotaCounters counters = counters();
+        counters.settle(500, 0, NOW);
+        CounterDelta delta = counters.drain();
+        counters.settle(200, 0, NOW);
+
+        counters.restore(delta);
+
+        assertEquals(700, counters.drain().tokens());
+    }
+
+    @Test
+    @DisplayName("should refuse operations once retired")
+    void should_refuse_operations_once_retired() {
+        QuotaCounters counters = counters();
+
+        assertTrue(counters.retireIfIdle(NOW.plusSeconds(1)));
+
+        assertFalse(counters.admit(NOW));
+        assertFalse(counters.settle(100, 0, NOW));
+    }
+
+    @Test
+    @DisplayName("should not retire counters with pending changes")
+    void should_not_retire_dirty_counters() {
+        QuotaCounters counters = counters();
+        counters.admit(NOW);
+
+        assertFalse(counters.retireIfIdle(NOW.plusSeconds(1)));
+    }
+
+    @Test
+    @DisplayName("should admit exactly the daily limit out of 64 parallel senders")
+    void should_not_overshoot_under_contention() throws Exception {
+        QuotaCounters counters = counters();
+        AtomicInteger admitted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < 64; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        counters.admit(NOW);
+                        admitted.incrementAndGet();
+                    } catch (QuotaExceededException e) {
+                        // expected past the limit
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(10, admitted.get());
+        assertEquals(10, counters.drain().messages());
+    }
+
+    private QuotaCounters counters() {
+        return new QuotaCounters(USER_ID, subscription, plan, NOW);
+    }
+}
@@ -0,0 +1,221 @@
+package com.lofo.serenia.service.subscription.reconciliation;
+
+import com.lofo.serenia.persistence.entity.subscription.Plan;
+import com.lofo.serenia.persistence.entity.subscription.PlanType;
+import com.lofo.serenia.persistence.entity.subscription.Subscription;
+import com.lofo.serenia.persistence.entity.subscription.SubscriptionStatus;
+import com.lofo.serenia.persistence.entity.user.Role;
+import com.lofo.serenia.persistence.entity.user.User;
+import com.lofo.serenia.persistence.repository.PlanRepository;
+import com.lofo.serenia.persistence.repository.SubscriptionRepository;
+import com.lofo.serenia.persistence.repository.UserRepository;
+import com.lofo.serenia.util.StripeApiStub;
+import com.lofo.serenia.util.StripeApiStub.StubSubscription;
+import com.stripe.Stripe;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the reconciliation job against {@link StripeApiStub}. The number of synthetic subscriptions defaults to
+ * a few pages and can be raised for a throughput run, e.g. {@code -Dreconciliation.subscriptions=100000}; the job
+ * logs the rate it reached.
+ */
+@QuarkusTest
+@DisplayName("StripeReconciliationJob Integration Tests")
+class StripeReconciliationJobIT {
+
+    private static final int SUBSCRIPTIONS = Integer.getInteger("reconciliation.subscriptions", 250);
+    private static final int INSERT_CHUNK = 1000;
+    private static final long PERIOD_END = Instant.parse("2026-11-01T00:00:00Z").getEpochSecond();
+    private static final long RENEWED_PERIOD_END = Instant.parse("2026-12-01T00:00:00Z").getEpochSecond();
+
+    @Inject
+    StripeReconciliationJob stripeReconciliationJob;
+
+    @Inject
+    SubscriptionRepository subscriptionRepository;
+
+    @Inject
+    UserRepository userRepository;
+
+    @Inject
+    PlanRepository planRepository;
+
+    private StripeApiStub stub;
+
+    @BeforeEach
+    void setup() {
+        deleteAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        Stripe.overrideApiBase(Stripe.LIVE_API_BASE);
+        if (stub != null) {
+            stub.close();
+        }
+        deleteAll();
+    }
+
+    @Test
+    @DisplayName("should fix the subscriptions that drifted from Stripe and leave the others untouched")
+    void should_fix_drifted_subscriptions() throws IOException {
+        insertLocalSubscriptions(SUBSCRIPTIONS);
+        List<StubSubscription> remote = new ArrayList<>();
+        int expectedFixed = 0;
+        for (int i = 0; i < SUBSCRIPTIONS; i++) {
+            boolean pastDue = i % 10 == 0;
+            boolean renewed = i % 25 == 1;
+            if (pastDue || renewed) {
+                expectedFixed++;
+            }
+            remote.add(new StubSubscription("sub_" + i, "cus_" + i, pastDue ? "past_due" : "active", "price_plus",
+                    renewed ? RENEWED_PERIOD_END : PERIOD_END, false));
+        }
+        startStub(remote);
+
+        ReconciliationReport report = stripeReconciliationJob.reconcile();
+
+        assertThat(report.scanned()).isEqualTo(SUBSCRIPTIONS);
+        assertThat(report.fixed()).isEqualTo(expectedFixed);
+        assertThat(report.unmatched()).isZero();
+        assertThat(report.failed()).isZero();
+        assertThat(stub.pageRequests()).isEqualTo((SUBSCRIPTIONS + 99) / 100);
+        assertThat(findByCustomer("cus_10").getStatus()).isEqualTo(SubscriptionStatus.PAST_DUE);
+        assertThat(findByCustomer("cus_1").getCurrentPeriodEnd()).isEqualTo(Instant.ofEpochSecond(RENEWED_PERIOD_END));
+        assertThat(findByCustomer("cus_2").getStatus()).isEqualTo(SubscriptionStatus.ACTIVE);
+    }
+
+    @Test
+    @DisplayName("should find nothing to fix on a second pass")
+    void should_be_idempotent() throws IOException {
+        insertLocalSubscriptions(20);
+        List<StubSubscription> remote = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            remote.add(new StubSubscription("sub_" + i, "cus_" + i, "past_due", "price_plus", RENEWED_PERIOD_END, true));
+        }
+        startStub(remote);
+
+        ReconciliationReport first = stripeReconciliationJob.reconcile();
+        ReconciliationReport second = stripeReconciliationJob.reconcile();
+
+        assertThat(first.fixed()).isEqualTo(20);
+        assertThat(second.fixed()).isZero();
+    }
+
+    @Test
+    @DisplayName("should ignore unknown customers and the canceled subscriptions a customer replaced")
+    void should_skip_unmatched_subscriptions() throws IOException {
+        insertLocalSubscriptions(1);
+        startStub(List.of(
+                new StubSubscription("sub_0", "cus_0", "active", "price_plus", PERIOD_END, false),
+                new StubSubscription("sub_old", "cus_0", "canceled", "price_plus", PERIOD_END, false),
+                new StubSubscription("sub_unknown", "cus_unknown", "active", "price_plus", PERIOD_END, false)));
+
+        ReconciliationReport report = stripeReconciliationJob.reconcile();
+
+        assertThat(report.scanned()).isEqualTo(3);
+        assertThat(report.fixed()).isZero();
+        assertThat(report.unmatched()).isEqualTo(2);
+        assertThat(findByCustomer("cus_0").getStatus()).isEqualTo(SubscriptionStatus.ACTIVE);
+    }
+
+    @Test
+    @DisplayName("should link a live Stripe subscription to a customer whose creation event was missed")
+    void should_link_missed_subscription() throws IOException {
+        insertLocalSubscriptions(1);
+        QuarkusTransaction.requiringNew().run(() -> findByCustomer("cus_0").setStripeSubscriptionId(null));
+        startStub(List.of(new StubSubscription("sub_new", "cus_0", "active", "price_plus", PERIOD_END, false)));
+
+        ReconciliationReport report = stripeReconciliationJob.reconcile();
+
+        assertThat(report.fixed()).isEqualTo(1);
+        assertThat(findByCustomer("cus_0").getStripeSubscriptionId()).isEqualTo("sub_new");
+    }
+
+    @Test
+    @DisplayName("should return a customer to the FREE plan when the subscription it tracks ended")
+    void should_downgrade_ended_subscription() throws IOException {
+        insertLocalSubscriptions(2);
+        startStub(List.of(
+                new StubSubscription("sub_0", "cus_0", "canceled", "price_plus", PERIOD_END, false),
+                new StubSubscription("sub_1", "cus_1", "incomplete_expired", "price_plus", PERIOD_END, false)));
+
+        ReconciliationReport first = stripeReconciliationJob.reconcile();
+        ReconciliationReport second = stripeReconciliationJob.reconcile();
+
+        assertThat(first.fixed()).isEqualTo(2);
+        assertThat(second.fixed()).isZero();
+        for (String customerId : List.of("cus_0", "cus_1")) {
+            Subscription subscription = findByCustomer(customerId);
+            assertThat(subscription.getStripeSubscriptionId()).isNull();
+            assertThat(subscription.getStatus()).isEqualTo(SubscriptionStatus.ACTIVE);
+            assertThat(subscription.getCurrentPeriodEnd()).isNull();
+            assertThat(QuarkusTransaction.requiringNew().call(() -> subscriptionRepository.findByStripeCustomerId(customerId)
+                    .orElseThrow().getPlan().getName())).isEqualTo(PlanType.FREE);
+        }
+    }
+
+    private void startStub(List<StubSubscription> subscriptions) throws IOException {
+        stub = StripeApiStub.start(subscriptions);
+        Stripe.overrideApiBase(stub.baseUrl());
+    }
+
+    private void insertLocalSubscriptions(int count) {
+        Plan plusPlan = QuarkusTransaction.requiringNew().call(() -> planRepository.findByName(PlanType.PLUS).orElseThrow());
+        for (int from = 0; from < count; from += INSERT_CHUNK) {
+            int start = from;
+            int end = Math.min(count, from + INSERT_CHUNK);
+            QuarkusTransaction.requiringNew().run(() -> {
+                for (int i = start; i < end; i++) {
+                    User user = User.builder()
+                            .email("reconciliation-" + i + "@example.com")
+                            .password("hashedpassword")
+                            .firstName("Stripe")
+                            .lastName("Customer")
+                            .accountActivated(true)
+                            .role(Role.USER)
+                            .build();
+                    userRepository.persist(user);
+                    subscriptionRepository.persist(Subscription.builder()
+                            .user(user)
+                            .plan(plusPlan)
+                            .status(SubscriptionStatus.ACTIVE)
+                            .stripeCustomerId("cus_" + i)
+                            .stripeSubscriptionId("sub_" + i)
+                            .currentPeriodEnd(Instant.ofEpochSecond(PERIOD_END))
+                            .cancelAtPeriodEnd(false)
+                            .tokensUsedThisMonth(0)
+                            .messagesSentToday(0)
+                            .monthlyPeriodStart(Instant.now())
+                            .dailyPeriodStart(Instant.now())
+                            .build());
+                }
+            });
+        }
+    }
+
+    private Subscription findByCustomer(String customerId) {
+        return QuarkusTransaction.requiringNew().call(() -> subscriptionRepository.findByStripeCustomerId(customerId)
+                .orElseThrow());
+    }
+
+    private void deleteAll() {
+        QuarkusTransaction.requiringNew().run(() -> {
+            subscriptionRepository.deleteAll();
+            userRepository.deleteAll();
+        });
+    }
+}
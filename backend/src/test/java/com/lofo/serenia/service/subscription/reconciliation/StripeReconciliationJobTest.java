@@ -0,0 +1,156 @@
+package com.lofo.serenia.service.subscription.reconciliation;
+
+import com.lofo.serenia.config.StripeConfig;
+import com.lofo.serenia.config.StripeSdk;
+import com.lofo.serenia.persistence.entity.subscription.Plan;
+import com.lofo.serenia.persistence.entity.subscription.PlanType;
+import com.lofo.serenia.persistence.entity.subscription.SubscriptionStatus;
+import com.lofo.serenia.persistence.repository.SubscriptionRepository;
+import com.lofo.serenia.service.subscription.PlanCatalog;
+import com.lofo.serenia.service.subscription.mapper.DateTimeConverter;
+import com.lofo.serenia.service.subscription.mapper.StripeStatusMapper;
+import com.lofo.serenia.service.subscription.orchestration.SubscriptionOrchestrator;
+import com.stripe.model.Price;
+import com.stripe.model.Subscription;
+import com.stripe.model.SubscriptionItem;
+import com.stripe.model.SubscriptionItemCollection;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("StripeReconciliationJob Tests")
+class StripeReconciliationJobTest {
+
+    private static final long PERIOD_END = 1_790_000_000L;
+
+    @Mock
+    private StripeConfig stripeConfig;
+
+    @Mock
+    private SubscriptionRepository subscriptionRepository;
+
+    @Mock
+    private SubscriptionOrchestrator subscriptionOrchestrator;
+
+    @Mock
+    private PlanCatalog planCatalog;
+
+    @Mock
+    private StripeSdk stripeSdk;
+
+    private StripeReconciliationJob job;
+    private Plan planPlus;
+    private com.lofo.serenia.persistence.entity.subscription.Subscription local;
+    private Subscription remote;
+    private SubscriptionItem item;
+
+    @BeforeEach
+    void setUp() {
+        job = new StripeReconciliationJob(stripeConfig, subscriptionRepository, subscriptionOrchestrator,
+                new StripeStatusMapper(), new DateTimeConverter(), planCatalog, stripeSdk);
+
+        planPlus = Plan.builder()
+                .id(UUID.randomUUID())
+                .name(PlanType.PLUS)
+                .stripePriceId("price_plus")
+                .build();
+
+        local = com.lofo.serenia.persistence.entity.subscription.Subscription.builder()
+                .id(UUID.randomUUID())
+                .plan(planPlus)
+                .stripeCustomerId("cus_test")
+                .stripeSubscriptionId("sub_test")
+                .status(SubscriptionStatus.ACTIVE)
+                .cancelAtPeriodEnd(false)
+                .currentPeriodEnd(Instant.ofEpochSecond(PERIOD_END))
+                .build();
+
+        Price price = new Price();
+        price.setId("price_plus");
+        item = new SubscriptionItem();
+        item.setCurrentPeriodEnd(PERIOD_END);
+        item.setPrice(price);
+        SubscriptionItemCollection items = new SubscriptionItemCollection();
+        items.setData(List.of(item));
+
+        remote = new Subscription();
+        remote.setId("sub_test");
+        remote.setCustomer("cus_test");
+        remote.setStatus("active");
+        remote.setCancelAtPeriodEnd(false);
+        remote.setItems(items);
+
+        lenient().when(planCatalog.findByStripePriceId("price_plus")).thenReturn(Optional.of(planPlus));
+    }
+
+    @Test
+    @DisplayName("should not report drift when the local row matches Stripe")
+    void should_not_drift_when_in_sync() {
+        assertFalse(job.hasDrifted(local, remote));
+    }
+
+    @Test
+    @DisplayName("should report drift when the status differs")
+    void should_drift_on_status() {
+        remote.setStatus("past_due");
+
+        assertTrue(job.hasDrifted(local, remote));
+    }
+
+    @Test
+    @DisplayName("should report drift when the cancellation flag differs")
+    void should_drift_on_cancel_at_period_end() {
+        remote.setCancelAtPeriodEnd(true);
+
+        assertTrue(job.hasDrifted(local, remote));
+    }
+
+    @Test
+    @DisplayName("should report drift when the period was renewed")
+    void should_drift_on_period_end() {
+        item.setCurrentPeriodEnd(PERIOD_END + 86_400);
+
+        assertTrue(job.hasDrifted(local, remote));
+    }
+
+    @Test
+    @DisplayName("should report drift when the local row has no Stripe subscription id yet")
+    void should_drift_on_missing_subscription_id() {
+        local.setStripeSubscriptionId(null);
+
+        assertTrue(job.hasDrifted(local, remote));
+    }
+
+    @Test
+    @DisplayName("should report drift when the price belongs to another plan")
+    void should_drift_on_plan() {
+        Plan planMax = Plan.builder().id(UUID.randomUUID()).name(PlanType.MAX).stripePriceId("price_max").build();
+        item.getPrice().setId("price_max");
+        when(planCatalog.findByStripePriceId("price_max")).thenReturn(Optional.of(planMax));
+
+        assertTrue(job.hasDrifted(local, remote));
+    }
+
+    @Test
+    @DisplayName("should ignore a price no plan is bound to")
+    void should_ignore_unknown_price() {
+        item.getPrice().setId("price_unknown");
+        when(planCatalog.findByStripePriceId("price_unknown")).thenReturn(Optional.empty());
+
+        assertFalse(job.hasDrifted(local, remote));
+    }
+}
@@ -0,0 +1,119 @@
+package com.lofo.serenia.service.subscription.webhook;
+
+import com.lofo.serenia.persistence.entity.subscription.StripeInboxEvent;
+import com.lofo.serenia.persistence.entity.subscription.StripeInboxStatus;
+import com.lofo.serenia.persistence.repository.StripeInboxEventRepository;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@QuarkusTest
+@DisplayName("StripeEventInbox Integration Tests")
+class StripeEventInboxIT {
+
+    private static final Instant T0 = Instant.parse("2026-01-01T10:00:00Z");
+
+    @Inject
+    StripeEventInbox stripeEventInbox;
+
+    @Inject
+    StripeInboxEventRepository stripeInboxEventRepository;
+
+    @BeforeEach
+    @Transactional
+    void setup() {
+        stripeInboxEventRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("should store an event once whatever the number of deliveries")
+    void should_dedupe_redeliveries() {
+        boolean first = insert("evt_dup", "cus_a", T0);
+        boolean second = insert("evt_dup", "cus_a", T0);
+
+        assertThat(first).isTrue();
+        assertThat(second).isFalse();
+        assertThat(QuarkusTransaction.requiringNew().call(() -> stripeInboxEventRepository.count())).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should hand out only the oldest pending event of each customer")
+    void should_order_events_per_customer() {
+        insert("evt_a2", "cus_a", T0.plusSeconds(2));
+        insert("evt_a1", "cus_a", T0.plusSeconds(1));
+        insert("evt_b1", "cus_b", T0.plusSeconds(3));
+        insert("evt_none", null, T0.plusSeconds(4));
+
+        assertThat(stripeEventInbox.findClaimable(10)).extracting(StripeInboxEvent::getId)
+                .containsExactly("evt_a1", "evt_b1", "evt_none");
+
+        QuarkusTransaction.requiringNew().run(() -> stripeInboxEventRepository.markDone("evt_a1", null, Instant.now()));
+
+        assertThat(stripeEventInbox.findClaimable(10)).extracting(StripeInboxEvent::getId)
+                .containsExactly("evt_a2", "evt_b1", "evt_none");
+    }
+
+    @Test
+    @DisplayName("should hold a customer's later events back while an earlier one waits for its retry")
+    void should_hold_customer_queue_during_backoff() {
+        insert("evt_a1", "cus_a", T0.plusSeconds(1));
+        insert("evt_a2", "cus_a", T0.plusSeconds(2));
+        StripeInboxEvent head = stripeEventInbox.findClaimable(10).getFirst();
+
+        boolean dead = stripeEventInbox.recordFailure(head, new IllegalStateException("boom"));
+
+        assertThat(dead).isFalse();
+        assertThat(stripeEventInbox.findClaimable(10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should not hand out an event leased by another worker")
+    void should_not_hand_out_leased_events() {
+        insert("evt_a1", "cus_a", T0);
+        StripeInboxEvent event = stripeEventInbox.findClaimable(10).getFirst();
+
+        assertThat(stripeEventInbox.claim(event)).isTrue();
+        assertThat(stripeEventInbox.claim(event)).isFalse();
+        assertThat(stripeEventInbox.findClaimable(10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should double the retry delay up to the cap")
+    void should_back_off_exponentially() {
+        Duration base = Duration.ofSeconds(10);
+
+        assertThat(StripeEventInbox.backoff(base, 1)).isEqualTo(Duration.ofSeconds(10));
+        assertThat(StripeEventInbox.backoff(base, 3)).isEqualTo(Duration.ofSeconds(40));
+        assertThat(StripeEventInbox.backoff(base, 20)).isEqualTo(StripeEventInbox.MAX_BACKOFF);
+    }
+
+    @Test
+    @DisplayName("should dead-letter an event once out of attempts")
+    void should_dead_letter_after_max_attempts() {
+        insert("evt_a1", "cus_a", T0);
+        StripeInboxEvent event = stripeEventInbox.findClaimable(10).getFirst();
+        event.setAttempts(7);
+
+        boolean dead = stripeEventInbox.recordFailure(event, new IllegalStateException("boom"));
+
+        assertThat(dead).isTrue();
+        StripeInboxEvent stored = QuarkusTransaction.requiringNew()
+                .call(() -> stripeInboxEventRepository.findById("evt_a1"));
+        assertThat(stored.getStatus()).isEqualTo(StripeInboxStatus.DEAD);
+        assertThat(stored.getLastError()).isEqualTo("boom");
+    }
+
+    private boolean insert(String id, String customerId, Instant createdAt) {
+        return QuarkusTransaction.requiringNew().call(() -> stripeInboxEventRepository.insertIfAbsent(
+                id, "invoice.paid", customerId, "{}", createdAt, Instant.now()));
+    }
+}
@@ -0,0 +1,149 @@
+package com.lofo.serenia.service.subscription.webhook;
+
+import com.lofo.serenia.exception.exceptions.WebhookProcessingException;
+import com.lofo.serenia.persistence.entity.subscription.StripeInboxEvent;
+import com.lofo.serenia.persistence.entity.subscription.StripeInboxStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("StripeEventInboxWorker tests")
+class StripeEventInboxWorkerTest {
+
+    @Mock
+    private StripeEventInbox stripeEventInbox;
+
+    private ExecutorService executor;
+    private StripeEventInboxWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        worker = new StripeEventInboxWorker(stripeEventInbox, executor, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("should process a claimed event")
+    void should_process_claimed_event() {
+        StripeInboxEvent event = event("evt_1");
+        when(stripeEventInbox.claim(event)).thenReturn(true);
+
+        worker.process(event);
+
+        verify(stripeEventInbox).process(event);
+        verify(stripeEventInbox, never()).recordFailure(any(), any());
+        verify(stripeEventInbox, never()).skip(any(), any());
+    }
+
+    @Test
+    @DisplayName("should leave an event held by another instance alone")
+    void should_skip_event_held_elsewhere() {
+        StripeInboxEvent event = event("evt_1");
+        when(stripeEventInbox.claim(event)).thenReturn(false);
+
+        worker.process(event);
+
+        verify(stripeEventInbox, never()).process(any());
+    }
+
+    @Test
+    @DisplayName("should mark business errors as done without retrying")
+    void should_skip_business_errors() {
+        StripeInboxEvent event = event("evt_1");
+        WebhookProcessingException error = new WebhookProcessingException("Subscription not found");
+        when(stripeEventInbox.claim(event)).thenReturn(true);
+        doThrow(error).when(stripeEventInbox).process(event);
+
+        worker.process(event);
+
+        verify(stripeEventInbox).skip(event, error);
+        verify(stripeEventInbox, never()).recordFailure(any(), any());
+    }
+
+    @Test
+    @DisplayName("should record unexpected failures for a later retry")
+    void should_record_unexpected_failures() {
+        StripeInboxEvent event = event("evt_1");
+        IllegalStateException error = new IllegalStateException("database unavailable");
+        when(stripeEventInbox.claim(event)).thenReturn(true);
+        doThrow(error).when(stripeEventInbox).process(event);
+
+        worker.process(event);
+
+        verify(stripeEventInbox).recordFailure(event, error);
+        verify(stripeEventInbox, never()).skip(any(), any());
+    }
+
+    @Test
+    @DisplayName("should drain rounds until no event is claimable")
+    void should_drain_until_empty() {
+        StripeInboxEvent first = event("evt_1");
+        StripeInboxEvent second = event("evt_2");
+        StripeInboxEvent next = event("evt_3");
+        when(stripeEventInbox.findClaimable(StripeEventInboxWorker.EVENTS_PER_ROUND))
+                .thenReturn(List.of(first, second), List.of(next), List.of());
+        when(stripeEventInbox.claim(any())).thenReturn(true);
+
+        worker.drain();
+
+        verify(stripeEventInbox).process(first);
+        verify(stripeEventInbox).process(second);
+        verify(stripeEventInbox).process(next);
+        verify(stripeEventInbox, times(3)).findClaimable(StripeEventInboxWorker.EVENTS_PER_ROUND);
+    }
+
+    @Test
+    @DisplayName("should keep at most the configured number of events in flight")
+    void should_bound_parallelism_to_workers() {
+        List<StripeInboxEvent> round = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            round.add(event("evt_" + i));
+        }
+        when(stripeEventInbox.findClaimable(StripeEventInboxWorker.EVENTS_PER_ROUND))
+                .thenReturn(round, List.of());
+        when(stripeEventInbox.claim(any())).thenReturn(true);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        doAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            TimeUnit.MILLISECONDS.sleep(20);
+            inFlight.decrementAndGet();
+            return null;
+        }).when(stripeEventInbox).process(any());
+
+        worker.drain();
+
+        verify(stripeEventInbox, times(6)).process(any());
+        assertThat(maxInFlight.get()).isLessThanOrEqualTo(2);
+    }
+
+    private static StripeInboxEvent event(String id) {
+        return StripeInboxEvent.builder()
+                .id(id)
+                .type("invoice.paid")
+                .payload("{}")
+                .status(StripeInboxStatus.PENDING)
+                .build();
+    }
+}
@@ -1,10 +1,12 @@
 package com.lofo.serenia.service.subscription.webhook;
 
 import com.lofo.serenia.exception.exceptions.WebhookHandlerNotFoundException;
+import com.lofo.serenia.exception.exceptions.WebhookProcessingException;
 import com.lofo.serenia.service.subscription.StripeEventType;
 import com.lofo.serenia.service.subscription.webhook.handlers.StripeEventHandler;
 import com.stripe.model.Event;
-import jakarta.enterprise.inject.Instance;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -14,7 +16,9 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -25,21 +29,21 @@ class StripeWebhookDispatcherTest {
 
     private StripeWebhookService webhookService;
 
-    @Mock
-    private Instance<StripeEventHandler> handlersInstance;
-
-    @Mock
-    private StripeEventHandler checkoutHandler;
+    private MeterRegistry meterRegistry;
 
-    @Mock
-    private StripeEventHandler subscriptionHandler;
+    private Map<StripeEventType, StripeEventHandler> handlers;
 
     @Mock
     private Event event;
 
     @BeforeEach
     void setUp() {
-        webhookService = new StripeWebhookService(handlersInstance);
+        meterRegistry = new SimpleMeterRegistry();
+        handlers = new EnumMap<>(StripeEventType.class);
+        for (StripeEventType eventType : StripeEventType.values()) {
+            handlers.put(eventType, handlerFor(eventType));
+        }
+        webhookService = new StripeWebhookService(handlers.values(), meterRegistry);
     }
 
     @Nested
@@ -49,36 +53,22 @@ class StripeWebhookDispatcherTest {
         @Test
         @DisplayName("should route event to appropriate handler")
         void should_route_event_to_handler() {
-            when(checkoutHandler.getEventType()).thenReturn(StripeEventType.CHECKOUT_SESSION_COMPLETED);
             when(event.getType()).thenReturn("checkout.session.completed");
 
-            List<StripeEventHandler> handlers = new ArrayList<>();
-            handlers.add(checkoutHandler);
-
-            when(handlersInstance.iterator()).thenReturn(handlers.iterator());
-
             webhookService.handleEvent(event);
 
-            verify(checkoutHandler).handle(event);
+            verify(handlers.get(StripeEventType.CHECKOUT_SESSION_COMPLETED)).handle(event);
         }
 
         @Test
         @DisplayName("should not route to wrong handler")
         void should_not_route_to_wrong_handler() {
-            when(checkoutHandler.getEventType()).thenReturn(StripeEventType.CHECKOUT_SESSION_COMPLETED);
-            when(subscriptionHandler.getEventType()).thenReturn(StripeEventType.SUBSCRIPTION_CREATED);
             when(event.getType()).thenReturn("customer.subscription.created");
 
-            List<StripeEventHandler> handlers = new ArrayList<>();
-            handlers.add(checkoutHandler);
-            handlers.add(subscriptionHandler);
-
-            when(handlersInstance.iterator()).thenReturn(handlers.iterator());
-
             webhookService.handleEvent(event);
 
-            verify(checkoutHandler, never()).handle(event);
-            verify(subscriptionHandler).handle(event);
+            verify(handlers.get(StripeEventType.CHECKOUT_SESSION_COMPLETED), never()).handle(event);
+            verify(handlers.get(StripeEventType.SUBSCRIPTION_CREATED)).handle(event);
         }
 
         @Test
@@ -87,65 +77,106 @@ class StripeWebhookDispatcherTest {
             when(event.getType()).thenReturn("unknown.event");
 
             assertDoesNotThrow(() -> webhookService.handleEvent(event));
+            assertEquals(1.0, meterRegistry.get(StripeWebhookService.UNHANDLED_COUNTER).counter().count());
         }
 
         @Test
-        @DisplayName("should throw WebhookHandlerNotFoundException when no handler found for recognized event type")
-        void should_throw_when_handler_not_found() {
-            when(event.getType()).thenReturn("customer.subscription.created");
-            when(event.getId()).thenReturn("evt_test123");
-
-            List<StripeEventHandler> handlers = new ArrayList<>();
-            when(handlersInstance.iterator()).thenReturn(handlers.iterator());
-
-            WebhookHandlerNotFoundException exception = assertThrows(
-                    WebhookHandlerNotFoundException.class,
-                    () -> webhookService.handleEvent(event)
-            );
-
-            assertTrue(exception.getMessage().contains("No handler registered"));
-            assertTrue(exception.getMessage().contains("evt_test123"));
-        }
-
-        @Test
-        @DisplayName("should handle multiple events sequentially")
+        @DisplayName("should handle multiple events without looking handlers up again")
         void should_handle_multiple_events() {
-            when(checkoutHandler.getEventType()).thenReturn(StripeEventType.CHECKOUT_SESSION_COMPLETED);
-            when(subscriptionHandler.getEventType()).thenReturn(StripeEventType.SUBSCRIPTION_CREATED);
-
             Event event1 = new Event();
             event1.setType("checkout.session.completed");
 
             Event event2 = new Event();
             event2.setType("customer.subscription.created");
 
-            List<StripeEventHandler> handlers = new ArrayList<>();
-            handlers.add(checkoutHandler);
-            handlers.add(subscriptionHandler);
-
-            when(handlersInstance.iterator()).thenReturn(handlers.iterator());
-
             webhookService.handleEvent(event1);
             webhookService.handleEvent(event2);
+            webhookService.handleEvent(event1);
 
-            verify(checkoutHandler).handle(event1);
-            verify(subscriptionHandler).handle(event2);
+            StripeEventHandler checkoutHandler = handlers.get(StripeEventType.CHECKOUT_SESSION_COMPLETED);
+            verify(checkoutHandler, times(2)).handle(event1);
+            verify(handlers.get(StripeEventType.SUBSCRIPTION_CREATED)).handle(event2);
+            verify(checkoutHandler, times(1)).getEventType();
         }
 
         @Test
         @DisplayName("should propagate exceptions from handlers")
         void should_propagate_handler_exceptions() {
-            when(checkoutHandler.getEventType()).thenReturn(StripeEventType.CHECKOUT_SESSION_COMPLETED);
             when(event.getType()).thenReturn("checkout.session.completed");
-            doThrow(new RuntimeException("Handler error")).when(checkoutHandler).handle(event);
+            doThrow(new RuntimeException("Handler error"))
+                    .when(handlers.get(StripeEventType.CHECKOUT_SESSION_COMPLETED)).handle(event);
 
-            List<StripeEventHandler> handlers = new ArrayList<>();
-            handlers.add(checkoutHandler);
+            assertThrows(RuntimeException.class, () -> webhookService.handleEvent(event));
+            assertEquals(1, timerCount("checkout.session.completed", "error"));
+        }
+    }
 
-            when(handlersInstance.iterator()).thenReturn(handlers.iterator());
+    @Nested
+    @DisplayName("metrics")
+    class Metrics {
 
-            org.junit.jupiter.api.Assertions.assertThrows(RuntimeException.class, () -> webhookService.handleEvent(event));
+        @Test
+        @DisplayName("should time handled events per type and outcome")
+        void should_time_events_per_type_and_outcome() {
+            when(event.getType()).thenReturn("invoice.paid");
+            doNothing().doThrow(new WebhookProcessingException("Subscription not found"))
+                    .when(handlers.get(StripeEventType.INVOICE_PAID)).handle(event);
+
+            webhookService.handleEvent(event);
+            assertThrows(WebhookProcessingException.class, () -> webhookService.handleEvent(event));
+
+            assertEquals(1, timerCount("invoice.paid", "success"));
+            assertEquals(1, timerCount("invoice.paid", "skipped"));
+            assertEquals(0, timerCount("invoice.paid", "error"));
+            assertEquals(0, timerCount("checkout.session.completed", "success"));
         }
     }
-}
 
+    @Nested
+    @DisplayName("registry")
+    class Registry {
+
+        @Test
+        @DisplayName("should fail fast when a recognized event type has no handler")
+        void should_fail_when_handler_missing() {
+            List<StripeEventHandler> incomplete = new ArrayList<>(handlers.values());
+            incomplete.remove(handlers.get(StripeEventType.SUBSCRIPTION_CREATED));
+
+            WebhookHandlerNotFoundException exception = assertThrows(
+                    WebhookHandlerNotFoundException.class,
+                    () -> new StripeWebhookService(incomplete, meterRegistry)
+            );
+
+            assertTrue(exception.getMessage().contains("No handler registered"));
+            assertTrue(exception.getMessage().contains("SUBSCRIPTION_CREATED"));
+        }
+
+        @Test
+        @DisplayName("should fail fast when an event type has several handlers")
+        void should_fail_when_handler_duplicated() {
+            List<StripeEventHandler> duplicated = new ArrayList<>(handlers.values());
+            duplicated.add(handlerFor(StripeEventType.INVOICE_PAID));
+
+            IllegalStateException exception = assertThrows(
+                    IllegalStateException.class,
+                    () -> new StripeWebhookService(duplicated, meterRegistry)
+            );
+
+            assertTrue(exception.getMessage().contains("INVOICE_PAID"));
+        }
+    }
+
+    private long timerCount(String type, String outcome) {
+        return meterRegistry.get(StripeWebhookService.HANDLER_TIMER)
+                .tag("type", type)
+                .tag("outcome", outcome)
+                .timer()
+                .count();
+    }
+
+    private static StripeEventHandler handlerFor(StripeEventType eventType) {
+        StripeEventHandler handler = mock(StripeEventHandler.class);
+        when(handler.getEventType()).thenReturn(eventType);
+        return handler;
+    }
+}
@@ -11,7 +11,6 @@ import com.lofo.serenia.service.subscription.StripeEventType;
 import com.lofo.serenia.service.subscription.mapper.StripeObjectMapper;
 import com.stripe.model.Event;
 import com.stripe.model.checkout.Session;
-import io.quarkus.hibernate.orm.panache.PanacheQuery;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -42,9 +41,6 @@ class CheckoutSessionCompletedHandlerTest {
     @Mock
     private Event event;
 
-    @Mock
-    private PanacheQuery<Subscription> query;
-
     private Subscription subscription;
     private Session session;
 
@@ -92,8 +88,7 @@ class CheckoutSessionCompletedHandlerTest {
         @DisplayName("should update subscription with Stripe subscription ID")
         void should_update_subscription_id() {
             when(objectMapper.deserialize(event, Session.class)).thenReturn(session);
-            when(subscriptionRepository.find("stripeCustomerId", CUSTOMER_ID)).thenReturn(query);
-            when(query.firstResultOptional()).thenReturn(Optional.of(subscription));
+            when(subscriptionRepository.findByStripeCustomerId(CUSTOMER_ID)).thenReturn(Optional.of(subscription));
 
             handler.handle(event);
 
@@ -107,8 +102,7 @@ class CheckoutSessionCompletedHandlerTest {
         void should_not_update_if_already_set() {
             subscription.setStripeSubscriptionId("sub_existing");
             when(objectMapper.deserialize(event, Session.class)).thenReturn(session);
-            when(subscriptionRepository.find("stripeCustomerId", CUSTOMER_ID)).thenReturn(query);
-            when(query.firstResultOptional()).thenReturn(Optional.of(subscription));
+            when(subscriptionRepository.findByStripeCustomerId(CUSTOMER_ID)).thenReturn(Optional.of(subscription));
 
             handler.handle(event);
 
@@ -120,8 +114,7 @@ class CheckoutSessionCompletedHandlerTest {
         @DisplayName("should throw WebhookProcessingException when subscription not found")
         void should_throw_when_subscription_not_found() {
             when(objectMapper.deserialize(event, Session.class)).thenReturn(session);
-            when(subscriptionRepository.find("stripeCustomerId", CUSTOMER_ID)).thenReturn(query);
-            when(query.firstResultOptional()).thenReturn(Optional.empty());
+            when(subscriptionRepository.findByStripeCustomerId(CUSTOMER_ID)).thenReturn(Optional.empty());
 
             assertThrows(WebhookProcessingException.class, () -> handler.handle(event));
             verify(subscriptionRepository, never()).persist(any(Subscription.class));
@@ -10,7 +10,6 @@ import com.lofo.serenia.service.subscription.StripeEventType;
 import com.lofo.serenia.service.subscription.mapper.StripeObjectMapper;
 import com.stripe.model.Event;
 import com.stripe.model.Invoice;
-import io.quarkus.hibernate.orm.panache.PanacheQuery;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -41,9 +40,6 @@ class InvoicePaidHandlerTest {
     @Mock
     private Event event;
 
-    @Mock
-    private PanacheQuery<Subscription> query;
-
     private Subscription subscription;
     private Invoice invoice;
 
@@ -93,12 +89,11 @@ class InvoicePaidHandlerTest {
         @DisplayName("should log invoice paid when subscription exists")
         void should_log_invoice_paid_when_subscription_found() {
             when(objectMapper.deserialize(event, Invoice.class)).thenReturn(invoice);
-            when(subscriptionRepository.find("stripeCustomerId", CUSTOMER_ID)).thenReturn(query);
-            when(query.firstResultOptional()).thenReturn(Optional.of(subscription));
+            when(subscriptionRepository.findByStripeCustomerId(CUSTOMER_ID)).thenReturn(Optional.of(subscription));
 
             handler.handle(event);
 
-            verify(subscriptionRepository).find("stripeCustomerId", CUSTOMER_ID);
+            verify(subscriptionRepository).findByStripeCustomerId(CUSTOMER_ID);
             verify(subscriptionRepository, never()).persist(any(Subscription.class));
         }
 
@@ -106,8 +101,7 @@ class InvoicePaidHandlerTest {
         @DisplayName("should handle missing subscription gracefully")
         void should_handle_missing_subscription() {
             when(objectMapper.deserialize(event, Invoice.class)).thenReturn(invoice);
-            when(subscriptionRepository.find("stripeCustomerId", CUSTOMER_ID)).thenReturn(query);
-            when(query.firstResultOptional()).thenReturn(Optional.empty());
+            when(subscriptionRepository.findByStripeCustomerId(CUSTOMER_ID)).thenReturn(Optional.empty());
 
             assertDoesNotThrow(() -> handler.handle(event));
             verify(subscriptionRepository, never()).persist(any(Subscription.class));
@@ -11,7 +11,6 @@ import com.lofo.serenia.service.subscription.StripeEventType;
 import com.lofo.serenia.service.subscription.mapper.StripeObjectMapper;
 import com.stripe.model.Event;
 import com.stripe.model.Invoice;
-import io.quarkus.hibernate.orm.panache.PanacheQuery;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -42,9 +41,6 @@ class InvoicePaymentFailedHandlerTest {
     @Mock
     private Event event;
 
-    @Mock
-    private PanacheQuery<Subscription> query;
-
     private Subscription subscription;
     private Invoice invoice;
 
@@ -90,8 +86,7 @@ class InvoicePaymentFailedHandlerTest {
         @DisplayName("should update status to PAST_DUE")
         void should_update_status_to_past_due() {
             when(objectMapper.deserialize(event, Invoice.class)).thenReturn(invoice);
-            when(subscriptionRepository.find("stripeCustomerId", CUSTOMER_ID)).thenReturn(query);
-            when(query.firstResultOptional()).thenReturn(Optional.of(subscription));
+            when(subscriptionRepository.findByStripeCustomerId(CUSTOMER_ID)).thenReturn(Optional.of(subscription));
 
             handler.handle(event);
 
@@ -103,8 +98,7 @@ class InvoicePaymentFailedHandlerTest {
         @DisplayName("should throw WebhookProcessingException when subscription not found")
         void should_throw_when_not_found() {
             when(objectMapper.deserialize(event, Invoice.class)).thenReturn(invoice);
-            when(subscriptionRepository.find("stripeCustomerId", CUSTOMER_ID)).thenReturn(query);
-            when(query.firstResultOptional()).thenReturn(Optional.empty());
+            when(subscriptionRepository.findByStripeCustomerId(CUSTOMER_ID)).thenReturn(Optional.empty());
 
             assertThrows(WebhookProcessingException.class, () -> handler.handle(event));
             verify(subscriptionRepository, never()).persist(any(Subscription.class));
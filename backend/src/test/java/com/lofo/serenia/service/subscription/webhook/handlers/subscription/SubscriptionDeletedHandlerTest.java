@@ -6,12 +6,11 @@ import com.lofo.serenia.persistence.entity.subscription.PlanType;
 import com.lofo.serenia.persistence.entity.subscription.Subscription;
 import com.lofo.serenia.persistence.entity.subscription.SubscriptionStatus;
 import com.lofo.serenia.persistence.entity.user.User;
-import com.lofo.serenia.persistence.repository.PlanRepository;
 import com.lofo.serenia.persistence.repository.SubscriptionRepository;
 import com.lofo.serenia.service.subscription.StripeEventType;
 import com.lofo.serenia.service.subscription.mapper.StripeObjectMapper;
+import com.lofo.serenia.service.subscription.orchestration.SubscriptionOrchestrator;
 import com.stripe.model.Event;
-import io.quarkus.hibernate.orm.panache.PanacheQuery;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -36,7 +35,7 @@ class SubscriptionDeletedHandlerTest {
     private SubscriptionRepository subscriptionRepository;
 
     @Mock
-    private PlanRepository planRepository;
+    private SubscriptionOrchestrator subscriptionOrchestrator;
 
     @Mock
     private StripeObjectMapper objectMapper;
@@ -44,12 +43,8 @@ class SubscriptionDeletedHandlerTest {
     @Mock
     private Event event;
 
-    @Mock
-    private PanacheQuery<Subscription> query;
-
     private Subscription subscription;
     private com.stripe.model.Subscription stripeSubscription;
-    private Plan freePlan;
 
     private static final String CUSTOMER_ID = "cus_test123";
 
@@ -57,7 +52,7 @@ class SubscriptionDeletedHandlerTest {
     void setUp() {
         handler = new SubscriptionDeletedHandler(
                 subscriptionRepository,
-                planRepository,
+                subscriptionOrchestrator,
                 objectMapper
         );
 
@@ -71,11 +66,6 @@ class SubscriptionDeletedHandlerTest {
                 .name(PlanType.PLUS)
                 .build();
 
-        freePlan = Plan.builder()
-                .id(UUID.randomUUID())
-                .name(PlanType.FREE)
-                .build();
-
         subscription = Subscription.builder()
                 .id(UUID.randomUUID())
                 .user(user)
@@ -102,24 +92,15 @@ class SubscriptionDeletedHandlerTest {
         }
 
         @Test
-        @DisplayName("should downgrade user to FREE plan and clear subscription data")
+        @DisplayName("should downgrade the customer's subscription to the FREE plan")
         void should_downgrade_to_free_plan() {
             when(objectMapper.deserialize(event, com.stripe.model.Subscription.class))
                     .thenReturn(stripeSubscription);
-            when(subscriptionRepository.find("stripeCustomerId", CUSTOMER_ID)).thenReturn(query);
-            when(query.firstResultOptional()).thenReturn(Optional.of(subscription));
-            when(planRepository.getFreePlan()).thenReturn(freePlan);
+            when(subscriptionRepository.findByStripeCustomerId(CUSTOMER_ID)).thenReturn(Optional.of(subscription));
 
             handler.handle(event);
 
-            assertEquals(freePlan, subscription.getPlan());
-            assertNull(subscription.getStripeSubscriptionId());
-            assertEquals(CUSTOMER_ID, subscription.getStripeCustomerId());
-            assertEquals(SubscriptionStatus.ACTIVE, subscription.getStatus());
-            assertFalse(subscription.getCancelAtPeriodEnd());
-            assertNull(subscription.getCurrentPeriodEnd());
-
-            verify(subscriptionRepository).persist(subscription);
+            verify(subscriptionOrchestrator).downgradeToFree(subscription);
         }
 
         @Test
@@ -127,11 +108,10 @@ class SubscriptionDeletedHandlerTest {
         void should_throw_when_not_found() {
             when(objectMapper.deserialize(event, com.stripe.model.Subscription.class))
                     .thenReturn(stripeSubscription);
-            when(subscriptionRepository.find("stripeCustomerId", CUSTOMER_ID)).thenReturn(query);
-            when(query.firstResultOptional()).thenReturn(Optional.empty());
+            when(subscriptionRepository.findByStripeCustomerId(CUSTOMER_ID)).thenReturn(Optional.empty());
 
             assertThrows(WebhookProcessingException.class, () -> handler.handle(event));
-            verify(planRepository, never()).getFreePlan();
+            verify(subscriptionOrchestrator, never()).downgradeToFree(any());
         }
     }
 }
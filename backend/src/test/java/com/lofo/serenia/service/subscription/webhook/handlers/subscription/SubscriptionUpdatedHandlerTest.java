@@ -11,7 +11,6 @@ import com.lofo.serenia.service.subscription.StripeEventType;
 import com.lofo.serenia.service.subscription.mapper.StripeObjectMapper;
 import com.lofo.serenia.service.subscription.orchestration.SubscriptionOrchestrator;
 import com.stripe.model.Event;
-import io.quarkus.hibernate.orm.panache.PanacheQuery;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -46,9 +45,6 @@ class SubscriptionUpdatedHandlerTest {
     @Mock
     private Event event;
 
-    @Mock
-    private PanacheQuery<Subscription> query;
-
     private Subscription subscription;
     private com.stripe.model.Subscription stripeSubscription;
 
@@ -97,8 +93,7 @@ class SubscriptionUpdatedHandlerTest {
         void should_deserialize_and_synchronize() {
             when(objectMapper.deserialize(event, com.stripe.model.Subscription.class))
                     .thenReturn(stripeSubscription);
-            when(subscriptionRepository.find("stripeCustomerId", CUSTOMER_ID)).thenReturn(query);
-            when(query.firstResultOptional()).thenReturn(Optional.of(subscription));
+            when(subscriptionRepository.findByStripeCustomerId(CUSTOMER_ID)).thenReturn(Optional.of(subscription));
 
             handler.handle(event);
 
@@ -110,8 +105,7 @@ class SubscriptionUpdatedHandlerTest {
         void should_throw_when_not_found() {
             when(objectMapper.deserialize(event, com.stripe.model.Subscription.class))
                     .thenReturn(stripeSubscription);
-            when(subscriptionRepository.find("stripeCustomerId", CUSTOMER_ID)).thenReturn(query);
-            when(query.firstResultOptional()).thenReturn(Optional.empty());
+            when(subscriptionRepository.findByStripeCustomerId(CUSTOMER_ID)).thenReturn(Optional.empty());
 
             assertThrows(WebhookProcessingException.class, () -> handler.handle(event));
         }
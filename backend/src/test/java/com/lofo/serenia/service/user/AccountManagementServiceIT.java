@@ -9,6 +9,7 @@ import com.lofo.serenia.persistence.repository.ConversationRepository;
 import com.lofo.serenia.persistence.repository.MessageRepository;
 import com.lofo.serenia.persistence.repository.UserRepository;
 import com.lofo.serenia.rest.dto.out.UserResponseDTO;
+import com.lofo.serenia.service.purge.PurgeWorker;
 import com.lofo.serenia.service.user.account.AccountManagementService;
 import io.quarkus.test.junit.QuarkusTest;
 import jakarta.inject.Inject;
@@ -34,6 +35,8 @@ class AccountManagementServiceIT {
     ConversationRepository conversationRepository;
     @Inject
     MessageRepository messageRepository;
+    @Inject
+    PurgeWorker purgeWorker;
     private static final String TEST_EMAIL = "user@example.com";
     private static final String TEST_PASSWORD = "SecurePassword123!";
     private static final String TEST_FIRST_NAME = "John";
@@ -69,6 +72,17 @@ class AccountManagementServiceIT {
         createUser(TEST_EMAIL);
         assertThat(userRepository.count()).isEqualTo(1);
         accountManagementService.deleteAccountAndAssociatedData(TEST_EMAIL);
+        purgeWorker.runPendingJobs();
+        assertThat(userRepository.count()).isZero();
+    }
+    @Test
+    @DisplayName("should_close_account_before_purge_runs")
+    void should_close_account_before_purge_runs() {
+        createUser(TEST_EMAIL);
+        accountManagementService.deleteAccountAndAssociatedData(TEST_EMAIL);
+        assertThatThrownBy(() -> accountManagementService.getUserProfile(TEST_EMAIL))
+                .isInstanceOf(NotFoundException.class);
+        purgeWorker.runPendingJobs();
         assertThat(userRepository.count()).isZero();
     }
     @Test
@@ -87,6 +101,7 @@ class AccountManagementServiceIT {
         createConversation(user.getId());
         assertThat(conversationRepository.count()).isEqualTo(2);
         accountManagementService.deleteAccountAndAssociatedData(TEST_EMAIL);
+        purgeWorker.runPendingJobs();
         assertThat(conversationRepository.count()).isZero();
     }
     @Test
@@ -99,6 +114,7 @@ class AccountManagementServiceIT {
         createMessage(user.getId(), conversation.getId());
         assertThat(messageRepository.count()).isEqualTo(2);
         accountManagementService.deleteAccountAndAssociatedData(TEST_EMAIL);
+        purgeWorker.runPendingJobs();
         assertThat(messageRepository.count()).isZero();
     }
     @Test
@@ -114,6 +130,7 @@ class AccountManagementServiceIT {
         assertThat(conversationRepository.count()).isEqualTo(2);
         assertThat(messageRepository.count()).isEqualTo(2);
         accountManagementService.deleteAccountAndAssociatedData(TEST_EMAIL);
+        purgeWorker.runPendingJobs();
         assertThat(userRepository.count()).isEqualTo(1);
         assertThat(conversationRepository.count()).isEqualTo(1);
         assertThat(messageRepository.count()).isEqualTo(1);
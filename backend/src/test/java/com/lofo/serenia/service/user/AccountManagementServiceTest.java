@@ -3,19 +3,16 @@ package com.lofo.serenia.service.user;
 import com.lofo.serenia.mapper.UserMapper;
 import com.lofo.serenia.persistence.entity.user.Role;
 import com.lofo.serenia.persistence.entity.user.User;
-import com.lofo.serenia.persistence.repository.UserRepository;
 import com.lofo.serenia.rest.dto.out.UserResponseDTO;
-import com.lofo.serenia.service.chat.ConversationService;
+import com.lofo.serenia.service.purge.PurgeService;
 import com.lofo.serenia.service.user.account.AccountManagementService;
 import com.lofo.serenia.service.user.shared.UserFinder;
 import jakarta.ws.rs.NotFoundException;
-import jakarta.ws.rs.WebApplicationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -30,10 +27,7 @@ import static org.mockito.Mockito.*;
 class AccountManagementServiceTest {
 
     @Mock
-    private UserRepository userRepository;
-
-    @Mock
-    private ConversationService conversationService;
+    private PurgeService purgeService;
 
     @Mock
     private UserMapper userMapper;
@@ -51,8 +45,7 @@ class AccountManagementServiceTest {
     @BeforeEach
     void setUp() {
         accountManagementService = new AccountManagementService(
-                userRepository,
-                conversationService,
+                purgeService,
                 userMapper,
                 userFinder
         );
@@ -96,45 +89,25 @@ class AccountManagementServiceTest {
     class DeleteAccountAndAssociatedData {
 
         @Test
-        @DisplayName("should delete user and all related data")
-        void should_delete_user_and_all_related_data() {
+        @DisplayName("should schedule the purge of the user")
+        void should_schedule_purge_of_user() {
             User user = createUser();
 
             when(userFinder.findByEmailOrThrow(USER_EMAIL)).thenReturn(user);
-            when(userRepository.deleteById(USER_ID)).thenReturn(1L);
 
             accountManagementService.deleteAccountAndAssociatedData(USER_EMAIL);
 
-            verify(conversationService).deleteUserConversations(USER_ID);
-            verify(userRepository).deleteById(USER_ID);
+            verify(purgeService).requestAccountPurge(user);
         }
 
         @Test
-        @DisplayName("should throw when deletion fails")
-        void should_throw_when_deletion_fails() {
-            User user = createUser();
-
-            when(userFinder.findByEmailOrThrow(USER_EMAIL)).thenReturn(user);
-            when(userRepository.deleteById(USER_ID)).thenReturn(0L);
+        @DisplayName("should throw when user not found")
+        void should_throw_when_user_not_found() {
+            when(userFinder.findByEmailOrThrow(USER_EMAIL)).thenThrow(new NotFoundException("User not found"));
 
             assertThatThrownBy(() -> accountManagementService.deleteAccountAndAssociatedData(USER_EMAIL))
-                    .isInstanceOf(WebApplicationException.class)
-                    .hasMessageContaining("Unable to delete account");
-        }
-
-        @Test
-        @DisplayName("should delete conversations before user record")
-        void should_delete_conversations_before_user_record() {
-            User user = createUser();
-
-            when(userFinder.findByEmailOrThrow(USER_EMAIL)).thenReturn(user);
-            when(userRepository.deleteById(USER_ID)).thenReturn(1L);
-
-            accountManagementService.deleteAccountAndAssociatedData(USER_EMAIL);
-
-            InOrder inOrder = inOrder(conversationService, userRepository);
-            inOrder.verify(conversationService).deleteUserConversations(USER_ID);
-            inOrder.verify(userRepository).deleteById(USER_ID);
+                    .isInstanceOf(NotFoundException.class);
+            verifyNoInteractions(purgeService);
         }
     }
 
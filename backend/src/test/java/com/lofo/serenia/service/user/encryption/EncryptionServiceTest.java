@@ -3,6 +3,7 @@ package com.lofo.serenia.service.user.encryption;
 import com.lofo.serenia.config.SereniaConfig;
 import com.lofo.serenia.exception.exceptions.EncryptionException;
 import com.lofo.serenia.service.chat.EncryptionService;
+import com.lofo.serenia.service.chat.UserKeyCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -18,9 +19,15 @@ import javax.crypto.spec.SecretKeySpec;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.when;
@@ -51,7 +58,11 @@ class EncryptionServiceTest {
     @BeforeEach
     void setUp() {
         when(sereniaConfig.securityKey()).thenReturn(VALID_BASE64_KEY_256);
-        encryptionService = new EncryptionService(sereniaConfig);
+        encryptionService = new EncryptionService(sereniaConfig, newKeyCache());
+    }
+
+    private static UserKeyCache newKeyCache() {
+        return new UserKeyCache(100, Duration.ofMinutes(5));
     }
 
     @Nested
@@ -67,7 +78,7 @@ class EncryptionServiceTest {
         @Test
         @DisplayName("Should throw exception when config is null")
         void shouldThrowExceptionWhenConfigIsNull() {
-            assertThrows(NullPointerException.class, () -> new EncryptionService(null));
+            assertThrows(NullPointerException.class, () -> new EncryptionService(null, newKeyCache()));
         }
 
         @Test
@@ -75,7 +86,7 @@ class EncryptionServiceTest {
         void shouldThrowExceptionWhenSecurityKeyIsNull() {
             when(sereniaConfig.securityKey()).thenReturn(null);
             EncryptionException exception = assertThrows(EncryptionException.class,
-                    () -> new EncryptionService(sereniaConfig));
+                    () -> new EncryptionService(sereniaConfig, newKeyCache()));
             assertEquals("Configuration property 'serenia.security.key' must not be null or blank",
                     exception.getMessage());
         }
@@ -85,7 +96,7 @@ class EncryptionServiceTest {
         void shouldThrowExceptionWhenSecurityKeyIsBlank() {
             when(sereniaConfig.securityKey()).thenReturn("   ");
             EncryptionException exception = assertThrows(EncryptionException.class,
-                    () -> new EncryptionService(sereniaConfig));
+                    () -> new EncryptionService(sereniaConfig, newKeyCache()));
             assertEquals("Configuration property 'serenia.security.key' must not be null or blank",
                     exception.getMessage());
         }
@@ -96,7 +107,7 @@ class EncryptionServiceTest {
             // 15 bytes = invalid (must be 16, 24, or 32)
             when(sereniaConfig.securityKey()).thenReturn(Base64.getEncoder().encodeToString(new byte[15]));
             EncryptionException exception = assertThrows(EncryptionException.class,
-                    () -> new EncryptionService(sereniaConfig));
+                    () -> new EncryptionService(sereniaConfig, newKeyCache()));
             assertTrue(exception.getMessage().contains("Invalid length"));
         }
 
@@ -104,21 +115,21 @@ class EncryptionServiceTest {
         @DisplayName("Should initialize with 128-bit key")
         void shouldInitializeWith128BitKey() {
             when(sereniaConfig.securityKey()).thenReturn(VALID_BASE64_KEY_128);
-            assertDoesNotThrow(() -> new EncryptionService(sereniaConfig));
+            assertDoesNotThrow(() -> new EncryptionService(sereniaConfig, newKeyCache()));
         }
 
         @Test
         @DisplayName("Should initialize with 192-bit key")
         void shouldInitializeWith192BitKey() {
             when(sereniaConfig.securityKey()).thenReturn(VALID_BASE64_KEY_192);
-            assertDoesNotThrow(() -> new EncryptionService(sereniaConfig));
+            assertDoesNotThrow(() -> new EncryptionService(sereniaConfig, newKeyCache()));
         }
 
         @Test
         @DisplayName("Should initialize with hex-prefixed key")
         void shouldInitializeWithHexKey() {
             when(sereniaConfig.securityKey()).thenReturn(VALID_HEX_KEY_256);
-            assertDoesNotThrow(() -> new EncryptionService(sereniaConfig));
+            assertDoesNotThrow(() -> new EncryptionService(sereniaConfig, newKeyCache()));
         }
 
         @Test
@@ -126,7 +137,7 @@ class EncryptionServiceTest {
         void shouldThrowExceptionWhenKeyFormatIsInvalid() {
             when(sereniaConfig.securityKey()).thenReturn("!@#$%^&*()");
             EncryptionException exception = assertThrows(EncryptionException.class,
-                    () -> new EncryptionService(sereniaConfig));
+                    () -> new EncryptionService(sereniaConfig, newKeyCache()));
             assertTrue(exception.getMessage().contains("Invalid format"));
         }
     }
@@ -322,6 +333,34 @@ class EncryptionServiceTest {
 
             assertEquals(original, current);
         }
+
+        @Test
+        @DisplayName("Should leave the encrypted payload untouched when decrypting")
+        void shouldLeaveEncryptedPayloadUntouched() {
+            byte[] encrypted = encryptionService.encryptForUser(TEST_USER_ID, LONG_PLAINTEXT);
+            byte[] snapshot = encrypted.clone();
+
+            encryptionService.decryptForUser(TEST_USER_ID, encrypted);
+
+            assertArrayEquals(snapshot, encrypted);
+        }
+
+        @Test
+        @DisplayName("Should round-trip concurrently with pooled ciphers")
+        void shouldRoundTripConcurrently() throws Exception {
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<Boolean>> results = new ArrayList<>();
+                for (int i = 0; i < 200; i++) {
+                    String text = TEST_PLAINTEXT + i + " " + "x".repeat(i);
+                    UUID userId = new UUID(0L, i % 7);
+                    results.add(executor.submit(() ->
+                            text.equals(encryptionService.decryptForUser(userId, encryptionService.encryptForUser(userId, text)))));
+                }
+                for (Future<Boolean> result : results) {
+                    assertTrue(result.get());
+                }
+            }
+        }
     }
 
     @Nested
@@ -332,7 +371,7 @@ class EncryptionServiceTest {
         @DisplayName("Should parse hex key with 0x prefix")
         void shouldParseHexKeyWith0xPrefix() {
             when(sereniaConfig.securityKey()).thenReturn(VALID_HEX_KEY_256);
-            EncryptionService service = new EncryptionService(sereniaConfig);
+            EncryptionService service = new EncryptionService(sereniaConfig, newKeyCache());
             assertNotNull(service);
         }
 
@@ -341,7 +380,7 @@ class EncryptionServiceTest {
         void shouldParseHexKeyWith0XPrefix() {
             String upperCaseHex = VALID_HEX_KEY_256.replace("0x", "0X");
             when(sereniaConfig.securityKey()).thenReturn(upperCaseHex);
-            EncryptionService service = new EncryptionService(sereniaConfig);
+            EncryptionService service = new EncryptionService(sereniaConfig, newKeyCache());
             assertNotNull(service);
         }
 
@@ -349,7 +388,7 @@ class EncryptionServiceTest {
         @DisplayName("Should reject hex key with odd length")
         void shouldRejectHexKeyWithOddLength() {
             when(sereniaConfig.securityKey()).thenReturn("0xABC");
-            assertThrows(EncryptionException.class, () -> new EncryptionService(sereniaConfig));
+            assertThrows(EncryptionException.class, () -> new EncryptionService(sereniaConfig, newKeyCache()));
         }
 
         @Test
@@ -357,7 +396,7 @@ class EncryptionServiceTest {
         void shouldHandleHexKeyWithSpaces() {
             String hexWithSpaces = "0x A8D3582A 817B09D2 C5D17DD1 E7073E6D";
             when(sereniaConfig.securityKey()).thenReturn(hexWithSpaces);
-            EncryptionService service = new EncryptionService(sereniaConfig);
+            EncryptionService service = new EncryptionService(sereniaConfig, newKeyCache());
             assertNotNull(service);
         }
 
@@ -365,7 +404,7 @@ class EncryptionServiceTest {
         @DisplayName("Should reject invalid hex characters")
         void shouldRejectInvalidHexCharacters() {
             when(sereniaConfig.securityKey()).thenReturn("0xGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGG");
-            assertThrows(EncryptionException.class, () -> new EncryptionService(sereniaConfig));
+            assertThrows(EncryptionException.class, () -> new EncryptionService(sereniaConfig, newKeyCache()));
         }
     }
 
@@ -467,7 +506,7 @@ class EncryptionServiceTest {
         @DisplayName("Should work with 128-bit key")
         void shouldWorkWith128BitKey() {
             when(sereniaConfig.securityKey()).thenReturn(VALID_BASE64_KEY_128);
-            EncryptionService service = new EncryptionService(sereniaConfig);
+            EncryptionService service = new EncryptionService(sereniaConfig, newKeyCache());
             byte[] encrypted = service.encryptForUser(TEST_USER_ID, TEST_PLAINTEXT);
             String decrypted = service.decryptForUser(TEST_USER_ID, encrypted);
             assertEquals(TEST_PLAINTEXT, decrypted);
@@ -477,7 +516,7 @@ class EncryptionServiceTest {
         @DisplayName("Should work with 192-bit key")
         void shouldWorkWith192BitKey() {
             when(sereniaConfig.securityKey()).thenReturn(VALID_BASE64_KEY_192);
-            EncryptionService service = new EncryptionService(sereniaConfig);
+            EncryptionService service = new EncryptionService(sereniaConfig, newKeyCache());
             byte[] encrypted = service.encryptForUser(TEST_USER_ID, TEST_PLAINTEXT);
             String decrypted = service.decryptForUser(TEST_USER_ID, encrypted);
             assertEquals(TEST_PLAINTEXT, decrypted);
@@ -487,7 +526,7 @@ class EncryptionServiceTest {
         @DisplayName("Should work with 256-bit key")
         void shouldWorkWith256BitKey() {
             when(sereniaConfig.securityKey()).thenReturn(VALID_BASE64_KEY_256);
-            EncryptionService service = new EncryptionService(sereniaConfig);
+            EncryptionService service = new EncryptionService(sereniaConfig, newKeyCache());
             byte[] encrypted = service.encryptForUser(TEST_USER_ID, TEST_PLAINTEXT);
             String decrypted = service.decryptForUser(TEST_USER_ID, encrypted);
             assertEquals(TEST_PLAINTEXT, decrypted);
@@ -0,0 +1,132 @@
+package com.lofo.serenia.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for the Stripe API, serving {@code GET /v1/subscriptions} from a fixed list of subscriptions
+ * with Stripe's cursor pagination ({@code limit}, {@code starting_after}, {@code has_more}).
+ * Point the SDK at it with {@code Stripe.overrideApiBase(stub.baseUrl())}.
+ */
+public final class StripeApiStub implements AutoCloseable {
+
+    private static final int DEFAULT_LIMIT = 10;
+    private static final int MAX_LIMIT = 100;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final List<StubSubscription> subscriptions;
+    private final Map<String, Integer> positions = new HashMap<>();
+    private final AtomicInteger pageRequests = new AtomicInteger();
+
+    /**
+     * A Stripe subscription with a single item, reduced to the fields the application reads.
+     */
+    public record StubSubscription(String id, String customer, String status, String priceId,
+                                   long currentPeriodEnd, boolean cancelAtPeriodEnd) {
+    }
+
+    private StripeApiStub(List<StubSubscription> subscriptions) throws IOException {
+        this.subscriptions = List.copyOf(subscriptions);
+        for (int i = 0; i < this.subscriptions.size(); i++) {
+            positions.put(this.subscriptions.get(i).id(), i);
+        }
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/v1/subscriptions", this::listSubscriptions);
+        this.server.setExecutor(executor);
+        this.server.start();
+    }
+
+    /**
+     * Starts a stub on a free local port, listing the subscriptions in the given order.
+     */
+    public static StripeApiStub start(List<StubSubscription> subscriptions) throws IOException {
+        return new StripeApiStub(subscriptions);
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Number of pages served so far.
+     */
+    public int pageRequests() {
+        return pageRequests.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void listSubscriptions(HttpExchange exchange) throws IOException {
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        int limit = Math.min(MAX_LIMIT, Integer.parseInt(query.getOrDefault("limit", String.valueOf(DEFAULT_LIMIT))));
+        String startingAfter = query.get("starting_after");
+        int from = startingAfter == null ? 0 : positions.getOrDefault(startingAfter, subscriptions.size() - 1) + 1;
+        int to = Math.min(subscriptions.size(), from + limit);
+        pageRequests.incrementAndGet();
+
+        StringBuilder json = new StringBuilder(256 * (to - from) + 128)
+                .append("{\"object\":\"list\",\"url\":\"/v1/subscriptions\",\"has_more\":")
+                .append(to < subscriptions.size())
+                .append(",\"data\":[");
+        for (int i = from; i < to; i++) {
+            if (i > from) {
+                json.append(',');
+            }
+            appendSubscription(json, subscriptions.get(i));
+        }
+        json.append("]}");
+
+        byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.getResponseHeaders().set("Request-Id", "req_stub_" + pageRequests.get());
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void appendSubscription(StringBuilder json, StubSubscription subscription) {
+        json.append("{\"id\":\"").append(subscription.id())
+                .append("\",\"object\":\"subscription\",\"customer\":\"").append(subscription.customer())
+                .append("\",\"status\":\"").append(subscription.status())
+                .append("\",\"cancel_at_period_end\":").append(subscription.cancelAtPeriodEnd())
+                .append(",\"items\":{\"object\":\"list\",\"url\":\"/v1/subscription_items?subscription=")
+                .append(subscription.id())
+                .append("\",\"has_more\":false,\"data\":[{\"id\":\"si_").append(subscription.id())
+                .append("\",\"object\":\"subscription_item\",\"current_period_end\":").append(subscription.currentPeriodEnd())
+                .append(",\"price\":{\"id\":\"").append(subscription.priceId())
+                .append("\",\"object\":\"price\"}}]}}");
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                query.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+}
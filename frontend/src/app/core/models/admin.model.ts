@@ -19,6 +19,10 @@ export interface EngagementStats {
   activeUsers: number;
   activationRate: number;
   avgMessagesPerUser: number;
+  dailyActiveUsers: number;
+  weeklyActiveUsers: number;
+  monthlyActiveUsers: number;
+  monthlyEngagementRate: number;
 }
 
 export interface SubscriptionStats {